@@ -0,0 +1,44 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/** Test files for the benchmarks, in the folder given by the {@code benchmark.dir} property. */
+final class BenchmarkFiles {
+  private BenchmarkFiles() {}
+
+  /** A fresh folder that {@link #delete} removes again. */
+  static File createDirectory(String prefix) throws IOException {
+    File parent = new File(System.getProperty("benchmark.dir", System.getProperty("java.io.tmpdir")));
+    File directory = new File(parent, prefix + "-" + System.nanoTime());
+    if (!directory.mkdirs()) {
+      throw new IOException("Could not create " + directory);
+    }
+    return directory;
+  }
+
+  /** Writes {@code size} random bytes, the same for every run, to {@code file}. */
+  static File createFile(File file, long size) throws IOException {
+    Random random = new Random(size);
+    byte[] chunk = new byte[1024 * 1024];
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      for (long written = 0; written < size; written += chunk.length) {
+        random.nextBytes(chunk);
+        out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+      }
+    }
+    return file;
+  }
+
+  static void delete(File directory) {
+    File[] children = directory.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        child.delete();
+      }
+    }
+    directory.delete();
+  }
+}
@@ -0,0 +1,60 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Copies with the buffered engines at different buffer sizes. The copies are hashed, because
+ * without a hash the channel engine transfers in the kernel and uses no buffer at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BufferSizeBenchmark {
+  @Param({ "1048576", "33554432" })
+  public long fileSize;
+
+  @Param({ StreamCopyEngine.NAME, ChannelCopyEngine.NAME })
+  public String engine;
+
+  @Param({ "8192", "65536", "262144", "1048576" })
+  public int bufferSize;
+
+  private final FileCopier copier = new FileCopier(new TransferMetrics());
+  private File directory;
+  private File source;
+  private File target;
+  private CopyEngine copyEngine;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = BenchmarkFiles.createDirectory("buffers");
+    source = BenchmarkFiles.createFile(new File(directory, "source.jpg"), fileSize);
+    target = new File(directory, "target.jpg");
+    copyEngine = StreamCopyEngine.NAME.equals(engine)
+        ? new StreamCopyEngine(bufferSize)
+        : new ChannelCopyEngine(bufferSize);
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkFiles.delete(directory);
+  }
+
+  @Benchmark
+  public long copy() throws IOException {
+    XxHash64 hash = new XxHash64();
+    copier.copy(source, target, 0, copyEngine, hash, null);
+    return hash.digest();
+  }
+}
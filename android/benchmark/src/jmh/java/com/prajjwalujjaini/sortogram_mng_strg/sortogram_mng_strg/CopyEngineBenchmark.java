@@ -0,0 +1,56 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** Copies one file with each engine, with and without the streaming hash the default verification needs. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CopyEngineBenchmark {
+  @Param({ "102400", "1048576", "4194304", "33554432", "209715200" })
+  public long fileSize;
+
+  @Param({ StreamCopyEngine.NAME, ChannelCopyEngine.NAME, PipelinedCopyEngine.NAME })
+  public String engine;
+
+  @Param({ "false", "true" })
+  public boolean hashed;
+
+  private final FileCopier copier = new FileCopier(new TransferMetrics());
+  private File directory;
+  private File source;
+  private File target;
+  private CopyEngine copyEngine;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = BenchmarkFiles.createDirectory("copy");
+    source = BenchmarkFiles.createFile(new File(directory, "source.jpg"), fileSize);
+    target = new File(directory, "target.jpg");
+    copyEngine = CopyEngines.forName(engine);
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkFiles.delete(directory);
+  }
+
+  @Benchmark
+  public long copy() throws IOException {
+    XxHash64 hash = hashed ? new XxHash64() : null;
+    // Truncates the copy of the previous invocation
+    long copied = copier.copy(source, target, 0, copyEngine, hash, null);
+    return hash != null ? hash.digest() : copied;
+  }
+}
@@ -0,0 +1,90 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Hashes data already in memory, so only the algorithm is measured: xxHash64 as used for
+ * verification, against MD5 (what verification used before), SHA-256 and CRC32. Data is fed in
+ * 64 KB pieces like a file read would, from a heap or a direct buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HashBenchmark {
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  @Param({ "102400", "4194304", "33554432" })
+  public int size;
+
+  private byte[] data;
+  private ByteBuffer directData;
+
+  @Setup
+  public void setUp() {
+    data = new byte[size];
+    new Random(size).nextBytes(data);
+    directData = ByteBuffer.allocateDirect(size);
+    directData.put(data);
+    directData.flip();
+  }
+
+  @Benchmark
+  public long xxHash64() {
+    XxHash64 hash = new XxHash64();
+    for (int offset = 0; offset < size; offset += CHUNK_SIZE) {
+      hash.update(data, offset, Math.min(CHUNK_SIZE, size - offset));
+    }
+    return hash.digest();
+  }
+
+  @Benchmark
+  public long xxHash64Direct() {
+    XxHash64 hash = new XxHash64();
+    ByteBuffer buffer = directData.duplicate();
+    for (int offset = 0; offset < size; offset += CHUNK_SIZE) {
+      buffer.limit(Math.min(size, offset + CHUNK_SIZE));
+      buffer.position(offset);
+      hash.update(buffer);
+    }
+    return hash.digest();
+  }
+
+  @Benchmark
+  public byte[] md5() throws NoSuchAlgorithmException {
+    return digest(MessageDigest.getInstance("MD5"));
+  }
+
+  @Benchmark
+  public byte[] sha256() throws NoSuchAlgorithmException {
+    return digest(MessageDigest.getInstance("SHA-256"));
+  }
+
+  @Benchmark
+  public long crc32() {
+    CRC32 crc = new CRC32();
+    for (int offset = 0; offset < size; offset += CHUNK_SIZE) {
+      crc.update(data, offset, Math.min(CHUNK_SIZE, size - offset));
+    }
+    return crc.getValue();
+  }
+
+  private byte[] digest(MessageDigest digest) {
+    for (int offset = 0; offset < size; offset += CHUNK_SIZE) {
+      digest.update(data, offset, Math.min(CHUNK_SIZE, size - offset));
+    }
+    return digest.digest();
+  }
+}
@@ -0,0 +1,57 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** Checks a finished copy at each verification level, i.e. the work done after the bytes are written. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VerificationBenchmark {
+  @Param({ "102400", "1048576", "4194304", "33554432", "209715200" })
+  public long fileSize;
+
+  @Param({ "size", "streamingHash", "full" })
+  public String verification;
+
+  private final FileCopier copier = new FileCopier(new TransferMetrics());
+  private File directory;
+  private File source;
+  private File target;
+  private Verification level;
+  private XxHash64 streamingHash;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = BenchmarkFiles.createDirectory("verify");
+    source = BenchmarkFiles.createFile(new File(directory, "source.jpg"), fileSize);
+    target = new File(directory, "target.jpg");
+    level = Verification.forName(verification);
+    // What the copy engine hands over for streaming verification
+    streamingHash = new XxHash64();
+    copier.copy(source, target, 0, CopyEngines.DEFAULT, streamingHash, null);
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkFiles.delete(directory);
+  }
+
+  @Benchmark
+  public boolean verify() throws IOException {
+    if (!copier.verify(source, target, level, streamingHash)) {
+      throw new IllegalStateException("Copy does not match its source");
+    }
+    return true;
+  }
+}
@@ -0,0 +1,107 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Reusable I/O buffers, so that copying and hashing a file does not allocate new buffers every
+ * time. Direct buffers are the expensive case: each one is a native allocation that the garbage
+ * collector only frees after a finalizer has run.
+ *
+ * Buffers come in power-of-two size classes from {@link #MIN_SIZE} to {@link #MAX_SIZE}, and each
+ * class keeps up to {@link #MAX_IDLE_PER_CLASS} released buffers. A buffer may be larger than
+ * requested, so callers pass explicit lengths (heap) or rely on the limit (direct). Larger requests
+ * are allocated normally and dropped on release. Thread-safe; a buffer may be released by another
+ * thread than the one that acquired it.
+ */
+final class BufferPool {
+  static final int MIN_SIZE = 8 * 1024;
+  static final int MAX_SIZE = 4 * 1024 * 1024;
+  static final int MAX_IDLE_PER_CLASS = 8;
+
+  private static final int CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_SIZE / MIN_SIZE) + 1;
+
+  private static final Slots<byte[]> HEAP = new Slots<>();
+  private static final Slots<ByteBuffer> DIRECT = new Slots<>();
+
+  private BufferPool() {}
+
+  /** Returns a heap buffer of at least {@code size} bytes. */
+  static byte[] acquireHeap(int size) {
+    int sizeClass = sizeClassOf(size);
+    byte[] buffer = sizeClass >= 0 ? HEAP.poll(sizeClass) : null;
+    return buffer != null ? buffer : new byte[sizeClass >= 0 ? MIN_SIZE << sizeClass : size];
+  }
+
+  static void releaseHeap(byte[] buffer) {
+    int sizeClass = exactSizeClassOf(buffer.length);
+    if (sizeClass >= 0) {
+      HEAP.offer(sizeClass, buffer);
+    }
+  }
+
+  /** Returns a cleared direct buffer with its limit set to {@code size}. */
+  static ByteBuffer acquireDirect(int size) {
+    int sizeClass = sizeClassOf(size);
+    ByteBuffer buffer = sizeClass >= 0 ? DIRECT.poll(sizeClass) : null;
+    if (buffer == null) {
+      buffer = ByteBuffer.allocateDirect(sizeClass >= 0 ? MIN_SIZE << sizeClass : size);
+    }
+    buffer.clear();
+    buffer.limit(size);
+    return buffer;
+  }
+
+  static void releaseDirect(ByteBuffer buffer) {
+    int sizeClass = exactSizeClassOf(buffer.capacity());
+    if (buffer.isDirect() && sizeClass >= 0) {
+      DIRECT.offer(sizeClass, buffer);
+    }
+  }
+
+  /** The smallest size class that fits {@code size}, or -1 if it is too large to pool. */
+  static int sizeClassOf(int size) {
+    if (size > MAX_SIZE) {
+      return -1;
+    }
+    if (size <= MIN_SIZE) {
+      return 0;
+    }
+    return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_SIZE);
+  }
+
+  /** The size class {@code capacity} is exactly, or -1 if it is none, e.g. an unpooled buffer. */
+  private static int exactSizeClassOf(int capacity) {
+    int sizeClass = sizeClassOf(capacity);
+    return sizeClass >= 0 && MIN_SIZE << sizeClass == capacity ? sizeClass : -1;
+  }
+
+  /**
+   * Fixed slots for idle buffers, one row per size class. Claiming and returning a slot is a
+   * compare-and-set, so unlike a linked queue the pool itself never allocates.
+   */
+  private static final class Slots<T> {
+    private final AtomicReferenceArray<T> slots = new AtomicReferenceArray<>(CLASS_COUNT * MAX_IDLE_PER_CLASS);
+
+    T poll(int sizeClass) {
+      int first = sizeClass * MAX_IDLE_PER_CLASS;
+      for (int i = first; i < first + MAX_IDLE_PER_CLASS; i++) {
+        T buffer = slots.get(i);
+        if (buffer != null && slots.compareAndSet(i, buffer, null)) {
+          return buffer;
+        }
+      }
+      return null;
+    }
+
+    /** Keeps {@code buffer} if a slot of its class is free, otherwise leaves it to the collector. */
+    void offer(int sizeClass, T buffer) {
+      int first = sizeClass * MAX_IDLE_PER_CLASS;
+      for (int i = first; i < first + MAX_IDLE_PER_CLASS; i++) {
+        if (slots.get(i) == null && slots.compareAndSet(i, null, buffer)) {
+          return;
+        }
+      }
+    }
+  }
+}
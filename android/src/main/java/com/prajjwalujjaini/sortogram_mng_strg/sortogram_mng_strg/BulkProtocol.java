@@ -0,0 +1,260 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary messages of the {@code sortogram_mng_strg/bulk} channel, which carries the calls
+ * with one entry per file ({@code moveImages}, {@code copyImages}, {@code getRealPaths}) as flat
+ * tables instead of a map per file. Must match {@code sortogram_mng_strg_bulk_protocol.dart}.
+ *
+ * All numbers are big-endian. A string is a 32-bit byte length followed by its UTF-8 bytes, with
+ * length -1 for null. A request is:
+ * <pre>
+ *   u8 VERSION, u8 operation
+ *   u32 n, then n key/value string pairs: the operation id and the transfer options
+ *   u32 n, then n strings: source and destination paths alternating, or the paths to resolve
+ * </pre>
+ * A reply starts with {@code u8 VERSION, u8 status}. {@link #REPLY_ERROR} is followed by the error
+ * code and message strings. {@link #REPLY_OK} is followed by {@code u32 n} and, for a transfer,
+ * one {@link #ITEM_TRANSFERRED}/{@link #ITEM_SKIPPED}/{@link #ITEM_FAILED} byte per item, then the
+ * exceptions by item index:
+ * <pre>
+ *   u32 n, then n (u32 index, string path): items that ended up on another name
+ *   u16 n, then n strings: the distinct error codes
+ *   u32 n, then n (u32 index, u16 code, string message): the failed items
+ * </pre>
+ * For {@code getRealPaths} it is followed by n strings, null for paths that did not resolve.
+ */
+final class BulkProtocol {
+  static final String CHANNEL = "sortogram_mng_strg/bulk";
+
+  static final byte VERSION = 1;
+
+  static final byte MOVE_IMAGES = 1;
+  static final byte COPY_IMAGES = 2;
+  static final byte GET_REAL_PATHS = 3;
+
+  static final byte REPLY_OK = 0;
+  static final byte REPLY_ERROR = 1;
+
+  static final byte ITEM_TRANSFERRED = 0;
+  static final byte ITEM_SKIPPED = 1;
+  static final byte ITEM_FAILED = 2;
+
+  private static final int NULL_LENGTH = -1;
+
+  private BulkProtocol() {}
+
+  /** A decoded request. */
+  static final class Request {
+    final byte operation;
+    /** The operation id and transfer options, as the method channel would pass them. */
+    final Map<String, String> arguments;
+    final List<String> paths;
+
+    Request(byte operation, Map<String, String> arguments, List<String> paths) {
+      this.operation = operation;
+      this.arguments = arguments;
+      this.paths = paths;
+    }
+
+    /**
+     * The items of a transfer request.
+     *
+     * @throws TransferException with {@code INVALID_ARGUMENTS} if a path is missing
+     */
+    List<TransferItem> items() throws TransferException {
+      if (paths.size() % 2 != 0) {
+        throw new TransferException("INVALID_ARGUMENTS", "Paths must come in source/destination pairs");
+      }
+      List<TransferItem> items = new ArrayList<>(paths.size() / 2);
+      for (int i = 0; i < paths.size(); i += 2) {
+        if (paths.get(i) == null || paths.get(i + 1) == null) {
+          throw new TransferException("INVALID_ARGUMENTS", "Source or destination path is null");
+        }
+        items.add(new TransferItem(paths.get(i), paths.get(i + 1)));
+      }
+      return items;
+    }
+  }
+
+  /**
+   * Decodes {@code message} completely, so the buffer may be reused once this returns.
+   *
+   * @throws TransferException with {@code INVALID_ARGUMENTS} if the message is malformed or of
+   *     another protocol version
+   */
+  static Request decodeRequest(ByteBuffer message) throws TransferException {
+    if (message == null) {
+      throw new TransferException("INVALID_ARGUMENTS", "Empty bulk message");
+    }
+    message.order(ByteOrder.BIG_ENDIAN);
+    try {
+      byte version = message.get();
+      if (version != VERSION) {
+        throw new TransferException("INVALID_ARGUMENTS", "Unsupported bulk protocol version " + version);
+      }
+      byte operation = message.get();
+      Decoder decoder = new Decoder(message);
+      int argumentCount = decoder.count();
+      Map<String, String> arguments = new HashMap<>();
+      for (int i = 0; i < argumentCount; i++) {
+        arguments.put(decoder.string(), decoder.string());
+      }
+      int pathCount = decoder.count();
+      List<String> paths = new ArrayList<>(pathCount);
+      for (int i = 0; i < pathCount; i++) {
+        paths.add(decoder.string());
+      }
+      if (message.hasRemaining()) {
+        throw new TransferException("INVALID_ARGUMENTS", "Bulk message has trailing bytes");
+      }
+      return new Request(operation, arguments, paths);
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new TransferException("INVALID_ARGUMENTS", "Truncated bulk message");
+    }
+  }
+
+  /** Encodes the outcome of every item of a transfer, in request order. */
+  static ByteBuffer encodeResults(List<TransferItem> items) {
+    List<byte[]> renamed = new ArrayList<>();
+    List<Integer> renamedIndexes = new ArrayList<>();
+    Map<String, Integer> codes = new LinkedHashMap<>();
+    List<byte[]> codeBytes = new ArrayList<>();
+    List<Integer> failedIndexes = new ArrayList<>();
+    List<byte[]> messages = new ArrayList<>();
+    int size = 2 + 4 + items.size() + 4 + 2 + 4;
+    for (int i = 0; i < items.size(); i++) {
+      TransferItem item = items.get(i);
+      if (item.isSuccess()) {
+        String finalPath = item.getFinalDestinationPath();
+        if (finalPath != null && !finalPath.equals(item.destinationPath)) {
+          byte[] path = utf8(finalPath);
+          renamed.add(path);
+          renamedIndexes.add(i);
+          size += 4 + 4 + path.length;
+        }
+        continue;
+      }
+      String code = item.getErrorCode() != null ? item.getErrorCode() : "UNKNOWN_ERROR";
+      if (!codes.containsKey(code)) {
+        codes.put(code, codes.size());
+        codeBytes.add(utf8(code));
+        size += 4 + codeBytes.get(codeBytes.size() - 1).length;
+      }
+      byte[] message = utf8(item.getErrorMessage());
+      failedIndexes.add(i);
+      messages.add(message);
+      size += 4 + 2 + 4 + (message != null ? message.length : 0);
+    }
+
+    ByteBuffer reply = ByteBuffer.allocateDirect(size).order(ByteOrder.BIG_ENDIAN);
+    reply.put(VERSION).put(REPLY_OK).putInt(items.size());
+    for (TransferItem item : items) {
+      reply.put(item.isSuccess() ? (item.isSkipped() ? ITEM_SKIPPED : ITEM_TRANSFERRED) : ITEM_FAILED);
+    }
+    reply.putInt(renamed.size());
+    for (int i = 0; i < renamed.size(); i++) {
+      reply.putInt(renamedIndexes.get(i));
+      putString(reply, renamed.get(i));
+    }
+    reply.putShort((short) codeBytes.size());
+    for (byte[] code : codeBytes) {
+      putString(reply, code);
+    }
+    reply.putInt(failedIndexes.size());
+    for (int i = 0; i < failedIndexes.size(); i++) {
+      int index = failedIndexes.get(i);
+      String code = items.get(index).getErrorCode();
+      reply.putInt(index);
+      reply.putShort(codes.get(code != null ? code : "UNKNOWN_ERROR").shortValue());
+      putString(reply, messages.get(i));
+    }
+    reply.flip();
+    return reply;
+  }
+
+  /** Encodes resolved paths, null where a path did not resolve. */
+  static ByteBuffer encodePaths(List<String> paths) {
+    List<byte[]> encoded = new ArrayList<>(paths.size());
+    int size = 2 + 4;
+    for (String path : paths) {
+      byte[] bytes = utf8(path);
+      encoded.add(bytes);
+      size += 4 + (bytes != null ? bytes.length : 0);
+    }
+    ByteBuffer reply = ByteBuffer.allocateDirect(size).order(ByteOrder.BIG_ENDIAN);
+    reply.put(VERSION).put(REPLY_OK).putInt(encoded.size());
+    for (byte[] bytes : encoded) {
+      putString(reply, bytes);
+    }
+    reply.flip();
+    return reply;
+  }
+
+  static ByteBuffer encodeError(String code, String message) {
+    byte[] codeBytes = utf8(code);
+    byte[] messageBytes = utf8(message);
+    ByteBuffer reply = ByteBuffer.allocateDirect(2 + 4 + codeBytes.length + 4
+        + (messageBytes != null ? messageBytes.length : 0)).order(ByteOrder.BIG_ENDIAN);
+    reply.put(VERSION).put(REPLY_ERROR);
+    putString(reply, codeBytes);
+    putString(reply, messageBytes);
+    reply.flip();
+    return reply;
+  }
+
+  private static byte[] utf8(String value) {
+    return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+  }
+
+  private static void putString(ByteBuffer buffer, byte[] bytes) {
+    if (bytes == null) {
+      buffer.putInt(NULL_LENGTH);
+    } else {
+      buffer.putInt(bytes.length).put(bytes);
+    }
+  }
+
+  /** Reads counts and strings, reusing one scratch array for the UTF-8 bytes. */
+  private static final class Decoder {
+    private final ByteBuffer message;
+    private byte[] scratch = new byte[256];
+
+    Decoder(ByteBuffer message) {
+      this.message = message;
+    }
+
+    /** A count, checked against what is left so a corrupt one cannot allocate a huge list. */
+    int count() {
+      int count = message.getInt();
+      if (count < 0 || count > message.remaining() / 4) {
+        throw new IllegalArgumentException("Invalid count " + count);
+      }
+      return count;
+    }
+
+    String string() {
+      int length = message.getInt();
+      if (length == NULL_LENGTH) {
+        return null;
+      }
+      if (length < 0 || length > message.remaining()) {
+        throw new IllegalArgumentException("Invalid string length " + length);
+      }
+      if (length > scratch.length) {
+        scratch = new byte[Math.max(length, scratch.length * 2)];
+      }
+      message.get(scratch, 0, length);
+      return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Copies with {@link FileChannel#transferTo}, which lets the kernel move the data without a round
+ * trip through user space. If the kernel refuses the transfer, the rest of the file is copied
+ * through a large direct buffer instead.
+ *
+ * Bytes copied by the kernel never reach user space, so when a hash is requested the whole file
+ * goes through the buffer path.
+ */
+final class ChannelCopyEngine implements CopyEngine {
+  static final String NAME = "channel";
+
+  /** Upper bound per transferTo call, so progress is reported at a useful rate. */
+  private static final long TRANSFER_CHUNK_SIZE = 8L * 1024 * 1024;
+  static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+  private final int bufferSize;
+
+  ChannelCopyEngine(int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+    }
+    this.bufferSize = bufferSize;
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public long copy(FileInputStream in, FileOutputStream out, long size, XxHash64 hash, CopyListener listener)
+      throws IOException {
+    FileChannel source = in.getChannel();
+    FileChannel dest = out.getChannel();
+    long start = source.position();
+    long position = start;
+    long end = start + size;
+
+    while (hash == null && position < end) {
+      long transferred;
+      try {
+        transferred = source.transferTo(position, Math.min(TRANSFER_CHUNK_SIZE, end - position), dest);
+      } catch (IOException e) {
+        // Some file systems reject in-kernel transfers, the buffer path below takes over
+        transferred = 0;
+      }
+      if (transferred <= 0) {
+        break;
+      }
+      position += transferred;
+      if (listener != null) {
+        listener.onProgress(position - start, size);
+      }
+    }
+
+    // transferTo does not move the source position, so catch it up before falling back
+    source.position(position);
+    return (position - start) + copyWithBuffer(source, dest, position - start, size, hash, listener);
+  }
+
+  /** Copies the remainder of {@code source} until end of file through a direct buffer. */
+  private long copyWithBuffer(FileChannel source, FileChannel dest, long alreadyCopied, long size,
+      XxHash64 hash, CopyListener listener) throws IOException {
+    ByteBuffer buffer = BufferPool.acquireDirect(bufferSize);
+    long copied = 0;
+    try {
+      while (source.read(buffer) > 0) {
+        buffer.flip();
+        if (hash != null) {
+          hash.update(buffer);
+        }
+        while (buffer.hasRemaining()) {
+          copied += dest.write(buffer);
+        }
+        buffer.clear();
+        buffer.limit(bufferSize);
+        if (listener != null) {
+          listener.onProgress(alreadyCopied + copied, size);
+        }
+      }
+    } finally {
+      BufferPool.releaseDirect(buffer);
+    }
+    return copied;
+  }
+}
@@ -0,0 +1,53 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+
+/**
+ * What a move or copy does when its destination already exists.
+ */
+enum ConflictPolicy {
+  /** Fail the file with {@code DEST_EXISTS}. */
+  FAIL("fail"),
+  /**
+   * Leave the destination alone if it already holds the same content; a move then only removes
+   * its source. A destination with different content still fails with {@code DEST_EXISTS}.
+   */
+  SKIP_IF_IDENTICAL("skipIfIdentical"),
+  /**
+   * Write the new content next to the destination and rename it over the old file once it is
+   * complete and verified, so the destination is never seen half written.
+   */
+  OVERWRITE("overwrite"),
+  /** Write to the first free name of the form "name (1).jpg" instead, as the media provider does. */
+  RENAME("rename");
+
+  /** Gives up on {@link #RENAME} after this many taken names. */
+  static final int MAX_RENAME_ATTEMPTS = 1000;
+
+  final String wireName;
+
+  ConflictPolicy(String wireName) {
+    this.wireName = wireName;
+  }
+
+  /**
+   * @return the policy called {@code name} on the Dart side, or {@code null} if there is none
+   */
+  static ConflictPolicy forName(String name) {
+    for (ConflictPolicy policy : values()) {
+      if (policy.wireName.equals(name)) {
+        return policy;
+      }
+    }
+    return null;
+  }
+
+  /** The {@code n}th name {@link #RENAME} tries instead of {@code file}: "name (n).ext" next to it. */
+  static File alternativeName(File file, int n) {
+    String name = file.getName();
+    int dot = name.lastIndexOf('.');
+    String base = dot > 0 ? name.substring(0, dot) : name;
+    String extension = dot > 0 ? name.substring(dot) : "";
+    return new File(file.getParentFile(), base + " (" + n + ")" + extension);
+  }
+}
@@ -0,0 +1,31 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Strategy for moving the bytes of one file into another.
+ *
+ * Implementations must not depend on Android classes so they can be exercised on a plain JVM.
+ */
+interface CopyEngine {
+  /** The name used to select this engine from Dart. */
+  String name();
+
+  /**
+   * Copies everything from {@code in} to {@code out}, starting at the current positions.
+   *
+   * @param size the expected number of bytes, used for chunking and progress only
+   * @param hash if not {@code null}, receives every copied byte in order
+   * @param listener notified after each chunk; may be {@code null}
+   * @return the number of bytes copied
+   */
+  long copy(FileInputStream in, FileOutputStream out, long size, XxHash64 hash, CopyListener listener)
+      throws IOException;
+
+  /** Receives progress from a running copy. */
+  interface CopyListener {
+    void onProgress(long bytesCopied, long totalBytes) throws IOException;
+  }
+}
@@ -0,0 +1,32 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+/**
+ * Looks up {@link CopyEngine} implementations by the name used on the Dart side.
+ */
+final class CopyEngines {
+  static final CopyEngine STREAM = new StreamCopyEngine(StreamCopyEngine.DEFAULT_BUFFER_SIZE);
+  static final CopyEngine CHANNEL = new ChannelCopyEngine(ChannelCopyEngine.DEFAULT_BUFFER_SIZE);
+  static final CopyEngine PIPELINED = new PipelinedCopyEngine(CHANNEL, true);
+  static final CopyEngine DEFAULT = PIPELINED;
+
+  private CopyEngines() {}
+
+  /**
+   * @return the engine called {@code name}, or {@code null} if there is none
+   */
+  static CopyEngine forName(String name) {
+    if (name == null) {
+      return null;
+    }
+    switch (name) {
+      case StreamCopyEngine.NAME:
+        return STREAM;
+      case ChannelCopyEngine.NAME:
+        return CHANNEL;
+      case PipelinedCopyEngine.NAME:
+        return PIPELINED;
+      default:
+        return null;
+    }
+  }
+}
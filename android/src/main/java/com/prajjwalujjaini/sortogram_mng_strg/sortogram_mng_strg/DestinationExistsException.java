@@ -0,0 +1,16 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Thrown when a finished copy or rename is not put in place because a file appeared at its
+ * destination after the conflict policy was applied, which it must not replace.
+ */
+final class DestinationExistsException extends IOException {
+  private static final long serialVersionUID = 1L;
+
+  DestinationExistsException(File destFile) {
+    super("Destination file already exists: " + destFile.getName());
+  }
+}
@@ -0,0 +1,89 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/** The {@link StorageBackend} of the device: the local file system and the app's shared preferences. */
+final class DeviceStorage implements StorageBackend {
+  private static final String TAG = "SortogramMngStrg";
+
+  private static final String PREFERENCES_NAME = "sortogram_mng_strg";
+  private static final String TEMPORARY_DIRECTORIES_KEY = "temporary_file_directories";
+
+  private final SharedPreferences preferences;
+
+  DeviceStorage(Context context) {
+    preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+  }
+
+  /** Cross-volume moves, e.g. internal storage to SD card, return false. */
+  @Override
+  public boolean isSameVolume(File file, File directory) {
+    try {
+      long sourceDevice = Os.stat(file.getAbsolutePath()).st_dev;
+      long destDevice = Os.stat(directory.getAbsolutePath()).st_dev;
+      Log.d(TAG, "Source device: " + sourceDevice + ", destination device: " + destDevice);
+      return sourceDevice == destDevice;
+    } catch (ErrnoException e) {
+      Log.w(TAG, "Could not stat volumes, assuming cross-volume move: " + e.getMessage());
+      return false;
+    }
+  }
+
+  @Override
+  public boolean rename(File from, File to) {
+    return from.renameTo(to);
+  }
+
+  @Override
+  public boolean renameNoReplace(File from, File to) {
+    try {
+      // Unlike a rename, a hard link fails if the name is taken
+      Os.link(from.getAbsolutePath(), to.getAbsolutePath());
+    } catch (ErrnoException e) {
+      if (e.errno == OsConstants.EEXIST) {
+        return false;
+      }
+      // FAT volumes and the FUSE-backed shared storage have no hard links, so check first instead
+      return !to.exists() && from.renameTo(to);
+    }
+    if (!from.delete()) {
+      Log.w(TAG, "Could not remove the old name after linking " + to);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean delete(File file) {
+    return file.delete();
+  }
+
+  @Override
+  public void syncFile(File file) throws IOException {
+    SyncBatch.FILE_SYSTEM.syncFile(file);
+  }
+
+  @Override
+  public void syncDirectory(File directory) throws IOException {
+    SyncBatch.FILE_SYSTEM.syncDirectory(directory);
+  }
+
+  @Override
+  public Set<String> loadTemporaryDirectories() {
+    return new HashSet<>(preferences.getStringSet(TEMPORARY_DIRECTORIES_KEY, new HashSet<String>()));
+  }
+
+  @Override
+  public void saveTemporaryDirectories(Set<String> directories) {
+    preferences.edit().putStringSet(TEMPORARY_DIRECTORIES_KEY, directories).apply();
+  }
+}
@@ -0,0 +1,59 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of a {@code moveDirectory} or {@code copyDirectory} call: one {@link TransferItem}
+ * per image found below the source directory.
+ */
+final class DirectoryTransfer {
+  final String sourcePath;
+  final String destinationPath;
+  final List<TransferItem> items;
+  /** The source directory was renamed as a whole instead of file by file. */
+  final boolean renamed;
+
+  DirectoryTransfer(String sourcePath, String destinationPath, List<TransferItem> items, boolean renamed) {
+    this.sourcePath = sourcePath;
+    this.destinationPath = destinationPath;
+    this.items = items;
+    this.renamed = renamed;
+  }
+
+  /**
+   * Counts per outcome, plus the items that failed or ended up on another name; a folder of
+   * thousands of images that all arrived where asked is not sent back file by file.
+   */
+  Map<String, Object> toMap() {
+    int transferred = 0;
+    int skipped = 0;
+    List<Map<String, Object>> exceptions = new ArrayList<>();
+    for (TransferItem item : items) {
+      if (!item.isSuccess()) {
+        exceptions.add(item.toMap());
+        continue;
+      }
+      if (item.isSkipped()) {
+        skipped++;
+      } else {
+        transferred++;
+      }
+      if (!item.destinationPath.equals(item.getFinalDestinationPath())) {
+        exceptions.add(item.toMap());
+      }
+    }
+    Map<String, Object> map = new HashMap<>();
+    map.put("sourcePath", sourcePath);
+    map.put("destinationPath", destinationPath);
+    map.put("renamedDirectory", renamed);
+    map.put("fileCount", items.size());
+    map.put("transferred", transferred);
+    map.put("skipped", skipped);
+    map.put("failed", items.size() - transferred - skipped);
+    map.put("items", exceptions);
+    return map;
+  }
+}
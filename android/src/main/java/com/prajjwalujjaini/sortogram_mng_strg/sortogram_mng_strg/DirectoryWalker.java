@@ -0,0 +1,137 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Lists a directory tree in parallel. Every directory is a fork-join task, so the {@code listFiles}
+ * calls of sibling folders, which dominate on a tree of albums, run on several threads at once.
+ * Symbolic links are not followed: a link to a parent would never end, and the files behind a link
+ * live somewhere else than the tree.
+ */
+final class DirectoryWalker {
+  private final ForkJoinPool pool;
+  private final Set<String> extensions;
+
+  /**
+   * @param parallelism the number of threads listing at once
+   * @param extensions lower-case file extensions to collect, e.g. "jpg"
+   */
+  DirectoryWalker(int parallelism, Set<String> extensions) {
+    this.pool = new ForkJoinPool(parallelism);
+    this.extensions = extensions;
+  }
+
+  /** Lists everything below {@code root}, which must be a directory. */
+  Tree walk(File root) {
+    return walk(root, true);
+  }
+
+  /** @param recursive whether to descend into subdirectories, or count them as other entries */
+  Tree walk(File root, boolean recursive) {
+    return pool.invoke(new ListTask(root, "", recursive));
+  }
+
+  /** Stops the listing threads once the walks in progress are done. */
+  void shutdown() {
+    pool.shutdown();
+  }
+
+  /** What a walk found, with paths relative to the root it started at. */
+  static final class Tree {
+    /** Every directory below the root, each one after its parent. */
+    final List<String> directories = new ArrayList<>();
+    /** The files with one of the wanted extensions. */
+    final List<String> files = new ArrayList<>();
+    /**
+     * Hidden entries, files with other extensions, symbolic links and directories that could not be
+     * listed. While there are any, the tree cannot be handled as a whole.
+     */
+    int otherEntries;
+
+    private void add(Tree subtree) {
+      directories.addAll(subtree.directories);
+      files.addAll(subtree.files);
+      otherEntries += subtree.otherEntries;
+    }
+  }
+
+  private final class ListTask extends RecursiveTask<Tree> {
+    private static final long serialVersionUID = 1L;
+
+    private final File directory;
+    /** The path of {@link #directory} relative to the root, ending with a separator unless empty. */
+    private final String prefix;
+    private final boolean recursive;
+
+    ListTask(File directory, String prefix, boolean recursive) {
+      this.directory = directory;
+      this.prefix = prefix;
+      this.recursive = recursive;
+    }
+
+    @Override
+    protected Tree compute() {
+      Tree tree = new Tree();
+      File[] children = directory.listFiles();
+      File canonicalDirectory;
+      try {
+        canonicalDirectory = children != null ? directory.getCanonicalFile() : null;
+      } catch (IOException e) {
+        canonicalDirectory = null;
+      }
+      if (canonicalDirectory == null) {
+        tree.otherEntries++;
+        return tree;
+      }
+      List<ListTask> subdirectories = new ArrayList<>();
+      for (File child : children) {
+        String name = child.getName();
+        // Skips .thumbnails, .nomedia, .trashed-* and our own temporary files
+        if (name.startsWith(".") || isSymbolicLink(canonicalDirectory, name)) {
+          tree.otherEntries++;
+        } else if (child.isDirectory()) {
+          if (recursive) {
+            subdirectories.add(new ListTask(child, prefix + name + File.separator, true));
+          } else {
+            tree.otherEntries++;
+          }
+        } else if (extensions.contains(extensionOf(name))) {
+          tree.files.add(prefix + name);
+        } else {
+          tree.otherEntries++;
+        }
+      }
+      invokeAll(subdirectories);
+      for (ListTask subdirectory : subdirectories) {
+        tree.directories.add(subdirectory.prefix.substring(0, subdirectory.prefix.length() - 1));
+        tree.add(subdirectory.join());
+      }
+      return tree;
+    }
+  }
+
+  /**
+   * Whether entry {@code name} of {@code canonicalDirectory} is a symbolic link: only then does
+   * resolving it lead elsewhere. java.nio.file, which could ask directly, needs API level 26.
+   */
+  private static boolean isSymbolicLink(File canonicalDirectory, String name) {
+    File entry = new File(canonicalDirectory, name);
+    try {
+      return !entry.getCanonicalPath().equals(entry.getPath());
+    } catch (IOException e) {
+      // Cannot tell, so the entry is left alone
+      return true;
+    }
+  }
+
+  private static String extensionOf(String name) {
+    int dot = name.lastIndexOf('.');
+    return dot >= 0 ? name.substring(dot + 1).toLowerCase() : "";
+  }
+}
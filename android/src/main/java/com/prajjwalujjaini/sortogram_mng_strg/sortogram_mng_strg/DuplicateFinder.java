@@ -0,0 +1,275 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds files with identical contents below a set of folders.
+ *
+ * Files are narrowed down in three passes so that only likely duplicates are read in full: files
+ * are bucketed by size, files sharing a size are compared by a partial hash of their first and
+ * last {@link #PARTIAL_BYTES} bytes, and only files that still collide get a full xxHash64. All
+ * hashes are kept in a {@link HashIndex}, so unchanged files are not read again on later runs.
+ */
+final class DuplicateFinder {
+  private static final String TAG = "SortogramMngStrg";
+
+  /** Bytes hashed from each end of a file for the partial hash. */
+  static final int PARTIAL_BYTES = 16 * 1024;
+
+  private final HashIndex index;
+  private final Set<String> extensions;
+
+  /**
+   * @param index the hash cache, or {@code null} to hash every candidate
+   * @param extensions lower-case file extensions to consider, e.g. "jpg"
+   */
+  DuplicateFinder(HashIndex index, Set<String> extensions) {
+    this.index = index;
+    this.extensions = extensions;
+  }
+
+  Result find(List<String> folders, boolean recursive) {
+    long startTime = System.currentTimeMillis();
+    Map<String, HashIndex.Entry> cached = new HashMap<>();
+    Map<String, File> files = new LinkedHashMap<>();
+    for (String folder : folders) {
+      if (index != null) {
+        cached.putAll(index.loadFolder(folder));
+      }
+      collectFiles(new File(folder), recursive, files);
+    }
+
+    Result result = new Result();
+    result.filesScanned = files.size();
+    Map<String, HashIndex.Entry> updated = new HashMap<>();
+    List<String> removed = new ArrayList<>();
+    for (String path : cached.keySet()) {
+      if (!files.containsKey(path) && !new File(path).exists()) {
+        removed.add(path);
+      }
+    }
+
+    Map<Long, List<File>> bySize = new HashMap<>();
+    for (File file : files.values()) {
+      long size = file.length();
+      // Empty files are trivially identical and not worth reporting
+      if (size > 0) {
+        bySize.computeIfAbsent(size, s -> new ArrayList<>()).add(file);
+      }
+    }
+
+    for (Map.Entry<Long, List<File>> sizeBucket : bySize.entrySet()) {
+      if (sizeBucket.getValue().size() < 2) {
+        continue;
+      }
+      long size = sizeBucket.getKey();
+      Map<Long, List<HashIndex.Entry>> byPartialHash = new HashMap<>();
+      for (File file : sizeBucket.getValue()) {
+        HashIndex.Entry entry = entryFor(file, cached, updated, result);
+        if (entry != null) {
+          byPartialHash.computeIfAbsent(entry.partialHash, h -> new ArrayList<>()).add(entry);
+        }
+      }
+
+      for (List<HashIndex.Entry> candidates : byPartialHash.values()) {
+        if (candidates.size() < 2) {
+          continue;
+        }
+        Map<Long, List<String>> byFullHash = new HashMap<>();
+        for (HashIndex.Entry entry : candidates) {
+          Long fullHash = fullHashOf(entry, updated, result);
+          if (fullHash != null) {
+            byFullHash.computeIfAbsent(fullHash, h -> new ArrayList<>()).add(entry.path);
+          }
+        }
+        for (Map.Entry<Long, List<String>> group : byFullHash.entrySet()) {
+          if (group.getValue().size() > 1) {
+            Collections.sort(group.getValue());
+            result.groups.add(new Group(size, group.getKey(), group.getValue()));
+          }
+        }
+      }
+    }
+
+    // Groups that waste the most space first
+    Collections.sort(result.groups, (a, b) -> Long.compare(b.wastedBytes(), a.wastedBytes()));
+    if (index != null) {
+      index.update(updated.values(), removed);
+    }
+    Log.d(TAG, "Found " + result.groups.size() + " duplicate groups among " + result.filesScanned + " files in "
+        + (System.currentTimeMillis() - startTime) + "ms (" + result.filesHashed + " hashed, "
+        + result.bytesHashed / 1024 + " KB read)");
+    return result;
+  }
+
+  private void collectFiles(File root, boolean recursive, Map<String, File> files) {
+    Deque<File> directories = new ArrayDeque<>();
+    directories.push(root);
+    while (!directories.isEmpty()) {
+      File[] children = directories.pop().listFiles();
+      if (children == null) {
+        continue;
+      }
+      for (File child : children) {
+        // Skips .thumbnails, .trash and our own temporary files
+        if (child.getName().startsWith(".")) {
+          continue;
+        }
+        if (child.isDirectory()) {
+          if (recursive) {
+            directories.push(child);
+          }
+        } else if (extensions.contains(extensionOf(child.getName()))) {
+          files.put(child.getAbsolutePath(), child);
+        }
+      }
+    }
+  }
+
+  /** Returns the cached entry of {@code file} if it is still valid, otherwise hashes the file. */
+  private HashIndex.Entry entryFor(File file, Map<String, HashIndex.Entry> cached,
+      Map<String, HashIndex.Entry> updated, Result result) {
+    String path = file.getAbsolutePath();
+    long size = file.length();
+    long mtime = file.lastModified();
+    HashIndex.Entry entry = cached.get(path);
+    if (entry != null && entry.matches(size, mtime)) {
+      result.cacheHits++;
+      return entry;
+    }
+    try {
+      long partialHash = partialHash(file, size, result);
+      // A partial hash of a small file covers all of it, so it doubles as the full hash
+      entry = new HashIndex.Entry(path, size, mtime, partialHash, size <= 2L * PARTIAL_BYTES ? partialHash : null);
+      updated.put(path, entry);
+      return entry;
+    } catch (IOException e) {
+      Log.w(TAG, "Could not hash " + path + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  private Long fullHashOf(HashIndex.Entry entry, Map<String, HashIndex.Entry> updated, Result result) {
+    if (entry.fullHash != null) {
+      return entry.fullHash;
+    }
+    try {
+      long fullHash = FileVerifier.hashFile(new File(entry.path));
+      result.filesHashed++;
+      result.bytesHashed += entry.size;
+      updated.put(entry.path, new HashIndex.Entry(entry.path, entry.size, entry.mtime, entry.partialHash, fullHash));
+      return fullHash;
+    } catch (IOException e) {
+      Log.w(TAG, "Could not hash " + entry.path + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /** xxHash64 of the first and last {@link #PARTIAL_BYTES} bytes, or of the whole file if it is small. */
+  static long partialHash(File file, long size, Result result) throws IOException {
+    XxHash64 hash = new XxHash64();
+    ByteBuffer buffer = BufferPool.acquireDirect((int) Math.min(size, 2L * PARTIAL_BYTES));
+    try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()) {
+      if (size <= 2L * PARTIAL_BYTES) {
+        readFully(channel, buffer, 0);
+        hash.update(buffer);
+      } else {
+        buffer.limit(PARTIAL_BYTES);
+        readFully(channel, buffer, 0);
+        hash.update(buffer);
+        buffer.clear();
+        buffer.limit(PARTIAL_BYTES);
+        readFully(channel, buffer, size - PARTIAL_BYTES);
+        hash.update(buffer);
+      }
+    } finally {
+      BufferPool.releaseDirect(buffer);
+    }
+    if (result != null) {
+      result.filesHashed++;
+      result.bytesHashed += Math.min(size, 2L * PARTIAL_BYTES);
+    }
+    return hash.digest();
+  }
+
+  /** Fills {@code buffer} from {@code position} with positional reads, then flips it. */
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new IOException("File shrank while it was being hashed");
+      }
+      position += read;
+    }
+    buffer.flip();
+  }
+
+  private static String extensionOf(String name) {
+    int dot = name.lastIndexOf('.');
+    return dot >= 0 ? name.substring(dot + 1).toLowerCase() : "";
+  }
+
+  /** Files with the same size and content hash. */
+  static final class Group {
+    final long size;
+    final long hash;
+    final List<String> paths;
+
+    Group(long size, long hash, List<String> paths) {
+      this.size = size;
+      this.hash = hash;
+      this.paths = paths;
+    }
+
+    /** Bytes that would be freed by keeping only one copy. */
+    long wastedBytes() {
+      return size * (paths.size() - 1);
+    }
+
+    Map<String, Object> toMap() {
+      Map<String, Object> map = new HashMap<>();
+      map.put("size", size);
+      map.put("hash", Long.toHexString(hash));
+      map.put("paths", paths);
+      return map;
+    }
+  }
+
+  static final class Result {
+    final List<Group> groups = new ArrayList<>();
+    int filesScanned;
+    /** Files read by a partial or full hash pass in this run. */
+    int filesHashed;
+    long bytesHashed;
+    int cacheHits;
+
+    Map<String, Object> toMap() {
+      List<Map<String, Object>> groupMaps = new ArrayList<>(groups.size());
+      for (Group group : groups) {
+        groupMaps.add(group.toMap());
+      }
+      Map<String, Object> map = new HashMap<>();
+      map.put("groups", groupMaps);
+      map.put("filesScanned", filesScanned);
+      map.put("filesHashed", filesHashed);
+      map.put("bytesHashed", bytesHashed);
+      map.put("cacheHits", cacheHits);
+      return map;
+    }
+  }
+}
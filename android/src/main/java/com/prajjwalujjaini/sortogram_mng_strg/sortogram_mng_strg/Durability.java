@@ -0,0 +1,41 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+/**
+ * When written files are synced to storage. A sync per file is safe but often the largest cost of
+ * copying many small images to flash storage; syncing a whole batch at once lets the kernel write
+ * the data back in the background meanwhile.
+ */
+enum Durability {
+  /** Every file is synced before it is renamed into place. */
+  PER_FILE("perFile"),
+  /**
+   * Files are synced, together with their folders, once per batch or job (at the latest every
+   * {@link SyncBatch#DEFAULT_MAX_PENDING} files). Moved sources are only deleted after that.
+   */
+  PER_BATCH("perBatch"),
+  /** Never synced; copies only, since a move must not delete its source before the copy is safe. */
+  NONE("none");
+
+  final String wireName;
+
+  Durability(String wireName) {
+    this.wireName = wireName;
+  }
+
+  /** The durability moves use when this one is asked for; moves never go without a sync. */
+  Durability forMoves() {
+    return this == NONE ? PER_BATCH : this;
+  }
+
+  /**
+   * @return the durability called {@code name} on the Dart side, or {@code null} if there is none
+   */
+  static Durability forName(String name) {
+    for (Durability durability : values()) {
+      if (durability.wireName.equals(name)) {
+        return durability;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,78 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The byte-moving core of a move or copy: runs a {@link CopyEngine} between two files, optionally
+ * continuing a partial copy. Syncing the result is left to the {@link StorageBackend}. Plain Java
+ * without Android dependencies, so the benchmarks can run it on a desktop JVM.
+ */
+final class FileCopier {
+  private final TransferMetrics metrics;
+
+  FileCopier(TransferMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Copies {@code sourceFile} into {@code destFile}, appending from {@code offset} on if an earlier
+   * attempt already wrote that much.
+   *
+   * @param hash filled with the copied bytes, after {@link #hashPrefix} covered the first
+   *     {@code offset} bytes; {@code null} for none
+   * @return the number of bytes copied after {@code offset}
+   */
+  long copy(File sourceFile, File destFile, long offset, CopyEngine engine, XxHash64 hash,
+      CopyEngine.CopyListener listener) throws IOException {
+    long fileSize = sourceFile.length();
+    try (FileInputStream in = new FileInputStream(sourceFile);
+        FileOutputStream out = new FileOutputStream(destFile, offset > 0)) {
+      CopyEngine.CopyListener engineListener = listener;
+      if (offset > 0) {
+        in.getChannel().position(offset);
+        if (listener != null) {
+          // Listeners see offsets into the whole file, not just the resumed part
+          engineListener = (bytesCopied, totalBytes) -> listener.onProgress(offset + bytesCopied, fileSize);
+        }
+      }
+      long copyStartTime = System.nanoTime();
+      long copied = engine.copy(in, out, fileSize - offset, hash, engineListener);
+      metrics.recordCopy(copied, System.nanoTime() - copyStartTime);
+
+      out.flush();
+      return copied;
+    }
+  }
+
+  /** Feeds the first {@code length} bytes of {@code sourceFile} to {@code hash}, e.g. to resume a copy. */
+  static void hashPrefix(File sourceFile, long length, XxHash64 hash) throws IOException {
+    int bufferSize = 64 * 1024;
+    byte[] buffer = BufferPool.acquireHeap(bufferSize);
+    try (FileInputStream in = new FileInputStream(sourceFile)) {
+      long remaining = length;
+      int read;
+      while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(bufferSize, remaining))) > 0) {
+        hash.update(buffer, 0, read);
+        remaining -= read;
+      }
+    } finally {
+      BufferPool.releaseHeap(buffer);
+    }
+  }
+
+  /**
+   * Checks {@code destFile} against {@code sourceFile} at the given level, timing it.
+   *
+   * @see FileVerifier#verify
+   */
+  boolean verify(File sourceFile, File destFile, Verification verification, XxHash64 streamingHash)
+      throws IOException {
+    long startTime = System.nanoTime();
+    boolean matches = FileVerifier.verify(sourceFile, destFile, verification, streamingHash);
+    metrics.record(TransferMetrics.Phase.VERIFY, System.nanoTime() - startTime);
+    return matches;
+  }
+}
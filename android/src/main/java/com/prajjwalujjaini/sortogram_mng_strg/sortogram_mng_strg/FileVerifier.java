@@ -0,0 +1,64 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Checks that a copied file matches its source at a given {@link Verification} level.
+ */
+final class FileVerifier {
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  /** {@link #hashFile} keeps its hash to itself, so each thread can reuse one. */
+  private static final ThreadLocal<XxHash64> HASHES = new ThreadLocal<XxHash64>() {
+    @Override
+    protected XxHash64 initialValue() {
+      return new XxHash64();
+    }
+  };
+
+  private FileVerifier() {}
+
+  /**
+   * @param streamingHash the hash of the source bytes, filled in by the copy engine; required for
+   *     {@link Verification#STREAMING_HASH} and ignored otherwise
+   * @return whether {@code destFile} matches {@code sourceFile}
+   */
+  static boolean verify(File sourceFile, File destFile, Verification verification, XxHash64 streamingHash)
+      throws IOException {
+    if (verification == Verification.NONE) {
+      return true;
+    }
+    if (sourceFile.length() != destFile.length()) {
+      return false;
+    }
+    switch (verification) {
+      case STREAMING_HASH:
+        if (streamingHash == null) {
+          throw new IllegalArgumentException("Streaming verification needs the hash from the copy");
+        }
+        return streamingHash.digest() == hashFile(destFile);
+      case FULL:
+        return hashFile(sourceFile) == hashFile(destFile);
+      default:
+        return true;
+    }
+  }
+
+  /** Returns the xxHash64 of the whole content of {@code file}. */
+  static long hashFile(File file) throws IOException {
+    XxHash64 hash = HASHES.get();
+    hash.reset();
+    byte[] buffer = BufferPool.acquireHeap(READ_BUFFER_SIZE);
+    try (FileInputStream in = new FileInputStream(file)) {
+      int read;
+      while ((read = in.read(buffer, 0, READ_BUFFER_SIZE)) > 0) {
+        hash.update(buffer, 0, read);
+      }
+    } finally {
+      BufferPool.releaseHeap(buffer);
+    }
+    return hash.digest();
+  }
+}
@@ -0,0 +1,142 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * On-device cache of file content hashes, keyed by path and trusted only while the file's size and
+ * modification time are unchanged. Lets {@link DuplicateFinder} and {@link IdenticalFileCheck} skip
+ * files that were hashed before.
+ */
+final class HashIndex extends SQLiteOpenHelper {
+  private static final String DATABASE_NAME = "sortogram_hashes.db";
+  private static final int DATABASE_VERSION = 1;
+
+  private static final String TABLE = "file_hashes";
+
+  HashIndex(Context context) {
+    super(context, DATABASE_NAME, null, DATABASE_VERSION);
+  }
+
+  @Override
+  public void onCreate(SQLiteDatabase db) {
+    db.execSQL("CREATE TABLE " + TABLE + " ("
+        + "path TEXT PRIMARY KEY NOT NULL, "
+        + "size INTEGER NOT NULL, "
+        + "mtime INTEGER NOT NULL, "
+        + "partial_hash INTEGER NOT NULL, "
+        + "full_hash INTEGER)");
+  }
+
+  @Override
+  public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    // Only a cache, so it is simply rebuilt
+    db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+    onCreate(db);
+  }
+
+  /** Loads every cached entry for files inside {@code folder}, keyed by path. */
+  Map<String, Entry> loadFolder(String folder) {
+    Map<String, Entry> entries = new HashMap<>();
+    String prefix = folder.endsWith("/") ? folder : folder + "/";
+    // A range on the primary key instead of LIKE, so SQLite can use the index ('0' follows '/')
+    String upperBound = prefix.substring(0, prefix.length() - 1) + "0";
+    try (Cursor cursor = getReadableDatabase().rawQuery(
+        "SELECT path, size, mtime, partial_hash, full_hash FROM " + TABLE + " WHERE path >= ? AND path < ?",
+        new String[] { prefix, upperBound })) {
+      if (cursor == null) {
+        return entries;
+      }
+      while (cursor.moveToNext()) {
+        Entry entry = new Entry(cursor.getString(0), cursor.getLong(1), cursor.getLong(2), cursor.getLong(3),
+            cursor.isNull(4) ? null : cursor.getLong(4));
+        entries.put(entry.path, entry);
+      }
+    }
+    return entries;
+  }
+
+  /** Returns the cached entry for {@code path}, or {@code null} if there is none. */
+  Entry get(String path) {
+    try (Cursor cursor = getReadableDatabase().rawQuery(
+        "SELECT path, size, mtime, partial_hash, full_hash FROM " + TABLE + " WHERE path = ?",
+        new String[] { path })) {
+      if (cursor == null || !cursor.moveToFirst()) {
+        return null;
+      }
+      return new Entry(cursor.getString(0), cursor.getLong(1), cursor.getLong(2), cursor.getLong(3),
+          cursor.isNull(4) ? null : cursor.getLong(4));
+    }
+  }
+
+  /** Stores {@code entries} and forgets {@code removedPaths}, in a single transaction. */
+  void update(Collection<Entry> entries, Collection<String> removedPaths) {
+    if (entries.isEmpty() && removedPaths.isEmpty()) {
+      return;
+    }
+    SQLiteDatabase db = getWritableDatabase();
+    db.beginTransaction();
+    SQLiteStatement insert = null;
+    SQLiteStatement delete = null;
+    try {
+      insert = db.compileStatement("INSERT OR REPLACE INTO " + TABLE
+          + " (path, size, mtime, partial_hash, full_hash) VALUES (?, ?, ?, ?, ?)");
+      for (Entry entry : entries) {
+        insert.clearBindings();
+        insert.bindString(1, entry.path);
+        insert.bindLong(2, entry.size);
+        insert.bindLong(3, entry.mtime);
+        insert.bindLong(4, entry.partialHash);
+        if (entry.fullHash != null) {
+          insert.bindLong(5, entry.fullHash);
+        } else {
+          insert.bindNull(5);
+        }
+        insert.executeInsert();
+      }
+      delete = db.compileStatement("DELETE FROM " + TABLE + " WHERE path = ?");
+      for (String path : removedPaths) {
+        delete.bindString(1, path);
+        delete.executeUpdateDelete();
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      if (insert != null) {
+        insert.close();
+      }
+      if (delete != null) {
+        delete.close();
+      }
+      db.endTransaction();
+    }
+  }
+
+  /** The hashes of one file as of its recorded size and modification time. */
+  static final class Entry {
+    final String path;
+    final long size;
+    final long mtime;
+    final long partialHash;
+    /** {@code null} until the file was hashed in full, which only happens for candidate duplicates. */
+    final Long fullHash;
+
+    Entry(String path, long size, long mtime, long partialHash, Long fullHash) {
+      this.path = path;
+      this.size = size;
+      this.mtime = mtime;
+      this.partialHash = partialHash;
+      this.fullHash = fullHash;
+    }
+
+    boolean matches(long size, long mtime) {
+      return this.size == size && this.mtime == mtime;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides whether a destination already holds the content of its source, for
+ * {@link ConflictPolicy#SKIP_IF_IDENTICAL}.
+ *
+ * Files of different sizes are told apart by their length alone. Files of the same size are
+ * compared by the partial hash of {@link DuplicateFinder} and, only if that matches too, by their
+ * full xxHash64. Hashes are cached in the {@link HashIndex}, and files written by a transfer are
+ * recorded with the hash computed while copying them, so re-running a partly completed sort costs
+ * two stats and two index lookups per file that is already in place. Thread-safe.
+ */
+final class IdenticalFileCheck {
+  /** New entries kept in memory before they are written to the index in one transaction. */
+  private static final int MAX_PENDING = 256;
+
+  private final HashIndex index;
+  private final Map<String, HashIndex.Entry> pending = new ConcurrentHashMap<>();
+
+  /**
+   * @param index the hash cache, or {@code null} to hash both files on every check
+   */
+  IdenticalFileCheck(HashIndex index) {
+    this.index = index;
+  }
+
+  boolean isIdentical(File first, File second) throws IOException {
+    long size = first.length();
+    if (size != second.length()) {
+      return false;
+    }
+    HashIndex.Entry firstEntry = entryFor(first, size);
+    HashIndex.Entry secondEntry = entryFor(second, size);
+    if (firstEntry.partialHash != secondEntry.partialHash) {
+      return false;
+    }
+    return fullHashOf(firstEntry) == fullHashOf(secondEntry);
+  }
+
+  /**
+   * Records the full hash of {@code file}, which was just written and verified, so that a later
+   * check against it does not need to read it back.
+   */
+  void remember(File file, long fullHash) throws IOException {
+    long size = file.length();
+    // A partial hash of a small file covers all of it, so it is the full hash
+    long partialHash = size <= 2L * DuplicateFinder.PARTIAL_BYTES
+        ? fullHash
+        : DuplicateFinder.partialHash(file, size, null);
+    store(new HashIndex.Entry(file.getAbsolutePath(), size, file.lastModified(), partialHash, fullHash));
+  }
+
+  /** Writes the entries recorded since the last flush to the index. */
+  void flush() {
+    if (index == null || pending.isEmpty()) {
+      return;
+    }
+    List<HashIndex.Entry> entries = new ArrayList<>(pending.values());
+    for (HashIndex.Entry entry : entries) {
+      pending.remove(entry.path, entry);
+    }
+    index.update(entries, Collections.<String>emptyList());
+  }
+
+  private HashIndex.Entry entryFor(File file, long size) throws IOException {
+    String path = file.getAbsolutePath();
+    long mtime = file.lastModified();
+    HashIndex.Entry entry = pending.get(path);
+    if (entry == null && index != null) {
+      entry = index.get(path);
+    }
+    if (entry != null && entry.matches(size, mtime)) {
+      return entry;
+    }
+    long partialHash = DuplicateFinder.partialHash(file, size, null);
+    entry = new HashIndex.Entry(path, size, mtime, partialHash,
+        size <= 2L * DuplicateFinder.PARTIAL_BYTES ? partialHash : null);
+    store(entry);
+    return entry;
+  }
+
+  private long fullHashOf(HashIndex.Entry entry) throws IOException {
+    if (entry.fullHash != null) {
+      return entry.fullHash;
+    }
+    long fullHash = FileVerifier.hashFile(new File(entry.path));
+    store(new HashIndex.Entry(entry.path, entry.size, entry.mtime, entry.partialHash, fullHash));
+    return fullHash;
+  }
+
+  private void store(HashIndex.Entry entry) {
+    if (index == null) {
+      return;
+    }
+    pending.put(entry.path, entry);
+    if (pending.size() >= MAX_PENDING) {
+      flush();
+    }
+  }
+}
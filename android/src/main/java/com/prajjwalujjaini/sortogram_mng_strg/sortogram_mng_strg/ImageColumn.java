@@ -0,0 +1,48 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import android.os.Build;
+import android.provider.MediaStore;
+
+/** A MediaStore image column that {@code listImages} can return, with its name on the channel. */
+enum ImageColumn {
+  ID("id", MediaStore.Images.Media._ID, true, 1),
+  PATH("path", MediaStore.Images.Media.DATA, false, 1),
+  DISPLAY_NAME("displayName", MediaStore.Images.Media.DISPLAY_NAME, false, 1),
+  MIME_TYPE("mimeType", MediaStore.Images.Media.MIME_TYPE, false, 1),
+  SIZE("size", MediaStore.Images.Media.SIZE, true, 1),
+  DATE_ADDED("dateAdded", MediaStore.Images.Media.DATE_ADDED, true, 1),
+  DATE_MODIFIED("dateModified", MediaStore.Images.Media.DATE_MODIFIED, true, 1),
+  DATE_TAKEN("dateTaken", MediaStore.Images.Media.DATE_TAKEN, true, 1),
+  WIDTH("width", MediaStore.Images.Media.WIDTH, true, 16),
+  HEIGHT("height", MediaStore.Images.Media.HEIGHT, true, 16),
+  BUCKET_ID("bucketId", MediaStore.Images.Media.BUCKET_ID, true, 1),
+  BUCKET_DISPLAY_NAME("bucketDisplayName", MediaStore.Images.Media.BUCKET_DISPLAY_NAME, false, 1),
+  RELATIVE_PATH("relativePath", MediaStore.MediaColumns.RELATIVE_PATH, false, Build.VERSION_CODES.Q);
+
+  final String wireName;
+  final String column;
+  /** Numeric columns are sent as a {@code long[]}, text columns as UTF-8 bytes plus offsets. */
+  final boolean numeric;
+  /** The first API level that has the column. */
+  final int minSdk;
+
+  ImageColumn(String wireName, String column, boolean numeric, int minSdk) {
+    this.wireName = wireName;
+    this.column = column;
+    this.numeric = numeric;
+    this.minSdk = minSdk;
+  }
+
+  boolean isAvailable() {
+    return Build.VERSION.SDK_INT >= minSdk;
+  }
+
+  static ImageColumn forName(String wireName) {
+    for (ImageColumn column : values()) {
+      if (column.wireName.equals(wireName)) {
+        return column;
+      }
+    }
+    return null;
+  }
+}
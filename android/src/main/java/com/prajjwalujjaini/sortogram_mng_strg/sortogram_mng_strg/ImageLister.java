@@ -0,0 +1,200 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Reads the MediaStore image table page by page for {@code listImages}.
+ *
+ * Pages are columnar rather than one map per row: a numeric column is a single {@code long[]}
+ * and a text column is its UTF-8 bytes plus an {@code int[]} of start offsets, which the standard
+ * message codec sends as typed lists. A page is a map with {@code count}, {@code columns} (wire
+ * name to column data) and, unless it is the last page, {@code nextAfterId} and
+ * {@code nextAfterDateModified} to pass back for the page after it. Null text reads as "".
+ */
+final class ImageLister {
+  private static final String TAG = "SortogramMngStrg";
+
+  /** Pages read ahead of the main thread; bounds memory when Dart is slower than the provider. */
+  private static final int MAX_PAGES_IN_FLIGHT = 4;
+
+  private final Context context;
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "sortogram-gallery");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  ImageLister(Context context) {
+    this.context = context;
+  }
+
+  /** Reads one page. Blocks on provider IPC. */
+  Map<String, Object> readPage(ImageQuery query, CancellationSignal signal) {
+    List<ImageColumn> columns = query.columns;
+    List<String> projection = new ArrayList<>();
+    for (ImageColumn column : columns) {
+      projection.add(column.column);
+    }
+    // The keyset cursor needs the sort key of the last row, even if the caller did not ask for it
+    if (!columns.contains(ImageColumn.ID)) {
+      projection.add(MediaStore.Images.Media._ID);
+    }
+    if (!columns.contains(ImageColumn.DATE_MODIFIED)) {
+      projection.add(MediaStore.Images.Media.DATE_MODIFIED);
+    }
+
+    long[][] numbers = new long[columns.size()][];
+    ByteArrayOutputStream[] text = new ByteArrayOutputStream[columns.size()];
+    int[][] offsets = new int[columns.size()][];
+    for (int i = 0; i < columns.size(); i++) {
+      if (columns.get(i).numeric) {
+        numbers[i] = new long[query.pageSize];
+      } else {
+        text[i] = new ByteArrayOutputStream(query.pageSize * 32);
+        offsets[i] = new int[query.pageSize + 1];
+      }
+    }
+
+    int count = 0;
+    long lastId = -1;
+    long lastDateModified = ImageQuery.MISSING_DATE_MODIFIED;
+    try (Cursor cursor = query(query, projection.toArray(new String[0]), signal)) {
+      if (cursor != null) {
+        int[] indexes = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+          indexes[i] = cursor.getColumnIndexOrThrow(columns.get(i).column);
+        }
+        int idIndex = cursor.getColumnIndexOrThrow(MediaStore.Images.Media._ID);
+        int dateIndex = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATE_MODIFIED);
+
+        while (count < query.pageSize && cursor.moveToNext()) {
+          for (int i = 0; i < columns.size(); i++) {
+            if (numbers[i] != null) {
+              numbers[i][count] = cursor.isNull(indexes[i]) ? 0 : cursor.getLong(indexes[i]);
+            } else {
+              String value = cursor.getString(indexes[i]);
+              if (value != null) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                text[i].write(bytes, 0, bytes.length);
+              }
+              offsets[i][count + 1] = text[i].size();
+            }
+          }
+          lastId = cursor.getLong(idIndex);
+          lastDateModified = cursor.isNull(dateIndex) ? ImageQuery.MISSING_DATE_MODIFIED : cursor.getLong(dateIndex);
+          count++;
+        }
+      }
+    }
+
+    Map<String, Object> data = new HashMap<>();
+    for (int i = 0; i < columns.size(); i++) {
+      if (numbers[i] != null) {
+        data.put(columns.get(i).wireName, Arrays.copyOf(numbers[i], count));
+      } else {
+        List<Object> column = new ArrayList<>(2);
+        column.add(text[i].toByteArray());
+        column.add(Arrays.copyOf(offsets[i], count + 1));
+        data.put(columns.get(i).wireName, column);
+      }
+    }
+    Map<String, Object> page = new HashMap<>();
+    page.put("count", count);
+    page.put("columns", data);
+    if (count == query.pageSize) {
+      page.put("nextAfterId", lastId);
+      page.put("nextAfterDateModified", lastDateModified);
+    }
+    return page;
+  }
+
+  private Cursor query(ImageQuery query, String[] projection, CancellationSignal signal) {
+    ContentResolver resolver = context.getContentResolver();
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+      Bundle arguments = new Bundle();
+      if (query.selection() != null) {
+        arguments.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, query.selection());
+        arguments.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, query.selectionArgs());
+      }
+      arguments.putString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER, query.sortOrder());
+      arguments.putInt(ContentResolver.QUERY_ARG_LIMIT, query.pageSize);
+      return resolver.query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, projection, arguments, signal);
+    }
+    // Before Android 11 the media provider accepts a LIMIT clause appended to the sort order
+    return resolver.query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, projection, query.selection(),
+        query.selectionArgs(), query.sortOrder() + " LIMIT " + query.pageSize);
+  }
+
+  /**
+   * Sends every page from {@code query} on to {@code sink} on the main thread, then ends the
+   * stream. Cancelling the returned signal stops the listing after the page being read.
+   */
+  CancellationSignal stream(ImageQuery query, EventChannel.EventSink sink) {
+    CancellationSignal signal = new CancellationSignal();
+    Semaphore inFlight = new Semaphore(MAX_PAGES_IN_FLIGHT);
+    executor.execute(() -> {
+      long startTime = System.currentTimeMillis();
+      int total = 0;
+      ImageQuery next = query;
+      try {
+        while (next != null && !signal.isCanceled()) {
+          Map<String, Object> page = readPage(next, signal);
+          inFlight.acquire();
+          mainHandler.post(() -> {
+            inFlight.release();
+            if (!signal.isCanceled()) {
+              sink.success(page);
+            }
+          });
+          total += (Integer) page.get("count");
+          Object nextAfterId = page.get("nextAfterId");
+          next = nextAfterId != null
+              ? next.after((Long) nextAfterId, (Long) page.get("nextAfterDateModified"))
+              : null;
+        }
+        Log.d(TAG, "Listed " + total + " images in " + (System.currentTimeMillis() - startTime) + "ms");
+        mainHandler.post(() -> {
+          if (!signal.isCanceled()) {
+            sink.endOfStream();
+          }
+        });
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (Exception e) {
+        if (signal.isCanceled()) {
+          return;
+        }
+        Log.e(TAG, "Error listing images: " + e.getMessage());
+        mainHandler.post(() -> sink.error("QUERY_FAILED", "Error listing images", e.getMessage()));
+      }
+    });
+    return signal;
+  }
+
+  void close() {
+    executor.shutdownNow();
+  }
+}
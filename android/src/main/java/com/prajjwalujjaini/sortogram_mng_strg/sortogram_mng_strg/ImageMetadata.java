@@ -0,0 +1,331 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The EXIF fields the sort rules look at, read from the headers of a JPEG, PNG or WebP file.
+ *
+ * Only container headers and the EXIF block are read, with positional reads: a JPEG is walked
+ * segment by segment up to the start of the scan, a PNG chunk by chunk up to the first image data
+ * and a WebP chunk header by chunk header, skipping the image data in between. Nothing is decoded.
+ * The file type is taken from its first bytes, not its name.
+ */
+final class ImageMetadata {
+  /** An EXIF block is read only if it is no longer than this, which a JPEG APP1 segment cannot be. */
+  static final int MAX_EXIF_BYTES = 64 * 1024;
+
+  static final ImageMetadata NONE = new ImageMetadata(0, 0, 0, null, null, false);
+
+  private static final int TAG_MAKE = 0x010F;
+  private static final int TAG_MODEL = 0x0110;
+  private static final int TAG_DATE_TIME = 0x0132;
+  private static final int TAG_EXIF_IFD = 0x8769;
+  private static final int TAG_GPS_IFD = 0x8825;
+  private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+  private static final int TAG_DATE_TIME_DIGITIZED = 0x9004;
+  private static final int TAG_GPS_LATITUDE = 0x0002;
+  private static final int TAG_GPS_LONGITUDE = 0x0004;
+
+  private static final int TYPE_ASCII = 2;
+  private static final int TYPE_LONG = 4;
+
+  /** The capture date as the camera recorded it, without time zone; 0 if unknown. */
+  final int year;
+  final int month;
+  final int day;
+  /** The camera maker and model, or {@code null} if not recorded. */
+  final String make;
+  final String model;
+  /** Whether the image carries a GPS latitude and longitude. */
+  final boolean hasGps;
+
+  ImageMetadata(int year, int month, int day, String make, String model, boolean hasGps) {
+    this.year = year;
+    this.month = month;
+    this.day = day;
+    this.make = make;
+    this.model = model;
+    this.hasGps = hasGps;
+  }
+
+  boolean hasCaptureDate() {
+    return year > 0;
+  }
+
+  /**
+   * Reads the metadata of {@code file}.
+   *
+   * @return the metadata, {@link #NONE} if the file has no EXIF block or is of another type
+   */
+  static ImageMetadata read(File file) throws IOException {
+    byte[] scratch = BufferPool.acquireHeap(MAX_EXIF_BYTES);
+    try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()) {
+      Reader reader = new Reader(channel, scratch);
+      ByteBuffer head = reader.readAt(0, 12);
+      if (head.remaining() < 12) {
+        return NONE;
+      }
+      if ((head.get(0) & 0xFF) == 0xFF && (head.get(1) & 0xFF) == 0xD8) {
+        return readJpeg(reader);
+      }
+      if (head.getInt(0) == 0x89504E47 && head.getInt(4) == 0x0D0A1A0A) {
+        return readPng(reader);
+      }
+      if (head.getInt(0) == fourCc("RIFF") && head.getInt(8) == fourCc("WEBP")) {
+        return readWebp(reader);
+      }
+      return NONE;
+    } finally {
+      BufferPool.releaseHeap(scratch);
+    }
+  }
+
+  /** Walks the segments before the start of scan for an APP1 segment holding EXIF. */
+  private static ImageMetadata readJpeg(Reader reader) throws IOException {
+    long position = 2;
+    while (true) {
+      ByteBuffer header = reader.readAt(position, 4);
+      if (header.remaining() < 2 || (header.get(0) & 0xFF) != 0xFF) {
+        return NONE;
+      }
+      int marker = header.get(1) & 0xFF;
+      if (marker == 0xFF) {
+        // Fill byte before a marker
+        position++;
+        continue;
+      }
+      if (marker == 0xD9 || marker == 0xDA) {
+        // End of image or start of scan: the metadata segments are all behind us
+        return NONE;
+      }
+      if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+        // Markers without a length
+        position += 2;
+        continue;
+      }
+      if (header.remaining() < 4) {
+        return NONE;
+      }
+      int length = header.getShort(2) & 0xFFFF;
+      if (length < 2) {
+        return NONE;
+      }
+      if (marker == 0xE1 && length >= 2 + 6 + 8) {
+        ByteBuffer segment = reader.readAt(position + 4, length - 2);
+        if (segment.remaining() == length - 2 && segment.getInt(0) == fourCc("Exif") && segment.getShort(4) == 0) {
+          return parseTiff(slice(segment, 6, segment.remaining() - 6));
+        }
+      }
+      position += 2 + length;
+    }
+  }
+
+  /** Walks the chunks before the first image data for an eXIf chunk. */
+  private static ImageMetadata readPng(Reader reader) throws IOException {
+    long position = 8;
+    while (true) {
+      ByteBuffer header = reader.readAt(position, 8);
+      if (header.remaining() < 8) {
+        return NONE;
+      }
+      long length = header.getInt(0) & 0xFFFFFFFFL;
+      int type = header.getInt(4);
+      if (type == fourCc("IDAT") || type == fourCc("IEND")) {
+        return NONE;
+      }
+      if (type == fourCc("eXIf") && length <= MAX_EXIF_BYTES) {
+        return parseTiff(reader.readAt(position + 8, (int) length));
+      }
+      // Length, type, data and CRC
+      position += 12 + length;
+    }
+  }
+
+  /** Walks the chunk headers of an extended WebP for its EXIF chunk, which usually comes last. */
+  private static ImageMetadata readWebp(Reader reader) throws IOException {
+    ByteBuffer first = reader.readAt(12, 8 + 4);
+    // Only the extended format has metadata, and it says so in its VP8X flags
+    if (first.remaining() < 12 || first.getInt(0) != fourCc("VP8X") || (first.get(8) & 0x08) == 0) {
+      return NONE;
+    }
+    long position = 12;
+    while (true) {
+      ByteBuffer header = reader.readAt(position, 8);
+      if (header.remaining() < 8) {
+        return NONE;
+      }
+      // RIFF sizes are little-endian
+      long length = Integer.reverseBytes(header.getInt(4)) & 0xFFFFFFFFL;
+      if (header.getInt(0) == fourCc("EXIF")) {
+        if (length > MAX_EXIF_BYTES) {
+          return NONE;
+        }
+        ByteBuffer exif = reader.readAt(position + 8, (int) length);
+        // Some writers keep the JPEG "Exif\0\0" prefix
+        if (exif.remaining() >= 6 && exif.getInt(0) == fourCc("Exif") && exif.getShort(4) == 0) {
+          exif = slice(exif, 6, exif.remaining() - 6);
+        }
+        return parseTiff(exif);
+      }
+      // Chunks are padded to an even length
+      position += 8 + length + (length & 1);
+    }
+  }
+
+  /** Parses a TIFF structure starting at index 0 of {@code tiff}; malformed parts count as missing. */
+  static ImageMetadata parseTiff(ByteBuffer tiff) {
+    try {
+      if (tiff.remaining() < 8) {
+        return NONE;
+      }
+      short byteOrder = tiff.getShort(0);
+      if (byteOrder == 0x4949) {
+        tiff.order(ByteOrder.LITTLE_ENDIAN);
+      } else if (byteOrder == 0x4D4D) {
+        tiff.order(ByteOrder.BIG_ENDIAN);
+      } else {
+        return NONE;
+      }
+      if (tiff.getShort(2) != 42) {
+        return NONE;
+      }
+      int ifd0 = tiff.getInt(4);
+      String make = ascii(tiff, findEntry(tiff, ifd0, TAG_MAKE));
+      String model = ascii(tiff, findEntry(tiff, ifd0, TAG_MODEL));
+      String date = null;
+      int exifIfd = pointer(tiff, findEntry(tiff, ifd0, TAG_EXIF_IFD));
+      if (exifIfd > 0) {
+        date = ascii(tiff, findEntry(tiff, exifIfd, TAG_DATE_TIME_ORIGINAL));
+        if (date == null) {
+          date = ascii(tiff, findEntry(tiff, exifIfd, TAG_DATE_TIME_DIGITIZED));
+        }
+      }
+      if (date == null) {
+        date = ascii(tiff, findEntry(tiff, ifd0, TAG_DATE_TIME));
+      }
+      int gpsIfd = pointer(tiff, findEntry(tiff, ifd0, TAG_GPS_IFD));
+      boolean hasGps = gpsIfd > 0 && findEntry(tiff, gpsIfd, TAG_GPS_LATITUDE) >= 0
+          && findEntry(tiff, gpsIfd, TAG_GPS_LONGITUDE) >= 0;
+
+      int[] ymd = parseDate(date);
+      return new ImageMetadata(ymd[0], ymd[1], ymd[2], make, model, hasGps);
+    } catch (IndexOutOfBoundsException e) {
+      return NONE;
+    }
+  }
+
+  /** The position of the 12-byte entry for {@code tag} in the IFD at {@code offset}, or -1. */
+  private static int findEntry(ByteBuffer tiff, int offset, int tag) {
+    if (offset < 8 || offset > tiff.limit() - 2) {
+      return -1;
+    }
+    int count = tiff.getShort(offset) & 0xFFFF;
+    for (int i = 0; i < count; i++) {
+      int entry = offset + 2 + i * 12;
+      if (entry + 12 > tiff.limit()) {
+        return -1;
+      }
+      if ((tiff.getShort(entry) & 0xFFFF) == tag) {
+        return entry;
+      }
+    }
+    return -1;
+  }
+
+  private static String ascii(ByteBuffer tiff, int entry) {
+    if (entry < 0 || (tiff.getShort(entry + 2) & 0xFFFF) != TYPE_ASCII) {
+      return null;
+    }
+    int count = tiff.getInt(entry + 4);
+    if (count <= 0 || count > tiff.limit()) {
+      return null;
+    }
+    // Values of up to four bytes are stored in the entry itself
+    int offset = count <= 4 ? entry + 8 : tiff.getInt(entry + 8);
+    if (offset < 0 || offset > tiff.limit() - count) {
+      return null;
+    }
+    int end = offset;
+    while (end < offset + count && tiff.get(end) != 0) {
+      end++;
+    }
+    byte[] bytes = new byte[end - offset];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = tiff.get(offset + i);
+    }
+    String value = new String(bytes, StandardCharsets.UTF_8).trim();
+    return value.isEmpty() ? null : value;
+  }
+
+  private static int pointer(ByteBuffer tiff, int entry) {
+    if (entry < 0 || (tiff.getShort(entry + 2) & 0xFFFF) != TYPE_LONG) {
+      return -1;
+    }
+    return tiff.getInt(entry + 8);
+  }
+
+  /** Year, month and day of an EXIF "YYYY:MM:DD HH:MM:SS" date, or zeros if it is not one. */
+  static int[] parseDate(String date) {
+    int[] ymd = new int[3];
+    if (date == null || date.length() < 10 || date.charAt(4) != ':' || date.charAt(7) != ':') {
+      return ymd;
+    }
+    try {
+      int year = Integer.parseInt(date.substring(0, 4));
+      int month = Integer.parseInt(date.substring(5, 7));
+      int day = Integer.parseInt(date.substring(8, 10));
+      // Cameras without a clock write zeros
+      if (year > 0 && month >= 1 && month <= 12 && day >= 1 && day <= 31) {
+        ymd[0] = year;
+        ymd[1] = month;
+        ymd[2] = day;
+      }
+    } catch (NumberFormatException e) {
+      // Blank or garbled date, treated as missing
+    }
+    return ymd;
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position(offset).limit(offset + length);
+    return duplicate.slice();
+  }
+
+  private static int fourCc(String code) {
+    return (code.charAt(0) << 24) | (code.charAt(1) << 16) | (code.charAt(2) << 8) | code.charAt(3);
+  }
+
+  /** Positional reads into one scratch array, each read overwriting the previous one. */
+  private static final class Reader {
+    private final FileChannel channel;
+    private final byte[] scratch;
+
+    Reader(FileChannel channel, byte[] scratch) {
+      this.channel = channel;
+      this.scratch = scratch;
+    }
+
+    /**
+     * Reads up to {@code length} bytes at {@code position}; fewer at the end of the file. The
+     * buffer is big-endian and starts at index 0.
+     */
+    ByteBuffer readAt(long position, int length) throws IOException {
+      ByteBuffer buffer = ByteBuffer.wrap(scratch, 0, Math.min(length, scratch.length)).slice();
+      while (buffer.hasRemaining()) {
+        int read = channel.read(buffer, position + buffer.position());
+        if (read < 0) {
+          break;
+        }
+      }
+      buffer.flip();
+      return buffer;
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import android.provider.MediaStore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page request of {@code listImages}: the columns to return, the sort order and the keyset
+ * cursor (the sort key of the last row of the previous page).
+ *
+ * Pages are read with keyset pagination rather than OFFSET, so every page costs the same index
+ * seek no matter how deep into the gallery it is.
+ */
+final class ImageQuery {
+  static final int DEFAULT_PAGE_SIZE = 500;
+  static final int MAX_PAGE_SIZE = 5000;
+  /** The sort key of a row without a modification date, which SQL comparisons would otherwise skip. */
+  static final long MISSING_DATE_MODIFIED = 0;
+  private static final String DATE_MODIFIED_KEY =
+      "IFNULL(" + MediaStore.Images.Media.DATE_MODIFIED + ", " + MISSING_DATE_MODIFIED + ")";
+
+  final List<ImageColumn> columns;
+  final int pageSize;
+  /** Sort by {@code DATE_MODIFIED, _ID}, a missing date sorting as {@code 0}, or by {@code _ID} alone. */
+  final boolean byDateModified;
+  final boolean descending;
+  /** The sort key of the last row already returned; {@code afterId < 0} starts at the first row. */
+  final long afterId;
+  final long afterDateModified;
+
+  ImageQuery(List<ImageColumn> columns, int pageSize, boolean byDateModified, boolean descending, long afterId,
+      long afterDateModified) {
+    this.columns = Collections.unmodifiableList(columns);
+    this.pageSize = pageSize;
+    this.byDateModified = byDateModified;
+    this.descending = descending;
+    this.afterId = afterId;
+    this.afterDateModified = afterDateModified;
+  }
+
+  /**
+   * Reads a query from the arguments of a {@code listImages} call or stream.
+   *
+   * @throws TransferException with {@code INVALID_ARGUMENTS} if a value is not recognised
+   */
+  static ImageQuery fromArguments(Map<?, ?> arguments) throws TransferException {
+    try {
+      return parse(arguments);
+    } catch (ClassCastException e) {
+      throw new TransferException("INVALID_ARGUMENTS", "Invalid listImages argument: " + e.getMessage());
+    }
+  }
+
+  private static ImageQuery parse(Map<?, ?> arguments) throws TransferException {
+    if (arguments == null) {
+      throw new TransferException("INVALID_ARGUMENTS", "Columns are required");
+    }
+    Object names = arguments.get("columns");
+    if (!(names instanceof List) || ((List<?>) names).isEmpty()) {
+      throw new TransferException("INVALID_ARGUMENTS", "Columns are required");
+    }
+    List<ImageColumn> columns = new ArrayList<>();
+    for (Object name : (List<?>) names) {
+      ImageColumn column = name != null ? ImageColumn.forName(name.toString()) : null;
+      if (column == null) {
+        throw new TransferException("INVALID_ARGUMENTS", "Unknown image column: " + name);
+      }
+      if (!column.isAvailable()) {
+        throw new TransferException("UNSUPPORTED_COLUMN", column.wireName + " needs API level " + column.minSdk);
+      }
+      if (!columns.contains(column)) {
+        columns.add(column);
+      }
+    }
+
+    int pageSize = DEFAULT_PAGE_SIZE;
+    Object size = arguments.get("pageSize");
+    if (size != null) {
+      pageSize = ((Number) size).intValue();
+      if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+        throw new TransferException("INVALID_ARGUMENTS", "Page size must be between 1 and " + MAX_PAGE_SIZE);
+      }
+    }
+
+    Object orderBy = arguments.get("orderBy");
+    boolean byDateModified = orderBy == null || "dateModified".equals(orderBy);
+    if (!byDateModified && !"id".equals(orderBy)) {
+      throw new TransferException("INVALID_ARGUMENTS", "Unknown sort order: " + orderBy);
+    }
+    Object descending = arguments.get("descending");
+
+    Object afterId = arguments.get("afterId");
+    Object afterDateModified = arguments.get("afterDateModified");
+    if (afterId != null && byDateModified && afterDateModified == null) {
+      throw new TransferException("INVALID_ARGUMENTS", "afterDateModified is required with afterId");
+    }
+    return new ImageQuery(columns, pageSize, byDateModified, descending == null || (Boolean) descending,
+        afterId != null ? ((Number) afterId).longValue() : -1,
+        afterDateModified != null ? ((Number) afterDateModified).longValue() : 0);
+  }
+
+  /** The query for the page after the one that ended with {@code lastId}/{@code lastDateModified}. */
+  ImageQuery after(long lastId, long lastDateModified) {
+    return new ImageQuery(columns, pageSize, byDateModified, descending, lastId, lastDateModified);
+  }
+
+  /** The WHERE clause that skips the rows of earlier pages, or {@code null} on the first page. */
+  String selection() {
+    if (afterId < 0) {
+      return null;
+    }
+    String compare = descending ? "<" : ">";
+    if (!byDateModified) {
+      return MediaStore.Images.Media._ID + compare + "?";
+    }
+    return "(" + DATE_MODIFIED_KEY + compare + "?) OR (" + DATE_MODIFIED_KEY + "=? AND "
+        + MediaStore.Images.Media._ID + compare + "?)";
+  }
+
+  String[] selectionArgs() {
+    if (afterId < 0) {
+      return null;
+    }
+    if (!byDateModified) {
+      return new String[] { String.valueOf(afterId) };
+    }
+    String date = String.valueOf(afterDateModified);
+    return new String[] { date, date, String.valueOf(afterId) };
+  }
+
+  String sortOrder() {
+    String direction = descending ? " DESC" : " ASC";
+    if (!byDateModified) {
+      return MediaStore.Images.Media._ID + direction;
+    }
+    return DATE_MODIFIED_KEY + direction + ", " + MediaStore.Images.Media._ID + direction;
+  }
+}
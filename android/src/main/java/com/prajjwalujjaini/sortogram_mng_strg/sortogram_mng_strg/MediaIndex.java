@@ -0,0 +1,39 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+
+/**
+ * Where moved and copied files are made known to the gallery. {@link MediaStoreWriter} is the
+ * implementation on a phone, which batches the changes into MediaStore calls. Changes may be
+ * applied later; {@link #flush} applies everything recorded so far. Implementations must be
+ * thread-safe.
+ */
+interface MediaIndex {
+  /** Points the entry of {@code sourceFile} at {@code destFile}, using {@code mode}. */
+  void recordMove(File sourceFile, File destFile, String mimeType, MediaStoreMoveMode mode);
+
+  /** Adds an entry for the new file {@code destFile}. */
+  void recordCopy(File destFile, String mimeType);
+
+  /**
+   * Removes the entry of {@code file}, whose path is gone or is about to be taken over by a moved
+   * or copied file.
+   */
+  void recordDelete(File file);
+
+  /** Applies every recorded change now. May block on provider IPC. */
+  void flush();
+
+  int getFlushSize();
+
+  long getFlushIntervalMs();
+
+  /**
+   * Applies changes once {@code flushSize} are pending, or {@code flushIntervalMs} after the first
+   * pending one, whichever comes first.
+   */
+  void setFlushPolicy(int flushSize, long flushIntervalMs);
+
+  /** Applies what is pending in the background and releases the index. */
+  void close();
+}
@@ -0,0 +1,366 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index of the MediaStore image table that resolves content URIs, image ids, display
+ * names and paths to absolute file paths without a provider query per lookup.
+ *
+ * The index is filled by one bulk cursor scan on first use and kept current by a
+ * {@link ContentObserver}: changed rows are re-read together, in one query, before the next
+ * lookup, and a change without a row id marks the whole index for a rescan. Scans run without
+ * holding the lock; lookups meanwhile fall back to single-row queries. Entries are evicted
+ * least recently used first once the estimated memory use passes {@link #getMaxBytes()}; lookups
+ * that miss an evicted entry fall back to a single-row query. Thread-safe.
+ */
+final class MediaPathIndex {
+  private static final String TAG = "SortogramMngStrg";
+
+  static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+  /** Rough per-entry overhead: the entry, its boxed id and a node in each of the three maps. */
+  private static final int ENTRY_OVERHEAD_BYTES = 200;
+  /** Stays below SQLite's limit of 999 bound arguments. */
+  private static final int MAX_IDS_PER_QUERY = 500;
+
+  private static final String[] PROJECTION = {
+      MediaStore.Images.Media._ID,
+      MediaStore.Images.Media.DATA,
+      MediaStore.Images.Media.DISPLAY_NAME
+  };
+
+  private final Context context;
+  private final LinkedHashMap<Long, Entry> byId = new LinkedHashMap<>(1024, 0.75f, true);
+  private final Map<String, Long> byPath = new HashMap<>();
+  private final Map<String, Long> byName = new HashMap<>();
+  private final Set<Long> changedIds = new HashSet<>();
+  private final ContentObserver observer;
+
+  private long maxBytes = DEFAULT_MAX_BYTES;
+  private long estimatedBytes;
+  private boolean observing;
+  private boolean stale = true;
+  private boolean loading;
+  /** Counts scans and closes, so a scan that was overtaken does not publish its entries. */
+  private long scanGeneration;
+  /** True while the index holds every image row, so a miss means the image does not exist. */
+  private boolean complete;
+
+  MediaPathIndex(Context context) {
+    this.context = context;
+    this.observer = new ContentObserver(null) {
+      @Override
+      public void onChange(boolean selfChange, Uri uri) {
+        onMediaChanged(uri);
+      }
+    };
+  }
+
+  synchronized long getMaxBytes() {
+    return maxBytes;
+  }
+
+  synchronized void setMaxBytes(long maxBytes) {
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("Index memory cap must be positive: " + maxBytes);
+    }
+    this.maxBytes = maxBytes;
+    trimToSize();
+  }
+
+  /**
+   * Resolves {@code key} to the absolute path of an existing file.
+   *
+   * @param key an absolute path, a {@code content://} URI, a MediaStore image id or a display name
+   * @return the path, or {@code null} if no existing file matches
+   */
+  String resolve(String key) {
+    // If the path is already a real file path and exists, return it
+    if (new File(key).exists()) {
+      return key;
+    }
+    Long id = parseId(key);
+    ensureLoaded();
+    String path;
+    synchronized (this) {
+      refreshChanged();
+      path = lookup(key, id);
+    }
+    if (path == null && !isComplete()) {
+      path = queryOne(key, id);
+    }
+    return path != null && new File(path).exists() ? path : null;
+  }
+
+  /** Resolves every key of {@code keys}; the result has one path or {@code null} per key. */
+  List<String> resolveAll(List<String> keys) {
+    List<String> paths = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      paths.add(key != null ? resolve(key) : null);
+    }
+    return paths;
+  }
+
+  /** Unregisters the observer and drops every entry. */
+  synchronized void close() {
+    if (observing) {
+      context.getContentResolver().unregisterContentObserver(observer);
+      observing = false;
+    }
+    clear();
+    changedIds.clear();
+    stale = true;
+    loading = false;
+    scanGeneration++;
+  }
+
+  private synchronized boolean isComplete() {
+    return complete;
+  }
+
+  private String lookup(String key, Long id) {
+    Long match = id;
+    if (match == null) {
+      match = key.startsWith("/") ? byPath.get(key) : byName.get(key);
+    }
+    Entry entry = match != null ? byId.get(match) : null;
+    return entry != null ? entry.path : null;
+  }
+
+  /**
+   * Rescans the image table if this is the first lookup or a bulk change was reported. The scan
+   * runs outside the lock and its entries replace the old ones in one step once it is done.
+   */
+  private void ensureLoaded() {
+    long generation;
+    synchronized (this) {
+      if (!stale || loading) {
+        return;
+      }
+      if (!observing) {
+        context.getContentResolver().registerContentObserver(
+            MediaStore.Images.Media.EXTERNAL_CONTENT_URI, true, observer);
+        observing = true;
+      }
+      // Changes reported from now on are applied after the scan, or trigger another one
+      stale = false;
+      loading = true;
+      complete = false;
+      changedIds.clear();
+      generation = ++scanGeneration;
+    }
+
+    long startTime = System.currentTimeMillis();
+    List<Entry> entries = new ArrayList<>();
+    boolean scanned = true;
+    // Oldest first, so the most recent images survive if the cap evicts part of the gallery
+    try (Cursor cursor = context.getContentResolver().query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+        PROJECTION, null, null, MediaStore.Images.Media.DATE_MODIFIED + " ASC")) {
+      if (cursor != null) {
+        int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media._ID);
+        int dataColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATA);
+        int nameColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DISPLAY_NAME);
+        while (cursor.moveToNext()) {
+          String path = cursor.getString(dataColumn);
+          if (path != null) {
+            entries.add(new Entry(cursor.getLong(idColumn), path, cursor.getString(nameColumn)));
+          }
+        }
+      }
+    } catch (Exception e) {
+      Log.e(TAG, "Error scanning MediaStore for path index: " + e.getMessage());
+      scanned = false;
+    }
+
+    synchronized (this) {
+      if (generation != scanGeneration) {
+        return;
+      }
+      loading = false;
+      clear();
+      // A bulk change during the scan may have added rows it missed
+      complete = scanned && !stale;
+      for (Entry entry : entries) {
+        put(entry.id, entry.path, entry.name);
+      }
+      Log.d(TAG, "Indexed " + byId.size() + " images (~" + estimatedBytes / 1024 + " KB) in "
+          + (System.currentTimeMillis() - startTime) + "ms");
+    }
+  }
+
+  /** Re-reads the rows the observer reported as changed, dropping those that are gone. */
+  private void refreshChanged() {
+    if (changedIds.isEmpty()) {
+      return;
+    }
+    List<Long> ids = new ArrayList<>(changedIds);
+    changedIds.clear();
+    for (Long id : ids) {
+      remove(id);
+    }
+    for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+      List<Long> chunk = ids.subList(start, Math.min(ids.size(), start + MAX_IDS_PER_QUERY));
+      StringBuilder selection = new StringBuilder(MediaStore.Images.Media._ID).append(" IN (");
+      String[] arguments = new String[chunk.size()];
+      for (int i = 0; i < chunk.size(); i++) {
+        selection.append(i == 0 ? "?" : ",?");
+        arguments[i] = String.valueOf(chunk.get(i));
+      }
+      selection.append(')');
+      try (Cursor cursor = context.getContentResolver().query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+          PROJECTION, selection.toString(), arguments, null)) {
+        if (cursor != null) {
+          int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media._ID);
+          int dataColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATA);
+          int nameColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DISPLAY_NAME);
+          while (cursor.moveToNext()) {
+            put(cursor.getLong(idColumn), cursor.getString(dataColumn), cursor.getString(nameColumn));
+          }
+        }
+      } catch (Exception e) {
+        Log.e(TAG, "Error refreshing changed images: " + e.getMessage());
+        complete = false;
+      }
+    }
+  }
+
+  /** Reads a single row the index does not hold and adds it. */
+  private String queryOne(String key, Long id) {
+    String selection;
+    String argument;
+    if (id != null) {
+      selection = MediaStore.Images.Media._ID + "=?";
+      argument = String.valueOf(id);
+    } else if (key.startsWith("/")) {
+      selection = MediaStore.Images.Media.DATA + "=?";
+      argument = key;
+    } else {
+      selection = MediaStore.Images.Media.DISPLAY_NAME + "=?";
+      argument = key;
+    }
+
+    ContentResolver resolver = context.getContentResolver();
+    try (Cursor cursor = resolver.query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, PROJECTION, selection,
+        new String[] { argument }, MediaStore.Images.Media.DATE_MODIFIED + " DESC")) {
+      if (cursor != null && cursor.moveToFirst()) {
+        String path = cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATA));
+        synchronized (this) {
+          put(cursor.getLong(cursor.getColumnIndexOrThrow(MediaStore.Images.Media._ID)), path,
+              cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DISPLAY_NAME)));
+        }
+        return path;
+      }
+    } catch (Exception e) {
+      Log.e(TAG, "Error querying MediaStore for " + key + ": " + e.getMessage());
+    }
+    return null;
+  }
+
+  private void put(long id, String path, String name) {
+    if (path == null) {
+      return;
+    }
+    remove(id);
+    Entry entry = new Entry(id, path, name);
+    byId.put(id, entry);
+    byPath.put(path, id);
+    if (name != null) {
+      // Display names are not unique; the most recent image wins
+      byName.put(name, id);
+    }
+    estimatedBytes += entry.estimatedBytes();
+    trimToSize();
+  }
+
+  private void remove(long id) {
+    Entry entry = byId.remove(id);
+    if (entry == null) {
+      return;
+    }
+    byPath.remove(entry.path, id);
+    if (entry.name != null) {
+      byName.remove(entry.name, id);
+    }
+    estimatedBytes -= entry.estimatedBytes();
+  }
+
+  private void trimToSize() {
+    Iterator<Entry> eldest = byId.values().iterator();
+    while (estimatedBytes > maxBytes && eldest.hasNext()) {
+      Entry entry = eldest.next();
+      eldest.remove();
+      byPath.remove(entry.path, entry.id);
+      if (entry.name != null) {
+        byName.remove(entry.name, entry.id);
+      }
+      estimatedBytes -= entry.estimatedBytes();
+      complete = false;
+    }
+  }
+
+  private void clear() {
+    byId.clear();
+    byPath.clear();
+    byName.clear();
+    estimatedBytes = 0;
+  }
+
+  private synchronized void onMediaChanged(Uri uri) {
+    Long id = uri != null ? parseId(uri.toString()) : null;
+    if (id != null) {
+      changedIds.add(id);
+    } else {
+      stale = true;
+    }
+  }
+
+  /** Returns the image id named by {@code key}, or {@code null} if it is not a URI or id. */
+  private static Long parseId(String key) {
+    String id = key;
+    if (key.startsWith("content://")) {
+      int slash = key.lastIndexOf('/');
+      id = key.substring(slash + 1);
+    }
+    if (id.isEmpty() || id.length() > 18) {
+      return null;
+    }
+    for (int i = 0; i < id.length(); i++) {
+      if (!Character.isDigit(id.charAt(i))) {
+        return null;
+      }
+    }
+    return Long.parseLong(id);
+  }
+
+  private static final class Entry {
+    final long id;
+    final String path;
+    final String name;
+
+    Entry(long id, String path, String name) {
+      this.id = id;
+      this.path = path;
+      this.name = name;
+    }
+
+    long estimatedBytes() {
+      return ENTRY_OVERHEAD_BYTES + 2L * (path.length() + (name != null ? name.length() : 0));
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+/**
+ * How the MediaStore entry of a moved file is brought up to date.
+ */
+enum MediaStoreMoveMode {
+  /**
+   * The existing row is updated in place, keeping its media ID, thumbnails and cached metadata.
+   * Falls back to {@link #REPLACE} if no row matches or the provider rejects the update.
+   */
+  UPDATE("update"),
+  /** The old row is deleted and a new one inserted, which makes the provider re-index the file. */
+  REPLACE("replace");
+
+  final String wireName;
+
+  MediaStoreMoveMode(String wireName) {
+    this.wireName = wireName;
+  }
+
+  /**
+   * @return the mode called {@code name} on the Dart side, or {@code null} if there is none
+   */
+  static MediaStoreMoveMode forName(String name) {
+    for (MediaStoreMoveMode mode : values()) {
+      if (mode.wireName.equals(name)) {
+        return mode;
+      }
+    }
+    return null;
+  }
+}
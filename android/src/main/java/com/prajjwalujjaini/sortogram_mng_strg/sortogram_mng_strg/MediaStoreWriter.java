@@ -0,0 +1,321 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.media.MediaScannerConnection;
+import android.os.Build;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Collects MediaStore changes for moved and copied files and sends them to the media provider in
+ * batches: one {@link ContentResolver#applyBatch} per flush instead of several IPC round trips per
+ * file, followed by a single media scan for all touched paths.
+ *
+ * Pending changes are flushed when {@link #getFlushSize()} operations have queued up, when the
+ * flush interval has passed since the first pending change, or when {@link #flush()} is called.
+ * Thread-safe.
+ */
+final class MediaStoreWriter implements MediaIndex {
+  private static final String TAG = "SortogramMngStrg";
+
+  static final int DEFAULT_FLUSH_SIZE = 200;
+  static final long DEFAULT_FLUSH_INTERVAL_MS = 500;
+
+  /** Matches the volume root of a shared-storage path, e.g. /storage/emulated/0/ or /storage/1A2B-3C4D/. */
+  private static final Pattern VOLUME_ROOT = Pattern.compile("^/storage/(?:emulated/\\d+|[^/]+)/");
+
+  private final Context context;
+  private final TransferMetrics metrics;
+  private final ScheduledExecutorService scheduler;
+
+  private final Object lock = new Object();
+  /** Held for a whole flush, so that a flush only returns once earlier changes have been applied. */
+  private final Object flushLock = new Object();
+  private List<PendingOperation> operations = new ArrayList<>();
+  private List<String> scanPaths = new ArrayList<>();
+  private List<String> scanMimeTypes = new ArrayList<>();
+  private ScheduledFuture<?> scheduledFlush;
+  private int flushSize = DEFAULT_FLUSH_SIZE;
+  private long flushIntervalMs = DEFAULT_FLUSH_INTERVAL_MS;
+
+  MediaStoreWriter(Context context, TransferMetrics metrics) {
+    this.context = context;
+    this.metrics = metrics;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "sortogram-mediastore");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public int getFlushSize() {
+    return flushSize;
+  }
+
+  @Override
+  public long getFlushIntervalMs() {
+    return flushIntervalMs;
+  }
+
+  @Override
+  public void setFlushPolicy(int flushSize, long flushIntervalMs) {
+    if (flushSize < 1 || flushIntervalMs < 0) {
+      throw new IllegalArgumentException("Invalid flush policy: " + flushSize + " ops / " + flushIntervalMs + "ms");
+    }
+    synchronized (lock) {
+      this.flushSize = flushSize;
+      this.flushIntervalMs = flushIntervalMs;
+    }
+  }
+
+  @Override
+  public void recordMove(File sourceFile, File destFile, String mimeType, MediaStoreMoveMode mode) {
+    if (mode == MediaStoreMoveMode.UPDATE) {
+      enqueue(destFile.getAbsolutePath(), mimeType, new PendingOperation(buildUpdate(sourceFile, destFile),
+          PendingOperation.UPDATE, sourceFile, destFile, mimeType));
+    } else {
+      enqueue(destFile.getAbsolutePath(), mimeType, replaceOperations(sourceFile, destFile, mimeType));
+    }
+  }
+
+  @Override
+  public void recordCopy(File destFile, String mimeType) {
+    enqueue(destFile.getAbsolutePath(), mimeType,
+        new PendingOperation(buildInsert(destFile, mimeType, true), PendingOperation.INSERT));
+  }
+
+  @Override
+  public void recordDelete(File file) {
+    enqueue(null, null, new PendingOperation(buildDelete(file), PendingOperation.DELETE));
+  }
+
+  private ContentProviderOperation buildDelete(File file) {
+    return ContentProviderOperation
+        .newDelete(MediaStore.Images.Media.EXTERNAL_CONTENT_URI)
+        .withSelection(MediaStore.Images.Media.DATA + "=?", new String[] { file.getAbsolutePath() })
+        .build();
+  }
+
+  private ContentProviderOperation buildUpdate(File sourceFile, File destFile) {
+    ContentProviderOperation.Builder update = ContentProviderOperation
+        .newUpdate(MediaStore.Images.Media.EXTERNAL_CONTENT_URI)
+        .withSelection(MediaStore.Images.Media.DATA + "=?", new String[] { sourceFile.getAbsolutePath() })
+        .withValue(MediaStore.Images.Media.DATA, destFile.getAbsolutePath())
+        .withValue(MediaStore.Images.Media.DISPLAY_NAME, destFile.getName());
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+      String relativePath = relativePathOf(destFile);
+      if (relativePath != null) {
+        update.withValue(MediaStore.MediaColumns.RELATIVE_PATH, relativePath);
+      }
+    }
+    return update.build();
+  }
+
+  private ContentProviderOperation buildInsert(File destFile, String mimeType, boolean setDateAdded) {
+    long now = System.currentTimeMillis() / 1000;
+    ContentProviderOperation.Builder insert = ContentProviderOperation
+        .newInsert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI)
+        .withValue(MediaStore.Images.Media.DATA, destFile.getAbsolutePath())
+        .withValue(MediaStore.Images.Media.MIME_TYPE, mimeType)
+        .withValue(MediaStore.Images.Media.DATE_MODIFIED, now);
+    if (setDateAdded) {
+      insert.withValue(MediaStore.Images.Media.DATE_ADDED, now);
+    }
+    return insert.build();
+  }
+
+  private PendingOperation[] replaceOperations(File sourceFile, File destFile, String mimeType) {
+    return new PendingOperation[] {
+        new PendingOperation(buildDelete(sourceFile), PendingOperation.DELETE),
+        new PendingOperation(buildInsert(destFile, mimeType, false), PendingOperation.INSERT)
+    };
+  }
+
+  /** Returns the MediaStore RELATIVE_PATH of the directory holding {@code file}, e.g. "Pictures/Trips/". */
+  static String relativePathOf(File file) {
+    String parent = file.getParent();
+    if (parent == null) {
+      return null;
+    }
+    String directory = parent + "/";
+    Matcher matcher = VOLUME_ROOT.matcher(directory);
+    if (!matcher.find()) {
+      return null;
+    }
+    return directory.substring(matcher.end());
+  }
+
+  /** @param scanPath the file to media scan after the flush, or {@code null} for none */
+  private void enqueue(String scanPath, String mimeType, PendingOperation... ops) {
+    boolean flushNow;
+    synchronized (lock) {
+      for (PendingOperation op : ops) {
+        operations.add(op);
+      }
+      if (scanPath != null) {
+        scanPaths.add(scanPath);
+        scanMimeTypes.add(mimeType);
+      }
+      flushNow = operations.size() >= flushSize;
+      if (!flushNow && scheduledFlush == null) {
+        scheduledFlush = scheduler.schedule(this::flush, flushIntervalMs, TimeUnit.MILLISECONDS);
+      }
+    }
+    if (flushNow) {
+      flush();
+    }
+  }
+
+  /**
+   * Sends every pending change to the media provider now. Blocks on provider IPC, and on a flush
+   * already running on another thread, until every change queued before this call has been applied.
+   */
+  @Override
+  public void flush() {
+    synchronized (flushLock) {
+      applyPending();
+    }
+  }
+
+  private void applyPending() {
+    List<PendingOperation> pending;
+    List<String> paths;
+    List<String> mimeTypes;
+    synchronized (lock) {
+      if (scheduledFlush != null) {
+        scheduledFlush.cancel(false);
+        scheduledFlush = null;
+      }
+      if (operations.isEmpty()) {
+        return;
+      }
+      pending = operations;
+      paths = scanPaths;
+      mimeTypes = scanMimeTypes;
+      operations = new ArrayList<>();
+      scanPaths = new ArrayList<>();
+      scanMimeTypes = new ArrayList<>();
+    }
+
+    long startTime = System.nanoTime();
+    ContentResolver resolver = context.getContentResolver();
+    List<PendingOperation> fallbacks = new ArrayList<>();
+    ArrayList<ContentProviderOperation> batch = new ArrayList<>(pending.size());
+    int[] countsByKind = new int[3];
+    for (PendingOperation op : pending) {
+      batch.add(op.operation);
+      countsByKind[op.kind]++;
+    }
+    metrics.recordMediaStoreOperations(countsByKind[PendingOperation.INSERT], countsByKind[PendingOperation.DELETE],
+        countsByKind[PendingOperation.UPDATE]);
+    try {
+      ContentProviderResult[] results = resolver.applyBatch(MediaStore.AUTHORITY, batch);
+      for (int i = 0; i < results.length; i++) {
+        if (pending.get(i).needsFallback(results[i])) {
+          fallbacks.add(pending.get(i));
+        }
+      }
+    } catch (Exception e) {
+      // A batch is applied as a unit, so one bad row would drop all of them; retry one by one
+      Log.w(TAG, "MediaStore batch failed, applying " + batch.size() + " operations individually: "
+          + e.getMessage());
+      applyIndividually(resolver, pending, fallbacks);
+    }
+
+    if (!fallbacks.isEmpty()) {
+      Log.d(TAG, fallbacks.size() + " in-place updates matched no row, replacing those entries instead");
+      List<PendingOperation> replacements = new ArrayList<>(fallbacks.size() * 2);
+      for (PendingOperation op : fallbacks) {
+        for (PendingOperation replacement : replaceOperations(op.sourceFile, op.destFile, op.mimeType)) {
+          replacements.add(replacement);
+        }
+      }
+      metrics.recordMediaStoreOperations(fallbacks.size(), fallbacks.size(), 0);
+      applyIndividually(resolver, replacements, null);
+    }
+    long elapsed = System.nanoTime() - startTime;
+    metrics.record(TransferMetrics.Phase.MEDIA_STORE_BATCH, elapsed);
+    Log.d(TAG, "Applied " + batch.size() + " MediaStore operations in " + elapsed / 1000000 + "ms");
+
+    if (!paths.isEmpty()) {
+      long scanStartTime = System.nanoTime();
+      MediaScannerConnection.scanFile(context,
+          paths.toArray(new String[0]),
+          mimeTypes.toArray(new String[0]),
+          (path, uri) -> {
+            metrics.record(TransferMetrics.Phase.SCAN, System.nanoTime() - scanStartTime);
+            Log.d(TAG, "Media scan completed for: " + path + " URI: " + uri);
+          });
+    }
+  }
+
+  private void applyIndividually(ContentResolver resolver, List<PendingOperation> pending,
+      List<PendingOperation> fallbacks) {
+    ArrayList<ContentProviderOperation> single = new ArrayList<>(1);
+    for (PendingOperation op : pending) {
+      single.clear();
+      single.add(op.operation);
+      ContentProviderResult result = null;
+      try {
+        result = resolver.applyBatch(MediaStore.AUTHORITY, single)[0];
+      } catch (Exception e) {
+        Log.e(TAG, "MediaStore operation failed: " + e.getMessage());
+      }
+      if (fallbacks != null && op.needsFallback(result)) {
+        fallbacks.add(op);
+      }
+    }
+  }
+
+  /** Flushes what is pending in the background and stops the flush thread. */
+  @Override
+  public void close() {
+    scheduler.execute(this::flush);
+    scheduler.shutdown();
+  }
+
+  private static final class PendingOperation {
+    static final int INSERT = 0;
+    static final int DELETE = 1;
+    static final int UPDATE = 2;
+
+    final ContentProviderOperation operation;
+    /** {@link #INSERT}, {@link #DELETE} or {@link #UPDATE}, for the metrics. */
+    final int kind;
+    /** Set for in-place updates, which are replaced by delete + insert if they do not apply. */
+    final File sourceFile;
+    final File destFile;
+    final String mimeType;
+
+    PendingOperation(ContentProviderOperation operation, int kind) {
+      this(operation, kind, null, null, null);
+    }
+
+    PendingOperation(ContentProviderOperation operation, int kind, File sourceFile, File destFile,
+        String mimeType) {
+      this.operation = operation;
+      this.kind = kind;
+      this.sourceFile = sourceFile;
+      this.destFile = destFile;
+      this.mimeType = mimeType;
+    }
+
+    boolean needsFallback(ContentProviderResult result) {
+      return sourceFile != null && (result == null || result.count == null || result.count == 0);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * Operations waiting for a permission dialog, grouped by the request code of the dialog they wait
+ * for and kept in arrival order.
+ *
+ * Only one dialog is shown at a time: the first operation for a request code starts its dialog,
+ * later ones just join the queue. When the dialog answers, every operation of that request code is
+ * handed back together, so concurrent calls are neither lost nor run one after another.
+ * Thread-safe.
+ */
+final class PendingPermissionRequests {
+  static final int NO_REQUEST = -1;
+
+  private final Map<Integer, Deque<Operation>> byRequestCode = new LinkedHashMap<>();
+  private int shownRequestCode = NO_REQUEST;
+
+  /**
+   * Queues {@code onGranted} behind the dialog for {@code requestCode}.
+   *
+   * @return true if no dialog is showing, in which case the caller must show the one for
+   *     {@code requestCode} now
+   */
+  synchronized boolean add(int requestCode, @NonNull String type, @NonNull Result result,
+      @NonNull Runnable onGranted) {
+    Deque<Operation> queue = byRequestCode.get(requestCode);
+    if (queue == null) {
+      queue = new ArrayDeque<>();
+      byRequestCode.put(requestCode, queue);
+    }
+    queue.add(new Operation(type, result, onGranted));
+    if (shownRequestCode == NO_REQUEST) {
+      shownRequestCode = requestCode;
+      return true;
+    }
+    return false;
+  }
+
+  /** Removes and returns, in arrival order, every operation waiting for {@code requestCode}. */
+  synchronized List<Operation> complete(int requestCode) {
+    if (shownRequestCode == requestCode) {
+      shownRequestCode = NO_REQUEST;
+    }
+    Deque<Operation> queue = byRequestCode.remove(requestCode);
+    return queue != null ? new ArrayList<>(queue) : new ArrayList<>();
+  }
+
+  /**
+   * Picks the request code whose dialog should be shown next, or returns {@link #NO_REQUEST} if
+   * nothing is waiting or a dialog is still showing.
+   */
+  synchronized int next() {
+    if (shownRequestCode != NO_REQUEST) {
+      return NO_REQUEST;
+    }
+    Iterator<Map.Entry<Integer, Deque<Operation>>> entries = byRequestCode.entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<Integer, Deque<Operation>> entry = entries.next();
+      if (!entry.getValue().isEmpty()) {
+        shownRequestCode = entry.getKey();
+        return shownRequestCode;
+      }
+      entries.remove();
+    }
+    return NO_REQUEST;
+  }
+
+  /** Removes and returns every waiting operation, e.g. when the engine detaches. */
+  synchronized List<Operation> clear() {
+    List<Operation> all = new ArrayList<>();
+    for (Deque<Operation> queue : byRequestCode.values()) {
+      all.addAll(queue);
+    }
+    byRequestCode.clear();
+    shownRequestCode = NO_REQUEST;
+    return all;
+  }
+
+  synchronized int size() {
+    int size = 0;
+    for (Deque<Operation> queue : byRequestCode.values()) {
+      size += queue.size();
+    }
+    return size;
+  }
+
+  static final class Operation {
+    /** The method call that queued the operation, for logging. */
+    final String type;
+    final Result result;
+    final Runnable onGranted;
+
+    Operation(String type, Result result, Runnable onGranted) {
+      this.type = type;
+      this.result = result;
+      this.onGranted = onGranted;
+    }
+  }
+}
@@ -0,0 +1,376 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Copies large files with reading and writing overlapped instead of taking turns.
+ *
+ * When the copy is hashed, a reader thread fills a ring of direct buffers and hashes them while
+ * the calling thread writes the filled buffers out, so the storage sees a read and a write in
+ * flight at the same time. Without a hash, files of at least {@link #PARALLEL_THRESHOLD} are split
+ * into disjoint ranges that several threads copy with positional reads and writes, which keeps
+ * more requests queued on UFS/NVMe storage. Chunk size and the number of ranges are chosen from
+ * the file size. Everything else goes to the fallback engine: below {@link #PIPELINE_THRESHOLD}
+ * the thread handoff costs more than it saves, and an unhashed copy of a mid-sized file is best
+ * left to the kernel.
+ *
+ * Progress and cancellation happen on the calling thread only, so listeners need not be
+ * thread-safe.
+ */
+final class PipelinedCopyEngine implements CopyEngine {
+  static final String NAME = "pipelined";
+
+  static final long PIPELINE_THRESHOLD = 4L * 1024 * 1024;
+  static final long PARALLEL_THRESHOLD = 64L * 1024 * 1024;
+
+  private static final int MIN_CHUNK_SIZE = 256 * 1024;
+  private static final int MAX_CHUNK_SIZE = 1024 * 1024;
+  private static final int RING_SIZE = 4;
+  /** Each parallel range is at least this long, so a lane is never mostly startup cost. */
+  private static final long MIN_RANGE_SIZE = 16L * 1024 * 1024;
+  private static final int MAX_PARALLELISM = 4;
+  /** How often a blocked thread checks whether the other side has given up. */
+  private static final long POLL_MS = 50;
+
+  /** End of the source; never written. */
+  private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+  private static final ExecutorService HELPERS = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "sortogram-copy");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final CopyEngine fallback;
+  private final boolean parallelRanges;
+  private final int processors;
+
+  /**
+   * @param fallback copies files too small to be worth pipelining
+   * @param parallelRanges whether large files without a hash may be copied as parallel ranges
+   */
+  PipelinedCopyEngine(CopyEngine fallback, boolean parallelRanges) {
+    this(fallback, parallelRanges, Runtime.getRuntime().availableProcessors());
+  }
+
+  /** @param processors how many processors the parallel ranges may keep busy */
+  PipelinedCopyEngine(CopyEngine fallback, boolean parallelRanges, int processors) {
+    this.fallback = fallback;
+    this.parallelRanges = parallelRanges;
+    this.processors = processors;
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  /** The buffer size for a file of {@code size} bytes: about 1/16 of it, within sane bounds. */
+  static int chunkSizeFor(long size) {
+    long chunk = Long.highestOneBit(Math.max(1, size / 16));
+    return (int) Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunk));
+  }
+
+  /** How many ranges a file of {@code size} bytes is split into; 1 means no parallel ranges. */
+  static int parallelismFor(long size, int processors) {
+    if (size < PARALLEL_THRESHOLD) {
+      return 1;
+    }
+    long ranges = size / MIN_RANGE_SIZE;
+    return (int) Math.max(1, Math.min(Math.min(MAX_PARALLELISM, processors), ranges));
+  }
+
+  @Override
+  public long copy(FileInputStream in, FileOutputStream out, long size, XxHash64 hash, CopyListener listener)
+      throws IOException {
+    if (size < PIPELINE_THRESHOLD) {
+      return fallback.copy(in, out, size, hash, listener);
+    }
+    FileChannel source = in.getChannel();
+    FileChannel dest = out.getChannel();
+    int chunkSize = chunkSizeFor(size);
+    if (hash != null) {
+      return pipe(source, dest, size, 0, chunkSize, hash, listener);
+    }
+
+    // Positional writes ignore the position of an append-mode stream, so only fresh copies qualify
+    int parallelism = parallelismFor(size, processors);
+    if (!parallelRanges || parallelism < 2 || source.position() != 0 || dest.position() != 0) {
+      return fallback.copy(in, out, size, null, listener);
+    }
+    long copied = copyRanges(source, dest, size, chunkSize, parallelism, listener);
+    source.position(copied);
+    dest.position(copied);
+    // Picks up anything the file grew by since its size was taken
+    return copied + pipe(source, dest, size, copied, chunkSize, null, listener);
+  }
+
+  /**
+   * Copies from the current positions until end of file, with a reader thread filling a ring of
+   * buffers that this thread writes out.
+   */
+  private long pipe(FileChannel source, FileChannel dest, long size, long alreadyCopied, int chunkSize,
+      XxHash64 hash, CopyListener listener) throws IOException {
+    BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(RING_SIZE);
+    BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(RING_SIZE + 1);
+    ByteBuffer[] ring = new ByteBuffer[RING_SIZE];
+    for (int i = 0; i < RING_SIZE; i++) {
+      ring[i] = BufferPool.acquireDirect(chunkSize);
+      free.add(ring[i]);
+    }
+    Pipe state = new Pipe();
+
+    Future<?> reader = HELPERS.submit(() -> {
+      try {
+        while (!state.aborted) {
+          ByteBuffer buffer = free.poll(POLL_MS, TimeUnit.MILLISECONDS);
+          if (buffer == null) {
+            continue;
+          }
+          buffer.clear();
+          buffer.limit(chunkSize);
+          int read = 0;
+          while (buffer.hasRemaining() && (read = source.read(buffer)) >= 0) {
+            // Fill the whole buffer, so writes stay chunk sized
+          }
+          buffer.flip();
+          if (buffer.hasRemaining()) {
+            if (hash != null) {
+              hash.update(buffer);
+            }
+            filled.put(buffer);
+          }
+          if (read < 0) {
+            return null;
+          }
+        }
+        return null;
+      } catch (Exception e) {
+        state.readError = e;
+        return null;
+      } finally {
+        // The ring holds every buffer plus this marker, so offer always succeeds
+        filled.offer(END);
+      }
+    });
+
+    long copied = 0;
+    try {
+      while (true) {
+        ByteBuffer buffer = filled.take();
+        if (buffer == END) {
+          break;
+        }
+        while (buffer.hasRemaining()) {
+          copied += dest.write(buffer);
+        }
+        free.put(buffer);
+        if (listener != null) {
+          listener.onProgress(alreadyCopied + copied, size);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Copy was interrupted");
+    } finally {
+      state.aborted = true;
+      await(reader);
+      // Only now is no thread touching the ring any more
+      for (ByteBuffer buffer : ring) {
+        BufferPool.releaseDirect(buffer);
+      }
+    }
+    if (state.readError instanceof IOException) {
+      throw (IOException) state.readError;
+    }
+    if (state.readError != null) {
+      throw new IOException("Reading the source failed", state.readError);
+    }
+    return copied;
+  }
+
+  /**
+   * Copies the first {@code size} bytes as {@code parallelism} disjoint ranges with positional
+   * reads and writes. This thread copies the first range and reports progress for all of them.
+   *
+   * Progress is the written prefix of the destination: the bytes before the first range that is
+   * not finished yet. Listeners may keep it as a checkpoint to resume from, so it must never count
+   * bytes past a hole that a later range has skipped over.
+   *
+   * @return the number of bytes copied, less than {@code size} if the source turned out shorter
+   */
+  private long copyRanges(FileChannel source, FileChannel dest, long size, int chunkSize, int parallelism,
+      CopyListener listener) throws IOException {
+    long rangeSize = (size + parallelism - 1) / parallelism;
+    Ranges ranges = new Ranges(parallelism, rangeSize, size);
+    Pipe state = new Pipe();
+    List<Future<Long>> helpers = new ArrayList<>(parallelism - 1);
+    try {
+      for (int i = 1; i < parallelism; i++) {
+        int range = i;
+        helpers.add(HELPERS.submit(() -> copyRange(source, dest, ranges, range, chunkSize, state, null)));
+      }
+      copyRange(source, dest, ranges, 0, chunkSize, state, listener);
+      for (Future<Long> helper : helpers) {
+        awaitRange(helper, ranges, listener);
+      }
+    } catch (IOException | RuntimeException e) {
+      state.aborted = true;
+      // The helpers use the channels, so they have to stop before the caller closes them
+      for (Future<Long> helper : helpers) {
+        try {
+          await(helper);
+        } catch (IOException ignored) {
+          // The first failure is the one reported
+        }
+      }
+      throw e;
+    }
+
+    // Stops at the first short range; a source that shrank fails verification anyway
+    long copied = ranges.writtenPrefix();
+    if (listener != null) {
+      listener.onProgress(copied, size);
+    }
+    return copied;
+  }
+
+  /** Waits for a helper range, reporting the progress of all ranges while it runs. */
+  private static long awaitRange(Future<Long> helper, Ranges ranges, CopyListener listener) throws IOException {
+    while (true) {
+      try {
+        return helper.get(POLL_MS, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        if (listener != null) {
+          listener.onProgress(ranges.writtenPrefix(), ranges.size);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Copy was interrupted");
+      } catch (ExecutionException e) {
+        throw asIOException(e);
+      }
+    }
+  }
+
+  private static long copyRange(FileChannel source, FileChannel dest, Ranges ranges, int range, int chunkSize,
+      Pipe state, CopyListener listener) throws IOException {
+    ByteBuffer buffer = BufferPool.acquireDirect(chunkSize);
+    long start = ranges.start(range);
+    long end = ranges.end(range);
+    long position = start;
+    try {
+      while (position < end && !state.aborted) {
+        buffer.clear();
+        buffer.limit((int) Math.min(chunkSize, end - position));
+        int read = source.read(buffer, position);
+        if (read < 0) {
+          break;
+        }
+        buffer.flip();
+        long writePosition = position;
+        while (buffer.hasRemaining()) {
+          writePosition += dest.write(buffer, writePosition);
+        }
+        position += read;
+        ranges.written.set(range, position - start);
+        if (listener != null) {
+          try {
+            listener.onProgress(ranges.writtenPrefix(), ranges.size);
+          } catch (IOException | RuntimeException e) {
+            // Cancelled: stop the other ranges too
+            state.aborted = true;
+            throw e;
+          }
+        }
+      }
+    } finally {
+      BufferPool.releaseDirect(buffer);
+    }
+    return position - start;
+  }
+
+  /** Waits for {@code task} and rethrows its failure as an {@link IOException}. */
+  private static <T> T await(Future<T> task) throws IOException {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return task.get();
+        } catch (InterruptedException e) {
+          // The helper holds the channels, so it has to finish before they are closed
+          interrupted = true;
+        }
+      }
+    } catch (ExecutionException e) {
+      throw asIOException(e);
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static IOException asIOException(ExecutionException e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof IOException) {
+      return (IOException) cause;
+    }
+    return new IOException("Copy failed", cause);
+  }
+
+  /** The split of a parallel copy, with how far each range has been written. */
+  private static final class Ranges {
+    final long rangeSize;
+    final long size;
+    final AtomicLongArray written;
+
+    Ranges(int count, long rangeSize, long size) {
+      this.rangeSize = rangeSize;
+      this.size = size;
+      this.written = new AtomicLongArray(count);
+    }
+
+    long start(int range) {
+      return range * rangeSize;
+    }
+
+    long end(int range) {
+      return Math.min(size, start(range) + rangeSize);
+    }
+
+    /** The number of bytes from the start of the file written without a gap. */
+    long writtenPrefix() {
+      long prefix = 0;
+      for (int i = 0; i < written.length(); i++) {
+        long length = written.get(i);
+        prefix += length;
+        if (length < end(i) - start(i)) {
+          break;
+        }
+      }
+      return prefix;
+    }
+  }
+
+  private static final class Pipe {
+    volatile boolean aborted;
+    volatile Exception readError;
+  }
+}
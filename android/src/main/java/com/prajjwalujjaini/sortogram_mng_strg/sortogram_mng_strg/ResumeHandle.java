@@ -0,0 +1,29 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.IOException;
+
+/**
+ * Lets a journaled job pick up a file where an earlier, interrupted run left it.
+ */
+interface ResumeHandle {
+  /**
+   * @return -1 if this file was never started, 0 if it was started but nothing usable was written,
+   *     or the number of destination bytes known to have been written before the interruption
+   */
+  long resumeOffset();
+
+  /**
+   * @return the destination the earlier run started writing, which a conflict policy may have
+   *     chosen instead of the requested one, or {@code null} if this file was never started
+   */
+  String startedDestination();
+
+  /**
+   * Called after the destination checks passed, right before {@code destinationPath} is first
+   * written.
+   */
+  void onStarted(String destinationPath) throws IOException;
+
+  /** Called when the first {@code offset} bytes of the destination have been written. */
+  void onCheckpoint(long offset) throws IOException;
+}
@@ -0,0 +1,187 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The rules of a {@code startSort} call, sent once from Dart. The first rule whose conditions all
+ * hold for an image decides its destination folder; images no rule matches stay where they are.
+ *
+ * A destination is an absolute folder path that may contain {@code {year}}, {@code {month}},
+ * {@code {day}}, {@code {make}}, {@code {model}} and {@code {extension}}. The date is the EXIF
+ * capture date, or the file's modification date for images without one; a missing camera maker or
+ * model becomes {@value #UNKNOWN}.
+ */
+final class SortRules {
+  static final String UNKNOWN = "Unknown";
+
+  private static final Set<String> PLACEHOLDERS = new HashSet<>(Arrays.asList(
+      "year", "month", "day", "make", "model", "extension"));
+
+  final List<Rule> rules;
+
+  SortRules(List<Rule> rules) {
+    this.rules = rules;
+  }
+
+  /**
+   * Reads the {@code rules} argument of a {@code startSort} call.
+   *
+   * @throws TransferException with {@code INVALID_ARGUMENTS} if a rule is malformed
+   */
+  static SortRules fromArguments(Object rules) throws TransferException {
+    if (!(rules instanceof List) || ((List<?>) rules).isEmpty()) {
+      throw new TransferException("INVALID_ARGUMENTS", "At least one sort rule is required");
+    }
+    List<Rule> parsed = new ArrayList<>();
+    try {
+      for (Object rule : (List<?>) rules) {
+        if (!(rule instanceof Map)) {
+          throw new TransferException("INVALID_ARGUMENTS", "Sort rule must be a map: " + rule);
+        }
+        parsed.add(Rule.fromArguments((Map<?, ?>) rule));
+      }
+    } catch (ClassCastException e) {
+      throw new TransferException("INVALID_ARGUMENTS", "Invalid sort rule: " + e.getMessage());
+    }
+    return new SortRules(parsed);
+  }
+
+  /**
+   * The path {@code file} is to be moved to, or {@code null} if no rule matches it or it is there
+   * already.
+   */
+  String destinationFor(File file, ImageMetadata metadata) {
+    String extension = extensionOf(file.getName());
+    for (Rule rule : rules) {
+      if (rule.matches(extension, metadata)) {
+        File destination = new File(rule.expand(file, extension, metadata), file.getName());
+        return destination.getAbsolutePath().equals(file.getAbsolutePath()) ? null : destination.getPath();
+      }
+    }
+    return null;
+  }
+
+  /** Whether any rule needs the EXIF fields, as opposed to just the file name. */
+  boolean needsMetadata() {
+    for (Rule rule : rules) {
+      if (rule.needsMetadata()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static final class Rule {
+    final String destination;
+    /** Conditions; {@code null} for the ones the rule does not have. */
+    final Boolean hasCaptureDate;
+    final Boolean hasGps;
+    final String make;
+    final String model;
+    final Set<String> extensions;
+    /** Whether {@link #destination} contains a date placeholder. */
+    private final boolean usesDate;
+
+    Rule(String destination, Boolean hasCaptureDate, Boolean hasGps, String make, String model,
+        Set<String> extensions) {
+      this.destination = destination;
+      this.hasCaptureDate = hasCaptureDate;
+      this.hasGps = hasGps;
+      this.make = make;
+      this.model = model;
+      this.extensions = extensions;
+      this.usesDate = destination.contains("{year}") || destination.contains("{month}")
+          || destination.contains("{day}");
+    }
+
+    static Rule fromArguments(Map<?, ?> arguments) throws TransferException {
+      String destination = (String) arguments.get("destination");
+      if (destination == null || !destination.startsWith("/")) {
+        throw new TransferException("INVALID_ARGUMENTS", "Sort rule destination must be an absolute path: "
+            + destination);
+      }
+      int open = destination.indexOf('{');
+      while (open >= 0) {
+        int close = destination.indexOf('}', open);
+        String name = close > open ? destination.substring(open + 1, close) : null;
+        if (name == null || !PLACEHOLDERS.contains(name)) {
+          throw new TransferException("INVALID_ARGUMENTS", "Unknown placeholder in sort rule destination: "
+              + destination);
+        }
+        open = destination.indexOf('{', close);
+      }
+      Set<String> extensions = null;
+      List<?> extensionNames = (List<?>) arguments.get("extensions");
+      if (extensionNames != null) {
+        extensions = new HashSet<>();
+        for (Object extension : extensionNames) {
+          extensions.add(extension.toString().toLowerCase());
+        }
+      }
+      return new Rule(destination, (Boolean) arguments.get("hasCaptureDate"), (Boolean) arguments.get("hasGps"),
+          (String) arguments.get("make"), (String) arguments.get("model"), extensions);
+    }
+
+    boolean matches(String extension, ImageMetadata metadata) {
+      return (extensions == null || extensions.contains(extension))
+          && (hasCaptureDate == null || hasCaptureDate == metadata.hasCaptureDate())
+          && (hasGps == null || hasGps == metadata.hasGps)
+          && (make == null || make.equalsIgnoreCase(metadata.make))
+          && (model == null || model.equalsIgnoreCase(metadata.model));
+    }
+
+    boolean needsMetadata() {
+      return hasCaptureDate != null || hasGps != null || make != null || model != null || usesDate
+          || destination.contains("{make}") || destination.contains("{model}");
+    }
+
+    /** The destination folder with every placeholder filled in for {@code file}. */
+    String expand(File file, String extension, ImageMetadata metadata) {
+      if (destination.indexOf('{') < 0) {
+        return destination;
+      }
+      int year = metadata.year;
+      int month = metadata.month;
+      int day = metadata.day;
+      if (!metadata.hasCaptureDate() && usesDate) {
+        long modified = file.lastModified();
+        if (modified > 0) {
+          Calendar calendar = Calendar.getInstance();
+          calendar.setTimeInMillis(modified);
+          year = calendar.get(Calendar.YEAR);
+          month = calendar.get(Calendar.MONTH) + 1;
+          day = calendar.get(Calendar.DAY_OF_MONTH);
+        }
+      }
+      return destination
+          .replace("{year}", year > 0 ? String.format(Locale.ROOT, "%04d", year) : UNKNOWN)
+          .replace("{month}", month > 0 ? String.format(Locale.ROOT, "%02d", month) : UNKNOWN)
+          .replace("{day}", day > 0 ? String.format(Locale.ROOT, "%02d", day) : UNKNOWN)
+          .replace("{make}", folderName(metadata.make))
+          .replace("{model}", folderName(metadata.model))
+          .replace("{extension}", extension.isEmpty() ? UNKNOWN : extension);
+    }
+  }
+
+  /** {@code value} made safe as a single folder name. */
+  private static String folderName(String value) {
+    if (value == null) {
+      return UNKNOWN;
+    }
+    String name = value.replaceAll("[/\\\\:*?\"<>|\\x00-\\x1F]", "_").trim();
+    return name.isEmpty() || name.startsWith(".") ? UNKNOWN : name;
+  }
+
+  private static String extensionOf(String name) {
+    int dot = name.lastIndexOf('.');
+    return dot >= 0 ? name.substring(dot + 1).toLowerCase() : "";
+  }
+}
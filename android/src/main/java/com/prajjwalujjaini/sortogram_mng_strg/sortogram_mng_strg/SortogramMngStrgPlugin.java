@@ -2,40 +2,39 @@ package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
 
 import android.Manifest;
 import android.app.Activity;
-import android.content.ContentResolver;
 import android.util.Log;
-import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.PackageManager;
-import android.database.Cursor;
-import android.media.MediaScannerConnection;
-import android.net.Uri;
 import android.os.Build;
-import android.os.Environment;
-import android.provider.MediaStore;
+import android.os.CancellationSignal;
 import android.provider.Settings;
 import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
-import androidx.core.content.ContextCompat;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.io.BufferedInputStream;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.embedding.engine.plugins.activity.ActivityAware;
 import io.flutter.embedding.engine.plugins.activity.ActivityPluginBinding;
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
@@ -46,25 +45,112 @@ import io.flutter.plugin.common.PluginRegistry;
 public class SortogramMngStrgPlugin implements FlutterPlugin, MethodCallHandler, ActivityAware,
     PluginRegistry.RequestPermissionsResultListener, PluginRegistry.ActivityResultListener {
   private static final String TAG = "SortogramMngStrg";
-  private static final int PERMISSION_REQUEST_CODE = 123;
+  private static final int WRITE_PERMISSION_REQUEST_CODE = 123;
+  private static final int READ_PERMISSION_REQUEST_CODE = 124;
   private static final int MANAGE_STORAGE_PERMISSION_REQUEST_CODE = 456;
 
   private MethodChannel channel;
+  private EventChannel progressChannel;
+  private EventChannel imagesChannel;
+  private BasicMessageChannel<ByteBuffer> bulkChannel;
   private Context context;
   private Activity activity;
-  private Result pendingResult;
-  private String pendingSourcePath;
-  private String pendingDestPath;
+  private StoragePermissions storagePermissions;
+  private MediaPathIndex mediaPathIndex;
+  private ImageLister imageLister;
+  private HashIndex hashIndex;
+  private IdenticalFileCheck identicalFileCheck;
+  private TemporaryFiles temporaryFiles;
+  private EventChannel.EventSink imageSink;
+  private CancellationSignal imageListing;
+  /** Replaced by {@code configure} on the main thread while workers may still read it. */
+  private volatile TransferExecutor transferExecutor;
+  private StorageBackend storage;
+  private MediaIndex mediaIndex;
+  private DirectoryWalker directoryWalker;
+  /** Where the journals of {@code startTransfer} jobs are kept. */
+  private File jobDirectory;
+  private TransferProgressReporter progressReporter;
+  private final TransferMetrics metrics = new TransferMetrics();
+  private final FileCopier fileCopier = new FileCopier(metrics);
+  private final Map<String, TransferJob> jobs = new ConcurrentHashMap<>();
+  /** Ids of jobs that a {@code resumeTransfer} call is bringing back but that are not in {@link #jobs} yet. */
+  private final Set<String> resumingJobs = Collections.newSetFromMap(new ConcurrentHashMap<>());
+  private volatile TransferOptions defaultOptions = TransferOptions.DEFAULT;
+  private final PendingPermissionRequests pendingRequests = new PendingPermissionRequests();
 
   private static final Set<String> SUPPORTED_IMAGE_TYPES = new HashSet<>(Arrays.asList(
       "jpg", "jpeg", "png", "webp"));
 
+  public SortogramMngStrgPlugin() {
+  }
+
+  /**
+   * A plugin without a Flutter engine or Android context, which moves and copies files on
+   * {@code storage}, records them in {@code mediaIndex} and replies on {@code mainThread}. Storage
+   * permissions count as granted, and methods that need the context, e.g. jobs and path lookups,
+   * are not available. Lets the transfer pipeline be load-tested on the JVM.
+   */
+  SortogramMngStrgPlugin(StorageBackend storage, MediaIndex mediaIndex, Executor mainThread) {
+    this(storage, mediaIndex, mainThread, null);
+  }
+
+  /** A plugin like the one above that also runs jobs, keeping their journals in {@code jobDirectory}. */
+  SortogramMngStrgPlugin(StorageBackend storage, MediaIndex mediaIndex, Executor mainThread, File jobDirectory) {
+    this.jobDirectory = jobDirectory;
+    storagePermissions = new StoragePermissions(null);
+    transferExecutor = new TransferExecutor(TransferExecutor.DEFAULT_POOL_SIZE,
+        TransferExecutor.DEFAULT_QUEUE_CAPACITY, mainThread);
+    progressReporter = new TransferProgressReporter(mainThread);
+    this.storage = storage;
+    this.mediaIndex = mediaIndex;
+    identicalFileCheck = new IdenticalFileCheck(null);
+    temporaryFiles = new TemporaryFiles(storage);
+    directoryWalker = new DirectoryWalker(TransferExecutor.DEFAULT_POOL_SIZE, SUPPORTED_IMAGE_TYPES);
+  }
+
   @Override
   public void onAttachedToEngine(@NonNull FlutterPluginBinding flutterPluginBinding) {
     Log.d(TAG, "Plugin attached to engine");
     context = flutterPluginBinding.getApplicationContext();
+    jobDirectory = new File(context.getFilesDir(), "sortogram_jobs");
+    storagePermissions = new StoragePermissions(context);
+    transferExecutor = new TransferExecutor(TransferExecutor.DEFAULT_POOL_SIZE,
+        TransferExecutor.DEFAULT_QUEUE_CAPACITY);
+    progressReporter = new TransferProgressReporter(transferExecutor.getMainThread());
+    storage = new DeviceStorage(context);
+    mediaIndex = new MediaStoreWriter(context, metrics);
+    mediaPathIndex = new MediaPathIndex(context);
+    imageLister = new ImageLister(context);
+    hashIndex = new HashIndex(context);
+    identicalFileCheck = new IdenticalFileCheck(hashIndex);
+    temporaryFiles = new TemporaryFiles(storage);
+    directoryWalker = new DirectoryWalker(TransferExecutor.DEFAULT_POOL_SIZE, SUPPORTED_IMAGE_TYPES);
+    transferExecutor.executeInBackground(this::sweepTemporaryFiles);
     channel = new MethodChannel(flutterPluginBinding.getBinaryMessenger(), "sortogram_mng_strg");
     channel.setMethodCallHandler(this);
+    progressChannel = new EventChannel(flutterPluginBinding.getBinaryMessenger(), "sortogram_mng_strg/progress");
+    progressChannel.setStreamHandler(progressReporter);
+    // Direct: the request is decoded before the handler returns, so it need not be copied first
+    bulkChannel = new BasicMessageChannel<>(flutterPluginBinding.getBinaryMessenger(), BulkProtocol.CHANNEL,
+        BinaryCodec.INSTANCE_DIRECT);
+    bulkChannel.setMessageHandler(this::onBulkMessage);
+    imagesChannel = new EventChannel(flutterPluginBinding.getBinaryMessenger(), "sortogram_mng_strg/images");
+    imagesChannel.setStreamHandler(new EventChannel.StreamHandler() {
+      @Override
+      public void onListen(Object arguments, EventChannel.EventSink events) {
+        listImagesToStream(arguments, events);
+      }
+
+      @Override
+      public void onCancel(Object arguments) {
+        imageSink = null;
+        if (imageListing != null) {
+          imageListing.cancel();
+          imageListing = null;
+        }
+      }
+    });
   }
 
   @Override
@@ -79,7 +165,11 @@ public class SortogramMngStrgPlugin implements FlutterPlugin, MethodCallHandler,
           result.error("INVALID_ARGUMENTS", "Source or destination path is null", null);
           return;
         }
-        handleMoveImage(sourcePath, destPath, result);
+        TransferOptions options = resolveOptions(call, result);
+        if (options == null) {
+          return;
+        }
+        handleMoveImage(sourcePath, destPath, options, call.argument("operationId"), result);
         break;
       case "copyImage":
         sourcePath = call.argument("sourcePath");
@@ -89,7 +179,108 @@ public class SortogramMngStrgPlugin implements FlutterPlugin, MethodCallHandler,
           result.error("INVALID_ARGUMENTS", "Source or destination path is null", null);
           return;
         }
-        handleCopyImage(sourcePath, destPath, result);
+        options = resolveOptions(call, result);
+        if (options == null) {
+          return;
+        }
+        handleCopyImage(sourcePath, destPath, options, call.argument("operationId"), result);
+        break;
+      case "moveImages":
+        List<TransferItem> items = TransferItem.fromArguments(call.argument("items"));
+        if (items == null) {
+          result.error("INVALID_ARGUMENTS", "Items must be a list of source/destination path pairs", null);
+          return;
+        }
+        options = resolveOptions(call, result);
+        if (options == null) {
+          return;
+        }
+        Log.d(TAG, "Moving " + items.size() + " images in one batch");
+        handleMoveImages(items, options, call.argument("operationId"), false, result);
+        break;
+      case "copyImages":
+        items = TransferItem.fromArguments(call.argument("items"));
+        if (items == null) {
+          result.error("INVALID_ARGUMENTS", "Items must be a list of source/destination path pairs", null);
+          return;
+        }
+        options = resolveOptions(call, result);
+        if (options == null) {
+          return;
+        }
+        Log.d(TAG, "Copying " + items.size() + " images in one batch");
+        handleCopyImages(items, options, call.argument("operationId"), false, result);
+        break;
+      case "moveDirectory":
+      case "copyDirectory":
+        sourcePath = call.argument("sourcePath");
+        destPath = call.argument("destinationPath");
+        if (sourcePath == null || destPath == null) {
+          result.error("INVALID_ARGUMENTS", "Source or destination path is null", null);
+          return;
+        }
+        options = resolveOptions(call, result);
+        if (options == null) {
+          return;
+        }
+        boolean moveDirectory = call.method.equals("moveDirectory");
+        Log.d(TAG, (moveDirectory ? "Moving" : "Copying") + " directory " + sourcePath + " to " + destPath);
+        handleDirectoryTransfer(sourcePath, destPath, moveDirectory, options, call.argument("operationId"), result);
+        break;
+      case "startTransfer":
+        items = TransferItem.fromArguments(call.argument("items"));
+        Boolean move = call.argument("move");
+        if (items == null || move == null) {
+          result.error("INVALID_ARGUMENTS", "Items and move flag are required", null);
+          return;
+        }
+        options = resolveOptions(call, result);
+        if (options == null) {
+          return;
+        }
+        Log.d(TAG, "Starting " + (move ? "move" : "copy") + " job for " + items.size() + " images");
+        handleStartTransfer(items, move, options, result);
+        break;
+      case "resumeTransfer":
+        String jobId = call.argument("jobId");
+        if (jobId == null) {
+          result.error("INVALID_ARGUMENTS", "Job id is required", null);
+          return;
+        }
+        handleResumeTransfer(jobId, result);
+        break;
+      case "cancelTransfer":
+        jobId = call.argument("jobId");
+        TransferJob job = jobId != null ? jobs.get(jobId) : null;
+        if (job != null) {
+          Log.d(TAG, "Cancelling job " + jobId);
+          job.cancel();
+        }
+        result.success(job != null);
+        break;
+      case "getTransferStatus":
+        jobId = call.argument("jobId");
+        job = jobId != null ? jobs.get(jobId) : null;
+        if (job == null) {
+          result.success(null);
+          break;
+        }
+        boolean finished = job.getState() != TransferJob.State.RUNNING;
+        result.success(job.toStatusMap());
+        if (finished) {
+          // The final status is reported once; an unfinished job can still be resumed from its journal
+          jobs.remove(jobId, job);
+        }
+        break;
+      case "getResumableTransfers":
+        transferExecutor.execute(result, ioResult -> ioResult.success(listResumableJobs()));
+        break;
+      case "getMetrics":
+        result.success(metrics.toMap());
+        break;
+      case "resetMetrics":
+        metrics.reset();
+        result.success(null);
         break;
       case "getRealPath":
         String path = call.argument("path");
@@ -101,6 +292,67 @@ public class SortogramMngStrgPlugin implements FlutterPlugin, MethodCallHandler,
         }
         getRealPath(path, result);
         break;
+      case "getRealPaths":
+        List<String> paths = call.argument("paths");
+        if (paths == null) {
+          Log.e(TAG, "Invalid arguments: paths is null");
+          result.error("INVALID_ARGUMENTS", "Paths are required", null);
+          return;
+        }
+        Log.d(TAG, "Getting real paths for " + paths.size() + " entries");
+        getRealPaths(paths, false, result);
+        break;
+      case "listImages":
+        ImageQuery query;
+        try {
+          query = ImageQuery.fromArguments(call.arguments instanceof Map ? (Map<?, ?>) call.arguments : null);
+        } catch (TransferException e) {
+          Log.e(TAG, "Invalid listImages arguments: " + e.getMessage());
+          result.error(e.getCode(), e.getMessage(), null);
+          return;
+        }
+        withReadPermission(result, "listImages",
+            () -> transferExecutor.execute(result, ioResult -> ioResult.success(imageLister.readPage(query, null))));
+        break;
+      case "findDuplicates":
+        List<String> folders = call.argument("folders");
+        if (folders == null || folders.isEmpty()) {
+          result.error("INVALID_ARGUMENTS", "At least one folder is required", null);
+          return;
+        }
+        Boolean recursive = call.argument("recursive");
+        Log.d(TAG, "Finding duplicates in " + folders);
+        DuplicateFinder finder = new DuplicateFinder(hashIndex, SUPPORTED_IMAGE_TYPES);
+        withReadPermission(result, "findDuplicates", () -> transferExecutor.execute(result,
+            ioResult -> ioResult.success(finder.find(folders, recursive == null || recursive).toMap())));
+        break;
+      case "startSort":
+        SortRules rules;
+        try {
+          rules = SortRules.fromArguments(call.argument("rules"));
+        } catch (TransferException e) {
+          Log.e(TAG, "Invalid sort rules: " + e.getMessage());
+          result.error(e.getCode(), e.getMessage(), null);
+          return;
+        }
+        folders = call.argument("folders");
+        paths = call.argument("paths");
+        if ((folders == null || folders.isEmpty()) && (paths == null || paths.isEmpty())) {
+          result.error("INVALID_ARGUMENTS", "At least one folder or path is required", null);
+          return;
+        }
+        options = resolveOptions(call, result);
+        if (options == null) {
+          return;
+        }
+        recursive = call.argument("recursive");
+        Log.d(TAG, "Starting sort of " + (folders != null ? folders : paths.size() + " images") + " with "
+            + rules.rules.size() + " rules");
+        handleStartSort(folders, paths, recursive == null || recursive, rules, options, result);
+        break;
+      case "configure":
+        configure(call, result);
+        break;
       case "getPlatformVersion":
         String version = "Android " + android.os.Build.VERSION.RELEASE;
         Log.d(TAG, "Platform version requested: " + version);
@@ -114,19 +366,64 @@ public class SortogramMngStrgPlugin implements FlutterPlugin, MethodCallHandler,
 
   @Override
   public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
-    channel.setMethodCallHandler(null);
+    // A plugin created without an engine has no channels
+    if (channel != null) {
+      channel.setMethodCallHandler(null);
+      progressChannel.setStreamHandler(null);
+      imagesChannel.setStreamHandler(null);
+      bulkChannel.setMessageHandler(null);
+    }
+    // Running jobs stop at their next chunk; their journals stay so they can be resumed
+    for (TransferJob job : jobs.values()) {
+      job.cancel();
+    }
+    for (PendingPermissionRequests.Operation operation : pendingRequests.clear()) {
+      operation.result.error("ENGINE_DETACHED", "Plugin was detached before permission was granted", null);
+    }
+    if (transferExecutor != null) {
+      transferExecutor.shutdown();
+      transferExecutor = null;
+    }
+    if (directoryWalker != null) {
+      directoryWalker.shutdown();
+      directoryWalker = null;
+    }
+    if (mediaIndex != null) {
+      mediaIndex.close();
+      mediaIndex = null;
+    }
+    if (mediaPathIndex != null) {
+      mediaPathIndex.close();
+      mediaPathIndex = null;
+    }
+    if (imageLister != null) {
+      imageLister.close();
+      imageLister = null;
+    }
+    if (identicalFileCheck != null) {
+      identicalFileCheck.flush();
+      identicalFileCheck = null;
+    }
+    if (hashIndex != null) {
+      hashIndex.close();
+      hashIndex = null;
+    }
     context = null;
   }
 
   @Override
   public void onAttachedToActivity(@NonNull ActivityPluginBinding binding) {
     activity = binding.getActivity();
+    activity.getApplication().registerActivityLifecycleCallbacks(storagePermissions);
     binding.addRequestPermissionsResultListener(this);
     binding.addActivityResultListener(this);
   }
 
   @Override
   public void onDetachedFromActivity() {
+    if (activity != null) {
+      activity.getApplication().unregisterActivityLifecycleCallbacks(storagePermissions);
+    }
     activity = null;
   }
 
@@ -140,109 +437,1057 @@ public class SortogramMngStrgPlugin implements FlutterPlugin, MethodCallHandler,
     onDetachedFromActivity();
   }
 
-  private void handleMoveImage(String sourcePath, String destPath, Result result) {
+  /**
+   * Handles a message of the bulk channel: the calls with an entry per file, encoded as described
+   * in {@link BulkProtocol}. They take the same steps as their method calls and only reply in the
+   * compact encoding.
+   */
+  void onBulkMessage(ByteBuffer message, @NonNull BasicMessageChannel.Reply<ByteBuffer> reply) {
+    Result result = new BulkResult(reply);
+    BulkProtocol.Request request;
+    List<TransferItem> items = null;
+    try {
+      request = BulkProtocol.decodeRequest(message);
+      if (request.operation == BulkProtocol.MOVE_IMAGES || request.operation == BulkProtocol.COPY_IMAGES) {
+        items = request.items();
+      }
+    } catch (TransferException e) {
+      Log.e(TAG, "Invalid bulk message: " + e.getMessage());
+      result.error(e.getCode(), e.getMessage(), null);
+      return;
+    }
+    String operationId = request.arguments.get("operationId");
+    switch (request.operation) {
+      case BulkProtocol.MOVE_IMAGES:
+        TransferOptions options = resolveOptions(request.arguments, result);
+        if (options == null) {
+          return;
+        }
+        Log.d(TAG, "Moving " + items.size() + " images in one bulk message");
+        handleMoveImages(items, options, operationId, true, result);
+        break;
+      case BulkProtocol.COPY_IMAGES:
+        options = resolveOptions(request.arguments, result);
+        if (options == null) {
+          return;
+        }
+        Log.d(TAG, "Copying " + items.size() + " images in one bulk message");
+        handleCopyImages(items, options, operationId, true, result);
+        break;
+      case BulkProtocol.GET_REAL_PATHS:
+        Log.d(TAG, "Getting real paths for " + request.paths.size() + " entries in one bulk message");
+        getRealPaths(request.paths, true, result);
+        break;
+      default:
+        Log.w(TAG, "Bulk operation not implemented: " + request.operation);
+        result.notImplemented();
+    }
+  }
+
+  /**
+   * Applies the per-call settings of {@code call} on top of the configured defaults.
+   *
+   * @return the options, or {@code null} after failing {@code result} if an argument is invalid
+   */
+  private TransferOptions resolveOptions(MethodCall call, Result result) {
+    return resolveOptions(call.arguments instanceof Map ? (Map<?, ?>) call.arguments : null, result);
+  }
+
+  private TransferOptions resolveOptions(Map<?, ?> arguments, Result result) {
+    try {
+      return defaultOptions.merge(arguments);
+    } catch (TransferException e) {
+      Log.e(TAG, "Invalid transfer options: " + e.getMessage());
+      result.error(e.getCode(), e.getMessage(), null);
+      return null;
+    }
+  }
+
+  private void handleMoveImage(String sourcePath, String destPath, TransferOptions options, String operationId,
+      Result result) {
     Log.d(TAG, "Handling image move request");
+    withWritePermission(result, "moveImage", () -> submitImageMove(sourcePath, destPath, options, operationId, result));
+  }
+
+  /** @param compactReply whether to reply with a {@link BulkProtocol} buffer instead of a list of maps */
+  private void handleMoveImages(List<TransferItem> items, TransferOptions options, String operationId,
+      boolean compactReply, Result result) {
+    Log.d(TAG, "Handling batch image move request");
+    withWritePermission(result, "moveImages",
+        () -> submitBatch(items, true, options, operationId, compactReply, result));
+  }
+
+  /**
+   * Runs {@code onGranted} once the app may write to shared storage, asking the user first if
+   * needed. {@code result} is failed if the permission cannot be obtained.
+   *
+   * @param type the method call asking, for logging
+   */
+  private void withWritePermission(Result result, String type, Runnable onGranted) {
+    withPermission(writeRequestCode(), result, type, onGranted);
+  }
+
+  /**
+   * Runs {@code onGranted} once the app may read shared images, asking the user first if needed.
+   */
+  private void withReadPermission(Result result, String type, Runnable onGranted) {
+    withPermission(READ_PERMISSION_REQUEST_CODE, result, type, onGranted);
+  }
+
+  /** The request code of the dialog that grants write access on this Android version. */
+  private int writeRequestCode() {
+    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+        ? MANAGE_STORAGE_PERMISSION_REQUEST_CODE
+        : WRITE_PERMISSION_REQUEST_CODE;
+  }
+
+  /**
+   * Runs {@code onGranted} right away if the permission behind {@code requestCode} is granted.
+   * Otherwise it is queued until the user answers the dialog; calls arriving while a dialog is
+   * showing wait for that dialog instead of opening another one.
+   */
+  private void withPermission(int requestCode, Result result, String type, Runnable onGranted) {
+    long startTime = System.nanoTime();
+    boolean granted = isPermissionGranted(requestCode);
+    metrics.record(TransferMetrics.Phase.PERMISSION_CHECK, System.nanoTime() - startTime);
+    if (granted) {
+      onGranted.run();
+      return;
+    }
+
+    // Only asking for a permission needs an activity
     if (activity == null) {
-      Log.e(TAG, "Activity is null, cannot proceed with image move");
+      Log.e(TAG, "Activity is null, cannot proceed with " + type);
       result.error("ACTIVITY_NULL", "Activity is null", null);
       return;
     }
 
-    pendingSourcePath = sourcePath;
-    pendingDestPath = destPath;
-    pendingResult = result;
+    if (pendingRequests.add(requestCode, type, result, onGranted)) {
+      showPermissionDialog(requestCode);
+    } else {
+      Log.d(TAG, type + " is waiting for the permission dialog already open (" + pendingRequests.size()
+          + " pending)");
+    }
+  }
 
-    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-      Log.d(TAG, "Android 11+ (API 30+): Checking MANAGE_EXTERNAL_STORAGE permission");
-      if (!Environment.isExternalStorageManager()) {
-        Log.i(TAG, "Requesting MANAGE_EXTERNAL_STORAGE permission");
-        try {
-          Intent intent = new Intent(Settings.ACTION_MANAGE_ALL_FILES_ACCESS_PERMISSION);
-          intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-          activity.startActivityForResult(intent, MANAGE_STORAGE_PERMISSION_REQUEST_CODE);
-          Log.d(TAG, "Permission request intent sent successfully");
-        } catch (Exception e) {
-          Log.e(TAG, "Error launching permission request: " + e.getMessage());
-          result.error("PERMISSION_REQUEST_FAILED", "Failed to launch permission request", e.getMessage());
+  private boolean isPermissionGranted(int requestCode) {
+    return requestCode == READ_PERMISSION_REQUEST_CODE ? storagePermissions.canRead() : storagePermissions.canWrite();
+  }
+
+  private void showPermissionDialog(int requestCode) {
+    if (activity == null) {
+      failPendingOperations(requestCode, "ACTIVITY_NULL", "Activity is null", null);
+      showNextPermissionDialog();
+      return;
+    }
+
+    if (requestCode == MANAGE_STORAGE_PERMISSION_REQUEST_CODE) {
+      Log.i(TAG, "Requesting MANAGE_EXTERNAL_STORAGE permission");
+      try {
+        // No FLAG_ACTIVITY_NEW_TASK: a new task delivers RESULT_CANCELED before the user has answered
+        Intent intent = new Intent(Settings.ACTION_MANAGE_ALL_FILES_ACCESS_PERMISSION);
+        activity.startActivityForResult(intent, MANAGE_STORAGE_PERMISSION_REQUEST_CODE);
+        Log.d(TAG, "Permission request intent sent successfully");
+      } catch (Exception e) {
+        Log.e(TAG, "Error launching permission request: " + e.getMessage());
+        failPendingOperations(requestCode, "PERMISSION_REQUEST_FAILED", "Failed to launch permission request",
+            e.getMessage());
+        showNextPermissionDialog();
+      }
+    } else if (requestCode == WRITE_PERMISSION_REQUEST_CODE) {
+      Log.i(TAG, "Requesting WRITE_EXTERNAL_STORAGE permission");
+      ActivityCompat.requestPermissions(activity,
+          new String[] { Manifest.permission.WRITE_EXTERNAL_STORAGE },
+          WRITE_PERMISSION_REQUEST_CODE);
+    } else {
+      Log.i(TAG, "Requesting storage read permissions");
+      ActivityCompat.requestPermissions(activity, StoragePermissions.readPermissions(),
+          READ_PERMISSION_REQUEST_CODE);
+    }
+  }
+
+  /** Shows the dialog the next queued operations wait for, skipping permissions granted meanwhile. */
+  private void showNextPermissionDialog() {
+    int requestCode;
+    while ((requestCode = pendingRequests.next()) != PendingPermissionRequests.NO_REQUEST) {
+      if (!isPermissionGranted(requestCode)) {
+        showPermissionDialog(requestCode);
+        return;
+      }
+      runPendingOperations(requestCode);
+    }
+  }
+
+  private void runPendingOperations(int requestCode) {
+    List<PendingPermissionRequests.Operation> operations = pendingRequests.complete(requestCode);
+    Log.d(TAG, "Permission granted, running " + operations.size() + " pending operations");
+    for (PendingPermissionRequests.Operation operation : operations) {
+      try {
+        operation.onGranted.run();
+      } catch (Exception e) {
+        Log.e(TAG, "Error starting pending " + operation.type + ": " + e.getMessage());
+        operation.result.error("UNKNOWN_ERROR", e.getMessage(), null);
+      }
+    }
+  }
+
+  private void failPendingOperations(int requestCode, String code, String message, Object details) {
+    for (PendingPermissionRequests.Operation operation : pendingRequests.complete(requestCode)) {
+      metrics.recordError(code);
+      operation.result.error(code, message, details);
+    }
+  }
+
+  private void onPermissionAnswered(int requestCode, String deniedMessage) {
+    storagePermissions.refresh();
+    if (isPermissionGranted(requestCode)) {
+      runPendingOperations(requestCode);
+    } else {
+      Log.e(TAG, deniedMessage);
+      failPendingOperations(requestCode, "PERMISSION_DENIED", deniedMessage, null);
+    }
+    showNextPermissionDialog();
+  }
+
+  private void submitImageMove(String sourcePath, String destPath, TransferOptions options, String operationId,
+      Result result) {
+    transferExecutor.execute(result,
+        ioResult -> performImageMove(sourcePath, destPath, options, operationId, ioResult));
+  }
+
+  private void submitImageCopy(String sourcePath, String destPath, TransferOptions options, String operationId,
+      Result result) {
+    transferExecutor.execute(result,
+        ioResult -> performImageCopy(sourcePath, destPath, options, operationId, ioResult));
+  }
+
+  /**
+   * Moves or copies every item on the worker lanes. Each item records its own outcome, so one
+   * failing file does not fail the whole call.
+   */
+  private void submitBatch(List<TransferItem> items, boolean move, TransferOptions options, String operationId,
+      boolean compactReply, Result result) {
+    // Sizing the batch for progress needs a stat per file, so it is done off the main thread too
+    transferExecutor.execute(result,
+        ioResult -> startBatch(items, move, options, operationId, compactReply, ioResult));
+  }
+
+  private void startBatch(List<TransferItem> items, boolean move, TransferOptions options, String operationId,
+      boolean compactReply, Result result) {
+    try {
+      // Encoded on the worker rather than on the main thread, where the reply is sent
+      runBatch(items, move, options, operationId,
+          () -> result.success(compactReply ? BulkProtocol.encodeResults(items) : TransferItem.toMaps(items)));
+    } catch (RejectedExecutionException e) {
+      Log.w(TAG, "Transfer queue is full or shut down, rejecting batch");
+      result.error("BUSY", "Too many pending file operations", null);
+    }
+  }
+
+  /**
+   * Moves or copies every item on the worker lanes, then syncs and flushes the MediaStore updates
+   * of the whole batch and runs {@code onComplete} on the last worker.
+   *
+   * @throws RejectedExecutionException if the batch could not be scheduled
+   */
+  private void runBatch(List<TransferItem> items, boolean move, TransferOptions options, String operationId,
+      Runnable onComplete) {
+    final long startTime = System.currentTimeMillis();
+    long totalBytes = -1;
+    if (progressReporter.hasListener()) {
+      totalBytes = 0;
+      for (TransferItem item : items) {
+        totalBytes += new File(item.sourcePath).length();
+      }
+    }
+    final TransferProgressReporter.Tracker tracker = progressReporter.start(operationId, items.size(), totalBytes);
+    final SyncBatch syncBatch = newSyncBatch(SyncBatch.DEFAULT_MAX_PENDING);
+    transferExecutor.executeParallel(items.size(), index -> {
+      TransferItem item = items.get(index);
+      long bytes = 0;
+      try {
+        TransferOutcome outcome = transferImage(move, item.sourcePath, item.destinationPath, options,
+            tracker.forFile(item.sourcePath), null);
+        bytes = outcome.bytes;
+        item.succeed(outcome);
+        if (outcome.needsSync()) {
+          deferSync(syncBatch, move, item, outcome, options, null);
         }
+      } catch (TransferException e) {
+        item.fail(e.getCode(), e.getMessage());
+      } finally {
+        tracker.fileCompleted(item.sourcePath, bytes);
+      }
+    }, () -> {
+      // Sources of moves are deleted here, so this comes before the MediaStore flush
+      syncPending(syncBatch);
+      // Make the whole batch visible in the gallery before reporting back
+      mediaIndex.flush();
+      identicalFileCheck.flush();
+      tracker.finish();
+      Log.d(TAG, "Batch of " + items.size() + " completed in " + (System.currentTimeMillis() - startTime) + "ms");
+      onComplete.run();
+    });
+  }
+
+  private void handleDirectoryTransfer(String sourcePath, String destPath, boolean move, TransferOptions options,
+      String operationId, Result result) {
+    Runnable start = () -> transferExecutor.execute(result, ioResult -> startDirectoryTransfer(new File(sourcePath),
+        new File(destPath), move, options, operationId, ioResult));
+    if (move) {
+      withWritePermission(result, "moveDirectory", start);
+    } else {
+      withReadPermission(result, "copyDirectory", start);
+    }
+  }
+
+  /**
+   * Moves or copies the images below {@code sourceDir} into the same relative paths below
+   * {@code destDir}. A move of a tree holding nothing but images to a new directory on the same
+   * volume is a single rename. Otherwise the destination directories are created up front and the
+   * files go through {@link #runBatch}, with the emptied source directories removed after a move.
+   */
+  private void startDirectoryTransfer(File sourceDir, File destDir, boolean move, TransferOptions options,
+      String operationId, Result result) {
+    long startTime = System.currentTimeMillis();
+    if (!sourceDir.isDirectory()) {
+      Log.e(TAG, "Source directory does not exist: " + sourceDir);
+      result.error("SOURCE_NOT_FOUND", "Source directory does not exist", null);
+      return;
+    }
+    if (isSameOrInside(destDir, sourceDir)) {
+      result.error("INVALID_ARGUMENTS", "Destination must not be inside the source directory", null);
+      return;
+    }
+
+    DirectoryWalker.Tree tree = directoryWalker.walk(sourceDir);
+    Log.d(TAG, "Found " + tree.files.size() + " images in " + (tree.directories.size() + 1) + " directories below "
+        + sourceDir + " in " + (System.currentTimeMillis() - startTime) + "ms");
+    List<TransferItem> items = new ArrayList<>(tree.files.size());
+    for (String file : tree.files) {
+      items.add(new TransferItem(new File(sourceDir, file).getPath(), new File(destDir, file).getPath()));
+    }
+
+    if (move && tree.otherEntries == 0 && renameDirectory(sourceDir, destDir)) {
+      TransferProgressReporter.Tracker tracker = progressReporter.start(operationId, items.size(), -1);
+      for (TransferItem item : items) {
+        File destFile = new File(item.destinationPath);
+        updateMediaStore(new File(item.sourcePath), destFile, options.mediaStoreMoveMode);
+        item.succeed(new TransferOutcome(item.destinationPath, destFile.length(), false));
+        tracker.fileCompleted(item.sourcePath, 0);
+      }
+      mediaIndex.flush();
+      tracker.finish();
+      Log.d(TAG, "Directory of " + items.size() + " images renamed in " + (System.currentTimeMillis() - startTime)
+          + "ms");
+      result.success(new DirectoryTransfer(sourceDir.getPath(), destDir.getPath(), items, true).toMap());
+      return;
+    }
+
+    // Created once here, so the files find their directory in place
+    if (!destDir.isDirectory() && !destDir.mkdirs()) {
+      result.error("DEST_CREATE_FAILED", "Could not create destination directory: " + destDir, null);
+      return;
+    }
+    for (String directory : tree.directories) {
+      File dir = new File(destDir, directory);
+      if (!dir.isDirectory() && !dir.mkdirs()) {
+        Log.e(TAG, "Failed to create destination directory: " + dir);
+        result.error("DEST_CREATE_FAILED", "Could not create destination directory: " + dir, null);
         return;
       }
-      Log.d(TAG, "MANAGE_EXTERNAL_STORAGE permission already granted");
-    } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-      Log.d(TAG, "Android 6+ (API 23+): Checking WRITE_EXTERNAL_STORAGE permission");
-      if (ContextCompat.checkSelfPermission(context,
-          Manifest.permission.WRITE_EXTERNAL_STORAGE) != PackageManager.PERMISSION_GRANTED) {
-        Log.i(TAG, "Requesting WRITE_EXTERNAL_STORAGE permission");
-        ActivityCompat.requestPermissions(activity,
-            new String[] { Manifest.permission.WRITE_EXTERNAL_STORAGE },
-            PERMISSION_REQUEST_CODE);
+    }
+
+    try {
+      runBatch(items, move, options, operationId, () -> {
+        if (move) {
+          removeEmptyDirectories(sourceDir, tree);
+        }
+        result.success(new DirectoryTransfer(sourceDir.getPath(), destDir.getPath(), items, false).toMap());
+      });
+    } catch (RejectedExecutionException e) {
+      Log.w(TAG, "Transfer queue is full or shut down, rejecting directory transfer");
+      result.error("BUSY", "Too many pending file operations", null);
+    }
+  }
+
+  /** Renames {@code sourceDir} to {@code destDir} if that does not exist yet and is on the same volume. */
+  private boolean renameDirectory(File sourceDir, File destDir) {
+    File destParent = destDir.getAbsoluteFile().getParentFile();
+    if (destDir.exists() || destParent == null || (!destParent.isDirectory() && !destParent.mkdirs())
+        || !storage.isSameVolume(sourceDir, destParent)) {
+      return false;
+    }
+    long startTime = System.nanoTime();
+    if (!storage.rename(sourceDir, destDir)) {
+      Log.w(TAG, "Rename of directory failed, moving file by file: " + sourceDir);
+      return false;
+    }
+    metrics.record(TransferMetrics.Phase.RENAME, System.nanoTime() - startTime);
+    return true;
+  }
+
+  /**
+   * Deletes the directories a move left empty, deepest first. Directories still holding files
+   * that were not moved, or that failed, stay.
+   */
+  private void removeEmptyDirectories(File sourceDir, DirectoryWalker.Tree tree) {
+    for (int i = tree.directories.size() - 1; i >= 0; i--) {
+      File dir = new File(sourceDir, tree.directories.get(i));
+      String[] children = dir.list();
+      if (children != null && children.length == 0) {
+        storage.delete(dir);
+      }
+    }
+    String[] children = sourceDir.list();
+    if (children != null && children.length == 0) {
+      storage.delete(sourceDir);
+    }
+  }
+
+  private static boolean isSameOrInside(File file, File directory) {
+    try {
+      String path = file.getCanonicalPath();
+      String directoryPath = directory.getCanonicalPath();
+      return path.equals(directoryPath) || path.startsWith(directoryPath + File.separator);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private void configure(MethodCall call, Result result) {
+    Integer poolSize = call.argument("ioPoolSize");
+    Integer queueCapacity = call.argument("ioQueueCapacity");
+    if ((poolSize != null && poolSize < 1) || (queueCapacity != null && queueCapacity < 1)) {
+      result.error("INVALID_ARGUMENTS", "Pool size and queue capacity must be positive", null);
+      return;
+    }
+
+    Number progressIntervalMs = call.argument("progressIntervalMs");
+    if (progressIntervalMs != null && progressIntervalMs.longValue() < 0) {
+      result.error("INVALID_ARGUMENTS", "Progress interval must not be negative", null);
+      return;
+    }
+    if (progressIntervalMs != null) {
+      progressReporter.setIntervalMs(progressIntervalMs.longValue());
+    }
+
+    Number pathIndexMaxBytes = call.argument("pathIndexMaxBytes");
+    if (pathIndexMaxBytes != null && pathIndexMaxBytes.longValue() < 1) {
+      result.error("INVALID_ARGUMENTS", "Path index memory cap must be positive", null);
+      return;
+    }
+
+    Integer flushSize = call.argument("mediaStoreFlushSize");
+    Number flushIntervalMs = call.argument("mediaStoreFlushIntervalMs");
+    if ((flushSize != null && flushSize < 1) || (flushIntervalMs != null && flushIntervalMs.longValue() < 0)) {
+      result.error("INVALID_ARGUMENTS", "MediaStore flush size must be positive and interval not negative", null);
+      return;
+    }
+
+    TransferOptions options = resolveOptions(call, result);
+    if (options == null) {
+      return;
+    }
+    defaultOptions = options;
+    Log.d(TAG, "Default copy engine: " + options.copyEngine.name());
+
+    if (flushSize != null || flushIntervalMs != null) {
+      mediaIndex.setFlushPolicy(
+          flushSize != null ? flushSize : mediaIndex.getFlushSize(),
+          flushIntervalMs != null ? flushIntervalMs.longValue() : mediaIndex.getFlushIntervalMs());
+      Log.d(TAG, "MediaStore flush policy: " + mediaIndex.getFlushSize() + " ops / "
+          + mediaIndex.getFlushIntervalMs() + "ms");
+    }
+
+    if (pathIndexMaxBytes != null) {
+      mediaPathIndex.setMaxBytes(pathIndexMaxBytes.longValue());
+    }
+
+    if (poolSize != null || queueCapacity != null) {
+      int newPoolSize = poolSize != null ? poolSize : transferExecutor.getPoolSize();
+      int newQueueCapacity = queueCapacity != null ? queueCapacity : transferExecutor.getQueueCapacity();
+      if (newPoolSize != transferExecutor.getPoolSize()
+          || newQueueCapacity != transferExecutor.getQueueCapacity()) {
+        Log.d(TAG, "Reconfiguring transfer executor: " + newPoolSize + " threads, queue " + newQueueCapacity);
+        // Operations already queued on the old executor still run to completion
+        TransferExecutor previous = transferExecutor;
+        transferExecutor = new TransferExecutor(newPoolSize, newQueueCapacity, previous.getMainThread());
+        previous.shutdown();
+      }
+    }
+    result.success(null);
+  }
+
+  private void handleStartTransfer(List<TransferItem> items, boolean move, TransferOptions options,
+      Result result) {
+    Runnable start = () -> transferExecutor.execute(result, ioResult -> startJob(items, move, options, ioResult));
+    if (move) {
+      withWritePermission(result, "startTransfer", start);
+    } else {
+      withReadPermission(result, "startTransfer", start);
+    }
+  }
+
+  /** Journals {@code items} as a new job and runs it, replying with the job id. */
+  private void startJob(List<TransferItem> items, boolean move, TransferOptions options, Result result) {
+    String jobId = UUID.randomUUID().toString();
+    TransferJournal journal;
+    try {
+      journal = TransferJournal.create(journalFile(jobId), jobId, move, options.toArguments(), items);
+    } catch (IOException e) {
+      Log.e(TAG, "Could not create job journal: " + e.getMessage());
+      result.error("JOURNAL_FAILED", "Could not create job journal", e.getMessage());
+      return;
+    }
+    runJob(new TransferJob(jobId, move, options, items, journal, null), result);
+  }
+
+  private void handleStartSort(List<String> folders, List<String> paths, boolean recursive, SortRules rules,
+      TransferOptions options, Result result) {
+    withWritePermission(result, "startSort", () -> transferExecutor.execute(result,
+        ioResult -> planSort(folders, paths, recursive, rules, options, ioResult)));
+  }
+
+  /**
+   * Reads the headers of every image on the worker lanes and lets {@code rules} pick its
+   * destination, then moves the images that have one as a job like {@code startTransfer} does,
+   * replying with the job id. Images no rule matches, or that are in place already, are left out.
+   */
+  private void planSort(List<String> folders, List<String> paths, boolean recursive, SortRules rules,
+      TransferOptions options, Result result) {
+    long startTime = System.currentTimeMillis();
+    // An image listed both ways is moved once
+    Set<String> found = new LinkedHashSet<>();
+    if (folders != null) {
+      for (String folder : folders) {
+        File root = new File(folder);
+        if (!root.isDirectory()) {
+          Log.w(TAG, "Skipping sort folder that does not exist: " + folder);
+          continue;
+        }
+        for (String file : directoryWalker.walk(root, recursive).files) {
+          found.add(new File(root, file).getPath());
+        }
+      }
+    }
+    if (paths != null) {
+      for (String path : paths) {
+        if (path != null && SUPPORTED_IMAGE_TYPES.contains(getFileExtension(path).toLowerCase())) {
+          found.add(new File(path).getPath());
+        }
+      }
+    }
+    List<String> sources = new ArrayList<>(found);
+
+    String[] destinations = new String[sources.size()];
+    boolean readMetadata = rules.needsMetadata();
+    try {
+      transferExecutor.executeParallel(sources.size(), index -> {
+        File file = new File(sources.get(index));
+        ImageMetadata metadata = ImageMetadata.NONE;
+        if (readMetadata) {
+          long readStartTime = System.nanoTime();
+          try {
+            metadata = ImageMetadata.read(file);
+          } catch (IOException e) {
+            // Sorted as an image without metadata; a file that cannot be read fails in the move
+            Log.w(TAG, "Could not read metadata of " + file + ": " + e.getMessage());
+          }
+          metrics.record(TransferMetrics.Phase.METADATA, System.nanoTime() - readStartTime);
+        }
+        destinations[index] = rules.destinationFor(file, metadata);
+      }, () -> {
+        List<TransferItem> items = new ArrayList<>();
+        for (int i = 0; i < destinations.length; i++) {
+          if (destinations[i] != null) {
+            items.add(new TransferItem(sources.get(i), destinations[i]));
+          }
+        }
+        Log.d(TAG, "Sort planned " + items.size() + " moves for " + sources.size() + " images in "
+            + (System.currentTimeMillis() - startTime) + "ms");
+        startJob(items, true, options, result);
+      });
+    } catch (RejectedExecutionException e) {
+      Log.w(TAG, "Transfer queue is full or shut down, rejecting sort");
+      result.error("BUSY", "Too many pending file operations", null);
+    }
+  }
+
+  private void handleResumeTransfer(String jobId, Result result) {
+    TransferJob running = jobs.get(jobId);
+    if ((running != null && running.getState() == TransferJob.State.RUNNING) || !resumingJobs.add(jobId)) {
+      result.error("JOB_RUNNING", "Job is still running", null);
+      return;
+    }
+    // The id stays reserved until the call replies; by then the job is registered if it resumed
+    Result reply = new Result() {
+      @Override
+      public void success(Object value) {
+        resumingJobs.remove(jobId);
+        result.success(value);
+      }
+
+      @Override
+      public void error(@NonNull String errorCode, String errorMessage, Object errorDetails) {
+        resumingJobs.remove(jobId);
+        result.error(errorCode, errorMessage, errorDetails);
+      }
+
+      @Override
+      public void notImplemented() {
+        resumingJobs.remove(jobId);
+        result.notImplemented();
+      }
+    };
+    File file = journalFile(jobId);
+    if (!file.exists()) {
+      reply.error("JOB_NOT_FOUND", "No resumable job with id " + jobId, null);
+      return;
+    }
+
+    transferExecutor.execute(reply, ioResult -> {
+      TransferJournal.State previousRun;
+      TransferOptions options;
+      try {
+        previousRun = TransferJournal.load(file);
+        options = TransferOptions.DEFAULT.merge(previousRun.options);
+      } catch (IOException | TransferException e) {
+        Log.e(TAG, "Could not read job journal: " + e.getMessage());
+        ioResult.error("JOURNAL_FAILED", "Could not read job journal", e.getMessage());
         return;
       }
-      Log.d(TAG, "WRITE_EXTERNAL_STORAGE permission already granted");
+      // Back on the main thread, since the permission check may need to show a dialog
+      transferExecutor.postToMain(() -> {
+        Runnable resume = () -> transferExecutor.execute(ioResult, jobResult -> {
+          TransferJournal journal;
+          try {
+            journal = TransferJournal.reopen(file);
+          } catch (IOException e) {
+            jobResult.error("JOURNAL_FAILED", "Could not reopen job journal", e.getMessage());
+            return;
+          }
+          Log.d(TAG, "Resuming job " + jobId + " with " + previousRun.completed.size() + "/"
+              + previousRun.items.size() + " files already done");
+          runJob(new TransferJob(jobId, previousRun.move, options, previousRun.items, journal, previousRun),
+              jobResult);
+        });
+        if (previousRun.move) {
+          withWritePermission(ioResult, "resumeTransfer", resume);
+        } else {
+          withReadPermission(ioResult, "resumeTransfer", resume);
+        }
+      });
+    });
+  }
+
+  /**
+   * Registers {@code job}, replies with its id and runs its remaining items on the worker lanes.
+   * Progress events carry the job id as their operation id.
+   */
+  private void runJob(TransferJob job, Result result) {
+    jobs.put(job.jobId, job);
+    final TransferProgressReporter.Tracker tracker = progressReporter.start(job.jobId, job.items.size(), -1);
+    final SyncBatch syncBatch = newSyncBatch(SyncBatch.DEFAULT_MAX_PENDING);
+    try {
+      transferExecutor.executeParallel(job.items.size(), index -> {
+        if (job.isCompletedEarlier(index)) {
+          return;
+        }
+        TransferItem item = job.items.get(index);
+        if (job.isCancelRequested()) {
+          item.fail("CANCELLED", "Transfer was cancelled");
+          return;
+        }
+        ResumeHandle resume = job.resumeHandle(index);
+        CopyEngine.CopyListener listener = job.listenerFor(index, resume, tracker.forFile(item.sourcePath));
+        long bytes = 0;
+        boolean deferred = false;
+        try {
+          TransferOutcome outcome = transferImage(job.move, item.sourcePath, item.destinationPath, job.options,
+              listener, resume);
+          bytes = outcome.bytes;
+          item.succeed(outcome);
+          if (outcome.needsSync()) {
+            // Journaled only once durable, so a crash before the sync redoes the item on resume
+            deferSync(syncBatch, job.move, item, outcome, job.options, () -> job.itemCompleted(index));
+            deferred = true;
+          }
+        } catch (TransferException e) {
+          item.fail(e.getCode(), e.getMessage());
+        } finally {
+          tracker.fileCompleted(item.sourcePath, bytes);
+        }
+        // Cancelled items are left out of the journal so a resume picks them up again
+        if (!deferred && !"CANCELLED".equals(item.getErrorCode())) {
+          job.itemCompleted(index);
+        }
+      }, () -> {
+        syncPending(syncBatch);
+        mediaIndex.flush();
+        identicalFileCheck.flush();
+        job.finish();
+        tracker.finish();
+      });
+    } catch (RejectedExecutionException e) {
+      Log.w(TAG, "Transfer queue is full or shut down, rejecting job");
+      jobs.remove(job.jobId);
+      job.cancel();
+      job.finish();
+      result.error("BUSY", "Too many pending file operations", null);
+      return;
+    }
+    result.success(job.jobId);
+  }
+
+  private File journalFile(String jobId) {
+    if (!jobDirectory.exists() && !jobDirectory.mkdirs()) {
+      Log.w(TAG, "Could not create job journal directory: " + jobDirectory);
+    }
+    return new File(jobDirectory, jobId + ".journal");
+  }
+
+  /**
+   * Removes the temporary files of copies that an earlier process did not finish, except the
+   * partial copies that resumable jobs will continue from.
+   */
+  private void sweepTemporaryFiles() {
+    Set<File> keep = new HashSet<>();
+    for (String jobId : listResumableJobs()) {
+      try {
+        TransferJournal.State state = TransferJournal.load(journalFile(jobId));
+        for (int index = 0; index < state.items.size(); index++) {
+          String destination = state.startedDestination(index);
+          if (destination != null && !state.completed.containsKey(index)) {
+            keep.add(TemporaryFiles.temporaryFileFor(new File(destination)));
+          }
+        }
+      } catch (IOException e) {
+        Log.w(TAG, "Could not read job journal " + jobId + ": " + e.getMessage());
+      }
+    }
+    temporaryFiles.sweep(keep);
+  }
+
+  /** Lists jobs that were cancelled or interrupted and still have a journal on disk. */
+  private List<String> listResumableJobs() {
+    List<String> jobIds = new ArrayList<>();
+    File[] journals = jobDirectory.listFiles();
+    if (journals == null) {
+      return jobIds;
+    }
+    for (File journal : journals) {
+      String name = journal.getName();
+      if (!name.endsWith(".journal")) {
+        continue;
+      }
+      String jobId = name.substring(0, name.length() - ".journal".length());
+      TransferJob running = jobs.get(jobId);
+      if ((running == null || running.getState() != TransferJob.State.RUNNING) && !resumingJobs.contains(jobId)) {
+        jobIds.add(jobId);
+      }
+    }
+    return jobIds;
+  }
+
+  private void performImageMove(String sourcePath, String destPath, TransferOptions options, String operationId,
+      Result result) {
+    TransferProgressReporter.Tracker tracker = progressReporter.start(operationId, 1, new File(sourcePath).length());
+    long bytes = 0;
+    try {
+      TransferOutcome outcome = transferImage(true, sourcePath, destPath, options, tracker.forFile(sourcePath), null);
+      bytes = outcome.bytes;
+      if (outcome.needsSync()) {
+        syncNow(true, sourcePath, outcome, options);
+      }
+      result.success(true);
+    } catch (TransferException e) {
+      result.error(e.getCode(), e.getMessage(), null);
+    } finally {
+      tracker.fileCompleted(sourcePath, bytes);
+      tracker.finish();
+    }
+  }
+
+  /** Moves or copies one image, recording its duration or error code in the metrics. */
+  private TransferOutcome transferImage(boolean move, String sourcePath, String destPath, TransferOptions options,
+      CopyEngine.CopyListener listener, ResumeHandle resume) throws TransferException {
+    long startTime = System.nanoTime();
+    try {
+      TransferOutcome outcome = move
+          ? moveImage(sourcePath, destPath, options, listener, resume)
+          : copyImage(sourcePath, destPath, options, listener, resume);
+      metrics.recordTransfer(move, outcome, System.nanoTime() - startTime);
+      return outcome;
+    } catch (TransferException e) {
+      metrics.recordError(e.getCode());
+      throw e;
+    }
+  }
+
+  /** A batch that puts its files in place with {@link #commit}, syncing their folders itself. */
+  private SyncBatch newSyncBatch(int maxPending) {
+    return new SyncBatch(storage,
+        (temporaryFile, destFile, replace) -> commit(temporaryFile, destFile, replace, false), maxPending);
+  }
+
+  /**
+   * Adds the file of a move or copy written under {@link Durability#PER_BATCH} to {@code syncBatch},
+   * syncing the batch if it is full. Once synced, {@link #completeSynced} finishes the transfer and
+   * fails {@code item} if that does not work; {@code onDone} runs either way.
+   */
+  private void deferSync(SyncBatch syncBatch, boolean move, TransferItem item, TransferOutcome outcome,
+      TransferOptions options, Runnable onDone) {
+    File sourceFile = new File(item.sourcePath);
+    boolean full = syncBatch.add(outcome.pending.temporaryFile, new File(outcome.destinationPath),
+        outcome.pending.replace, (committed, error) -> {
+          try {
+            completeSynced(move, sourceFile, outcome, options, committed, error);
+          } catch (TransferException e) {
+            item.fail(e.getCode(), e.getMessage());
+          }
+          if (onDone != null) {
+            onDone.run();
+          }
+        });
+    if (full) {
+      syncPending(syncBatch);
+    }
+  }
+
+  /** Syncs the file of a single move or copy right away, as a batch of its own. */
+  private void syncNow(boolean move, String sourcePath, TransferOutcome outcome, TransferOptions options)
+      throws TransferException {
+    boolean[] committed = new boolean[1];
+    IOException[] syncError = new IOException[1];
+    SyncBatch syncBatch = newSyncBatch(1);
+    syncBatch.add(outcome.pending.temporaryFile, new File(outcome.destinationPath), outcome.pending.replace,
+        (inPlace, error) -> {
+          committed[0] = inPlace;
+          syncError[0] = error;
+        });
+    syncPending(syncBatch);
+    completeSynced(move, new File(sourcePath), outcome, options, committed[0], syncError[0]);
+  }
+
+  private void syncPending(SyncBatch syncBatch) {
+    long startTime = System.nanoTime();
+    int synced = syncBatch.sync();
+    if (synced > 0) {
+      long elapsed = System.nanoTime() - startTime;
+      metrics.record(TransferMetrics.Phase.BATCH_SYNC, elapsed);
+      Log.d(TAG, "Synced " + synced + " files in " + elapsed / 1000000 + "ms");
+    }
+  }
+
+  /**
+   * Finishes a move or copy whose file went through a {@link SyncBatch}. Only now that the copy is
+   * durable and in place is its MediaStore entry queued and the source of a move deleted.
+   *
+   * @param committed whether the copy was renamed to its destination
+   * @param syncError why the copy may not be durable, or {@code null} if it is
+   * @throws TransferException if the copy could not be put in place durably or the source could not
+   *     be deleted; the source is kept then
+   */
+  private void completeSynced(boolean move, File sourceFile, TransferOutcome outcome, TransferOptions options,
+      boolean committed, IOException syncError) throws TransferException {
+    File destFile = new File(outcome.destinationPath);
+    TransferOutcome.Pending pending = outcome.pending;
+    String message;
+    if (syncError != null) {
+      Log.e(TAG, "Could not sync " + destFile + ": " + syncError.getMessage());
+      message = syncError instanceof DestinationExistsException ? syncError.getMessage()
+          : "Could not sync copy: " + syncError.getMessage();
+    } else if (move && !storage.delete(sourceFile)) {
+      Log.e(TAG, "Failed to delete source file after sync: " + sourceFile);
+      message = "Could not delete source file";
+    } else {
+      rememberHash(destFile, pending.hash, options);
+      recordInMediaStore(move, sourceFile, destFile, pending.replace, options);
+      return;
     }
+    if (committed) {
+      // Both files are kept, so the copy gets an entry of its own
+      recordInMediaStore(false, sourceFile, destFile, pending.replace, options);
+    } else {
+      storage.delete(pending.temporaryFile);
+      temporaryFiles.release(destFile);
+    }
+    String code = syncError instanceof DestinationExistsException ? "DEST_EXISTS"
+        : move ? "MOVE_FAILED" : "COPY_FAILED";
+    metrics.recordError(code);
+    throw new TransferException(code, message);
+  }
 
-    // If we reach here, we have the necessary permissions
-    performImageMove(sourcePath, destPath, result);
+  /** Queues the MediaStore changes for a move or copy whose file is in place at {@code destFile}. */
+  private void recordInMediaStore(boolean move, File sourceFile, File destFile, boolean replace,
+      TransferOptions options) {
+    if (replace) {
+      mediaIndex.recordDelete(destFile);
+    }
+    if (move) {
+      updateMediaStore(sourceFile, destFile, options.mediaStoreMoveMode);
+    } else {
+      updateMediaStoreForCopy(sourceFile, destFile);
+    }
   }
 
-  private void performImageMove(String sourcePath, String destPath, Result result) {
+  /**
+   * Moves one image and queues its MediaStore update. An existing destination is handled as
+   * {@link TransferOptions#conflictPolicy} says.
+   *
+   * @param resume set when the move is part of a journaled job, otherwise {@code null}
+   */
+  private TransferOutcome moveImage(String sourcePath, String destPath, TransferOptions options,
+      CopyEngine.CopyListener listener, ResumeHandle resume) throws TransferException {
     Log.d(TAG, "Starting image move operation");
     Log.d(TAG, "Source: " + sourcePath);
     Log.d(TAG, "Destination: " + destPath);
 
     File sourceFile = new File(sourcePath);
-    File destDir = new File(destPath).getParentFile();
-    File destFile = new File(destPath);
+    String startedDestination = resume != null ? resume.startedDestination() : null;
+    boolean startedEarlier = startedDestination != null;
+    // An earlier run of this job already settled any conflict, possibly on another name. Only an
+    // overwrite may replace a file there, so one created since that run fails with DEST_EXISTS
+    File destFile = new File(startedEarlier ? startedDestination : destPath);
+    File destDir = destFile.getParentFile();
+    // A name claimed by the rename policy is given back unless the move puts the file there
+    boolean claimedName = false;
+    boolean keepPartial = false;
 
     try {
       if (!sourceFile.exists()) {
+        if (startedEarlier && destFile.exists()) {
+          // An earlier run of this job finished the move but was interrupted before journaling it
+          Log.i(TAG, "Move already completed by an earlier run: " + destFile);
+          updateMediaStore(sourceFile, destFile, options.mediaStoreMoveMode);
+          return new TransferOutcome(destFile.getPath(), destFile.length(), false);
+        }
         Log.e(TAG, "Source file does not exist: " + sourcePath);
-        result.error("SOURCE_NOT_FOUND", "Source file does not exist", null);
-        return;
+        throw new TransferException("SOURCE_NOT_FOUND", "Source file does not exist");
       }
 
       if (!destDir.exists() && !destDir.mkdirs()) {
         Log.e(TAG, "Failed to create destination directory: " + destDir.getAbsolutePath());
-        result.error("DEST_CREATE_FAILED", "Could not create destination directory", null);
-        return;
-      }
-
-      if (destFile.exists()) {
-        Log.e(TAG, "Destination file already exists: " + destPath);
-        result.error("DEST_EXISTS", "Destination file already exists", null);
-        return;
+        throw new TransferException("DEST_CREATE_FAILED", "Could not create destination directory");
       }
 
       String fileExtension = getFileExtension(sourcePath).toLowerCase();
       Log.d(TAG, "File extension: " + fileExtension);
       if (!SUPPORTED_IMAGE_TYPES.contains(fileExtension)) {
         Log.e(TAG, "Unsupported file type: " + fileExtension);
-        result.error("UNSUPPORTED_TYPE", "File type not supported", null);
-        return;
+        throw new TransferException("UNSUPPORTED_TYPE", "File type not supported");
+      }
+
+      long fileSize = sourceFile.length();
+      if (!startedEarlier) {
+        File target = resolveConflict(sourceFile, destFile, options.conflictPolicy);
+        if (target == null) {
+          Log.i(TAG, "Destination already holds this image, only removing the source: " + destPath);
+          if (!storage.delete(sourceFile)) {
+            throw new TransferException("MOVE_FAILED", "Could not delete source file");
+          }
+          mediaIndex.recordDelete(sourceFile);
+          return new TransferOutcome(destFile.getPath(), fileSize, true);
+        }
+        claimedName = target != destFile;
+        destFile = target;
+      }
+      boolean replace = options.conflictPolicy == ConflictPolicy.OVERWRITE && destFile.exists();
+      if (resume != null && !startedEarlier) {
+        resume.onStarted(destFile.getPath());
       }
 
       // Move the file
       Log.d(TAG, "Moving file...");
-      boolean success = moveFile(sourceFile, destFile);
-      if (!success) {
-        Log.e(TAG, "Failed to move file");
-        result.error("MOVE_FAILED", "Failed to move file", null);
-        return;
+      TransferOutcome.Pending pending = moveFile(sourceFile, destFile, replace, options, listener, resume);
+      if (pending != null) {
+        Log.d(TAG, "File copied, it is put in place and the source deleted after the batch sync");
+        // The batch sync commits the name, or gives it back if it fails
+        claimedName = false;
+        return new TransferOutcome(destFile.getPath(), fileSize, false, pending);
       }
       Log.d(TAG, "File moved successfully");
 
       // Update MediaStore
       Log.d(TAG, "Updating MediaStore...");
-      updateMediaStore(sourceFile, destFile);
+      recordInMediaStore(true, sourceFile, destFile, replace, options);
       Log.d(TAG, "MediaStore updated successfully");
-      result.success(true);
+      return new TransferOutcome(destFile.getPath(), fileSize, false);
 
+    } catch (TransferException e) {
+      throw e;
+    } catch (TransferCancelledException e) {
+      keepPartial = keepPartialDestination(e, resume);
+      throw new TransferException("CANCELLED", e.getMessage(), e);
+    } catch (DestinationExistsException e) {
+      Log.e(TAG, e.getMessage());
+      throw new TransferException("DEST_EXISTS", e.getMessage(), e);
     } catch (Exception e) {
-      result.error("UNKNOWN_ERROR", e.getMessage(), null);
+      throw new TransferException("UNKNOWN_ERROR", e.getMessage(), e);
+    } finally {
+      // A no-op once the file is in place; otherwise the name is free again for other transfers
+      if (claimedName) {
+        temporaryFiles.release(destFile, keepPartial);
+      }
+    }
+  }
+
+  /**
+   * Applies {@code policy} to a destination that may already exist.
+   *
+   * @return the file to write, which is {@code destFile} unless the policy picked another name,
+   *     or {@code null} if {@code destFile} already holds the content of {@code sourceFile}
+   * @throws TransferException with {@code DEST_EXISTS} if the policy does not allow writing
+   */
+  private File resolveConflict(File sourceFile, File destFile, ConflictPolicy policy)
+      throws TransferException, IOException {
+    if (!destFile.exists()) {
+      return destFile;
+    }
+    switch (policy) {
+      case SKIP_IF_IDENTICAL:
+        if (identicalFileCheck.isIdentical(sourceFile, destFile)) {
+          return null;
+        }
+        Log.e(TAG, "Destination file already exists with different content: " + destFile);
+        throw new TransferException("DEST_EXISTS", "Destination file already exists with different content");
+      case OVERWRITE:
+        Log.d(TAG, "Replacing existing destination: " + destFile);
+        return destFile;
+      case RENAME:
+        File renamed = temporaryFiles.claimFreeName(destFile);
+        if (renamed == null) {
+          throw new TransferException("DEST_EXISTS", "No free name left for " + destFile.getName());
+        }
+        Log.d(TAG, "Destination exists, writing to " + renamed.getName() + " instead");
+        return renamed;
+      default:
+        Log.e(TAG, "Destination file already exists: " + destFile);
+        throw new TransferException("DEST_EXISTS", "Destination file already exists");
     }
   }
 
-  private boolean moveFile(File sourceFile, File destFile) throws IOException {
+  /** Records the hash of a verified copy when skip-if-identical checks will want it later. */
+  private void rememberHash(File file, XxHash64 hash, TransferOptions options) {
+    if (options.conflictPolicy != ConflictPolicy.SKIP_IF_IDENTICAL || hash == null) {
+      return;
+    }
+    try {
+      identicalFileCheck.remember(file, hash.digest());
+    } catch (IOException e) {
+      Log.w(TAG, "Could not record hash of " + file + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * @param replace whether {@code destFile} is an existing file to be replaced atomically
+   * @return the verified copy if it still has to be synced and put in place, see
+   *     {@link Durability#PER_BATCH}, otherwise {@code null}; the source is then left in place for
+   *     {@link #completeSynced} to delete
+   */
+  private TransferOutcome.Pending moveFile(File sourceFile, File destFile, boolean replace, TransferOptions options,
+      CopyEngine.CopyListener listener, ResumeHandle resume) throws IOException {
     Log.d(TAG, "Moving file from: " + sourceFile.getAbsolutePath() + " to: " + destFile.getAbsolutePath());
     long startTime = System.currentTimeMillis();
     long fileSize = sourceFile.length();
@@ -253,241 +1498,292 @@ public class SortogramMngStrgPlugin implements FlutterPlugin, MethodCallHandler,
       throw new IOException("Source file is not writable");
     }
 
-    boolean success = false;
-    FileInputStream in = null;
-    FileOutputStream out = null;
-
-    try {
-      in = new FileInputStream(sourceFile);
-      out = new FileOutputStream(destFile);
-
-      byte[] buffer = new byte[8192]; // Increased buffer size
-      int length;
-      long totalBytesRead = 0;
-
-      while ((length = in.read(buffer)) > 0) {
-        out.write(buffer, 0, length);
-        totalBytesRead += length;
-        if (totalBytesRead % (1024 * 1024) == 0) { // Log progress every 1MB
-          Log.d(TAG, String.format("Copy progress: %.1f%%", (totalBytesRead * 100.0) / fileSize));
-        }
+    // On the same filesystem a rename is atomic and touches only metadata, also over a file to overwrite
+    if (storage.isSameVolume(sourceFile, destFile.getParentFile())) {
+      long renameStartTime = System.nanoTime();
+      if (temporaryFiles.renameInto(sourceFile, destFile, replace)) {
+        metrics.record(TransferMetrics.Phase.RENAME, System.nanoTime() - renameStartTime);
+        Log.d(TAG, "File renamed on same volume in " + (System.currentTimeMillis() - startTime) + "ms");
+        return null;
       }
+      Log.w(TAG, "Rename failed on same volume, falling back to copy");
+    }
 
-      // Force write to disk
-      out.flush();
-      out.getFD().sync(); // Ensure data is written to disk
-
-      // Close streams before further operations
-      in.close();
-      out.close();
-      in = null;
-      out = null;
+    boolean deferSync = options.durability.forMoves() == Durability.PER_BATCH;
+    // The destination only ever appears complete; until then the data is in a hidden file
+    File target = TemporaryFiles.temporaryFileFor(destFile);
+    temporaryFiles.register(destFile.getParentFile());
 
-      // Verify destination file exists
-      if (!destFile.exists()) {
-        Log.e(TAG, "Destination file does not exist after copy");
-        throw new IOException("Destination file was not created");
-      }
+    try {
+      XxHash64 hash = copyContents(sourceFile, target, options, !deferSync, listener, resume);
 
-      // Verify the copy was successful by checking file sizes
-      Log.i(TAG,
-          "????????????????????????????  Verify the copy was successful by checking file sizes ************************");
-      if (destFile.length() != sourceFile.length()) {
+      // Verify the copy was successful by checking file sizes (a missing file has length 0)
+      if (target.length() != sourceFile.length()) {
         Log.e(TAG, "File sizes don't match after copy");
-        destFile.delete(); // Clean up the incomplete copy
         throw new IOException("File copy was incomplete");
       }
 
       // Verify file contents (optional, but more thorough)
-      if (!verifyFileContents(sourceFile, destFile)) {
+      if (!verifyFileContents(sourceFile, target, options.verification, hash)) {
         Log.e(TAG, "File contents verification failed");
-        destFile.delete();
         throw new IOException("File contents do not match");
       }
 
+      if (deferSync) {
+        return new TransferOutcome.Pending(target, replace, hash);
+      }
+      commit(target, destFile, replace, true);
+      rememberHash(destFile, hash, options);
+
       // Try to delete the source file
-      if (!sourceFile.delete()) {
+      if (!storage.delete(sourceFile)) {
         Log.e(TAG, "Failed to delete source file");
-        destFile.delete(); // Clean up the destination since move failed
+        // A replaced destination is already gone, so the verified copy is kept rather than lose both
+        if (!replace) {
+          storage.delete(destFile); // Clean up the destination since move failed
+        }
         throw new IOException("Could not delete source file");
       }
 
-      success = true;
       Log.d(TAG, "File successfully moved");
       Log.d(TAG, "Move operation completed in " + (System.currentTimeMillis() - startTime) + "ms");
 
     } catch (IOException e) {
       Log.e(TAG, "Error during file move: " + e.getMessage());
-      // Clean up destination file if it exists
-      if (destFile.exists()) {
-        destFile.delete();
+      // Clean up the temporary file; delete() on a missing file is a single failed syscall
+      if (!keepPartialDestination(e, resume)) {
+        storage.delete(target);
       }
       throw e;
-    } finally {
-      // Clean up resources in finally block
-      if (in != null) {
-        try {
-          in.close();
-        } catch (IOException e) {
-          Log.w(TAG, "Error closing input stream: " + e.getMessage());
-        }
+    }
+
+    return null;
+  }
+
+  /**
+   * Copies {@code sourceFile} into {@code destFile} with the configured engine. For journaled jobs
+   * the copy continues after the part an earlier run already wrote.
+   *
+   * @param sync whether to sync the result to disk with {@link StorageBackend#syncFile} before returning
+   * @return the hash of the whole source if the verification level needs one, otherwise null
+   */
+  private XxHash64 copyContents(File sourceFile, File destFile, TransferOptions options, boolean sync,
+      CopyEngine.CopyListener listener, ResumeHandle resume) throws IOException {
+    long offset = prepareDestination(destFile, resume);
+    XxHash64 hash = options.verification == Verification.STREAMING_HASH ? new XxHash64() : null;
+    if (offset > 0) {
+      Log.i(TAG, "Resuming copy of " + sourceFile.getName() + " at byte " + offset);
+      if (hash != null) {
+        FileCopier.hashPrefix(sourceFile, offset, hash);
       }
-      if (out != null) {
-        try {
-          out.close();
-        } catch (IOException e) {
-          Log.w(TAG, "Error closing output stream: " + e.getMessage());
+    }
+    long copied = fileCopier.copy(sourceFile, destFile, offset, options.copyEngine, hash, listener);
+    Log.d(TAG, "Copied " + copied + " bytes with " + options.copyEngine.name() + " engine");
+    if (sync) {
+      long syncStartTime = System.nanoTime();
+      storage.syncFile(destFile);
+      metrics.record(TransferMetrics.Phase.FSYNC, System.nanoTime() - syncStartTime);
+    }
+    return hash;
+  }
+
+  /**
+   * Renames the finished temporary file to {@code destFile}, timing it for the metrics.
+   *
+   * @param replace whether {@code destFile} is an existing file the conflict policy overwrites
+   * @param syncDirectory whether to make the rename durable right away
+   */
+  private void commit(File temporaryFile, File destFile, boolean replace, boolean syncDirectory) throws IOException {
+    long startTime = System.nanoTime();
+    temporaryFiles.commit(temporaryFile, destFile, replace, syncDirectory);
+    metrics.record(TransferMetrics.Phase.COMMIT, System.nanoTime() - startTime);
+  }
+
+  /**
+   * Gets {@code destFile} ready to be written. A partial destination left by an earlier run of the
+   * same job is truncated to its last checkpoint, or removed if it has none.
+   *
+   * @return the offset the copy continues at
+   */
+  private long prepareDestination(File destFile, ResumeHandle resume) throws IOException {
+    if (resume == null) {
+      return 0;
+    }
+    long offset = resume.resumeOffset();
+    if (offset < 0) {
+      return 0;
+    }
+    if (destFile.exists()) {
+      if (offset > 0 && destFile.length() >= offset) {
+        try (RandomAccessFile file = new RandomAccessFile(destFile, "rw")) {
+          file.setLength(offset);
         }
+        return offset;
       }
+      Log.d(TAG, "Discarding partial destination from an earlier run: " + destFile);
+      storage.delete(destFile);
     }
+    return 0;
+  }
 
-    Log.e(TAG, "At time of return success from moveFile function : " + success);
-    return success;
+  /** A cancelled job keeps its partial destination, so a resume can continue from the last checkpoint. */
+  private boolean keepPartialDestination(IOException error, ResumeHandle resume) {
+    return resume != null && error instanceof TransferCancelledException;
   }
 
   // Add this new helper method for content verification
-  private boolean verifyFileContents(File sourceFile, File destFile) throws IOException {
-    if (sourceFile.length() != destFile.length()) {
-      Log.d(TAG, "File size mismatch during verification");
-      return false;
-    }
-
+  private boolean verifyFileContents(File sourceFile, File destFile, Verification verification,
+      XxHash64 streamingHash) throws IOException {
+    long startTime = System.currentTimeMillis();
     try {
-      String sourceHash = calculateMD5(sourceFile);
-      String destHash = calculateMD5(destFile);
-
-      boolean matches = sourceHash != null && sourceHash.equals(destHash);
-      Log.d(TAG, "File hash comparison - Source: " + sourceHash + ", Dest: " + destHash);
-
+      boolean matches = fileCopier.verify(sourceFile, destFile, verification, streamingHash);
+      Log.d(TAG, "Verification (" + verification.wireName + ") " + (matches ? "passed" : "failed") + " in "
+          + (System.currentTimeMillis() - startTime) + "ms");
       return matches;
-    } catch (Exception e) {
+    } catch (IOException e) {
       Log.e(TAG, "Error during hash verification: " + e.getMessage());
       throw new IOException("Hash verification failed", e);
     }
   }
 
-  private String calculateMD5(File file) throws IOException {
-    try {
-      MessageDigest digest = MessageDigest.getInstance("MD5");
-      try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
-        byte[] buffer = new byte[8192];
-        int read;
-        while ((read = is.read(buffer)) > 0) {
-          digest.update(buffer, 0, read);
-        }
-        byte[] md5sum = digest.digest();
-        BigInteger bigInt = new BigInteger(1, md5sum);
-        return String.format("%032x", bigInt);
-      }
-    } catch (NoSuchAlgorithmException e) {
-      Log.e(TAG, "MD5 algorithm not available");
-      throw new IOException("MD5 algorithm not available", e);
-    }
-  }
-
-  private void handleCopyImage(String sourcePath, String destPath, Result result) {
+  private void handleCopyImage(String sourcePath, String destPath, TransferOptions options, String operationId,
+      Result result) {
     Log.d(TAG, "Handling image copy request");
-    if (activity == null) {
-      Log.e(TAG, "Activity is null, cannot proceed with image copy");
-      result.error("ACTIVITY_NULL", "Activity is null", null);
-      return;
-    }
-
-    pendingSourcePath = sourcePath;
-    pendingDestPath = destPath;
-    pendingResult = result;
-
-    // For Android 13+ (API 33+), we need READ_MEDIA_IMAGES
-    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-      Log.d(TAG, "Android 13+ (API 33+): Checking READ_MEDIA_IMAGES permission");
-      if (ContextCompat.checkSelfPermission(activity,
-          Manifest.permission.READ_MEDIA_IMAGES) != PackageManager.PERMISSION_GRANTED) {
-        Log.i(TAG, "Requesting READ_MEDIA_IMAGES permission");
-        ActivityCompat.requestPermissions(activity,
-            new String[] { Manifest.permission.READ_MEDIA_IMAGES },
-            PERMISSION_REQUEST_CODE);
-        return;
-      }
-    }
-    // For Android 6-12, we need READ_EXTERNAL_STORAGE and WRITE_EXTERNAL_STORAGE
-    else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-      Log.d(TAG, "Android 6-12: Checking storage permissions");
-      String[] permissions = {
-          Manifest.permission.READ_EXTERNAL_STORAGE,
-          Manifest.permission.WRITE_EXTERNAL_STORAGE
-      };
+    withReadPermission(result, "copyImage", () -> submitImageCopy(sourcePath, destPath, options, operationId, result));
+  }
 
-      boolean needsPermissions = false;
-      for (String permission : permissions) {
-        if (ContextCompat.checkSelfPermission(activity, permission) != PackageManager.PERMISSION_GRANTED) {
-          needsPermissions = true;
-          break;
-        }
-      }
+  private void handleCopyImages(List<TransferItem> items, TransferOptions options, String operationId,
+      boolean compactReply, Result result) {
+    Log.d(TAG, "Handling batch image copy request");
+    withReadPermission(result, "copyImages",
+        () -> submitBatch(items, false, options, operationId, compactReply, result));
+  }
 
-      if (needsPermissions) {
-        Log.i(TAG, "Requesting storage permissions");
-        ActivityCompat.requestPermissions(activity, permissions, PERMISSION_REQUEST_CODE);
-        return;
+  private void performImageCopy(String sourcePath, String destPath, TransferOptions options, String operationId,
+      Result result) {
+    TransferProgressReporter.Tracker tracker = progressReporter.start(operationId, 1, new File(sourcePath).length());
+    long bytes = 0;
+    try {
+      TransferOutcome outcome = transferImage(false, sourcePath, destPath, options, tracker.forFile(sourcePath),
+          null);
+      bytes = outcome.bytes;
+      if (outcome.needsSync()) {
+        syncNow(false, sourcePath, outcome, options);
       }
+      result.success(true);
+    } catch (TransferException e) {
+      result.error(e.getCode(), e.getMessage(), null);
+    } finally {
+      tracker.fileCompleted(sourcePath, bytes);
+      tracker.finish();
     }
-
-    // If we reach here, we have the necessary permissions
-    performImageCopy(sourcePath, destPath, result);
   }
 
-  private void performImageCopy(String sourcePath, String destPath, Result result) {
+  /**
+   * Copies one image and queues the MediaStore insert for the copy. An existing destination is
+   * handled as {@link TransferOptions#conflictPolicy} says.
+   *
+   * @param resume set when the copy is part of a journaled job, otherwise {@code null}
+   */
+  private TransferOutcome copyImage(String sourcePath, String destPath, TransferOptions options,
+      CopyEngine.CopyListener listener, ResumeHandle resume) throws TransferException {
     Log.d(TAG, "Starting image copy operation");
     Log.d(TAG, "Source: " + sourcePath);
     Log.d(TAG, "Destination: " + destPath);
     Log.i(TAG, "This is a COPY operation - source file will be preserved");
 
     File sourceFile = new File(sourcePath);
-    File destDir = new File(destPath).getParentFile();
-    File destFile = new File(destPath);
+    String startedDestination = resume != null ? resume.startedDestination() : null;
+    boolean startedEarlier = startedDestination != null;
+    // An earlier run of this job already settled any conflict, possibly on another name. Only an
+    // overwrite may replace a file there, so one created since that run fails with DEST_EXISTS
+    File destFile = new File(startedEarlier ? startedDestination : destPath);
+    File destDir = destFile.getParentFile();
+
+    if (!sourceFile.exists()) {
+      Log.e(TAG, "Source file does not exist: " + sourcePath);
+      throw new TransferException("SOURCE_NOT_FOUND", "Source file does not exist: " + sourcePath);
+    }
 
-    try {
-      if (!sourceFile.exists()) {
-        throw new IOException("Source file does not exist: " + sourcePath);
-      }
+    if (!destDir.exists() && !destDir.mkdirs()) {
+      Log.e(TAG, "Failed to create destination directory: " + destDir.getAbsolutePath());
+      throw new TransferException("DEST_CREATE_FAILED", "Could not create destination directory: " + destDir);
+    }
 
-      if (!destDir.exists() && !destDir.mkdirs()) {
-        throw new IOException("Could not create destination directory: " + destDir);
-      }
+    String fileExtension = getFileExtension(sourcePath).toLowerCase();
+    Log.d(TAG, "File extension: " + fileExtension);
+    if (!SUPPORTED_IMAGE_TYPES.contains(fileExtension)) {
+      Log.e(TAG, "Unsupported file type: " + fileExtension);
+      throw new TransferException("UNSUPPORTED_TYPE", "Unsupported file type: " + fileExtension);
+    }
 
-      if (destFile.exists()) {
-        throw new IOException("Destination file already exists: " + destPath);
+    long fileSize = sourceFile.length();
+    // A name claimed by the rename policy is given back unless the copy puts the file there
+    boolean claimedName = false;
+    boolean keepPartial = false;
+    if (!startedEarlier) {
+      File target;
+      try {
+        target = resolveConflict(sourceFile, destFile, options.conflictPolicy);
+      } catch (IOException e) {
+        Log.e(TAG, "Could not compare with existing destination: " + e.getMessage());
+        throw new TransferException("COPY_FAILED", e.getMessage(), e);
       }
+      if (target == null) {
+        Log.i(TAG, "Destination already holds this image, nothing to copy: " + destPath);
+        return new TransferOutcome(destFile.getPath(), fileSize, true);
+      }
+      claimedName = target != destFile;
+      destFile = target;
+    }
+    boolean replace = options.conflictPolicy == ConflictPolicy.OVERWRITE && destFile.exists();
 
-      String fileExtension = getFileExtension(sourcePath).toLowerCase();
-      Log.d(TAG, "File extension: " + fileExtension);
-      if (!SUPPORTED_IMAGE_TYPES.contains(fileExtension)) {
-        throw new IOException("Unsupported file type: " + fileExtension);
+    try {
+      if (resume != null && !startedEarlier) {
+        resume.onStarted(destFile.getPath());
       }
 
       // Copy the file
       Log.d(TAG, "Copying file...");
-      boolean success = copyFile(sourceFile, destFile);
-      if (!success) {
-        throw new IOException("Failed to copy file");
+      TransferOutcome.Pending pending = copyFile(sourceFile, destFile, replace, options, listener, resume);
+      if (pending != null) {
+        Log.d(TAG, "File copied, it is put in place after the batch sync");
+        // The batch sync commits the name, or gives it back if it fails
+        claimedName = false;
+        return new TransferOutcome(destFile.getPath(), fileSize, false, pending);
       }
       Log.d(TAG, "File copied successfully");
 
       // Update MediaStore for the new file
-      updateMediaStoreForCopy(sourceFile, destFile);
+      recordInMediaStore(false, sourceFile, destFile, replace, options);
       Log.d(TAG, "MediaStore updated successfully");
-      result.success(true);
-
+      return new TransferOutcome(destFile.getPath(), fileSize, false);
+
+    } catch (TransferCancelledException e) {
+      Log.i(TAG, "Copy cancelled: " + sourcePath);
+      keepPartial = keepPartialDestination(e, resume);
+      throw new TransferException("CANCELLED", e.getMessage(), e);
+    } catch (DestinationExistsException e) {
+      Log.e(TAG, e.getMessage());
+      throw new TransferException("DEST_EXISTS", e.getMessage(), e);
     } catch (Exception e) {
       Log.e(TAG, "Error during copy operation: " + e.getMessage());
-      if (destFile.exists()) {
-        destFile.delete(); // Clean up failed copy
+      throw new TransferException("COPY_FAILED", e.getMessage(), e);
+    } finally {
+      // A no-op once the file is in place; otherwise the name is free again for other transfers
+      if (claimedName) {
+        temporaryFiles.release(destFile, keepPartial);
       }
-      result.error("UNKNOWN_ERROR", e.getMessage(), null);
     }
   }
 
-  private boolean copyFile(File sourceFile, File destFile) throws IOException {
+  /**
+   * @param replace whether {@code destFile} is an existing file to be replaced atomically
+   * @return the verified copy if it still has to be synced and put in place, see
+   *     {@link Durability#PER_BATCH}, otherwise {@code null}
+   */
+  private TransferOutcome.Pending copyFile(File sourceFile, File destFile, boolean replace, TransferOptions options,
+      CopyEngine.CopyListener listener, ResumeHandle resume) throws IOException {
     Log.d(TAG, "Copying file from: " + sourceFile.getAbsolutePath() + " to: " + destFile.getAbsolutePath());
     long startTime = System.currentTimeMillis();
     long fileSize = sourceFile.length();
@@ -497,127 +1793,52 @@ public class SortogramMngStrgPlugin implements FlutterPlugin, MethodCallHandler,
       throw new IOException("Source file is not readable");
     }
 
-    boolean success = false;
-    FileInputStream in = null;
-    FileOutputStream out = null;
+    // The destination only ever appears complete; until then the data is in a hidden file
+    File target = TemporaryFiles.temporaryFileFor(destFile);
+    temporaryFiles.register(destFile.getParentFile());
 
     try {
-      in = new FileInputStream(sourceFile);
-      out = new FileOutputStream(destFile);
-
-      byte[] buffer = new byte[8192];
-      int length;
-      long totalBytesRead = 0;
-
-      while ((length = in.read(buffer)) > 0) {
-        out.write(buffer, 0, length);
-        totalBytesRead += length;
-        if (totalBytesRead % (1024 * 1024) == 0) {
-          Log.d(TAG, String.format("Copy progress: %.1f%%", (totalBytesRead * 100.0) / fileSize));
-        }
-      }
-
-      // Force write to disk
-      out.flush();
-      out.getFD().sync();
+      XxHash64 hash = copyContents(sourceFile, target, options, options.durability == Durability.PER_FILE, listener,
+          resume);
 
       // Verify destination file exists and contents match
-      if (!verifyFileContents(sourceFile, destFile)) {
+      if (!verifyFileContents(sourceFile, target, options.verification, hash)) {
         Log.e(TAG, "File verification failed");
         throw new IOException("File verification failed");
       }
 
-      success = true;
+      rememberHash(sourceFile, hash, options);
+      if (options.durability == Durability.PER_BATCH) {
+        return new TransferOutcome.Pending(target, replace, hash);
+      }
+      commit(target, destFile, replace, options.durability == Durability.PER_FILE);
+      rememberHash(destFile, hash, options);
+
       Log.d(TAG, "File successfully copied");
       Log.d(TAG, "Copy operation completed in " + (System.currentTimeMillis() - startTime) + "ms");
 
     } catch (IOException e) {
       Log.e(TAG, "Error during file copy: " + e.getMessage());
-      throw e;
-    } finally {
-      if (in != null) {
-        try {
-          in.close();
-        } catch (IOException e) {
-          Log.w(TAG, "Error closing input stream: " + e.getMessage());
-        }
-      }
-      if (out != null) {
-        try {
-          out.close();
-        } catch (IOException e) {
-          Log.w(TAG, "Error closing output stream: " + e.getMessage());
-        }
+      // Clean up the temporary file; delete() on a missing file is a single failed syscall
+      if (!keepPartialDestination(e, resume)) {
+        storage.delete(target);
       }
+      throw e;
     }
 
-    return success;
+    return null;
   }
 
   private void updateMediaStoreForCopy(File sourceFile, File destFile) {
-    Log.d(TAG, "Updating MediaStore for copied file");
-    ContentResolver resolver = context.getContentResolver();
-
+    Log.d(TAG, "Queueing MediaStore insert for copied file");
     // Add the new entry only (no need to delete anything since it's a copy)
-    ContentValues values = new ContentValues();
-    values.put(MediaStore.Images.Media.DATA, destFile.getAbsolutePath());
-    values.put(MediaStore.Images.Media.MIME_TYPE, getMimeType(destFile.getName()));
-    values.put(MediaStore.Images.Media.DATE_ADDED, System.currentTimeMillis() / 1000);
-    values.put(MediaStore.Images.Media.DATE_MODIFIED, System.currentTimeMillis() / 1000);
-
-    Uri uri = resolver.insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, values);
-    Log.d(TAG, "New MediaStore entry URI: " + uri);
-
-    // Trigger media scanner for the new file
-    MediaScannerConnection.scanFile(context,
-        new String[] { destFile.getAbsolutePath() },
-        new String[] { getMimeType(destFile.getName()) },
-        (path, uri1) -> Log.d(TAG, "Media scan completed for: " + path + " URI: " + uri1));
-  }
-
-  private void updateMediaStore(File sourceFile, File destFile) {
-    Log.d(TAG, "Updating MediaStore");
-    ContentResolver resolver = context.getContentResolver();
-
-    // Remove the old entry
-    Log.d(TAG, "Removing old MediaStore entry for: " + sourceFile.getAbsolutePath());
-    Uri contentUri = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
-    int deletedRows = resolver.delete(contentUri,
-        MediaStore.Images.Media.DATA + "=?",
-        new String[] { sourceFile.getAbsolutePath() });
-    Log.d(TAG, "Deleted " + deletedRows + " rows from MediaStore");
-
-    // Add the new entry
-    Log.d(TAG, "Adding new MediaStore entry for: " + destFile.getAbsolutePath());
-    ContentValues values = new ContentValues();
-    values.put(MediaStore.Images.Media.DATA, destFile.getAbsolutePath());
-    String mimeType = getMimeType(destFile.getName());
-    values.put(MediaStore.Images.Media.MIME_TYPE, mimeType);
-    values.put(MediaStore.Images.Media.DATE_MODIFIED, System.currentTimeMillis() / 1000);
-    Log.d(TAG, "MIME type: " + mimeType);
-
-    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-      Log.d(TAG, "Setting IS_PENDING flag for Android 10+");
-      values.put(MediaStore.Images.Media.IS_PENDING, 1);
-    }
-
-    Uri uri = resolver.insert(contentUri, values);
-    Log.d(TAG, "New MediaStore entry URI: " + uri);
-
-    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && uri != null) {
-      Log.d(TAG, "Clearing IS_PENDING flag");
-      values.clear();
-      values.put(MediaStore.Images.Media.IS_PENDING, 0);
-      int updatedRows = resolver.update(uri, values, null, null);
-      Log.d(TAG, "Updated " + updatedRows + " rows in MediaStore");
-    }
-
-    // Ensure the media scanner is aware of the changes
-    Log.d(TAG, "Triggering media scanner for: " + destFile.getAbsolutePath());
-    MediaScannerConnection.scanFile(context,
-        new String[] { destFile.getAbsolutePath() },
-        new String[] { mimeType },
-        (path, uri1) -> Log.d(TAG, "Media scan completed for: " + path + " URI: " + uri1));
+    mediaIndex.recordCopy(destFile, getMimeType(destFile.getName()));
+  }
+
+  private void updateMediaStore(File sourceFile, File destFile, MediaStoreMoveMode mode) {
+    Log.d(TAG, "Queueing MediaStore " + mode.wireName + " for: " + sourceFile.getAbsolutePath() + " -> "
+        + destFile.getAbsolutePath());
+    mediaIndex.recordMove(sourceFile, destFile, getMimeType(destFile.getName()), mode);
   }
 
   private String getFileExtension(String path) {
@@ -643,91 +1864,92 @@ public class SortogramMngStrgPlugin implements FlutterPlugin, MethodCallHandler,
     }
   }
 
-  private void getRealPath(String path, Result result) {
-    Log.d(TAG, "Getting real path for: " + path);
+  /**
+   * Starts streaming the pages of a {@code listImages} query to {@code events}. Only one listing
+   * streams at a time; listening again cancels the previous one.
+   */
+  private void listImagesToStream(Object arguments, EventChannel.EventSink events) {
+    ImageQuery query;
     try {
-      if (context == null) {
-        Log.e(TAG, "Context is null");
-        result.error("CONTEXT_NULL", "Context is null", null);
-        return;
+      query = ImageQuery.fromArguments(arguments instanceof Map ? (Map<?, ?>) arguments : null);
+    } catch (TransferException e) {
+      Log.e(TAG, "Invalid listImages arguments: " + e.getMessage());
+      events.error(e.getCode(), e.getMessage(), null);
+      return;
+    }
+    imageSink = events;
+    Result streamResult = new Result() {
+      @Override
+      public void success(Object value) {
       }
 
-      // If the path is already a real file path and exists, return it
-      File file = new File(path);
-      if (file.exists()) {
-        Log.d(TAG, "File exists at path, returning: " + path);
-        result.success(path);
-        return;
+      @Override
+      public void error(@NonNull String errorCode, String errorMessage, Object errorDetails) {
+        events.error(errorCode, errorMessage, errorDetails);
       }
 
-      // Query MediaStore for the real path
-      ContentResolver resolver = context.getContentResolver();
-      String[] projection = { MediaStore.Images.Media.DATA };
-      String selection = MediaStore.Images.Media.DATA + "=?";
-      String[] selectionArgs = { path };
+      @Override
+      public void notImplemented() {
+      }
+    };
+    withReadPermission(streamResult, "listImages", () -> {
+      // The stream may have been cancelled while the permission dialog was open
+      if (imageSink == events) {
+        imageListing = imageLister.stream(query, events);
+      }
+    });
+  }
 
-      try (Cursor cursor = resolver.query(
-          MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-          projection,
-          selection,
-          selectionArgs,
-          null)) {
+  /**
+   * Resolves {@code path} (a file path, content URI, MediaStore id or display name) to the path of
+   * an existing file, using the in-memory {@link MediaPathIndex}.
+   */
+  private void getRealPath(String path, Result result) {
+    if (context == null) {
+      Log.e(TAG, "Context is null");
+      result.error("CONTEXT_NULL", "Context is null", null);
+      return;
+    }
 
-        if (cursor != null && cursor.moveToFirst()) {
-          String realPath = cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATA));
+    transferExecutor.execute(result, ioResult -> {
+      try {
+        String realPath = mediaPathIndex.resolve(path);
+        if (realPath != null) {
           Log.d(TAG, "Found real path: " + realPath);
-
-          // Verify the file exists
-          if (new File(realPath).exists()) {
-            result.success(realPath);
-            return;
-          }
+          ioResult.success(realPath);
+          return;
         }
-      }
 
-      // If we get here, we couldn't find the real path
-      Log.e(TAG, "Could not find real path for: " + path);
-      result.error("PATH_NOT_FOUND", "Could not find real path for file", null);
+        // If we get here, we couldn't find the real path
+        Log.e(TAG, "Could not find real path for: " + path);
+        ioResult.error("PATH_NOT_FOUND", "Could not find real path for file", null);
+      } catch (Exception e) {
+        Log.e(TAG, "Error getting real path: " + e.getMessage());
+        ioResult.error("UNEXPECTED_ERROR", "Error getting real path", e.getMessage());
+      }
+    });
+  }
 
-    } catch (Exception e) {
-      Log.e(TAG, "Error getting real path: " + e.getMessage());
-      result.error("UNEXPECTED_ERROR", "Error getting real path", e.getMessage());
+  /** Resolves many paths at once; entries that match no existing file resolve to null. */
+  private void getRealPaths(List<String> paths, boolean compactReply, Result result) {
+    if (context == null) {
+      Log.e(TAG, "Context is null");
+      result.error("CONTEXT_NULL", "Context is null", null);
+      return;
     }
+
+    transferExecutor.execute(result, ioResult -> {
+      long startTime = System.currentTimeMillis();
+      List<String> realPaths = mediaPathIndex.resolveAll(paths);
+      Log.d(TAG, "Resolved " + realPaths.size() + " paths in " + (System.currentTimeMillis() - startTime) + "ms");
+      ioResult.success(compactReply ? BulkProtocol.encodePaths(realPaths) : realPaths);
+    });
   }
 
   @Override
   public boolean onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
-    if (requestCode == PERMISSION_REQUEST_CODE) {
-      boolean allPermissionsGranted = true;
-      for (int result : grantResults) {
-        if (result != PackageManager.PERMISSION_GRANTED) {
-          allPermissionsGranted = false;
-          break;
-        }
-      }
-
-      if (allPermissionsGranted) {
-        if (pendingSourcePath != null && pendingDestPath != null && pendingResult != null) {
-          // Check if this was for a move or copy operation based on the permissions
-          // requested
-          if (permissions.length == 1 &&
-              (permissions[0].equals(Manifest.permission.READ_MEDIA_IMAGES) ||
-                  permissions[0].equals(Manifest.permission.READ_EXTERNAL_STORAGE))) {
-            // This was a copy operation (only read permission requested)
-            performImageCopy(pendingSourcePath, pendingDestPath, pendingResult);
-          } else {
-            // This was a move operation (write permission also requested)
-            performImageMove(pendingSourcePath, pendingDestPath, pendingResult);
-          }
-          clearPendingOperation();
-          return true;
-        }
-      } else {
-        if (pendingResult != null) {
-          pendingResult.error("PERMISSION_DENIED", "Required permissions were denied", null);
-          clearPendingOperation();
-        }
-      }
+    if (requestCode == WRITE_PERMISSION_REQUEST_CODE || requestCode == READ_PERMISSION_REQUEST_CODE) {
+      onPermissionAnswered(requestCode, "Required permissions were denied");
       return true;
     }
     return false;
@@ -737,28 +1959,33 @@ public class SortogramMngStrgPlugin implements FlutterPlugin, MethodCallHandler,
   public boolean onActivityResult(int requestCode, int resultCode, Intent data) {
     if (requestCode == MANAGE_STORAGE_PERMISSION_REQUEST_CODE) {
       Log.d(TAG, "Received activity result for MANAGE_EXTERNAL_STORAGE permission");
-      // Check if the permission was granted
-      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R && Environment.isExternalStorageManager()) {
-        Log.i(TAG, "MANAGE_EXTERNAL_STORAGE permission granted");
-        if (pendingSourcePath != null && pendingDestPath != null && pendingResult != null) {
-          performImageMove(pendingSourcePath, pendingDestPath, pendingResult);
-          clearPendingOperation();
-        }
-      } else {
-        Log.e(TAG, "MANAGE_EXTERNAL_STORAGE permission denied");
-        if (pendingResult != null) {
-          pendingResult.error("PERMISSION_DENIED", "All files access permission denied", null);
-          clearPendingOperation();
-        }
-      }
+      onPermissionAnswered(requestCode, "All files access permission denied");
       return true;
     }
     return false;
   }
 
-  private void clearPendingOperation() {
-    pendingSourcePath = null;
-    pendingDestPath = null;
-    pendingResult = null;
+  /** Sends the replies of a bulk message, which are encoded already unless they are errors. */
+  private static final class BulkResult implements Result {
+    private final BasicMessageChannel.Reply<ByteBuffer> reply;
+
+    BulkResult(BasicMessageChannel.Reply<ByteBuffer> reply) {
+      this.reply = reply;
+    }
+
+    @Override
+    public void success(Object value) {
+      reply.reply((ByteBuffer) value);
+    }
+
+    @Override
+    public void error(@NonNull String errorCode, String errorMessage, Object errorDetails) {
+      reply.reply(BulkProtocol.encodeError(errorCode, errorMessage));
+    }
+
+    @Override
+    public void notImplemented() {
+      reply.reply(BulkProtocol.encodeError("NOT_IMPLEMENTED", "Unknown bulk operation"));
+    }
   }
 }
@@ -0,0 +1,37 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.util.Set;
+
+/**
+ * The file system calls of a move or copy that depend on the device, behind which the plugin can
+ * run off-device: volume checks, renames, deletes, syncs, and where the folders holding temporary
+ * files are remembered. Reading and writing file data goes through {@link FileCopier} and works on
+ * any file system. {@link DeviceStorage} is the implementation on a phone. Implementations must be
+ * thread-safe.
+ */
+interface StorageBackend extends SyncBatch.Syncer {
+  /**
+   * Whether {@code file} and {@code directory} are on the same volume, so that a move can be a
+   * rename. Returns false if that cannot be told.
+   */
+  boolean isSameVolume(File file, File directory);
+
+  /** Renames {@code from} to {@code to}, replacing it if it exists, like {@link File#renameTo}. */
+  boolean rename(File from, File to);
+
+  /**
+   * Renames {@code from} to {@code to} unless {@code to} exists, in which case it returns false.
+   * Atomic where the file system allows it.
+   */
+  boolean renameNoReplace(File from, File to);
+
+  /** Deletes {@code file}, like {@link File#delete}. */
+  boolean delete(File file);
+
+  /** The folders {@link TemporaryFiles} last saved, or an empty set. */
+  Set<String> loadTemporaryDirectories();
+
+  /** Remembers {@code directories} across restarts; may be written in the background. */
+  void saveTemporaryDirectories(Set<String> directories);
+}
@@ -0,0 +1,122 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import android.Manifest;
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Environment;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+
+/**
+ * Caches whether the app may read and write shared storage, so transfer calls do not ask the
+ * system server (one binder call per permission) every time.
+ *
+ * A granted permission is trusted until the next refresh; a missing one is probed again on every
+ * check, so a grant made elsewhere is picked up right away. The cache refreshes whenever an
+ * activity resumes, which covers the user changing permissions in the system settings.
+ * Thread-safe.
+ */
+final class StoragePermissions implements Application.ActivityLifecycleCallbacks {
+  private static final String TAG = "SortogramMngStrg";
+
+  private final Context context;
+  private volatile boolean canWrite;
+  private volatile boolean canRead;
+
+  /** @param context the app context, or {@code null} off-device where storage is not guarded */
+  StoragePermissions(Context context) {
+    this.context = context;
+    refresh();
+  }
+
+  /** Whether the app may move files in shared storage. */
+  boolean canWrite() {
+    return canWrite || (canWrite = probeWrite());
+  }
+
+  /** Whether the app may read shared images. */
+  boolean canRead() {
+    return canRead || (canRead = probeRead());
+  }
+
+  /** Probes every permission again, e.g. after a permission dialog was answered. */
+  void refresh() {
+    canWrite = probeWrite();
+    canRead = probeRead();
+    Log.d(TAG, "Storage permissions: write=" + canWrite + ", read=" + canRead);
+  }
+
+  /** The runtime permissions needed to read shared images on this Android version. */
+  static String[] readPermissions() {
+    // For Android 13+ (API 33+), we need READ_MEDIA_IMAGES
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+      return new String[] { Manifest.permission.READ_MEDIA_IMAGES };
+    }
+    // For Android 6-12, we need READ_EXTERNAL_STORAGE and WRITE_EXTERNAL_STORAGE
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+      return new String[] {
+          Manifest.permission.READ_EXTERNAL_STORAGE,
+          Manifest.permission.WRITE_EXTERNAL_STORAGE
+      };
+    }
+    return new String[0];
+  }
+
+  private boolean probeWrite() {
+    if (context == null) {
+      return true;
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+      return Environment.isExternalStorageManager();
+    }
+    return Build.VERSION.SDK_INT < Build.VERSION_CODES.M
+        || ContextCompat.checkSelfPermission(context,
+            Manifest.permission.WRITE_EXTERNAL_STORAGE) == PackageManager.PERMISSION_GRANTED;
+  }
+
+  private boolean probeRead() {
+    if (context == null) {
+      return true;
+    }
+    for (String permission : readPermissions()) {
+      if (ContextCompat.checkSelfPermission(context, permission) != PackageManager.PERMISSION_GRANTED) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void onActivityResumed(@NonNull Activity activity) {
+    refresh();
+  }
+
+  @Override
+  public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+  }
+
+  @Override
+  public void onActivityStarted(@NonNull Activity activity) {
+  }
+
+  @Override
+  public void onActivityPaused(@NonNull Activity activity) {
+  }
+
+  @Override
+  public void onActivityStopped(@NonNull Activity activity) {
+  }
+
+  @Override
+  public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+  }
+
+  @Override
+  public void onActivityDestroyed(@NonNull Activity activity) {
+  }
+}
@@ -0,0 +1,51 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The original copy loop: reads into a heap buffer and writes it back out.
+ */
+final class StreamCopyEngine implements CopyEngine {
+  static final String NAME = "stream";
+  static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private final int bufferSize;
+
+  StreamCopyEngine(int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+    }
+    this.bufferSize = bufferSize;
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public long copy(FileInputStream in, FileOutputStream out, long size, XxHash64 hash, CopyListener listener)
+      throws IOException {
+    byte[] buffer = BufferPool.acquireHeap(bufferSize);
+    int length;
+    long totalBytesRead = 0;
+
+    try {
+      while ((length = in.read(buffer, 0, bufferSize)) > 0) {
+        out.write(buffer, 0, length);
+        if (hash != null) {
+          hash.update(buffer, 0, length);
+        }
+        totalBytesRead += length;
+        if (listener != null) {
+          listener.onProgress(totalBytesRead, size);
+        }
+      }
+    } finally {
+      BufferPool.releaseHeap(buffer);
+    }
+    return totalBytesRead;
+  }
+}
@@ -0,0 +1,164 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finished temporary files written without a sync of their own, which {@link #sync} makes durable
+ * and puts in place together: first every file is synced, then each is renamed over its
+ * destination, then each destination folder is synced once so the renames are durable too. A
+ * destination therefore never holds data that is not on storage yet. Used by
+ * {@link Durability#PER_BATCH}. Thread-safe.
+ */
+final class SyncBatch {
+  /** Files a batch holds before it is synced, which bounds what a crash can leave half done. */
+  static final int DEFAULT_MAX_PENDING = 256;
+
+  interface Listener {
+    /**
+     * @param committed whether the file was renamed to its destination, which it is not if it could
+     *     not be synced or renamed
+     * @param error why the file may not be durable, or {@code null} if it is
+     */
+    void onSynced(boolean committed, IOException error);
+  }
+
+  /** Renames a synced temporary file to its destination, replacing a file there only if {@code replace}. */
+  interface Committer {
+    void commit(File temporaryFile, File destFile, boolean replace) throws IOException;
+  }
+
+  /** Flushes files and folders to storage. */
+  interface Syncer {
+    void syncFile(File file) throws IOException;
+
+    void syncDirectory(File directory) throws IOException;
+  }
+
+  static final Syncer FILE_SYSTEM = new Syncer() {
+    @Override
+    public void syncFile(File file) throws IOException {
+      // fsync does not need write access, and a read-only open leaves the file untouched
+      try (FileInputStream in = new FileInputStream(file)) {
+        in.getFD().sync();
+      }
+    }
+
+    @Override
+    public void syncDirectory(File directory) throws IOException {
+      // Java cannot open a folder, so this goes through the system call directly
+      try {
+        FileDescriptor fd = Os.open(directory.getPath(), OsConstants.O_RDONLY, 0);
+        try {
+          Os.fsync(fd);
+        } finally {
+          Os.close(fd);
+        }
+      } catch (ErrnoException e) {
+        throw new IOException("Could not sync folder " + directory, e);
+      }
+    }
+  };
+
+  private final Syncer syncer;
+  private final Committer committer;
+  private final int maxPending;
+  private final Object lock = new Object();
+  private List<Entry> pending = new ArrayList<>();
+
+  SyncBatch(Syncer syncer, Committer committer, int maxPending) {
+    this.syncer = syncer;
+    this.committer = committer;
+    this.maxPending = maxPending;
+  }
+
+  /**
+   * Adds {@code temporaryFile}, to be put in place as {@code destFile}, whose {@code listener} is
+   * told once {@link #sync} has run for it.
+   *
+   * @param replace whether an existing {@code destFile} is overwritten, see {@link Committer}
+   * @return whether the batch is full now and should be synced
+   */
+  boolean add(File temporaryFile, File destFile, boolean replace, Listener listener) {
+    synchronized (lock) {
+      pending.add(new Entry(temporaryFile, destFile, replace, listener));
+      return pending.size() >= maxPending;
+    }
+  }
+
+  /**
+   * Syncs everything added so far and then notifies the listeners. Blocks on disk I/O.
+   *
+   * @return the number of files synced
+   */
+  int sync() {
+    List<Entry> entries;
+    synchronized (lock) {
+      if (pending.isEmpty()) {
+        return 0;
+      }
+      entries = pending;
+      pending = new ArrayList<>();
+    }
+
+    for (Entry entry : entries) {
+      try {
+        syncer.syncFile(entry.temporaryFile);
+      } catch (IOException e) {
+        entry.error = e;
+      }
+    }
+    Map<File, IOException> directories = new LinkedHashMap<>();
+    for (Entry entry : entries) {
+      if (entry.error != null) {
+        continue;
+      }
+      try {
+        committer.commit(entry.temporaryFile, entry.destFile, entry.replace);
+        entry.committed = true;
+        directories.put(entry.destFile.getParentFile(), null);
+      } catch (IOException e) {
+        entry.error = e;
+      }
+    }
+    for (Map.Entry<File, IOException> directory : directories.entrySet()) {
+      try {
+        syncer.syncDirectory(directory.getKey());
+      } catch (IOException e) {
+        directory.setValue(e);
+      }
+    }
+
+    for (Entry entry : entries) {
+      IOException error = entry.error != null ? entry.error : directories.get(entry.destFile.getParentFile());
+      entry.listener.onSynced(entry.committed, error);
+    }
+    return entries.size();
+  }
+
+  private static final class Entry {
+    final File temporaryFile;
+    final File destFile;
+    final boolean replace;
+    final Listener listener;
+    boolean committed;
+    IOException error;
+
+    Entry(File temporaryFile, File destFile, boolean replace, Listener listener) {
+      this.temporaryFile = temporaryFile;
+      this.destFile = destFile;
+      this.replace = replace;
+      this.listener = listener;
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The hidden files that copies are written to before they are renamed into place.
+ *
+ * A copy never writes its destination directly: the data goes to "{@code .name.sortogram-tmp}" in
+ * the destination folder, is synced once and is then renamed to the destination, which is atomic
+ * within a volume and replaces a file there only if the conflict policy chose to overwrite it; the
+ * folder is synced afterwards so the rename is durable as well. A failed or killed copy therefore
+ * leaves at most a hidden temporary file, which the media scanner skips and {@link #sweep} removes
+ * on the next start. The folders that were written to are remembered by the
+ * {@link StorageBackend} so the sweep does not have to search the disk. Thread-safe.
+ */
+final class TemporaryFiles {
+  private static final String TAG = "SortogramMngStrg";
+
+  private static final String SUFFIX = ".sortogram-tmp";
+
+  private final StorageBackend storage;
+  private final Set<String> directories = new HashSet<>();
+  /** Folders registered since the current sweep started, which it must not forget. */
+  private final Set<String> registeredDuringSweep = new HashSet<>();
+  /** Destinations named by {@link #claimFreeName} that no transfer has put in place yet. */
+  private final Set<String> claimedNames = new HashSet<>();
+  /** Files created before this time belong to an earlier process. */
+  private final long createdAt = System.currentTimeMillis();
+
+  TemporaryFiles(StorageBackend storage) {
+    this.storage = storage;
+    directories.addAll(storage.loadTemporaryDirectories());
+  }
+
+  /** The temporary file a copy to {@code destFile} is written to. */
+  static File temporaryFileFor(File destFile) {
+    return new File(destFile.getParentFile(), "." + destFile.getName() + SUFFIX);
+  }
+
+  static boolean isTemporaryFile(String name) {
+    return name.startsWith(".") && name.endsWith(SUFFIX);
+  }
+
+  /**
+   * Claims the first free name of the form "name (n).ext" next to {@code file}, for {@link
+   * ConflictPolicy#RENAME}. The name is reserved by creating its temporary file, so parallel
+   * transfers into the same folder cannot pick the same one, while a failed or killed transfer
+   * leaves nothing visible behind. {@link #commit} then takes the name only if it is still free.
+   *
+   * @return the claimed file, which does not exist yet, or {@code null} if every name up to
+   *     {@link ConflictPolicy#MAX_RENAME_ATTEMPTS} is taken
+   */
+  File claimFreeName(File file) throws IOException {
+    register(file.getParentFile());
+    synchronized (claimedNames) {
+      for (int n = 1; n <= ConflictPolicy.MAX_RENAME_ATTEMPTS; n++) {
+        File candidate = ConflictPolicy.alternativeName(file, n);
+        // An existing temporary file may be the partial copy of a resumable job
+        if (!claimedNames.contains(candidate.getAbsolutePath()) && !candidate.exists()
+            && temporaryFileFor(candidate).createNewFile()) {
+          claimedNames.add(candidate.getAbsolutePath());
+          return candidate;
+        }
+      }
+    }
+    return null;
+  }
+
+  /** Gives back a name claimed by {@link #claimFreeName} that will not be used, removing its reservation. */
+  void release(File destFile) {
+    release(destFile, false);
+  }
+
+  /**
+   * Gives back a name claimed by {@link #claimFreeName} that will not be used now.
+   *
+   * @param keepTemporaryFile whether its temporary file holds a partial copy that a resumed job
+   *     continues; the file then keeps the name reserved on disk until the resume commits it
+   */
+  void release(File destFile, boolean keepTemporaryFile) {
+    boolean claimed;
+    synchronized (claimedNames) {
+      claimed = claimedNames.remove(destFile.getAbsolutePath());
+    }
+    if (claimed && !keepTemporaryFile) {
+      storage.delete(temporaryFileFor(destFile));
+    }
+  }
+
+  /**
+   * Renames {@code sourceFile} to {@code destFile} for a move within a volume, giving up a name
+   * claimed by {@link #claimFreeName} once it is taken.
+   *
+   * @param replace whether an existing {@code destFile} is to be replaced, see {@link #commit}
+   * @return whether the file was renamed; if not, a move falls back to a copy
+   * @throws DestinationExistsException if {@code destFile} must not be replaced and exists now
+   */
+  boolean renameInto(File sourceFile, File destFile, boolean replace) throws DestinationExistsException {
+    if (!rename(sourceFile, destFile, replace)) {
+      if (!replace && destFile.exists()) {
+        throw new DestinationExistsException(destFile);
+      }
+      return false;
+    }
+    release(destFile);
+    return true;
+  }
+
+  /**
+   * Renames the complete temporary file to {@code destFile}. Removes the temporary file if the
+   * rename fails.
+   *
+   * @param replace whether {@code destFile} is a file the conflict policy chose to overwrite; any
+   *     other file there, e.g. one that appeared after the policy checked, is never replaced
+   * @param syncDirectory whether to sync the folder afterwards, so the rename survives a crash;
+   *     a {@link SyncBatch} passes false and syncs each folder once for all of its files
+   * @throws DestinationExistsException if {@code destFile} must not be replaced and exists now
+   */
+  void commit(File temporaryFile, File destFile, boolean replace, boolean syncDirectory) throws IOException {
+    synchronized (claimedNames) {
+      claimedNames.remove(destFile.getAbsolutePath());
+    }
+    if (!rename(temporaryFile, destFile, replace)) {
+      storage.delete(temporaryFile);
+      if (!replace && destFile.exists()) {
+        throw new DestinationExistsException(destFile);
+      }
+      throw new IOException("Could not rename temporary file to " + destFile.getName());
+    }
+    if (syncDirectory) {
+      storage.syncDirectory(destFile.getParentFile());
+    }
+  }
+
+  private boolean rename(File from, File destFile, boolean replace) {
+    return replace ? storage.rename(from, destFile) : storage.renameNoReplace(from, destFile);
+  }
+
+  /** Remembers that temporary files are about to be written in {@code directory}. */
+  void register(File directory) {
+    String path = directory.getAbsolutePath();
+    synchronized (directories) {
+      registeredDuringSweep.add(path);
+      // Sorting into one folder is the common case, so this rarely saves anything
+      if (!directories.add(path)) {
+        return;
+      }
+      storage.saveTemporaryDirectories(new HashSet<>(directories));
+    }
+  }
+
+  /**
+   * Deletes the temporary files that earlier processes left behind in the remembered folders.
+   * Blocks on disk I/O.
+   *
+   * @param keep temporary files that must stay, e.g. the partial copies of resumable jobs
+   */
+  void sweep(Set<File> keep) {
+    Set<String> swept;
+    synchronized (directories) {
+      swept = new HashSet<>(directories);
+      registeredDuringSweep.clear();
+    }
+    int deleted = 0;
+    Set<String> stillUsed = new HashSet<>();
+    for (String path : swept) {
+      File[] children = new File(path).listFiles();
+      if (children == null) {
+        continue;
+      }
+      for (File child : children) {
+        if (!isTemporaryFile(child.getName())) {
+          continue;
+        }
+        // Kept files, and files a copy of this process is writing right now, keep the folder listed
+        if (keep.contains(child) || child.lastModified() >= createdAt || !storage.delete(child)) {
+          stillUsed.add(path);
+        } else {
+          deleted++;
+        }
+      }
+    }
+
+    synchronized (directories) {
+      for (String path : swept) {
+        if (!stillUsed.contains(path) && !registeredDuringSweep.contains(path)) {
+          directories.remove(path);
+        }
+      }
+      storage.saveTemporaryDirectories(new HashSet<>(directories));
+    }
+    Log.d(TAG, "Swept " + deleted + " leftover temporary files from " + swept.size() + " folders");
+  }
+}
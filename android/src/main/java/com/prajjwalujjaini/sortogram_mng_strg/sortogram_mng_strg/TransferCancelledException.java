@@ -0,0 +1,14 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Thrown from a copy loop when its job was cancelled between two chunks.
+ */
+final class TransferCancelledException extends InterruptedIOException {
+  private static final long serialVersionUID = 1L;
+
+  TransferCancelledException() {
+    super("Transfer was cancelled");
+  }
+}
@@ -0,0 +1,24 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+/**
+ * A failed file operation, carrying the error code that is reported back to Dart.
+ */
+final class TransferException extends Exception {
+  private static final long serialVersionUID = 1L;
+
+  private final String code;
+
+  TransferException(String code, String message) {
+    super(message);
+    this.code = code;
+  }
+
+  TransferException(String code, String message, Throwable cause) {
+    super(message, cause);
+    this.code = code;
+  }
+
+  String getCode() {
+    return code;
+  }
+}
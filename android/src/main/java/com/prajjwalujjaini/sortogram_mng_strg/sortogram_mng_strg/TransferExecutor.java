@@ -0,0 +1,215 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * Bounded background executor that runs the plugin's file I/O off the platform thread.
+ *
+ * Results are always delivered back on the main thread, as required by the Flutter engine. That is
+ * the main looper, unless another executor is passed in, e.g. to run the plugin off-device.
+ */
+final class TransferExecutor {
+  private static final String TAG = "SortogramMngStrg";
+
+  static final int DEFAULT_POOL_SIZE = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+  static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  private final ThreadPoolExecutor executor;
+  private final Executor mainThread;
+  private final int poolSize;
+  private final int queueCapacity;
+
+  TransferExecutor(int poolSize, int queueCapacity) {
+    this(poolSize, queueCapacity, new Handler(Looper.getMainLooper())::post);
+  }
+
+  /** @param mainThread runs the replies and everything else meant for the platform thread */
+  TransferExecutor(int poolSize, int queueCapacity, @NonNull Executor mainThread) {
+    if (poolSize < 1) {
+      throw new IllegalArgumentException("Pool size must be at least 1: " + poolSize);
+    }
+    if (queueCapacity < 1) {
+      throw new IllegalArgumentException("Queue capacity must be at least 1: " + queueCapacity);
+    }
+    this.poolSize = poolSize;
+    this.queueCapacity = queueCapacity;
+    this.mainThread = mainThread;
+    this.executor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), new IoThreadFactory());
+    this.executor.allowCoreThreadTimeOut(true);
+    Log.d(TAG, "Transfer executor started with " + poolSize + " threads, queue capacity " + queueCapacity);
+  }
+
+  int getPoolSize() {
+    return poolSize;
+  }
+
+  int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  /**
+   * Runs {@code task} on an I/O thread. The task receives a {@link Result} that posts back to the
+   * main looper. If the queue is full the call fails with {@code BUSY} instead of blocking.
+   */
+  void execute(@NonNull Result result, @NonNull ResultTask task) {
+    final Result mainThreadResult = onMainThread(result);
+    try {
+      executor.execute(() -> {
+        try {
+          task.run(mainThreadResult);
+        } catch (Exception e) {
+          Log.e(TAG, "Unhandled error in background task: " + e.getMessage());
+          mainThreadResult.error("UNKNOWN_ERROR", e.getMessage(), null);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      Log.w(TAG, "Transfer queue is full or shut down, rejecting task");
+      result.error("BUSY", "Too many pending file operations", null);
+    }
+  }
+
+  /**
+   * Runs housekeeping that nobody waits for on an I/O thread. It is skipped, not queued, if the
+   * queue is full, so it never holds up file operations.
+   */
+  void executeInBackground(@NonNull Runnable task) {
+    try {
+      executor.execute(() -> {
+        try {
+          task.run();
+        } catch (Exception e) {
+          Log.e(TAG, "Unhandled error in background task: " + e.getMessage());
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      Log.w(TAG, "Transfer queue is full or shut down, skipping background task");
+    }
+  }
+
+  /**
+   * Runs {@code task} for every index in {@code [0, count)} on up to {@link #getPoolSize()} worker
+   * lanes, then calls {@code onComplete} on the worker that finished last. Each lane pulls the next
+   * index itself, so a large batch takes only a handful of queue slots.
+   *
+   * @throws RejectedExecutionException if no lane could be scheduled
+   */
+  void executeParallel(int count, @NonNull IndexTask task, @NonNull Runnable onComplete) {
+    if (count == 0) {
+      executor.execute(onComplete);
+      return;
+    }
+
+    final AtomicInteger nextIndex = new AtomicInteger();
+    final AtomicInteger remaining = new AtomicInteger(count);
+    Runnable lane = () -> {
+      int index;
+      while ((index = nextIndex.getAndIncrement()) < count) {
+        try {
+          task.run(index);
+        } catch (Exception e) {
+          Log.e(TAG, "Unhandled error in batch item " + index + ": " + e.getMessage());
+        } finally {
+          if (remaining.decrementAndGet() == 0) {
+            onComplete.run();
+          }
+        }
+      }
+    };
+
+    int lanes = Math.min(poolSize, count);
+    int scheduled = 0;
+    for (int i = 0; i < lanes; i++) {
+      try {
+        executor.execute(lane);
+        scheduled++;
+      } catch (RejectedExecutionException e) {
+        // The lanes that were accepted still work through every index
+        break;
+      }
+    }
+    if (scheduled == 0) {
+      throw new RejectedExecutionException("No worker lane available for batch");
+    }
+    Log.d(TAG, "Running batch of " + count + " items on " + scheduled + " lanes");
+  }
+
+  /** Wraps {@code result} so that every reply is posted to the main thread. */
+  Result onMainThread(@NonNull Result result) {
+    return new MainThreadResult(mainThread, result);
+  }
+
+  void postToMain(@NonNull Runnable runnable) {
+    mainThread.execute(runnable);
+  }
+
+  /** The executor replies are posted to, for creating a replacement with the same one. */
+  Executor getMainThread() {
+    return mainThread;
+  }
+
+  /** Stops accepting work; operations already running are allowed to finish. */
+  void shutdown() {
+    Log.d(TAG, "Shutting down transfer executor");
+    executor.shutdown();
+  }
+
+  interface ResultTask {
+    void run(Result result) throws Exception;
+  }
+
+  interface IndexTask {
+    void run(int index) throws Exception;
+  }
+
+  private static final class MainThreadResult implements Result {
+    private final Executor mainThread;
+    private final Result delegate;
+
+    MainThreadResult(Executor mainThread, Result delegate) {
+      this.mainThread = mainThread;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void success(Object value) {
+      mainThread.execute(() -> delegate.success(value));
+    }
+
+    @Override
+    public void error(@NonNull String errorCode, String errorMessage, Object errorDetails) {
+      mainThread.execute(() -> delegate.error(errorCode, errorMessage, errorDetails));
+    }
+
+    @Override
+    public void notImplemented() {
+      mainThread.execute(delegate::notImplemented);
+    }
+  }
+
+  private static final class IoThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(@NonNull Runnable runnable) {
+      Thread thread = new Thread(runnable, "sortogram-io-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One (source, destination) pair of a batch request, together with its outcome.
+ */
+final class TransferItem {
+  final String sourcePath;
+  final String destinationPath;
+
+  private volatile boolean success;
+  private volatile boolean skipped;
+  private volatile String finalDestinationPath;
+  private volatile String errorCode;
+  private volatile String errorMessage;
+
+  TransferItem(String sourcePath, String destinationPath) {
+    this.sourcePath = sourcePath;
+    this.destinationPath = destinationPath;
+  }
+
+  void succeed() {
+    success = true;
+    errorCode = null;
+    errorMessage = null;
+  }
+
+  void succeed(TransferOutcome outcome) {
+    finalDestinationPath = outcome.destinationPath;
+    skipped = outcome.skipped;
+    succeed();
+  }
+
+  void fail(String code, String message) {
+    success = false;
+    skipped = false;
+    finalDestinationPath = null;
+    errorCode = code;
+    errorMessage = message;
+  }
+
+  boolean isSuccess() {
+    return success;
+  }
+
+  boolean isSkipped() {
+    return skipped;
+  }
+
+  String getFinalDestinationPath() {
+    return finalDestinationPath;
+  }
+
+  String getErrorCode() {
+    return errorCode;
+  }
+
+  String getErrorMessage() {
+    return errorMessage;
+  }
+
+  Map<String, Object> toMap() {
+    Map<String, Object> map = new HashMap<>();
+    map.put("sourcePath", sourcePath);
+    map.put("destinationPath", destinationPath);
+    map.put("success", success);
+    map.put("skipped", skipped);
+    // Null for failed files and for files an earlier run of a job completed
+    map.put("finalDestinationPath", finalDestinationPath);
+    map.put("errorCode", errorCode);
+    map.put("errorMessage", errorMessage);
+    return map;
+  }
+
+  /**
+   * Parses the {@code items} argument of a batch call.
+   *
+   * @return the parsed items, or {@code null} if any entry is malformed
+   */
+  static List<TransferItem> fromArguments(List<Map<String, String>> arguments) {
+    if (arguments == null) {
+      return null;
+    }
+    List<TransferItem> items = new ArrayList<>(arguments.size());
+    for (Map<String, String> entry : arguments) {
+      if (entry == null) {
+        return null;
+      }
+      String sourcePath = entry.get("sourcePath");
+      String destPath = entry.get("destinationPath");
+      if (sourcePath == null || destPath == null) {
+        return null;
+      }
+      items.add(new TransferItem(sourcePath, destPath));
+    }
+    return items;
+  }
+
+  static List<Map<String, Object>> toMaps(List<TransferItem> items) {
+    List<Map<String, Object>> maps = new ArrayList<>(items.size());
+    for (TransferItem item : items) {
+      maps.add(item.toMap());
+    }
+    return maps;
+  }
+}
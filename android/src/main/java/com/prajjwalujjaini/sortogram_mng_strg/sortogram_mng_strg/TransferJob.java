@@ -0,0 +1,182 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A long-running, cancellable batch transfer started with {@code startTransfer}.
+ *
+ * Progress is journaled per file (and per byte offset for large files), so a job that was
+ * cancelled or killed can be resumed with {@code resumeTransfer}.
+ */
+final class TransferJob {
+  private static final String TAG = "SortogramMngStrg";
+
+  /** Files at least this large record checkpoints, so they can resume mid-file. */
+  static final long RESUMABLE_FILE_SIZE = 64L * 1024 * 1024;
+  static final long CHECKPOINT_INTERVAL = 16L * 1024 * 1024;
+
+  enum State {
+    RUNNING("running"),
+    COMPLETED("completed"),
+    CANCELLED("cancelled");
+
+    final String wireName;
+
+    State(String wireName) {
+      this.wireName = wireName;
+    }
+  }
+
+  final String jobId;
+  final boolean move;
+  final TransferOptions options;
+  final List<TransferItem> items;
+
+  private final TransferJournal journal;
+  private final TransferJournal.State previousRun;
+  private final AtomicInteger filesCompleted = new AtomicInteger();
+  private volatile boolean cancelRequested;
+  private volatile State state = State.RUNNING;
+
+  /**
+   * @param previousRun what an earlier, interrupted run of this job recorded, or {@code null}
+   */
+  TransferJob(String jobId, boolean move, TransferOptions options, List<TransferItem> items,
+      TransferJournal journal, TransferJournal.State previousRun) {
+    this.jobId = jobId;
+    this.move = move;
+    this.options = options;
+    this.items = items;
+    this.journal = journal;
+    this.previousRun = previousRun;
+
+    if (previousRun != null) {
+      for (Map.Entry<Integer, String> done : previousRun.completed.entrySet()) {
+        TransferItem item = items.get(done.getKey());
+        if (done.getValue() == null) {
+          item.succeed();
+        } else {
+          item.fail(done.getValue(), "Failed in an earlier run");
+        }
+        filesCompleted.incrementAndGet();
+      }
+    }
+  }
+
+  State getState() {
+    return state;
+  }
+
+  boolean isCancelRequested() {
+    return cancelRequested;
+  }
+
+  /** Asks the job to stop; running copies abort at their next chunk. */
+  void cancel() {
+    cancelRequested = true;
+  }
+
+  /** Whether an earlier run already finished item {@code index}. */
+  boolean isCompletedEarlier(int index) {
+    return previousRun != null && previousRun.completed.containsKey(index);
+  }
+
+  /** Journals the outcome of item {@code index}. */
+  void itemCompleted(int index) {
+    filesCompleted.incrementAndGet();
+    TransferItem item = items.get(index);
+    try {
+      journal.done(index, item.isSuccess() ? null : item.getErrorCode());
+    } catch (IOException e) {
+      Log.w(TAG, "Could not journal item " + index + " of job " + jobId + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Marks the job finished. A completed job's journal is removed; a cancelled job keeps it so the
+   * job can be resumed later.
+   */
+  void finish() {
+    if (cancelRequested && filesCompleted.get() < items.size()) {
+      state = State.CANCELLED;
+      journal.close();
+    } else {
+      state = State.COMPLETED;
+      journal.delete();
+    }
+    Log.d(TAG, "Job " + jobId + " " + state.wireName + " with " + filesCompleted.get() + "/" + items.size()
+        + " files");
+  }
+
+  /** The hooks that let item {@code index} pick up where an earlier run stopped. */
+  ResumeHandle resumeHandle(int index) {
+    final long previousOffset = previousRun != null ? previousRun.resumeOffset(index) : -1;
+    final String previousDestination = previousRun != null ? previousRun.startedDestination(index) : null;
+    return new ResumeHandle() {
+      @Override
+      public long resumeOffset() {
+        return previousOffset;
+      }
+
+      @Override
+      public String startedDestination() {
+        return previousDestination;
+      }
+
+      @Override
+      public void onStarted(String destinationPath) throws IOException {
+        if (destinationPath.equals(items.get(index).destinationPath)) {
+          journal.started(index);
+        } else {
+          journal.started(index, destinationPath);
+        }
+      }
+
+      @Override
+      public void onCheckpoint(long offset) throws IOException {
+        journal.checkpoint(index, offset);
+      }
+    };
+  }
+
+  /**
+   * Wraps the progress listener of item {@code index} so the copy loop stops when the job is
+   * cancelled and large files are checkpointed as they are written.
+   */
+  CopyEngine.CopyListener listenerFor(int index, ResumeHandle resume, CopyEngine.CopyListener progress) {
+    return new CopyEngine.CopyListener() {
+      private long nextCheckpoint = CHECKPOINT_INTERVAL;
+
+      @Override
+      public void onProgress(long bytesCopied, long totalBytes) throws IOException {
+        if (cancelRequested) {
+          throw new TransferCancelledException();
+        }
+        if (totalBytes >= RESUMABLE_FILE_SIZE && bytesCopied >= nextCheckpoint) {
+          resume.onCheckpoint(bytesCopied);
+          nextCheckpoint = bytesCopied + CHECKPOINT_INTERVAL;
+        }
+        if (progress != null) {
+          progress.onProgress(bytesCopied, totalBytes);
+        }
+      }
+    };
+  }
+
+  Map<String, Object> toStatusMap() {
+    Map<String, Object> status = new HashMap<>();
+    status.put("jobId", jobId);
+    status.put("state", state.wireName);
+    status.put("move", move);
+    status.put("fileCount", items.size());
+    status.put("filesCompleted", filesCompleted.get());
+    status.put("results", TransferItem.toMaps(items));
+    return status;
+  }
+}
@@ -0,0 +1,227 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Append-only record of a transfer job, so that an interrupted job can resume from the last
+ * completed file (and, for large files, from the last checkpointed byte offset).
+ *
+ * Every record is written with a single {@code write} call, so a process kill can at most leave a
+ * truncated last record, which {@link #load} ignores. Thread-safe.
+ */
+final class TransferJournal {
+  private static final int VERSION = 1;
+
+  private static final byte RECORD_STARTED = 'S';
+  private static final byte RECORD_CHECKPOINT = 'C';
+  private static final byte RECORD_DONE = 'D';
+  private static final byte RECORD_DESTINATION = 'P';
+
+  private final File file;
+  private final FileOutputStream out;
+
+  private TransferJournal(File file, FileOutputStream out) {
+    this.file = file;
+    this.out = out;
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  /** Creates a new journal holding the job description. */
+  static TransferJournal create(File file, String jobId, boolean move, Map<String, String> options,
+      List<TransferItem> items) throws IOException {
+    RecordBuffer header = new RecordBuffer();
+    header.data.writeInt(VERSION);
+    header.data.writeUTF(jobId);
+    header.data.writeBoolean(move);
+    header.data.writeInt(options.size());
+    for (Map.Entry<String, String> option : options.entrySet()) {
+      header.data.writeUTF(option.getKey());
+      header.data.writeUTF(option.getValue());
+    }
+    header.data.writeInt(items.size());
+    for (TransferItem item : items) {
+      header.data.writeUTF(item.sourcePath);
+      header.data.writeUTF(item.destinationPath);
+    }
+
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(header.toByteArray());
+      out.getFD().sync();
+    } catch (IOException e) {
+      out.close();
+      throw e;
+    }
+    return new TransferJournal(file, out);
+  }
+
+  /** Reopens an existing journal for appending after {@link #load}. */
+  static TransferJournal reopen(File file) throws IOException {
+    return new TransferJournal(file, new FileOutputStream(file, true));
+  }
+
+  void started(int index) throws IOException {
+    RecordBuffer record = new RecordBuffer();
+    record.data.writeByte(RECORD_STARTED);
+    record.data.writeInt(index);
+    append(record);
+  }
+
+  /**
+   * Records that item {@code index} started writing to {@code destinationPath} instead of the
+   * destination it was given, e.g. because a conflict policy picked a free name.
+   */
+  void started(int index, String destinationPath) throws IOException {
+    RecordBuffer record = new RecordBuffer();
+    record.data.writeByte(RECORD_DESTINATION);
+    record.data.writeInt(index);
+    record.data.writeUTF(destinationPath);
+    // Same write as the start record, so a resume never sees the start without its destination
+    record.data.writeByte(RECORD_STARTED);
+    record.data.writeInt(index);
+    append(record);
+  }
+
+  void checkpoint(int index, long offset) throws IOException {
+    RecordBuffer record = new RecordBuffer();
+    record.data.writeByte(RECORD_CHECKPOINT);
+    record.data.writeInt(index);
+    record.data.writeLong(offset);
+    append(record);
+  }
+
+  void done(int index, String errorCode) throws IOException {
+    RecordBuffer record = new RecordBuffer();
+    record.data.writeByte(RECORD_DONE);
+    record.data.writeInt(index);
+    record.data.writeUTF(errorCode != null ? errorCode : "");
+    append(record);
+  }
+
+  private synchronized void append(RecordBuffer record) throws IOException {
+    out.write(record.toByteArray());
+  }
+
+  void close() {
+    try {
+      out.close();
+    } catch (IOException e) {
+      // Nothing left to flush, the records were written unbuffered
+    }
+  }
+
+  /** Closes and removes the journal once its job no longer needs to be resumed. */
+  void delete() {
+    close();
+    file.delete();
+  }
+
+  /** Reads back everything a journal recorded. */
+  static State load(File file) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported journal version " + version);
+      }
+      String jobId = in.readUTF();
+      boolean move = in.readBoolean();
+      int optionCount = in.readInt();
+      Map<String, String> options = new HashMap<>();
+      for (int i = 0; i < optionCount; i++) {
+        options.put(in.readUTF(), in.readUTF());
+      }
+      int itemCount = in.readInt();
+      List<TransferItem> items = new ArrayList<>(itemCount);
+      for (int i = 0; i < itemCount; i++) {
+        items.add(new TransferItem(in.readUTF(), in.readUTF()));
+      }
+
+      State state = new State(jobId, move, options, items);
+      try {
+        while (true) {
+          byte type = in.readByte();
+          int index = in.readInt();
+          if (type == RECORD_STARTED) {
+            state.started.add(index);
+          } else if (type == RECORD_CHECKPOINT) {
+            state.checkpoints.put(index, in.readLong());
+          } else if (type == RECORD_DESTINATION) {
+            state.destinations.put(index, in.readUTF());
+          } else if (type == RECORD_DONE) {
+            String code = in.readUTF();
+            state.completed.put(index, code.isEmpty() ? null : code);
+          } else {
+            break;
+          }
+        }
+      } catch (EOFException e) {
+        // End of journal, possibly with a record cut short by a crash
+      }
+      return state;
+    }
+  }
+
+  /** The contents of a journal. */
+  static final class State {
+    final String jobId;
+    final boolean move;
+    final Map<String, String> options;
+    final List<TransferItem> items;
+    final Set<Integer> started = new HashSet<>();
+    final Map<Integer, Long> checkpoints = new HashMap<>();
+    /** Items that were written somewhere other than their requested destination. */
+    final Map<Integer, String> destinations = new HashMap<>();
+    /** Completed item indexes mapped to their error code, {@code null} for success. */
+    final Map<Integer, String> completed = new HashMap<>();
+
+    State(String jobId, boolean move, Map<String, String> options, List<TransferItem> items) {
+      this.jobId = jobId;
+      this.move = move;
+      this.options = options;
+      this.items = items;
+    }
+
+    long resumeOffset(int index) {
+      if (!started.contains(index)) {
+        return -1;
+      }
+      Long offset = checkpoints.get(index);
+      return offset != null ? offset : 0;
+    }
+
+    /** The destination item {@code index} started writing to, or {@code null} if it never started. */
+    String startedDestination(int index) {
+      if (!started.contains(index)) {
+        return null;
+      }
+      String destination = destinations.get(index);
+      return destination != null ? destination : items.get(index).destinationPath;
+    }
+  }
+
+  private static final class RecordBuffer {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    final DataOutputStream data = new DataOutputStream(bytes);
+
+    byte[] toByteArray() {
+      return bytes.toByteArray();
+    }
+  }
+}
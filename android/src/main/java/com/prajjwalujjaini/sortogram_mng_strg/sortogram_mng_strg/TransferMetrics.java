@@ -0,0 +1,257 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and latency histograms of where transfers spend their time, kept for the lifetime of
+ * the plugin and read from Dart with {@code getMetrics}.
+ *
+ * Recording is a handful of atomic increments and never allocates, so it stays on in production.
+ * Latencies are measured with {@link System#nanoTime} and kept in log-linear buckets like an HDR
+ * histogram: every power of two is split into {@link Histogram#SUB_BUCKETS} buckets, so any
+ * reported percentile is within 1/16 of the real value. Thread-safe; a {@link #reset} that races
+ * with recording may keep or lose the values recorded meanwhile.
+ */
+final class TransferMetrics {
+  /** The timed steps of a transfer. */
+  enum Phase {
+    /** Checking whether the needed storage permission is granted, without any dialog. */
+    PERMISSION_CHECK("permissionCheck"),
+    /** One whole move or copy, from its checks to its queued MediaStore update. */
+    TRANSFER("transfer"),
+    /** Moving a file with a rename on the same volume instead of copying it. */
+    RENAME("rename"),
+    /** Copying the data with the configured engine. */
+    COPY("copy"),
+    /** Flushing the copied data of one file to the storage. */
+    FSYNC("fsync"),
+    /** Flushing a whole batch of files and their folders, see {@link Durability#PER_BATCH}. */
+    BATCH_SYNC("batchSync"),
+    VERIFY("verify"),
+    /** Renaming the finished temporary file into place. */
+    COMMIT("commit"),
+    /** One batch of MediaStore inserts, deletes and updates sent to the media provider. */
+    MEDIA_STORE_BATCH("mediaStoreBatch"),
+    /** From asking for a media scan to the scan of one file being done. */
+    SCAN("scan"),
+    /** Reading the EXIF headers of one image for the rules of a sort. */
+    METADATA("metadata");
+
+    final String wireName;
+
+    Phase(String wireName) {
+      this.wireName = wireName;
+    }
+  }
+
+  private final Histogram[] histograms = new Histogram[Phase.values().length];
+  private final AtomicLong bytesCopied = new AtomicLong();
+  private final AtomicLong filesMoved = new AtomicLong();
+  private final AtomicLong filesCopied = new AtomicLong();
+  private final AtomicLong filesSkipped = new AtomicLong();
+  private final AtomicLong mediaStoreInserts = new AtomicLong();
+  private final AtomicLong mediaStoreDeletes = new AtomicLong();
+  private final AtomicLong mediaStoreUpdates = new AtomicLong();
+  private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+  private volatile long since = System.currentTimeMillis();
+
+  TransferMetrics() {
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new Histogram();
+    }
+  }
+
+  /** Records that {@code phase} took {@code nanos} nanoseconds. */
+  void record(Phase phase, long nanos) {
+    histograms[phase.ordinal()].record(nanos);
+  }
+
+  /** Records that the copy engine wrote {@code bytes} bytes in {@code nanos} nanoseconds. */
+  void recordCopy(long bytes, long nanos) {
+    bytesCopied.addAndGet(bytes);
+    record(Phase.COPY, nanos);
+  }
+
+  /** Records a finished move or copy that took {@code nanos} nanoseconds. */
+  void recordTransfer(boolean move, TransferOutcome outcome, long nanos) {
+    if (outcome.skipped) {
+      filesSkipped.incrementAndGet();
+    } else if (move) {
+      filesMoved.incrementAndGet();
+    } else {
+      filesCopied.incrementAndGet();
+    }
+    record(Phase.TRANSFER, nanos);
+  }
+
+  /** Counts a failure by its error code, e.g. {@code DEST_EXISTS}. */
+  void recordError(String code) {
+    AtomicLong count = errors.get(code);
+    if (count == null) {
+      // Only the first error of a code allocates
+      AtomicLong created = new AtomicLong();
+      count = errors.putIfAbsent(code, created);
+      if (count == null) {
+        count = created;
+      }
+    }
+    count.incrementAndGet();
+  }
+
+  /** Counts the MediaStore operations of one batch by kind. */
+  void recordMediaStoreOperations(int inserts, int deletes, int updates) {
+    mediaStoreInserts.addAndGet(inserts);
+    mediaStoreDeletes.addAndGet(deletes);
+    mediaStoreUpdates.addAndGet(updates);
+  }
+
+  void reset() {
+    for (Histogram histogram : histograms) {
+      histogram.reset();
+    }
+    bytesCopied.set(0);
+    filesMoved.set(0);
+    filesCopied.set(0);
+    filesSkipped.set(0);
+    mediaStoreInserts.set(0);
+    mediaStoreDeletes.set(0);
+    mediaStoreUpdates.set(0);
+    errors.clear();
+    since = System.currentTimeMillis();
+  }
+
+  Map<String, Object> toMap() {
+    Map<String, Object> phases = new HashMap<>();
+    for (Phase phase : Phase.values()) {
+      phases.put(phase.wireName, histograms[phase.ordinal()].toMap());
+    }
+    Map<String, Object> errorCounts = new HashMap<>();
+    for (Map.Entry<String, AtomicLong> error : errors.entrySet()) {
+      errorCounts.put(error.getKey(), error.getValue().get());
+    }
+
+    long bytes = bytesCopied.get();
+    long copyNanos = histograms[Phase.COPY.ordinal()].totalNanos();
+    Map<String, Object> map = new HashMap<>();
+    map.put("since", since);
+    map.put("phases", phases);
+    map.put("bytesCopied", bytes);
+    // Per copying thread; parallel lanes add up to more
+    map.put("copyBytesPerSecond", copyNanos > 0 ? (long) (bytes * 1e9 / copyNanos) : 0L);
+    map.put("filesMoved", filesMoved.get());
+    map.put("filesCopied", filesCopied.get());
+    map.put("filesSkipped", filesSkipped.get());
+    map.put("mediaStoreInserts", mediaStoreInserts.get());
+    map.put("mediaStoreDeletes", mediaStoreDeletes.get());
+    map.put("mediaStoreUpdates", mediaStoreUpdates.get());
+    map.put("errors", errorCounts);
+    return map;
+  }
+
+  /** A latency histogram with log-linear buckets over the whole range of {@code long}. */
+  static final class Histogram {
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Values below {@link #SUB_BUCKETS} get a bucket each, then every power of two gets SUB_BUCKETS. */
+    private static final int BUCKET_COUNT = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long nanos) {
+      long value = Math.max(0, nanos);
+      counts.incrementAndGet(bucketOf(value));
+      count.incrementAndGet();
+      total.addAndGet(value);
+      long previous;
+      while (value > (previous = max.get()) && !max.compareAndSet(previous, value)) {
+        // Another thread raised the maximum meanwhile; compare again
+      }
+    }
+
+    long count() {
+      return count.get();
+    }
+
+    long totalNanos() {
+      return total.get();
+    }
+
+    /**
+     * The value below which {@code quantile} of the recorded values fall, e.g. 0.99, reported as
+     * the top of its bucket like HDR histograms do. 0 if nothing was recorded.
+     */
+    long valueAt(double quantile) {
+      long recorded = count.get();
+      if (recorded == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(quantile * recorded));
+      long seen = 0;
+      for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+        seen += counts.get(bucket);
+        if (seen >= rank) {
+          return Math.min(highestValueIn(bucket), max.get());
+        }
+      }
+      return max.get();
+    }
+
+    void reset() {
+      for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+        counts.set(bucket, 0);
+      }
+      count.set(0);
+      total.set(0);
+      max.set(0);
+    }
+
+    static int bucketOf(long value) {
+      if (value < SUB_BUCKETS) {
+        return (int) value;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int shift = exponent - SUB_BUCKET_BITS;
+      // The top bit is implied by the exponent; the next SUB_BUCKET_BITS pick the bucket
+      int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+      return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowestValueIn(int bucket) {
+      if (bucket < SUB_BUCKETS) {
+        return bucket;
+      }
+      int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+      long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+      return (SUB_BUCKETS + subBucket) << shift;
+    }
+
+    static long highestValueIn(int bucket) {
+      if (bucket < SUB_BUCKETS) {
+        return bucket;
+      }
+      int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+      return lowestValueIn(bucket) + (1L << shift) - 1;
+    }
+
+    /** Count and latencies in microseconds, which is the precision worth sending to Dart. */
+    Map<String, Object> toMap() {
+      long recorded = count.get();
+      Map<String, Object> map = new HashMap<>();
+      map.put("count", recorded);
+      map.put("totalUs", total.get() / 1000);
+      map.put("meanUs", recorded > 0 ? total.get() / recorded / 1000 : 0L);
+      map.put("p50Us", valueAt(0.5) / 1000);
+      map.put("p90Us", valueAt(0.9) / 1000);
+      map.put("p99Us", valueAt(0.99) / 1000);
+      map.put("maxUs", max.get() / 1000);
+      return map;
+    }
+  }
+}
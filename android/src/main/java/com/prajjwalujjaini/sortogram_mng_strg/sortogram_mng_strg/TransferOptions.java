@@ -0,0 +1,92 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-call settings for moves and copies. The plugin keeps a default instance that
+ * {@code configure} updates; individual calls may override any of the values.
+ */
+final class TransferOptions {
+  static final TransferOptions DEFAULT = new TransferOptions(CopyEngines.DEFAULT, Verification.STREAMING_HASH,
+      MediaStoreMoveMode.UPDATE, ConflictPolicy.FAIL, Durability.PER_FILE);
+
+  final CopyEngine copyEngine;
+  final Verification verification;
+  final MediaStoreMoveMode mediaStoreMoveMode;
+  final ConflictPolicy conflictPolicy;
+  /** Moves use {@link Durability#forMoves()} of this. */
+  final Durability durability;
+
+  TransferOptions(CopyEngine copyEngine, Verification verification, MediaStoreMoveMode mediaStoreMoveMode,
+      ConflictPolicy conflictPolicy, Durability durability) {
+    this.copyEngine = copyEngine;
+    this.verification = verification;
+    this.mediaStoreMoveMode = mediaStoreMoveMode;
+    this.conflictPolicy = conflictPolicy;
+    this.durability = durability;
+  }
+
+  /**
+   * Returns these options with every setting present in {@code arguments} applied on top.
+   *
+   * @throws TransferException with {@code INVALID_ARGUMENTS} if a value is not recognised
+   */
+  TransferOptions merge(Map<?, ?> arguments) throws TransferException {
+    if (arguments == null) {
+      return this;
+    }
+    CopyEngine engine = copyEngine;
+    Object engineName = arguments.get("copyEngine");
+    if (engineName != null) {
+      engine = CopyEngines.forName(engineName.toString());
+      if (engine == null) {
+        throw new TransferException("INVALID_ARGUMENTS", "Unknown copy engine: " + engineName);
+      }
+    }
+    Verification verify = verification;
+    Object verificationName = arguments.get("verification");
+    if (verificationName != null) {
+      verify = Verification.forName(verificationName.toString());
+      if (verify == null) {
+        throw new TransferException("INVALID_ARGUMENTS", "Unknown verification level: " + verificationName);
+      }
+    }
+    MediaStoreMoveMode moveMode = mediaStoreMoveMode;
+    Object moveModeName = arguments.get("mediaStoreMoveMode");
+    if (moveModeName != null) {
+      moveMode = MediaStoreMoveMode.forName(moveModeName.toString());
+      if (moveMode == null) {
+        throw new TransferException("INVALID_ARGUMENTS", "Unknown MediaStore move mode: " + moveModeName);
+      }
+    }
+    ConflictPolicy conflicts = conflictPolicy;
+    Object conflictPolicyName = arguments.get("conflictPolicy");
+    if (conflictPolicyName != null) {
+      conflicts = ConflictPolicy.forName(conflictPolicyName.toString());
+      if (conflicts == null) {
+        throw new TransferException("INVALID_ARGUMENTS", "Unknown conflict policy: " + conflictPolicyName);
+      }
+    }
+    Durability sync = durability;
+    Object durabilityName = arguments.get("durability");
+    if (durabilityName != null) {
+      sync = Durability.forName(durabilityName.toString());
+      if (sync == null) {
+        throw new TransferException("INVALID_ARGUMENTS", "Unknown durability: " + durabilityName);
+      }
+    }
+    return new TransferOptions(engine, verify, moveMode, conflicts, sync);
+  }
+
+  /** Returns these options in the form {@link #merge} accepts, e.g. to store them in a job journal. */
+  Map<String, String> toArguments() {
+    Map<String, String> arguments = new HashMap<>();
+    arguments.put("copyEngine", copyEngine.name());
+    arguments.put("verification", verification.wireName);
+    arguments.put("mediaStoreMoveMode", mediaStoreMoveMode.wireName);
+    arguments.put("conflictPolicy", conflictPolicy.wireName);
+    arguments.put("durability", durability.wireName);
+    return arguments;
+  }
+}
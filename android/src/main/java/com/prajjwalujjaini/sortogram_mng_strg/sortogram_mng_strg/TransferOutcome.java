@@ -0,0 +1,50 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+
+/**
+ * The result of one successful move or copy.
+ */
+final class TransferOutcome {
+  /** Where the file ended up; differs from the requested destination if it was renamed. */
+  final String destinationPath;
+  /** The size of the file, also when nothing had to be written. */
+  final long bytes;
+  /** The destination already held the same content, so it was left untouched. */
+  final boolean skipped;
+  /**
+   * Set if the file was written without a sync of its own and has to go through a {@link SyncBatch}
+   * before it is put in place; the source of a move still exists until then.
+   */
+  final Pending pending;
+
+  TransferOutcome(String destinationPath, long bytes, boolean skipped) {
+    this(destinationPath, bytes, skipped, null);
+  }
+
+  TransferOutcome(String destinationPath, long bytes, boolean skipped, Pending pending) {
+    this.destinationPath = destinationPath;
+    this.bytes = bytes;
+    this.skipped = skipped;
+    this.pending = pending;
+  }
+
+  boolean needsSync() {
+    return pending != null;
+  }
+
+  /** A verified copy in its temporary file, waiting to be synced and renamed over the destination. */
+  static final class Pending {
+    final File temporaryFile;
+    /** Whether an existing destination is replaced. */
+    final boolean replace;
+    /** The hash of the copied content, or {@code null} if the verification level needs none. */
+    final XxHash64 hash;
+
+    Pending(File temporaryFile, boolean replace, XxHash64 hash) {
+      this.temporaryFile = temporaryFile;
+      this.replace = replace;
+      this.hash = hash;
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Streams throttled transfer progress to Dart over an {@link EventChannel}.
+ *
+ * Copy loops report through a {@link Tracker}, which only does a couple of atomic updates per
+ * chunk; an event map is built at most once per interval, and only while Dart is listening.
+ */
+final class TransferProgressReporter implements EventChannel.StreamHandler {
+  static final long DEFAULT_INTERVAL_MS = 100;
+
+  /** Where events are sent from, since an event sink may only be used on the main thread. */
+  private final Executor mainThread;
+  private volatile EventChannel.EventSink sink;
+  private volatile long intervalNanos = DEFAULT_INTERVAL_MS * 1_000_000L;
+
+  TransferProgressReporter(@NonNull Executor mainThread) {
+    this.mainThread = mainThread;
+  }
+
+  @Override
+  public void onListen(Object arguments, EventChannel.EventSink events) {
+    sink = events;
+  }
+
+  @Override
+  public void onCancel(Object arguments) {
+    sink = null;
+  }
+
+  boolean hasListener() {
+    return sink != null;
+  }
+
+  long getIntervalMs() {
+    return intervalNanos / 1_000_000L;
+  }
+
+  void setIntervalMs(long intervalMs) {
+    if (intervalMs < 0) {
+      throw new IllegalArgumentException("Progress interval must not be negative: " + intervalMs);
+    }
+    intervalNanos = intervalMs * 1_000_000L;
+  }
+
+  /**
+   * Starts tracking one call.
+   *
+   * @param operationId the id Dart uses to match events to its call; may be {@code null}
+   * @param totalBytes the size of all files together, or -1 if unknown
+   */
+  Tracker start(String operationId, int fileCount, long totalBytes) {
+    return new Tracker(operationId, fileCount, totalBytes);
+  }
+
+  private void emit(Map<String, Object> event) {
+    mainThread.execute(() -> {
+      EventChannel.EventSink current = sink;
+      if (current != null) {
+        current.success(event);
+      }
+    });
+  }
+
+  /** Progress state of one single-file or batch call. Thread-safe. */
+  final class Tracker {
+    private final String operationId;
+    private final int fileCount;
+    private final long totalBytes;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong bytesDone = new AtomicLong();
+    private final AtomicInteger filesCompleted = new AtomicInteger();
+    private final AtomicLong lastEmitNanos = new AtomicLong(startNanos);
+
+    private Tracker(String operationId, int fileCount, long totalBytes) {
+      this.operationId = operationId;
+      this.fileCount = fileCount;
+      this.totalBytes = totalBytes;
+    }
+
+    /** Returns a listener for the copy loop of one file of this call. */
+    CopyEngine.CopyListener forFile(@NonNull String path) {
+      return new CopyEngine.CopyListener() {
+        private long reported;
+
+        @Override
+        public void onProgress(long bytesCopied, long fileTotal) {
+          long done = bytesDone.addAndGet(bytesCopied - reported);
+          reported = bytesCopied;
+          maybeEmit(path, bytesCopied, fileTotal, done);
+        }
+      };
+    }
+
+    /** Records that a file finished, whether it was copied, renamed or failed. */
+    void fileCompleted(@NonNull String path, long fileBytes) {
+      filesCompleted.incrementAndGet();
+      maybeEmit(path, fileBytes, fileBytes, bytesDone.get());
+    }
+
+    /** Sends the final event of this call, regardless of the throttle. */
+    void finish() {
+      if (hasListener()) {
+        emit(buildEvent(null, 0, 0, bytesDone.get(), true));
+      }
+    }
+
+    private void maybeEmit(String path, long fileBytes, long fileTotal, long done) {
+      if (!hasListener()) {
+        return;
+      }
+      long now = System.nanoTime();
+      long last = lastEmitNanos.get();
+      if (now - last < intervalNanos || !lastEmitNanos.compareAndSet(last, now)) {
+        return;
+      }
+      emit(buildEvent(path, fileBytes, fileTotal, done, false));
+    }
+
+    private Map<String, Object> buildEvent(String path, long fileBytes, long fileTotal, long done,
+        boolean finished) {
+      double seconds = (System.nanoTime() - startNanos) / 1e9;
+      Map<String, Object> event = new HashMap<>();
+      event.put("operationId", operationId);
+      event.put("path", path);
+      event.put("fileBytes", fileBytes);
+      event.put("fileTotalBytes", fileTotal);
+      event.put("bytesDone", done);
+      event.put("totalBytes", totalBytes);
+      event.put("filesCompleted", filesCompleted.get());
+      event.put("fileCount", fileCount);
+      event.put("megabytesPerSecond", seconds > 0 ? done / seconds / (1024 * 1024) : 0.0);
+      event.put("done", finished);
+      return event;
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+/**
+ * How thoroughly a copied file is checked before it is trusted (and, for moves, before the source
+ * is deleted).
+ */
+enum Verification {
+  /** No check beyond the copy itself. */
+  NONE("none"),
+  /** Source and destination must have the same length. */
+  SIZE("size"),
+  /** The bytes are hashed while they are copied; only the destination is read back. */
+  STREAMING_HASH("streamingHash"),
+  /** Both files are read back and hashed after the copy. */
+  FULL("full");
+
+  final String wireName;
+
+  Verification(String wireName) {
+    this.wireName = wireName;
+  }
+
+  /**
+   * @return the level called {@code name} on the Dart side, or {@code null} if there is none
+   */
+  static Verification forName(String name) {
+    for (Verification verification : values()) {
+      if (verification.wireName.equals(name)) {
+        return verification;
+      }
+    }
+    return null;
+  }
+}
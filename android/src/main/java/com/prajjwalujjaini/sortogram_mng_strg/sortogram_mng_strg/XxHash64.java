@@ -0,0 +1,166 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming xxHash64 (seed 0), a fast non-cryptographic hash used to verify copied files.
+ *
+ * Not thread-safe; use one instance per file.
+ */
+final class XxHash64 {
+  private static final long PRIME1 = 0x9E3779B185EBCA87L;
+  private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+  private static final long PRIME3 = 0x165667B19E3779F9L;
+  private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+  private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+  private static final int STRIPE = 32;
+
+  private long v1;
+  private long v2;
+  private long v3;
+  private long v4;
+  private long totalLength;
+  private final byte[] pending = new byte[STRIPE];
+  private int pendingLength;
+
+  /** Staging for {@link #update(ByteBuffer)} of direct buffers, shared by all hashes of a thread. */
+  private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[8192];
+    }
+  };
+
+  XxHash64() {
+    reset();
+  }
+
+  void reset() {
+    v1 = PRIME1 + PRIME2;
+    v2 = PRIME2;
+    v3 = 0;
+    v4 = -PRIME1;
+    totalLength = 0;
+    pendingLength = 0;
+  }
+
+  void update(byte[] data, int offset, int length) {
+    totalLength += length;
+    int end = offset + length;
+
+    if (pendingLength > 0) {
+      int fill = Math.min(STRIPE - pendingLength, length);
+      System.arraycopy(data, offset, pending, pendingLength, fill);
+      pendingLength += fill;
+      offset += fill;
+      if (pendingLength < STRIPE) {
+        return;
+      }
+      processStripe(pending, 0);
+      pendingLength = 0;
+    }
+
+    while (offset + STRIPE <= end) {
+      processStripe(data, offset);
+      offset += STRIPE;
+    }
+
+    if (offset < end) {
+      pendingLength = end - offset;
+      System.arraycopy(data, offset, pending, 0, pendingLength);
+    }
+  }
+
+  /** Hashes the remaining bytes of {@code buffer}, leaving its position unchanged. */
+  void update(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      return;
+    }
+    byte[] scratch = SCRATCH.get();
+    int start = buffer.position();
+    while (buffer.hasRemaining()) {
+      int chunk = Math.min(scratch.length, buffer.remaining());
+      buffer.get(scratch, 0, chunk);
+      update(scratch, 0, chunk);
+    }
+    // Rewinding instead of reading a duplicate() spares an allocation per chunk
+    buffer.position(start);
+  }
+
+  long digest() {
+    long hash;
+    if (totalLength >= STRIPE) {
+      hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+          + Long.rotateLeft(v4, 18);
+      hash = mergeRound(hash, v1);
+      hash = mergeRound(hash, v2);
+      hash = mergeRound(hash, v3);
+      hash = mergeRound(hash, v4);
+    } else {
+      hash = PRIME5;
+    }
+    hash += totalLength;
+
+    int offset = 0;
+    while (offset + 8 <= pendingLength) {
+      hash ^= round(0, readLong(pending, offset));
+      hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+      offset += 8;
+    }
+    if (offset + 4 <= pendingLength) {
+      hash ^= (readInt(pending, offset) & 0xFFFFFFFFL) * PRIME1;
+      hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+      offset += 4;
+    }
+    while (offset < pendingLength) {
+      hash ^= (pending[offset] & 0xFF) * PRIME5;
+      hash = Long.rotateLeft(hash, 11) * PRIME1;
+      offset++;
+    }
+
+    hash ^= hash >>> 33;
+    hash *= PRIME2;
+    hash ^= hash >>> 29;
+    hash *= PRIME3;
+    hash ^= hash >>> 32;
+    return hash;
+  }
+
+  private void processStripe(byte[] data, int offset) {
+    v1 = round(v1, readLong(data, offset));
+    v2 = round(v2, readLong(data, offset + 8));
+    v3 = round(v3, readLong(data, offset + 16));
+    v4 = round(v4, readLong(data, offset + 24));
+  }
+
+  private static long round(long acc, long input) {
+    acc += input * PRIME2;
+    acc = Long.rotateLeft(acc, 31);
+    return acc * PRIME1;
+  }
+
+  private static long mergeRound(long acc, long value) {
+    acc ^= round(0, value);
+    return acc * PRIME1 + PRIME4;
+  }
+
+  private static long readLong(byte[] data, int offset) {
+    return (data[offset] & 0xFFL)
+        | (data[offset + 1] & 0xFFL) << 8
+        | (data[offset + 2] & 0xFFL) << 16
+        | (data[offset + 3] & 0xFFL) << 24
+        | (data[offset + 4] & 0xFFL) << 32
+        | (data[offset + 5] & 0xFFL) << 40
+        | (data[offset + 6] & 0xFFL) << 48
+        | (data[offset + 7] & 0xFFL) << 56;
+  }
+
+  private static int readInt(byte[] data, int offset) {
+    return (data[offset] & 0xFF)
+        | (data[offset + 1] & 0xFF) << 8
+        | (data[offset + 2] & 0xFF) << 16
+        | (data[offset + 3] & 0xFF) << 24;
+  }
+}
@@ -0,0 +1,61 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+public class BufferPoolTest {
+  @Test
+  public void acquireHeap_reusesReleasedBuffer() {
+    byte[] first = BufferPool.acquireHeap(64 * 1024);
+    BufferPool.releaseHeap(first);
+    assertSame(first, BufferPool.acquireHeap(64 * 1024));
+  }
+
+  @Test
+  public void acquireHeap_roundsUpToSizeClass() {
+    byte[] buffer = BufferPool.acquireHeap(10 * 1024);
+    assertEquals(16 * 1024, buffer.length);
+    BufferPool.releaseHeap(buffer);
+  }
+
+  @Test
+  public void acquireDirect_limitsToRequestedSize() {
+    ByteBuffer buffer = BufferPool.acquireDirect(100 * 1024);
+    assertTrue(buffer.isDirect());
+    assertEquals(0, buffer.position());
+    assertEquals(100 * 1024, buffer.limit());
+    assertEquals(128 * 1024, buffer.capacity());
+    buffer.position(42);
+    BufferPool.releaseDirect(buffer);
+
+    ByteBuffer again = BufferPool.acquireDirect(20 * 1024);
+    ByteBuffer reused = BufferPool.acquireDirect(128 * 1024);
+    assertEquals(0, reused.position());
+    assertEquals(128 * 1024, reused.limit());
+    assertSame(buffer, reused);
+    BufferPool.releaseDirect(again);
+    BufferPool.releaseDirect(reused);
+  }
+
+  @Test
+  public void oversizedBuffersAreNotPooled() {
+    byte[] buffer = BufferPool.acquireHeap(BufferPool.MAX_SIZE + 1);
+    assertEquals(BufferPool.MAX_SIZE + 1, buffer.length);
+    BufferPool.releaseHeap(buffer);
+    assertNotSame(buffer, BufferPool.acquireHeap(BufferPool.MAX_SIZE + 1));
+  }
+
+  @Test
+  public void sizeClassOf_coversMinToMax() {
+    assertEquals(0, BufferPool.sizeClassOf(1));
+    assertEquals(0, BufferPool.sizeClassOf(BufferPool.MIN_SIZE));
+    assertEquals(1, BufferPool.sizeClassOf(BufferPool.MIN_SIZE + 1));
+    assertEquals(9, BufferPool.sizeClassOf(BufferPool.MAX_SIZE));
+    assertEquals(-1, BufferPool.sizeClassOf(BufferPool.MAX_SIZE + 1));
+  }
+}
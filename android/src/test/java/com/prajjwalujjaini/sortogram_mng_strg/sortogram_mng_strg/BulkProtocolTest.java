@@ -0,0 +1,171 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BulkProtocolTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void decodeRequest_readsArgumentsAndPaths() throws Exception {
+    ByteBuffer message = request(BulkProtocol.MOVE_IMAGES, Collections.singletonMap("operationId", "op-1"),
+        Arrays.asList("/a/\u00fc.jpg", "/b/\u00fc.jpg", "/a/2.jpg", "/b/2.jpg"));
+
+    BulkProtocol.Request request = BulkProtocol.decodeRequest(message);
+    assertEquals(BulkProtocol.MOVE_IMAGES, request.operation);
+    assertEquals("op-1", request.arguments.get("operationId"));
+    List<TransferItem> items = request.items();
+    assertEquals(2, items.size());
+    assertEquals("/a/\u00fc.jpg", items.get(0).sourcePath);
+    assertEquals("/b/2.jpg", items.get(1).destinationPath);
+  }
+
+  @Test
+  public void decodeRequest_rejectsTruncatedAndUnpairedMessages() throws Exception {
+    ByteBuffer message = request(BulkProtocol.COPY_IMAGES, Collections.<String, String>emptyMap(),
+        Arrays.asList("/a/1.jpg", "/b/1.jpg"));
+    message.limit(message.limit() - 1);
+    try {
+      BulkProtocol.decodeRequest(message);
+      fail("Truncated message was accepted");
+    } catch (TransferException e) {
+      assertEquals("INVALID_ARGUMENTS", e.getCode());
+    }
+
+    BulkProtocol.Request unpaired = BulkProtocol.decodeRequest(request(BulkProtocol.COPY_IMAGES,
+        Collections.<String, String>emptyMap(), Collections.singletonList("/a/1.jpg")));
+    try {
+      unpaired.items();
+      fail("Unpaired paths were accepted");
+    } catch (TransferException e) {
+      assertEquals("INVALID_ARGUMENTS", e.getCode());
+    }
+  }
+
+  @Test
+  public void encodeResults_sendsOnlyTheExceptionsByIndex() {
+    TransferItem moved = new TransferItem("/a/1.jpg", "/b/1.jpg");
+    moved.succeed(new TransferOutcome("/b/1.jpg", 10, false));
+    TransferItem renamed = new TransferItem("/a/2.jpg", "/b/2.jpg");
+    renamed.succeed(new TransferOutcome("/b/2 (1).jpg", 10, false));
+    TransferItem failed = new TransferItem("/a/3.jpg", "/b/3.jpg");
+    failed.fail("DEST_EXISTS", "Destination file already exists");
+    TransferItem skipped = new TransferItem("/a/4.jpg", "/b/4.jpg");
+    skipped.succeed(new TransferOutcome("/b/4.jpg", 10, true));
+
+    ByteBuffer reply = BulkProtocol.encodeResults(Arrays.asList(moved, renamed, failed, skipped));
+    assertTrue(reply.isDirect());
+    assertEquals(BulkProtocol.VERSION, reply.get());
+    assertEquals(BulkProtocol.REPLY_OK, reply.get());
+    assertEquals(4, reply.getInt());
+    assertEquals(BulkProtocol.ITEM_TRANSFERRED, reply.get());
+    assertEquals(BulkProtocol.ITEM_TRANSFERRED, reply.get());
+    assertEquals(BulkProtocol.ITEM_FAILED, reply.get());
+    assertEquals(BulkProtocol.ITEM_SKIPPED, reply.get());
+    assertEquals(1, reply.getInt());
+    assertEquals(1, reply.getInt());
+    assertEquals("/b/2 (1).jpg", string(reply));
+    assertEquals(1, reply.getShort());
+    assertEquals("DEST_EXISTS", string(reply));
+    assertEquals(1, reply.getInt());
+    assertEquals(2, reply.getInt());
+    assertEquals(0, reply.getShort());
+    assertEquals("Destination file already exists", string(reply));
+    assertEquals(0, reply.remaining());
+  }
+
+  @Test
+  public void onBulkMessage_copiesItemsAndReplies() throws Exception {
+    File source = TestFiles.write(folder.getRoot(), "IMG_1.jpg", new byte[] { 1, 2, 3 });
+    File dest = new File(folder.getRoot(), "dest/IMG_1.jpg");
+    ExecutorService mainThread = Executors.newSingleThreadExecutor();
+    InMemoryMediaIndex index = new InMemoryMediaIndex(0);
+    SortogramMngStrgPlugin plugin = new SortogramMngStrgPlugin(new RecordingStorageBackend(true), index,
+        mainThread);
+    try {
+      ByteBuffer reply = ResultCapture.send(plugin, request(BulkProtocol.COPY_IMAGES,
+          Collections.singletonMap("conflictPolicy", "fail"), Arrays.asList(source.getPath(), dest.getPath())));
+      assertEquals(BulkProtocol.VERSION, reply.get());
+      assertEquals(BulkProtocol.REPLY_OK, reply.get());
+      assertEquals(1, reply.getInt());
+      assertEquals(BulkProtocol.ITEM_TRANSFERRED, reply.get());
+      assertEquals(3, dest.length());
+      assertTrue(index.contains(dest));
+
+      ByteBuffer error = ResultCapture.send(plugin, request(BulkProtocol.COPY_IMAGES,
+          Collections.singletonMap("conflictPolicy", "sideways"), Arrays.asList(source.getPath(), dest.getPath())));
+      assertEquals(BulkProtocol.VERSION, error.get());
+      assertEquals(BulkProtocol.REPLY_ERROR, error.get());
+      assertEquals("INVALID_ARGUMENTS", string(error));
+    } finally {
+      plugin.onDetachedFromEngine(null);
+      mainThread.shutdown();
+    }
+  }
+
+  @Test
+  public void encodePaths_keepsNulls() {
+    ByteBuffer reply = BulkProtocol.encodePaths(Arrays.asList("/a/1.jpg", null));
+    reply.position(2);
+    assertEquals(2, reply.getInt());
+    assertEquals("/a/1.jpg", string(reply));
+    assertNull(string(reply));
+  }
+
+  /** Encodes a request the way the Dart side does. */
+  private static ByteBuffer request(byte operation, Map<String, String> arguments, List<String> paths)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(BulkProtocol.VERSION);
+    out.writeByte(operation);
+    out.writeInt(arguments.size());
+    for (Map.Entry<String, String> argument : arguments.entrySet()) {
+      writeString(out, argument.getKey());
+      writeString(out, argument.getValue());
+    }
+    out.writeInt(paths.size());
+    for (String path : paths) {
+      writeString(out, path);
+    }
+    byte[] encoded = bytes.toByteArray();
+    ByteBuffer message = ByteBuffer.allocateDirect(encoded.length);
+    message.put(encoded).flip();
+    return message;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String string(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,164 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CopyEngineTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void streamEngine_copiesAllBytes() throws IOException {
+    assertCopies(CopyEngines.STREAM, 0);
+    assertCopies(CopyEngines.STREAM, 1);
+    assertCopies(CopyEngines.STREAM, 3 * 8192 + 17);
+  }
+
+  @Test
+  public void channelEngine_copiesAllBytes() throws IOException {
+    assertCopies(CopyEngines.CHANNEL, 0);
+    assertCopies(CopyEngines.CHANNEL, 1);
+    assertCopies(CopyEngines.CHANNEL, 9 * 1024 * 1024 + 5);
+  }
+
+  @Test
+  public void pipelinedEngine_copiesAllBytes() throws IOException {
+    assertCopies(CopyEngines.PIPELINED, 0);
+    assertCopies(CopyEngines.PIPELINED, (int) PipelinedCopyEngine.PIPELINE_THRESHOLD + 5);
+  }
+
+  @Test
+  public void pipelinedEngine_hashesLargeFileInOrder() throws IOException {
+    byte[] data = new byte[(int) PipelinedCopyEngine.PIPELINE_THRESHOLD * 2 + 3];
+    new Random(11).nextBytes(data);
+    File source = folder.newFile();
+    File dest = folder.newFile();
+    Files.write(source.toPath(), data);
+
+    XxHash64 hash = new XxHash64();
+    long[] lastProgress = { 0 };
+    try (FileInputStream in = new FileInputStream(source);
+        FileOutputStream out = new FileOutputStream(dest)) {
+      CopyEngines.PIPELINED.copy(in, out, data.length, hash, (bytes, total) -> lastProgress[0] = bytes);
+    }
+    assertEquals(data.length, lastProgress[0]);
+    assertEquals(FileVerifier.hashFile(source), hash.digest());
+    assertArrayEquals(data, Files.readAllBytes(dest.toPath()));
+  }
+
+  @Test
+  public void pipelinedEngine_copiesParallelRanges() throws IOException {
+    long size = PipelinedCopyEngine.PARALLEL_THRESHOLD + 12345;
+    File source = folder.newFile();
+    File dest = folder.newFile();
+    byte[] block = new byte[1024 * 1024];
+    Random random = new Random(13);
+    try (FileOutputStream out = new FileOutputStream(source)) {
+      for (long written = 0; written < size; written += block.length) {
+        random.nextBytes(block);
+        out.write(block, 0, (int) Math.min(block.length, size - written));
+      }
+    }
+
+    long copied;
+    try (FileInputStream in = new FileInputStream(source);
+        FileOutputStream out = new FileOutputStream(dest)) {
+      copied = new PipelinedCopyEngine(CopyEngines.CHANNEL, true).copy(in, out, size, null, null);
+    }
+    assertEquals(size, copied);
+    assertEquals(size, dest.length());
+    assertEquals(FileVerifier.hashFile(source), FileVerifier.hashFile(dest));
+  }
+
+  @Test
+  public void pipelinedEngine_tunesToFileSize() {
+    assertEquals(256 * 1024, PipelinedCopyEngine.chunkSizeFor(PipelinedCopyEngine.PIPELINE_THRESHOLD));
+    assertEquals(1024 * 1024, PipelinedCopyEngine.chunkSizeFor(1L << 30));
+    assertEquals(1, PipelinedCopyEngine.parallelismFor(PipelinedCopyEngine.PARALLEL_THRESHOLD - 1, 8));
+    assertEquals(4, PipelinedCopyEngine.parallelismFor(PipelinedCopyEngine.PARALLEL_THRESHOLD, 8));
+    assertEquals(2, PipelinedCopyEngine.parallelismFor(1L << 30, 2));
+  }
+
+  @Test
+  public void engines_hashEveryCopiedByte() throws IOException {
+    byte[] data = new byte[2 * 1024 * 1024 + 3];
+    new Random(7).nextBytes(data);
+    File source = folder.newFile();
+    Files.write(source.toPath(), data);
+    long expected = FileVerifier.hashFile(source);
+
+    for (CopyEngine engine : new CopyEngine[] { CopyEngines.STREAM, CopyEngines.CHANNEL, CopyEngines.PIPELINED }) {
+      File dest = folder.newFile();
+      XxHash64 hash = new XxHash64();
+      try (FileInputStream in = new FileInputStream(source);
+          FileOutputStream out = new FileOutputStream(dest)) {
+        engine.copy(in, out, data.length, hash, null);
+      }
+      assertEquals(engine.name(), expected, hash.digest());
+      assertTrue(FileVerifier.verify(source, dest, Verification.STREAMING_HASH, hash));
+    }
+  }
+
+  @Test
+  public void verify_detectsCorruptedCopy() throws IOException {
+    File source = folder.newFile();
+    File dest = folder.newFile();
+    Files.write(source.toPath(), new byte[] { 1, 2, 3, 4 });
+    Files.write(dest.toPath(), new byte[] { 1, 2, 3, 5 });
+
+    assertTrue(FileVerifier.verify(source, dest, Verification.SIZE, null));
+    assertFalse(FileVerifier.verify(source, dest, Verification.FULL, null));
+  }
+
+  @Test
+  public void xxHash64_matchesReferenceValues() {
+    XxHash64 hash = new XxHash64();
+    assertEquals(0xEF46DB3751D8E999L, hash.digest());
+
+    byte[] abc = "abc".getBytes(StandardCharsets.US_ASCII);
+    hash.update(abc, 0, abc.length);
+    assertEquals(0x44BC2CF5AD770999L, hash.digest());
+  }
+
+  @Test
+  public void forName_resolvesKnownEngines() {
+    assertSame(CopyEngines.STREAM, CopyEngines.forName("stream"));
+    assertSame(CopyEngines.CHANNEL, CopyEngines.forName("channel"));
+    assertSame(CopyEngines.PIPELINED, CopyEngines.forName("pipelined"));
+    assertNull(CopyEngines.forName("rsync"));
+  }
+
+  private void assertCopies(CopyEngine engine, int size) throws IOException {
+    byte[] data = new byte[size];
+    new Random(size).nextBytes(data);
+    File source = folder.newFile();
+    File dest = folder.newFile();
+    Files.write(source.toPath(), data);
+
+    long[] lastProgress = { 0 };
+    long copied;
+    try (FileInputStream in = new FileInputStream(source);
+        FileOutputStream out = new FileOutputStream(dest)) {
+      copied = engine.copy(in, out, size, null, (bytes, total) -> lastProgress[0] = bytes);
+    }
+
+    assertEquals(size, copied);
+    assertEquals(size, lastProgress[0]);
+    assertArrayEquals(data, Files.readAllBytes(dest.toPath()));
+  }
+}
@@ -0,0 +1,193 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DirectoryTransferTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private ExecutorService mainThread;
+  private InMemoryMediaIndex index;
+
+  @Before
+  public void setUp() {
+    mainThread = Executors.newSingleThreadExecutor();
+    index = new InMemoryMediaIndex(0);
+  }
+
+  @After
+  public void tearDown() {
+    mainThread.shutdownNow();
+  }
+
+  @Test
+  public void walk_listsImagesAndDirectoriesParentsFirst() throws Exception {
+    File root = folder.newFolder("album");
+    write(root, "a/b/IMG_1.JPG");
+    write(root, "a/IMG_2.png");
+    write(root, "c/notes.txt");
+    write(root, ".thumbnails/IMG_3.jpg");
+
+    DirectoryWalker walker = new DirectoryWalker(2, new HashSet<>(Arrays.asList("jpg", "png")));
+    try {
+      DirectoryWalker.Tree tree = walker.walk(root);
+      assertEquals(new HashSet<>(Arrays.asList(path("a/b/IMG_1.JPG"), path("a/IMG_2.png"))),
+          new HashSet<>(tree.files));
+      assertEquals(3, tree.directories.size());
+      assertTrue(tree.directories.indexOf(path("a")) < tree.directories.indexOf(path("a/b")));
+      // notes.txt and .thumbnails
+      assertEquals(2, tree.otherEntries);
+    } finally {
+      walker.shutdown();
+    }
+  }
+
+  @Test
+  public void walk_skipsSymbolicLinks() throws Exception {
+    File root = folder.newFolder("album");
+    write(root, "a/IMG_1.jpg");
+    File elsewhere = write(folder.getRoot(), "elsewhere/IMG_2.jpg").getParentFile();
+    Files.createSymbolicLink(new File(root, "a/loop").toPath(), root.toPath());
+    Files.createSymbolicLink(new File(root, "linked").toPath(), elsewhere.toPath());
+    Files.createSymbolicLink(new File(root, "IMG_3.jpg").toPath(), new File(elsewhere, "IMG_2.jpg").toPath());
+
+    DirectoryWalker walker = new DirectoryWalker(2, Collections.singleton("jpg"));
+    try {
+      DirectoryWalker.Tree tree = walker.walk(root);
+      assertEquals(Collections.singletonList(path("a/IMG_1.jpg")), tree.files);
+      assertEquals(Collections.singletonList("a"), tree.directories);
+      // Each link keeps the tree from being renamed as a whole
+      assertEquals(3, tree.otherEntries);
+
+      // A root reached through a link, like /sdcard, is walked all the same
+      File rootLink = Files.createSymbolicLink(new File(folder.getRoot(), "sdcard").toPath(), root.toPath()).toFile();
+      assertEquals(tree.files, walker.walk(rootLink).files);
+    } finally {
+      walker.shutdown();
+    }
+  }
+
+  @Test
+  public void moveDirectory_renamesATreeOfImagesAsAWhole() throws Exception {
+    File source = folder.newFolder("album");
+    List<File> files = Arrays.asList(write(source, "IMG_1.jpg"), write(source, "2024/IMG_2.jpg"));
+    for (File file : files) {
+      index.add(file, "image/jpeg");
+    }
+    File dest = new File(folder.getRoot(), "sorted/album");
+    RecordingStorageBackend storage = new RecordingStorageBackend(true);
+
+    Map<?, ?> reply = call(storage, "moveDirectory", source, dest);
+    assertEquals(true, reply.get("renamedDirectory"));
+    assertEquals(2, reply.get("transferred"));
+    assertEquals(Collections.emptyList(), reply.get("items"));
+    assertEquals(1, storage.renames.get());
+    assertFalse(source.exists());
+    assertTrue(new File(dest, "2024/IMG_2.jpg").exists());
+    assertTrue(index.contains(new File(dest, "2024/IMG_2.jpg")));
+    assertFalse(index.contains(files.get(1)));
+    assertEquals(1, index.batchCalls.get());
+  }
+
+  @Test
+  public void moveDirectory_acrossVolumesMovesOnlyImagesAndKeepsTheRest() throws Exception {
+    File source = folder.newFolder("album");
+    write(source, "IMG_1.jpg");
+    write(source, "2024/01/IMG_2.webp");
+    File notes = write(source, "notes/readme.txt");
+    File dest = new File(folder.getRoot(), "sorted");
+    RecordingStorageBackend storage = new RecordingStorageBackend(false);
+
+    Map<?, ?> reply = call(storage, "moveDirectory", source, dest);
+    assertEquals(false, reply.get("renamedDirectory"));
+    assertEquals(2, reply.get("transferred"));
+    assertEquals(0, reply.get("failed"));
+    assertTrue(new File(dest, "IMG_1.jpg").exists());
+    assertTrue(new File(dest, "2024/01/IMG_2.webp").exists());
+    assertTrue(new File(dest, "notes").isDirectory());
+    // Emptied directories go, the one still holding a file stays
+    assertFalse(new File(source, "2024").exists());
+    assertTrue(notes.exists());
+  }
+
+  @Test
+  public void copyDirectory_reportsConflictsByItem() throws Exception {
+    File source = folder.newFolder("album");
+    write(source, "IMG_1.jpg");
+    write(source, "IMG_2.jpg");
+    File dest = folder.newFolder("copy");
+    write(dest, "IMG_2.jpg");
+
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("conflictPolicy", "fail");
+    Map<?, ?> reply = call(new RecordingStorageBackend(true), "copyDirectory", source, dest, arguments);
+    assertEquals(1, reply.get("transferred"));
+    assertEquals(1, reply.get("failed"));
+    List<?> items = (List<?>) reply.get("items");
+    assertEquals(1, items.size());
+    assertEquals("DEST_EXISTS", ((Map<?, ?>) items.get(0)).get("errorCode"));
+    assertTrue(new File(source, "IMG_1.jpg").exists());
+  }
+
+  @Test
+  public void moveDirectory_rejectsDestinationInsideSource() throws Exception {
+    File source = folder.newFolder("album");
+    write(source, "IMG_1.jpg");
+    assertEquals("INVALID_ARGUMENTS",
+        invoke(new RecordingStorageBackend(true), "moveDirectory", source, new File(source, "sorted"), new HashMap<>()));
+    assertTrue(new File(source, "IMG_1.jpg").exists());
+  }
+
+  private Map<?, ?> call(RecordingStorageBackend storage, String method, File source, File dest)
+      throws InterruptedException {
+    return call(storage, method, source, dest, new HashMap<>());
+  }
+
+  private Map<?, ?> call(RecordingStorageBackend storage, String method, File source, File dest,
+      Map<String, Object> arguments) throws InterruptedException {
+    Object reply = invoke(storage, method, source, dest, arguments);
+    assertTrue("Failed with " + reply, reply instanceof Map);
+    return (Map<?, ?>) reply;
+  }
+
+  /** Calls {@code method} on a fresh plugin and returns its reply, or the error code if it failed. */
+  private Object invoke(RecordingStorageBackend storage, String method, File source, File dest,
+      Map<String, Object> arguments) throws InterruptedException {
+    arguments.put("sourcePath", source.getPath());
+    arguments.put("destinationPath", dest.getPath());
+    SortogramMngStrgPlugin plugin = new SortogramMngStrgPlugin(storage, index, mainThread);
+    try {
+      return ResultCapture.call(plugin, mainThread, method, arguments);
+    } finally {
+      plugin.onDetachedFromEngine(null);
+    }
+  }
+
+  /** Writes a file under {@code root} that holds its own relative path. */
+  private static File write(File root, String path) throws IOException {
+    return TestFiles.write(root, path, path);
+  }
+
+  private static String path(String path) {
+    return path.replace('/', File.separatorChar);
+  }
+}
@@ -0,0 +1,43 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg.TestFiles.randomBytes;
+import static com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg.TestFiles.write;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DuplicateFinderTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void partialHash_coversWholeSmallFile() throws IOException {
+    File file = write(folder.getRoot(), "small.jpg", randomBytes(2 * DuplicateFinder.PARTIAL_BYTES, 1));
+    assertEquals(FileVerifier.hashFile(file), DuplicateFinder.partialHash(file, file.length(), null));
+  }
+
+  @Test
+  public void partialHash_onlyReadsBothEndsOfLargeFile() throws IOException {
+    byte[] data = randomBytes(5 * DuplicateFinder.PARTIAL_BYTES, 2);
+    File original = write(folder.getRoot(), "a.jpg", data);
+
+    // A change in the middle is invisible to the partial hash, so the full hash has to decide
+    byte[] middleChanged = data.clone();
+    middleChanged[data.length / 2] ^= 1;
+    File sameEnds = write(folder.getRoot(), "b.jpg", middleChanged);
+    assertEquals(DuplicateFinder.partialHash(original, data.length, null),
+        DuplicateFinder.partialHash(sameEnds, data.length, null));
+    assertNotEquals(FileVerifier.hashFile(original), FileVerifier.hashFile(sameEnds));
+
+    byte[] tailChanged = data.clone();
+    tailChanged[data.length - 1] ^= 1;
+    File otherTail = write(folder.getRoot(), "c.jpg", tailChanged);
+    assertNotEquals(DuplicateFinder.partialHash(original, data.length, null),
+        DuplicateFinder.partialHash(otherTail, data.length, null));
+  }
+}
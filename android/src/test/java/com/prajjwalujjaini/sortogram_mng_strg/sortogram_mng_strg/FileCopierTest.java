@@ -0,0 +1,50 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg.TestFiles.randomBytes;
+import static com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg.TestFiles.write;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileCopierTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final FileCopier copier = new FileCopier(new TransferMetrics());
+
+  @Test
+  public void copy_resumesAtOffsetWithTheSameHash() throws IOException {
+    byte[] data = randomBytes(300 * 1024 + 7, 3);
+    File source = write(folder.getRoot(), "source.jpg", data);
+    File target = write(folder.getRoot(), "target.jpg", Arrays.copyOf(data, 100 * 1024));
+
+    XxHash64 hash = new XxHash64();
+    FileCopier.hashPrefix(source, 100 * 1024, hash);
+    long copied = copier.copy(source, target, 100 * 1024, CopyEngines.DEFAULT, hash, null);
+
+    assertEquals(data.length - 100 * 1024, copied);
+    assertArrayEquals(data, Files.readAllBytes(target.toPath()));
+    assertEquals(FileVerifier.hashFile(source), hash.digest());
+    assertTrue(copier.verify(source, target, Verification.STREAMING_HASH, hash));
+  }
+
+  @Test
+  public void verify_rejectsChangedCopy() throws IOException {
+    byte[] data = randomBytes(64 * 1024, 4);
+    File source = write(folder.getRoot(), "source.jpg", data);
+    data[1234]++;
+    File target = write(folder.getRoot(), "target.jpg", data);
+
+    assertTrue(copier.verify(source, target, Verification.SIZE, null));
+    assertFalse(copier.verify(source, target, Verification.FULL, null));
+  }
+}
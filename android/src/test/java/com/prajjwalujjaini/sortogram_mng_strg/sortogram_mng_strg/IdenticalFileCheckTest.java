@@ -0,0 +1,53 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg.TestFiles.randomBytes;
+import static com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg.TestFiles.write;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IdenticalFileCheckTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final IdenticalFileCheck check = new IdenticalFileCheck(null);
+
+  @Test
+  public void isIdentical_matchesSameContent() throws IOException {
+    byte[] data = randomBytes(5 * DuplicateFinder.PARTIAL_BYTES, 1);
+    assertTrue(isIdentical(data, data));
+  }
+
+  @Test
+  public void isIdentical_rejectsChangeThePartialHashMisses() throws IOException {
+    byte[] data = randomBytes(5 * DuplicateFinder.PARTIAL_BYTES, 2);
+    byte[] middleChanged = data.clone();
+    middleChanged[data.length / 2] ^= 1;
+    assertFalse(isIdentical(data, middleChanged));
+  }
+
+  @Test
+  public void isIdentical_rejectsDifferentSize() throws IOException {
+    byte[] data = randomBytes(1000, 3);
+    byte[] longer = new byte[1001];
+    System.arraycopy(data, 0, longer, 0, data.length);
+    assertFalse(isIdentical(data, longer));
+  }
+
+  @Test
+  public void forName_readsWireNames() {
+    assertEquals(ConflictPolicy.SKIP_IF_IDENTICAL, ConflictPolicy.forName("skipIfIdentical"));
+    assertNull(ConflictPolicy.forName("skip"));
+  }
+
+  /** Writes both contents to files and compares them. */
+  private boolean isIdentical(byte[] first, byte[] second) throws IOException {
+    return check.isIdentical(write(folder.getRoot(), "a.jpg", first), write(folder.getRoot(), "b.jpg", second));
+  }
+}
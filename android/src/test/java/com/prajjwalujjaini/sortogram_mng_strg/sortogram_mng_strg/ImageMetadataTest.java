@@ -0,0 +1,169 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg.TestFiles.write;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImageMetadataTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void read_findsExifInJpegAfterOtherSegments() throws Exception {
+    ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+    jpeg.write(new byte[] { (byte) 0xFF, (byte) 0xD8 });
+    segment(jpeg, 0xE0, "JFIF\0 header".getBytes(StandardCharsets.US_ASCII));
+    segment(jpeg, 0xE1, concat("Exif\0\0".getBytes(StandardCharsets.US_ASCII), tiff(ByteOrder.LITTLE_ENDIAN, true)));
+    jpeg.write(new byte[] { (byte) 0xFF, (byte) 0xDA, 0, 2 });
+    jpeg.write(new byte[4096]);
+
+    ImageMetadata metadata = ImageMetadata.read(write(folder.getRoot(), "IMG_1.jpg", jpeg.toByteArray()));
+    assertEquals(2023, metadata.year);
+    assertEquals(7, metadata.month);
+    assertEquals(14, metadata.day);
+    assertEquals("Google", metadata.make);
+    assertEquals("Pixel 7", metadata.model);
+    assertTrue(metadata.hasGps);
+  }
+
+  @Test
+  public void read_findsExifInPngAndWebp() throws Exception {
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    png.write(new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' });
+    chunk(png, "IHDR", new byte[13], ByteOrder.BIG_ENDIAN);
+    chunk(png, "eXIf", tiff(ByteOrder.BIG_ENDIAN, false), ByteOrder.BIG_ENDIAN);
+    chunk(png, "IDAT", new byte[64], ByteOrder.BIG_ENDIAN);
+    ImageMetadata pngMetadata = ImageMetadata.read(write(folder.getRoot(), "IMG_2.png", png.toByteArray()));
+    assertEquals(2023, pngMetadata.year);
+    assertFalse(pngMetadata.hasGps);
+
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    body.write("WEBP".getBytes(StandardCharsets.US_ASCII));
+    byte[] vp8x = new byte[10];
+    vp8x[0] = 0x08;
+    chunk(body, "VP8X", vp8x, ByteOrder.LITTLE_ENDIAN);
+    // Odd length, so the next chunk starts after a padding byte
+    chunk(body, "VP8L", new byte[5], ByteOrder.LITTLE_ENDIAN);
+    chunk(body, "EXIF", tiff(ByteOrder.LITTLE_ENDIAN, true), ByteOrder.LITTLE_ENDIAN);
+    ByteArrayOutputStream webp = new ByteArrayOutputStream();
+    webp.write("RIFF".getBytes(StandardCharsets.US_ASCII));
+    webp.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(body.size()).array());
+    body.writeTo(webp);
+    ImageMetadata webpMetadata = ImageMetadata.read(write(folder.getRoot(), "IMG_3.webp", webp.toByteArray()));
+    assertEquals("Pixel 7", webpMetadata.model);
+    assertTrue(webpMetadata.hasGps);
+  }
+
+  @Test
+  public void read_returnsNoneWithoutExifOrForOtherFiles() throws Exception {
+    ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+    jpeg.write(new byte[] { (byte) 0xFF, (byte) 0xD8 });
+    segment(jpeg, 0xE0, new byte[14]);
+    jpeg.write(new byte[] { (byte) 0xFF, (byte) 0xDA, 0, 2 });
+    // An APP1 segment in the image data must not be found
+    segment(jpeg, 0xE1, concat("Exif\0\0".getBytes(StandardCharsets.US_ASCII), tiff(ByteOrder.LITTLE_ENDIAN, true)));
+    assertSame(ImageMetadata.NONE, ImageMetadata.read(write(folder.getRoot(), "plain.jpg", jpeg.toByteArray())));
+    assertSame(ImageMetadata.NONE, ImageMetadata.read(write(folder.getRoot(), "notes.jpg", "not an image at all")));
+  }
+
+  @Test
+  public void parseTiff_toleratesTruncatedAndBlankValues() throws Exception {
+    byte[] tiff = tiff(ByteOrder.LITTLE_ENDIAN, true);
+    for (int length = 0; length < tiff.length; length += 7) {
+      ImageMetadata.parseTiff(ByteBuffer.wrap(Arrays.copyOf(tiff, length)));
+    }
+    assertArrayEquals(new int[3], ImageMetadata.parseDate("    :  :     :  :  "));
+    assertArrayEquals(new int[3], ImageMetadata.parseDate("0000:00:00 00:00:00"));
+    assertNull(ImageMetadata.parseTiff(ByteBuffer.wrap(Arrays.copyOf(tiff, 40))).make);
+  }
+
+  private static void assertArrayEquals(int[] expected, int[] actual) {
+    assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+  }
+
+  /**
+   * A TIFF block with Make "Google", Model "Pixel 7", DateTimeOriginal 2023:07:14 in the EXIF
+   * IFD and, if {@code gps}, a GPS IFD with latitude and longitude.
+   */
+  private static byte[] tiff(ByteOrder order, boolean gps) {
+    byte[] make = "Google\0".getBytes(StandardCharsets.US_ASCII);
+    byte[] model = "Pixel 7\0".getBytes(StandardCharsets.US_ASCII);
+    byte[] date = "2023:07:14 10:20:30\0".getBytes(StandardCharsets.US_ASCII);
+    int ifd0Entries = gps ? 4 : 3;
+    int ifd0 = 8;
+    int makeAt = ifd0 + 2 + ifd0Entries * 12 + 4;
+    int modelAt = makeAt + make.length;
+    int exifIfd = modelAt + model.length;
+    int dateAt = exifIfd + 2 + 12 + 4;
+    int gpsIfd = dateAt + date.length;
+    ByteBuffer tiff = ByteBuffer.allocate(gpsIfd + 2 + 2 * 12 + 4).order(order);
+    tiff.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+    tiff.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+    tiff.putShort((short) 42).putInt(ifd0);
+    tiff.putShort((short) ifd0Entries);
+    entry(tiff, 0x010F, 2, make.length, makeAt);
+    entry(tiff, 0x0110, 2, model.length, modelAt);
+    entry(tiff, 0x8769, 4, 1, exifIfd);
+    if (gps) {
+      entry(tiff, 0x8825, 4, 1, gpsIfd);
+    }
+    tiff.putInt(0);
+    tiff.put(make).put(model);
+    tiff.putShort((short) 1);
+    entry(tiff, 0x9003, 2, date.length, dateAt);
+    tiff.putInt(0);
+    tiff.put(date);
+    tiff.putShort((short) 2);
+    entry(tiff, 0x0002, 5, 3, 0);
+    entry(tiff, 0x0004, 5, 3, 0);
+    tiff.putInt(0);
+    return tiff.array();
+  }
+
+  private static void entry(ByteBuffer tiff, int tag, int type, int count, int value) {
+    tiff.putShort((short) tag).putShort((short) type).putInt(count).putInt(value);
+  }
+
+  private static void segment(ByteArrayOutputStream out, int marker, byte[] data) throws IOException {
+    out.write(new byte[] { (byte) 0xFF, (byte) marker, (byte) ((data.length + 2) >> 8), (byte) (data.length + 2) });
+    out.write(data);
+  }
+
+  private static void chunk(ByteArrayOutputStream out, String type, byte[] data, ByteOrder order)
+      throws IOException {
+    boolean png = order == ByteOrder.BIG_ENDIAN;
+    if (png) {
+      out.write(ByteBuffer.allocate(4).putInt(data.length).array());
+      out.write(type.getBytes(StandardCharsets.US_ASCII));
+    } else {
+      out.write(type.getBytes(StandardCharsets.US_ASCII));
+      out.write(ByteBuffer.allocate(4).order(order).putInt(data.length).array());
+    }
+    out.write(data);
+    if (png) {
+      // CRC, which the reader does not check
+      out.write(new byte[4]);
+    } else if (data.length % 2 != 0) {
+      out.write(0);
+    }
+  }
+
+  private static byte[] concat(byte[] first, byte[] second) {
+    byte[] both = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, both, first.length, second.length);
+    return both;
+  }
+}
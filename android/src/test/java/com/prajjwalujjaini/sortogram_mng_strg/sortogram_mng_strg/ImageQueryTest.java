@@ -0,0 +1,190 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+public class ImageQueryTest {
+  @Test
+  public void firstPage_hasNoKeysetSelection() {
+    ImageQuery query = new ImageQuery(Collections.singletonList(ImageColumn.PATH), 100, true, true, -1, 0);
+    assertNull(query.selection());
+    assertNull(query.selectionArgs());
+    assertEquals("IFNULL(date_modified, 0) DESC, _id DESC", query.sortOrder());
+  }
+
+  @Test
+  public void after_seeksPastLastRowOfPreviousPage() {
+    ImageQuery first = new ImageQuery(Arrays.asList(ImageColumn.ID, ImageColumn.PATH), 100, true, true, -1, 0);
+    ImageQuery next = first.after(42, 1700000000L);
+    assertEquals("(IFNULL(date_modified, 0)<?) OR (IFNULL(date_modified, 0)=? AND _id<?)", next.selection());
+    assertArrayEquals(new String[] { "1700000000", "1700000000", "42" }, next.selectionArgs());
+
+    ImageQuery byId = new ImageQuery(Collections.singletonList(ImageColumn.ID), 100, false, false, 7, 0);
+    assertEquals("_id>?", byId.selection());
+    assertArrayEquals(new String[] { "7" }, byId.selectionArgs());
+    assertEquals("_id ASC", byId.sortOrder());
+  }
+
+  @Test
+  public void after_keepsRowsWithoutDateAcrossPages() {
+    Table table = new Table();
+    table.add(1, 300L);
+    table.add(2, null);
+    table.add(3, 100L);
+    table.add(4, null);
+    table.add(5, null);
+    for (boolean descending : new boolean[] { true, false }) {
+      List<Long> listed = new ArrayList<>();
+      ImageQuery query = new ImageQuery(Collections.singletonList(ImageColumn.ID), 2, true, descending, -1, 0);
+      List<Map<String, Long>> page;
+      do {
+        page = table.query(query);
+        for (Map<String, Long> row : page) {
+          listed.add(row.get("_id"));
+        }
+        if (!page.isEmpty()) {
+          // Read back as ImageLister does
+          Map<String, Long> last = page.get(page.size() - 1);
+          Long date = last.get("date_modified");
+          query = query.after(last.get("_id"), date != null ? date : ImageQuery.MISSING_DATE_MODIFIED);
+        }
+      } while (page.size() == query.pageSize);
+      assertEquals(descending ? Arrays.asList(1L, 3L, 5L, 4L, 2L) : Arrays.asList(2L, 4L, 5L, 3L, 1L), listed);
+    }
+  }
+
+  /**
+   * The image table, queried with the selection and sort order of an {@link ImageQuery} the way
+   * SQLite evaluates them: a comparison with NULL is unknown and NULL sorts first.
+   */
+  private static final class Table {
+    private static final Pattern TOKEN = Pattern.compile("IFNULL\\(|[()?<>=,]|\\w+");
+
+    private final List<Map<String, Long>> rows = new ArrayList<>();
+
+    void add(long id, Long dateModified) {
+      Map<String, Long> row = new HashMap<>();
+      row.put("_id", id);
+      row.put("date_modified", dateModified);
+      rows.add(row);
+    }
+
+    List<Map<String, Long>> query(ImageQuery query) {
+      List<Map<String, Long>> result = new ArrayList<>();
+      for (Map<String, Long> row : rows) {
+        if (query.selection() == null
+            || Boolean.TRUE.equals(new Evaluation(query.selection(), query.selectionArgs(), row).condition())) {
+          result.add(row);
+        }
+      }
+      Comparator<Map<String, Long>> order = null;
+      for (String term : query.sortOrder().split("(?<=ASC|DESC), ")) {
+        boolean descending = term.endsWith(" DESC");
+        String key = term.substring(0, term.lastIndexOf(' '));
+        Comparator<Map<String, Long>> byKey = Comparator.comparing(
+            row -> new Evaluation(key, null, row).value(), Comparator.nullsFirst(Comparator.<Long>naturalOrder()));
+        byKey = descending ? byKey.reversed() : byKey;
+        order = order == null ? byKey : order.thenComparing(byKey);
+      }
+      result.sort(order);
+      return result.subList(0, Math.min(query.pageSize, result.size()));
+    }
+  }
+
+  /** Evaluates one expression of the small SQL subset {@link ImageQuery} writes against a row. */
+  private static final class Evaluation {
+    private final List<String> tokens = new ArrayList<>();
+    private final String[] arguments;
+    private final Map<String, Long> row;
+    private int position;
+    private int argument;
+
+    Evaluation(String sql, String[] arguments, Map<String, Long> row) {
+      Matcher matcher = Table.TOKEN.matcher(sql);
+      while (matcher.find()) {
+        tokens.add(matcher.group());
+      }
+      this.arguments = arguments;
+      this.row = row;
+    }
+
+    /** {@code a OR b}, {@code a AND b} and comparisons; {@code null} is unknown. */
+    Boolean condition() {
+      Boolean result = conjunction();
+      while (accept("OR")) {
+        Boolean other = conjunction();
+        result = Boolean.TRUE.equals(result) || Boolean.TRUE.equals(other) ? Boolean.TRUE
+            : result == null || other == null ? null : Boolean.FALSE;
+      }
+      return result;
+    }
+
+    private Boolean conjunction() {
+      Boolean result = comparison();
+      while (accept("AND")) {
+        Boolean other = comparison();
+        result = Boolean.FALSE.equals(result) || Boolean.FALSE.equals(other) ? Boolean.FALSE
+            : result == null || other == null ? null : Boolean.TRUE;
+      }
+      return result;
+    }
+
+    private Boolean comparison() {
+      if (accept("(")) {
+        Boolean result = condition();
+        expect(")");
+        return result;
+      }
+      Long left = value();
+      String operator = tokens.get(position++);
+      Long right = value();
+      if (left == null || right == null) {
+        return null;
+      }
+      int compared = left.compareTo(right);
+      return "<".equals(operator) ? compared < 0 : ">".equals(operator) ? compared > 0 : compared == 0;
+    }
+
+    /** A column, a {@code ?} argument, a number or {@code IFNULL(value, value)}. */
+    Long value() {
+      String token = tokens.get(position++);
+      if ("IFNULL(".equals(token)) {
+        Long value = value();
+        expect(",");
+        Long fallback = value();
+        expect(")");
+        return value != null ? value : fallback;
+      }
+      if ("?".equals(token)) {
+        return Long.valueOf(arguments[argument++]);
+      }
+      return row.containsKey(token) ? row.get(token) : Long.valueOf(token);
+    }
+
+    private boolean accept(String token) {
+      if (position < tokens.size() && tokens.get(position).equals(token)) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(String token) {
+      if (!accept(token)) {
+        throw new AssertionError("Expected " + token + " at " + position + " in " + tokens);
+      }
+    }
+  }
+}
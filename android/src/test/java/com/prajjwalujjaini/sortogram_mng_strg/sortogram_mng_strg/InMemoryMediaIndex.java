@@ -0,0 +1,181 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link MediaIndex} that keeps its rows in a map and counts the provider calls the device
+ * implementation would make for them: one {@code applyBatch} and one media scan per flush, like
+ * {@link MediaStoreWriter}. Each call can be made to take a fixed time, standing in for the binder
+ * round trip. The flush interval is checked when a change is recorded rather than by a timer, so
+ * a final {@link #flush} is needed. Thread-safe.
+ */
+final class InMemoryMediaIndex implements MediaIndex {
+  final AtomicLong batchCalls = new AtomicLong();
+  final AtomicLong scanCalls = new AtomicLong();
+  final AtomicLong inserts = new AtomicLong();
+  final AtomicLong deletes = new AtomicLong();
+  final AtomicLong updates = new AtomicLong();
+
+  private final long callLatencyNanos;
+  private final Object lock = new Object();
+  /** MIME type by path of every file the index knows. */
+  private final Map<String, String> rows = new HashMap<>();
+  private List<Runnable> pending = new ArrayList<>();
+  private int pendingScans;
+  private long firstPendingAt;
+  private int flushSize = MediaStoreWriter.DEFAULT_FLUSH_SIZE;
+  private long flushIntervalMs = MediaStoreWriter.DEFAULT_FLUSH_INTERVAL_MS;
+
+  /** @param callLatencyNanos how long every provider call blocks, 0 for not at all */
+  InMemoryMediaIndex(long callLatencyNanos) {
+    this.callLatencyNanos = callLatencyNanos;
+  }
+
+  /** Adds a row right away, e.g. for the files a test starts with. */
+  void add(File file, String mimeType) {
+    synchronized (lock) {
+      rows.put(file.getAbsolutePath(), mimeType);
+    }
+  }
+
+  boolean contains(File file) {
+    synchronized (lock) {
+      return rows.containsKey(file.getAbsolutePath());
+    }
+  }
+
+  int size() {
+    synchronized (lock) {
+      return rows.size();
+    }
+  }
+
+  @Override
+  public void recordMove(File sourceFile, File destFile, String mimeType, MediaStoreMoveMode mode) {
+    String source = sourceFile.getAbsolutePath();
+    String dest = destFile.getAbsolutePath();
+    enqueue(true, () -> {
+      // An update that matches no row falls back to an insert, as on the device
+      if (mode == MediaStoreMoveMode.UPDATE && rows.remove(source) != null) {
+        updates.incrementAndGet();
+      } else {
+        rows.remove(source);
+        deletes.incrementAndGet();
+        inserts.incrementAndGet();
+      }
+      rows.put(dest, mimeType);
+    });
+  }
+
+  @Override
+  public void recordCopy(File destFile, String mimeType) {
+    String dest = destFile.getAbsolutePath();
+    enqueue(true, () -> {
+      rows.put(dest, mimeType);
+      inserts.incrementAndGet();
+    });
+  }
+
+  @Override
+  public void recordDelete(File file) {
+    String path = file.getAbsolutePath();
+    enqueue(false, () -> {
+      rows.remove(path);
+      deletes.incrementAndGet();
+    });
+  }
+
+  private void enqueue(boolean scan, Runnable operation) {
+    boolean flushNow;
+    synchronized (lock) {
+      if (pending.isEmpty()) {
+        firstPendingAt = System.nanoTime();
+      }
+      pending.add(operation);
+      if (scan) {
+        pendingScans++;
+      }
+      flushNow = pending.size() >= flushSize
+          || System.nanoTime() - firstPendingAt >= TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+    }
+    if (flushNow) {
+      flush();
+    }
+  }
+
+  @Override
+  public void flush() {
+    List<Runnable> operations;
+    int scans;
+    synchronized (lock) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      operations = pending;
+      scans = pendingScans;
+      pending = new ArrayList<>();
+      pendingScans = 0;
+    }
+    providerCall();
+    batchCalls.incrementAndGet();
+    synchronized (lock) {
+      for (Runnable operation : operations) {
+        operation.run();
+      }
+    }
+    if (scans > 0) {
+      providerCall();
+      scanCalls.incrementAndGet();
+    }
+  }
+
+  private void providerCall() {
+    if (callLatencyNanos > 0) {
+      LockSupport.parkNanos(callLatencyNanos);
+    }
+  }
+
+  @Override
+  public int getFlushSize() {
+    synchronized (lock) {
+      return flushSize;
+    }
+  }
+
+  @Override
+  public long getFlushIntervalMs() {
+    synchronized (lock) {
+      return flushIntervalMs;
+    }
+  }
+
+  @Override
+  public void setFlushPolicy(int flushSize, long flushIntervalMs) {
+    synchronized (lock) {
+      this.flushSize = flushSize;
+      this.flushIntervalMs = flushIntervalMs;
+    }
+  }
+
+  @Override
+  public void close() {
+    flush();
+  }
+
+  Map<String, Object> toMap() {
+    Map<String, Object> map = new HashMap<>();
+    map.put("batchCalls", batchCalls.get());
+    map.put("scanCalls", scanCalls.get());
+    map.put("inserts", inserts.get());
+    map.put("deletes", deletes.get());
+    map.put("updates", updates.get());
+    return map;
+  }
+}
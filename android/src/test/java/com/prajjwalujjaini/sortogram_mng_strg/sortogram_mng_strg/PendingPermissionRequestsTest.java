@@ -0,0 +1,55 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.List;
+import org.junit.Test;
+
+public class PendingPermissionRequestsTest {
+  private static final int WRITE = 1;
+  private static final int READ = 2;
+
+  @Test
+  public void onlyFirstOperationShowsDialog() {
+    PendingPermissionRequests requests = new PendingPermissionRequests();
+    assertTrue(requests.add(WRITE, "moveImage", new NoopResult(), () -> {}));
+    assertFalse(requests.add(WRITE, "moveImage", new NoopResult(), () -> {}));
+    // A different dialog waits until the one showing is answered
+    assertFalse(requests.add(READ, "copyImage", new NoopResult(), () -> {}));
+    assertEquals(3, requests.size());
+  }
+
+  @Test
+  public void complete_returnsOperationsInOrderAndPicksNextDialog() {
+    PendingPermissionRequests requests = new PendingPermissionRequests();
+    requests.add(WRITE, "first", new NoopResult(), () -> {});
+    requests.add(READ, "other", new NoopResult(), () -> {});
+    requests.add(WRITE, "second", new NoopResult(), () -> {});
+
+    List<PendingPermissionRequests.Operation> answered = requests.complete(WRITE);
+    assertEquals(2, answered.size());
+    assertEquals("first", answered.get(0).type);
+    assertEquals("second", answered.get(1).type);
+
+    assertEquals(READ, requests.next());
+    assertEquals(PendingPermissionRequests.NO_REQUEST, requests.next());
+    assertEquals(1, requests.complete(READ).size());
+    assertEquals(PendingPermissionRequests.NO_REQUEST, requests.next());
+    assertEquals(0, requests.size());
+  }
+
+  private static final class NoopResult implements MethodChannel.Result {
+    @Override
+    public void success(Object result) {}
+
+    @Override
+    public void error(@NonNull String errorCode, String errorMessage, Object errorDetails) {}
+
+    @Override
+    public void notImplemented() {}
+  }
+}
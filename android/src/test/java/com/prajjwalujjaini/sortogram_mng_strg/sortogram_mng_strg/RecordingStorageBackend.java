@@ -0,0 +1,105 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link StorageBackend} on the local file system of the test machine that counts and logs its
+ * calls. Syncs are only recorded, and whether two paths share a volume is configured rather than
+ * asked from the kernel, so cross-volume moves can be tested in one temporary folder.
+ */
+final class RecordingStorageBackend implements StorageBackend {
+  final AtomicLong volumeChecks = new AtomicLong();
+  final AtomicLong renames = new AtomicLong();
+  final AtomicLong deletes = new AtomicLong();
+  final AtomicLong fileSyncs = new AtomicLong();
+  final AtomicLong directorySyncs = new AtomicLong();
+  /** Renames, deletes and syncs in the order they happened, e.g. "rename .a.jpg.sortogram-tmp a.jpg". */
+  final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+  /** When set, file syncs fail with this error after being recorded. */
+  volatile IOException syncFailure;
+  /** When set, runs before each file sync, e.g. to change the destination folder mid-transfer. */
+  volatile Runnable beforeFileSync;
+
+  private final boolean sameVolume;
+  private Set<String> temporaryDirectories = new HashSet<>();
+
+  /** @param sameVolume whether moves may be renames, or have to copy like across volumes */
+  RecordingStorageBackend(boolean sameVolume) {
+    this.sameVolume = sameVolume;
+  }
+
+  @Override
+  public boolean isSameVolume(File file, File directory) {
+    volumeChecks.incrementAndGet();
+    return sameVolume;
+  }
+
+  @Override
+  public boolean rename(File from, File to) {
+    renames.incrementAndGet();
+    calls.add("rename " + from.getName() + " " + to.getName());
+    return from.renameTo(to);
+  }
+
+  @Override
+  public synchronized boolean renameNoReplace(File from, File to) {
+    renames.incrementAndGet();
+    calls.add("renameNoReplace " + from.getName() + " " + to.getName());
+    return !to.exists() && from.renameTo(to);
+  }
+
+  @Override
+  public boolean delete(File file) {
+    deletes.incrementAndGet();
+    calls.add("delete " + file.getName());
+    return file.delete();
+  }
+
+  @Override
+  public void syncFile(File file) throws IOException {
+    Runnable hook = beforeFileSync;
+    if (hook != null) {
+      hook.run();
+    }
+    fileSyncs.incrementAndGet();
+    calls.add("syncFile " + file.getName());
+    if (syncFailure != null) {
+      throw syncFailure;
+    }
+  }
+
+  @Override
+  public void syncDirectory(File directory) {
+    directorySyncs.incrementAndGet();
+    calls.add("syncDirectory " + directory.getName());
+  }
+
+  @Override
+  public synchronized Set<String> loadTemporaryDirectories() {
+    return new HashSet<>(temporaryDirectories);
+  }
+
+  @Override
+  public synchronized void saveTemporaryDirectories(Set<String> directories) {
+    temporaryDirectories = new HashSet<>(directories);
+  }
+
+  Map<String, Object> toMap() {
+    Map<String, Object> map = new HashMap<>();
+    map.put("volumeChecks", volumeChecks.get());
+    map.put("renames", renames.get());
+    map.put("deletes", deletes.get());
+    map.put("fileSyncs", fileSyncs.get());
+    map.put("directorySyncs", directorySyncs.get());
+    return map;
+  }
+}
@@ -0,0 +1,65 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the reply to one call on the method channel or the bulk channel: its value, or the error
+ * code if the call failed. The plugin replies from its worker threads, so {@link #await} waits.
+ */
+final class ResultCapture implements MethodChannel.Result, BasicMessageChannel.Reply<ByteBuffer> {
+  private final CountDownLatch replied = new CountDownLatch(1);
+  private final AtomicReference<Object> value = new AtomicReference<>();
+
+  /** Calls {@code method} on {@code mainThread}, as a Flutter engine does, and returns its reply. */
+  static Object call(SortogramMngStrgPlugin plugin, Executor mainThread, String method, Object arguments)
+      throws InterruptedException {
+    ResultCapture result = new ResultCapture();
+    mainThread.execute(() -> plugin.onMethodCall(new MethodCall(method, arguments), result));
+    return result.await();
+  }
+
+  /** Sends a bulk channel {@code message} and returns the encoded reply. */
+  static ByteBuffer send(SortogramMngStrgPlugin plugin, ByteBuffer message) throws InterruptedException {
+    ResultCapture result = new ResultCapture();
+    plugin.onBulkMessage(message, result);
+    return (ByteBuffer) result.await();
+  }
+
+  @Override
+  public void success(Object result) {
+    value.set(result);
+    replied.countDown();
+  }
+
+  @Override
+  public void error(@NonNull String errorCode, String errorMessage, Object errorDetails) {
+    value.set(errorCode);
+    replied.countDown();
+  }
+
+  @Override
+  public void notImplemented() {
+    error("NOT_IMPLEMENTED", null, null);
+  }
+
+  @Override
+  public void reply(ByteBuffer reply) {
+    success(reply);
+  }
+
+  /** Waits for the reply and returns its value, or the error code if the call failed. */
+  Object await() throws InterruptedException {
+    assertTrue("No reply", replied.await(10, TimeUnit.SECONDS));
+    return value.get();
+  }
+}
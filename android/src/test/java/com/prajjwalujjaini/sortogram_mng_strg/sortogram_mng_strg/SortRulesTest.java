@@ -0,0 +1,108 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SortRulesTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void destinationFor_usesTheFirstMatchingRule() throws Exception {
+    SortRules rules = SortRules.fromArguments(Arrays.asList(
+        rule("/sorted/trips/{year}", "hasGps", true),
+        rule("/sorted/{make}/{model}/{year}/{month}", "make", "google"),
+        rule("/sorted/other")));
+    File file = new File("/DCIM/Camera/IMG_1.JPG");
+
+    assertEquals(path("/sorted/trips/2023/IMG_1.JPG"),
+        rules.destinationFor(file, new ImageMetadata(2023, 7, 14, "Google", "Pixel 7", true)));
+    assertEquals(path("/sorted/Google/Pixel 7/2023/07/IMG_1.JPG"),
+        rules.destinationFor(file, new ImageMetadata(2023, 7, 14, "Google", "Pixel 7", false)));
+    assertEquals(path("/sorted/other/IMG_1.JPG"), rules.destinationFor(file, ImageMetadata.NONE));
+    assertTrue(rules.needsMetadata());
+  }
+
+  @Test
+  public void destinationFor_fallsBackToTheModificationDate() throws Exception {
+    File file = folder.newFile("IMG_2.png");
+    Calendar calendar = Calendar.getInstance();
+    calendar.clear();
+    calendar.set(2021, Calendar.MARCH, 5, 12, 0);
+    assertTrue(file.setLastModified(calendar.getTimeInMillis()));
+    SortRules rules = SortRules.fromArguments(Collections.singletonList(
+        rule(folder.getRoot().getPath() + "/{year}/{month}/{day}/{extension}/{model}")));
+
+    assertEquals(new File(folder.getRoot(), path("2021/03/05/png/Unknown/IMG_2.png")).getPath(),
+        rules.destinationFor(file, ImageMetadata.NONE));
+  }
+
+  @Test
+  public void destinationFor_skipsImagesInPlaceAndUnmatchedOnes() throws Exception {
+    SortRules rules = SortRules.fromArguments(Collections.singletonList(
+        rule("/sorted/{year}", "hasCaptureDate", true)));
+    assertNull(rules.destinationFor(new File("/sorted/2023/IMG_1.jpg"),
+        new ImageMetadata(2023, 1, 1, null, null, false)));
+    assertNull(rules.destinationFor(new File("/DCIM/IMG_1.jpg"), ImageMetadata.NONE));
+  }
+
+  @Test
+  public void destinationFor_keepsCameraNamesInOneFolder() throws Exception {
+    SortRules rules = SortRules.fromArguments(Collections.singletonList(rule("/sorted/{make}/{model}")));
+    assertEquals(path("/sorted/Unknown/A_B_C/IMG_1.jpg"), rules.destinationFor(new File("/DCIM/IMG_1.jpg"),
+        new ImageMetadata(0, 0, 0, "../..", "A/B:C", false)));
+  }
+
+  @Test
+  public void fromArguments_rejectsMalformedRules() {
+    assertInvalid(Collections.emptyList());
+    assertInvalid(Collections.singletonList(rule("relative/{year}")));
+    assertInvalid(Collections.singletonList(rule("/sorted/{week}")));
+    assertInvalid(Collections.singletonList(rule("/sorted/{year")));
+    assertInvalid(Collections.singletonList(rule("/sorted", "hasGps", "yes")));
+  }
+
+  @Test
+  public void needsMetadata_isFalseForRulesOnFileNamesOnly() throws Exception {
+    SortRules rules = SortRules.fromArguments(Collections.singletonList(
+        rule("/sorted/{extension}", "extensions", Arrays.asList("PNG"))));
+    assertFalse(rules.needsMetadata());
+    assertEquals(path("/sorted/png/a.png"), rules.destinationFor(new File("/DCIM/a.png"), ImageMetadata.NONE));
+    assertNull(rules.destinationFor(new File("/DCIM/a.jpg"), ImageMetadata.NONE));
+  }
+
+  private static Map<String, Object> rule(String destination, Object... conditions) {
+    Map<String, Object> rule = new HashMap<>();
+    rule.put("destination", destination);
+    for (int i = 0; i < conditions.length; i += 2) {
+      rule.put((String) conditions[i], conditions[i + 1]);
+    }
+    return rule;
+  }
+
+  private static void assertInvalid(Object rules) {
+    try {
+      SortRules.fromArguments(rules);
+      fail("Accepted " + rules);
+    } catch (TransferException e) {
+      assertEquals("INVALID_ARGUMENTS", e.getCode());
+    }
+  }
+
+  private static String path(String path) {
+    return path.replace('/', File.separatorChar);
+  }
+}
@@ -0,0 +1,111 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class SyncBatchTest {
+  private final RecordingSyncer syncer = new RecordingSyncer();
+
+  @Test
+  public void sync_syncsFilesThenRenamesThemThenSyncsEachFolderOnce() {
+    SyncBatch batch = new SyncBatch(syncer, syncer, 10);
+    List<String> results = new ArrayList<>();
+    for (String path : Arrays.asList("/a/1.jpg", "/a/2.jpg", "/b/3.jpg")) {
+      batch.add(new File(path + ".tmp"), new File(path), false,
+          (committed, error) -> results.add(committed + " " + error));
+    }
+
+    assertEquals(3, batch.sync());
+    assertEquals(Arrays.asList("file /a/1.jpg.tmp", "file /a/2.jpg.tmp", "file /b/3.jpg.tmp",
+        "commit /a/1.jpg", "commit /a/2.jpg", "commit /b/3.jpg", "dir /a", "dir /b"), syncer.calls);
+    assertEquals(Arrays.asList("true null", "true null", "true null"), results);
+    // Nothing is synced twice
+    assertEquals(0, batch.sync());
+  }
+
+  @Test
+  public void sync_putsOnlySyncedFilesInPlace() {
+    IOException fileError = new IOException("file");
+    IOException folderError = new IOException("folder");
+    syncer.failures.put("/a/1.jpg.tmp", fileError);
+    syncer.failures.put("/b", folderError);
+    SyncBatch batch = new SyncBatch(syncer, syncer, 10);
+    Map<String, IOException> errors = new HashMap<>();
+    Map<String, Boolean> committed = new HashMap<>();
+    for (String path : Arrays.asList("/a/1.jpg", "/a/2.jpg", "/b/3.jpg")) {
+      batch.add(new File(path + ".tmp"), new File(path), false, (inPlace, error) -> {
+        committed.put(path, inPlace);
+        errors.put(path, error);
+      });
+    }
+
+    batch.sync();
+    assertFalse(syncer.calls.contains("commit /a/1.jpg"));
+    assertSame(fileError, errors.get("/a/1.jpg"));
+    assertFalse(committed.get("/a/1.jpg"));
+    assertNull(errors.get("/a/2.jpg"));
+    // In place, but the rename may not survive a crash
+    assertSame(folderError, errors.get("/b/3.jpg"));
+    assertTrue(committed.get("/b/3.jpg"));
+  }
+
+  @Test
+  public void add_reportsFullBatch() {
+    SyncBatch batch = new SyncBatch(syncer, syncer, 2);
+    assertFalse(batch.add(new File("/a/1.tmp"), new File("/a/1.jpg"), false, (committed, error) -> { }));
+    assertTrue(batch.add(new File("/a/2.tmp"), new File("/a/2.jpg"), false, (committed, error) -> { }));
+  }
+
+  @Test
+  public void durability_movesNeverGoUnsynced() throws TransferException {
+    assertEquals(Durability.PER_BATCH, Durability.NONE.forMoves());
+    assertEquals(Durability.PER_FILE, Durability.PER_FILE.forMoves());
+    assertEquals(Durability.PER_BATCH, Durability.forName("perBatch"));
+    assertNull(Durability.forName("sometimes"));
+
+    TransferOptions options = TransferOptions.DEFAULT.merge(Collections.singletonMap("durability", "none"));
+    assertEquals(Durability.NONE, options.durability);
+    assertEquals("none", options.toArguments().get("durability"));
+  }
+
+  private static final class RecordingSyncer implements SyncBatch.Syncer, SyncBatch.Committer {
+    final List<String> calls = new ArrayList<>();
+    final Map<String, IOException> failures = new HashMap<>();
+
+    @Override
+    public void syncFile(File file) throws IOException {
+      record("file ", file);
+    }
+
+    @Override
+    public void syncDirectory(File directory) throws IOException {
+      record("dir ", directory);
+    }
+
+    @Override
+    public void commit(File temporaryFile, File destFile, boolean replace) throws IOException {
+      record("commit ", destFile);
+    }
+
+    private void record(String kind, File file) throws IOException {
+      calls.add(kind + file.getPath());
+      IOException failure = failures.get(file.getPath());
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
+}
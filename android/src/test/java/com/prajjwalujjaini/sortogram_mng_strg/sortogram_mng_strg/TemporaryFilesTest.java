@@ -0,0 +1,282 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg.TestFiles.read;
+import static com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg.TestFiles.write;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TemporaryFilesTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final RecordingStorageBackend storage = new RecordingStorageBackend(false);
+  private ExecutorService mainThread;
+  private File sorted;
+
+  @Before
+  public void setUp() throws IOException {
+    mainThread = Executors.newSingleThreadExecutor();
+    sorted = folder.newFolder("sorted");
+  }
+
+  @After
+  public void tearDown() {
+    mainThread.shutdownNow();
+  }
+
+  @Test
+  public void temporaryFileFor_isHiddenNextToItsDestination() {
+    File temporaryFile = TemporaryFiles.temporaryFileFor(new File(sorted, "IMG_1.jpg"));
+    assertEquals(new File(sorted, ".IMG_1.jpg.sortogram-tmp"), temporaryFile);
+    assertTrue(TemporaryFiles.isTemporaryFile(temporaryFile.getName()));
+    assertFalse(TemporaryFiles.isTemporaryFile("IMG_1.jpg"));
+    assertFalse(TemporaryFiles.isTemporaryFile(".nomedia"));
+  }
+
+  @Test
+  public void commit_renamesOverTheDestinationThenSyncsItsFolder() throws IOException {
+    File dest = write(sorted, "IMG_1.jpg", "old");
+    File temporaryFile = write(sorted, ".IMG_1.jpg.sortogram-tmp", "new");
+
+    new TemporaryFiles(storage).commit(temporaryFile, dest, true, true);
+    assertEquals("new", read(dest));
+    assertFalse(temporaryFile.exists());
+    assertEquals(Arrays.asList("rename .IMG_1.jpg.sortogram-tmp IMG_1.jpg", "syncDirectory sorted"), storage.calls);
+  }
+
+  @Test
+  public void commit_removesTheTemporaryFileIfTheRenameFails() throws IOException {
+    // A folder that is not empty cannot be renamed over
+    File dest = new File(sorted, "IMG_1.jpg");
+    write(dest, "IMG_2.jpg", "other");
+    File temporaryFile = write(sorted, ".IMG_1.jpg.sortogram-tmp", "new");
+
+    try {
+      new TemporaryFiles(storage).commit(temporaryFile, dest, true, true);
+      fail("Rename over a folder succeeded");
+    } catch (IOException expected) {
+      // Reported as a failed copy
+    }
+    assertFalse(temporaryFile.exists());
+    assertFalse(storage.calls.contains("syncDirectory sorted"));
+  }
+
+  @Test
+  public void claimFreeName_reservesTheNameWithItsTemporaryFileOnly() throws IOException {
+    File dest = write(sorted, "IMG_1.jpg", "image");
+    write(sorted, "IMG_1 (1).jpg", "image");
+    TemporaryFiles temporaryFiles = new TemporaryFiles(storage);
+
+    File claimed = temporaryFiles.claimFreeName(dest);
+    assertEquals("IMG_1 (2).jpg", claimed.getName());
+    assertFalse(claimed.exists());
+    assertTrue(TemporaryFiles.temporaryFileFor(claimed).exists());
+    assertEquals("IMG_1 (3).jpg", temporaryFiles.claimFreeName(dest).getName());
+
+    // A name given back can be claimed again
+    temporaryFiles.release(claimed);
+    assertFalse(TemporaryFiles.temporaryFileFor(claimed).exists());
+    assertEquals("IMG_1 (2).jpg", temporaryFiles.claimFreeName(dest).getName());
+  }
+
+  @Test
+  public void release_canKeepThePartialCopyOfACancelledJob() throws IOException {
+    File dest = write(sorted, "IMG_1.jpg", "image");
+    TemporaryFiles temporaryFiles = new TemporaryFiles(storage);
+    File claimed = temporaryFiles.claimFreeName(dest);
+    File partial = write(sorted, TemporaryFiles.temporaryFileFor(claimed).getName(), "partial");
+
+    temporaryFiles.release(claimed, true);
+    assertEquals("partial", read(partial));
+    // The partial copy still keeps the name from other transfers, but the claim is gone
+    assertEquals("IMG_1 (2).jpg", temporaryFiles.claimFreeName(dest).getName());
+    temporaryFiles.release(claimed);
+    assertTrue(partial.exists());
+  }
+
+  @Test
+  public void commit_neverReplacesAClaimedNameTakenMeanwhile() throws IOException {
+    TemporaryFiles temporaryFiles = new TemporaryFiles(storage);
+    File claimed = temporaryFiles.claimFreeName(write(sorted, "IMG_1.jpg", "image"));
+    File temporaryFile = write(sorted, TemporaryFiles.temporaryFileFor(claimed).getName(), "copy");
+    write(sorted, claimed.getName(), "other");
+
+    try {
+      temporaryFiles.commit(temporaryFile, claimed, false, true);
+      fail("Commit replaced a file it did not claim");
+    } catch (DestinationExistsException expected) {
+      // Reported as DEST_EXISTS
+    }
+    assertEquals("other", read(claimed));
+    assertFalse(temporaryFile.exists());
+  }
+
+  @Test
+  public void renameInto_movesToAClaimedNameAndDropsItsReservation() throws IOException {
+    TemporaryFiles temporaryFiles = new TemporaryFiles(storage);
+    File claimed = temporaryFiles.claimFreeName(write(sorted, "IMG_1.jpg", "image"));
+    File source = write(folder.getRoot(), "IMG_1.jpg", "moved");
+
+    assertTrue(temporaryFiles.renameInto(source, claimed, false));
+    assertEquals("moved", read(claimed));
+    assertEquals(Arrays.asList("IMG_1 (1).jpg", "IMG_1.jpg"), sortedNames());
+  }
+
+  @Test
+  public void commit_replacesOnlyAFileTheConflictPolicyOverwrites() throws IOException {
+    // Free when the conflict policy looked, written by another app before the copy finished
+    File dest = new File(sorted, "IMG_1.jpg");
+    File temporaryFile = write(sorted, ".IMG_1.jpg.sortogram-tmp", "copy");
+    write(sorted, dest.getName(), "other");
+
+    try {
+      new TemporaryFiles(storage).commit(temporaryFile, dest, false, true);
+      fail("Commit replaced a file that appeared after the conflict check");
+    } catch (DestinationExistsException expected) {
+      // Reported as DEST_EXISTS
+    }
+    assertEquals("other", read(dest));
+    assertFalse(temporaryFile.exists());
+  }
+
+  @Test
+  public void renameInto_neverReplacesAFileThatAppearedMeanwhile() throws IOException {
+    File dest = write(sorted, "IMG_1.jpg", "other");
+    File source = write(folder.getRoot(), "IMG_1.jpg", "moved");
+
+    try {
+      new TemporaryFiles(storage).renameInto(source, dest, false);
+      fail("Rename replaced a file that appeared after the conflict check");
+    } catch (DestinationExistsException expected) {
+      // The move keeps its source
+    }
+    assertEquals("other", read(dest));
+    assertEquals("moved", read(source));
+  }
+
+  @Test
+  public void sweep_deletesLeftoversOfEarlierProcessesOnly() throws IOException {
+    long earlier = System.currentTimeMillis() - 60000;
+    new TemporaryFiles(storage).register(sorted);
+    File leftover = write(sorted, ".IMG_1.jpg.sortogram-tmp", "partial");
+    File resumable = write(sorted, ".IMG_2.jpg.sortogram-tmp", "partial");
+    File image = write(sorted, "IMG_3.jpg", "image");
+    for (File file : Arrays.asList(leftover, resumable, image)) {
+      assertTrue(file.setLastModified(earlier));
+    }
+
+    // The next process, which is already writing a copy of its own
+    TemporaryFiles temporaryFiles = new TemporaryFiles(storage);
+    File current = write(sorted, ".IMG_4.jpg.sortogram-tmp", "partial");
+    temporaryFiles.sweep(Collections.singleton(resumable));
+
+    assertFalse(leftover.exists());
+    assertTrue(resumable.exists());
+    assertTrue(image.exists());
+    assertTrue(current.exists());
+    // Still holds temporary files, so the next sweep looks here again
+    assertEquals(Collections.singleton(sorted.getAbsolutePath()), storage.loadTemporaryDirectories());
+  }
+
+  @Test
+  public void sweep_forgetsFoldersWithoutTemporaryFiles() throws IOException {
+    new TemporaryFiles(storage).register(sorted);
+    assertTrue(write(sorted, ".IMG_1.jpg.sortogram-tmp", "partial").setLastModified(System.currentTimeMillis() - 60000));
+
+    new TemporaryFiles(storage).sweep(Collections.emptySet());
+    assertEquals(Collections.emptyList(), Arrays.asList(sorted.list()));
+    assertTrue(storage.loadTemporaryDirectories().isEmpty());
+  }
+
+  @Test
+  public void copyImage_leavesNoTraceOfAFailedCopyToAClaimedName() throws Exception {
+    File source = write(folder.getRoot(), "IMG_1.jpg", "new");
+    File dest = write(sorted, "IMG_1.jpg", "old");
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("sourcePath", source.getPath());
+    arguments.put("destinationPath", dest.getPath());
+    arguments.put("conflictPolicy", "rename");
+    arguments.put("durability", "perBatch");
+
+    storage.syncFailure = new IOException("No space left on device");
+    assertEquals("COPY_FAILED", call("copyImage", arguments));
+    assertEquals(Collections.singletonList("IMG_1.jpg"), sortedNames());
+
+    storage.syncFailure = null;
+    assertEquals(true, call("copyImage", arguments));
+    assertEquals("new", read(new File(sorted, "IMG_1 (1).jpg")));
+    assertEquals(Arrays.asList("IMG_1 (1).jpg", "IMG_1.jpg"), sortedNames());
+  }
+
+  @Test
+  public void copyImage_removesACopyThatCouldNotBeSynced() throws Exception {
+    File source = write(folder.getRoot(), "IMG_1.jpg", "new");
+    File dest = write(sorted, "IMG_1.jpg", "old");
+    storage.syncFailure = new IOException("No space left on device");
+
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("sourcePath", source.getPath());
+    arguments.put("destinationPath", dest.getPath());
+    arguments.put("conflictPolicy", "overwrite");
+    arguments.put("durability", "perBatch");
+    assertEquals("COPY_FAILED", call("copyImage", arguments));
+    // The unsynced copy never replaced the destination, and its temporary file is gone
+    assertEquals("old", read(dest));
+    assertEquals(Collections.singletonList("IMG_1.jpg"), Arrays.asList(sorted.list()));
+  }
+
+  @Test
+  public void copyImage_neverReplacesAFileThatAppearedDuringTheCopy() throws Exception {
+    File source = write(folder.getRoot(), "IMG_1.jpg", "new");
+    File dest = new File(sorted, "IMG_1.jpg");
+    storage.beforeFileSync = () -> {
+      try {
+        write(sorted, dest.getName(), "other");
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    };
+
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("sourcePath", source.getPath());
+    arguments.put("destinationPath", dest.getPath());
+    arguments.put("conflictPolicy", "fail");
+    arguments.put("durability", "perBatch");
+    assertEquals("DEST_EXISTS", call("copyImage", arguments));
+    assertEquals("other", read(dest));
+    assertEquals(Collections.singletonList("IMG_1.jpg"), sortedNames());
+  }
+
+  /** Calls {@code method} on a plugin using {@link #storage} and returns its reply, or the error code. */
+  private Object call(String method, Map<String, Object> arguments) throws InterruptedException {
+    SortogramMngStrgPlugin plugin = new SortogramMngStrgPlugin(storage, new InMemoryMediaIndex(0), mainThread);
+    try {
+      return ResultCapture.call(plugin, mainThread, method, arguments);
+    } finally {
+      plugin.onDetachedFromEngine(null);
+    }
+  }
+
+  private List<String> sortedNames() {
+    List<String> names = Arrays.asList(sorted.list());
+    Collections.sort(names);
+    return names;
+  }
+}
@@ -0,0 +1,51 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/** Writes and reads the files that tests transfer, creating folders as needed. */
+final class TestFiles {
+  private TestFiles() {}
+
+  static File write(File directory, String name, byte[] data) throws IOException {
+    File file = new File(directory, name);
+    file.getParentFile().mkdirs();
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(data);
+    }
+    return file;
+  }
+
+  static File write(File directory, String name, String content) throws IOException {
+    return write(directory, name, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Writes {@code size} bytes that are random but the same for each {@code name}, a block at a time. */
+  static File writeRandom(File directory, String name, long size) throws IOException {
+    File file = new File(directory, name);
+    file.getParentFile().mkdirs();
+    byte[] block = new byte[1024 * 1024];
+    Random random = new Random(name.hashCode());
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      for (long written = 0; written < size; written += block.length) {
+        random.nextBytes(block);
+        out.write(block, 0, (int) Math.min(block.length, size - written));
+      }
+    }
+    return file;
+  }
+
+  static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  static byte[] randomBytes(int size, long seed) {
+    byte[] data = new byte[size];
+    new Random(seed).nextBytes(data);
+    return data;
+  }
+}
@@ -0,0 +1,189 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.flutter.plugin.common.MethodCall;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TransferJobTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private ExecutorService mainThread;
+  private File jobDirectory;
+  private RecordingStorageBackend storage;
+  private SortogramMngStrgPlugin plugin;
+
+  @Before
+  public void setUp() throws IOException {
+    mainThread = Executors.newSingleThreadExecutor();
+    jobDirectory = folder.newFolder("jobs");
+    storage = new RecordingStorageBackend(false);
+    plugin = new SortogramMngStrgPlugin(storage, new InMemoryMediaIndex(0), mainThread, jobDirectory);
+  }
+
+  @After
+  public void tearDown() {
+    plugin.onDetachedFromEngine(null);
+    mainThread.shutdownNow();
+  }
+
+  @Test
+  public void resumeTransfer_continuesAParallelCopyFromAGapFreeCheckpoint() throws Exception {
+    File source = write("IMG_1.jpg", PipelinedCopyEngine.PARALLEL_THRESHOLD + 16L * 1024 * 1024);
+    File dest = new File(folder.newFolder("sorted"), "IMG_1.jpg");
+    List<TransferItem> items = Collections.singletonList(new TransferItem(source.getPath(), dest.getPath()));
+    TransferOptions options = TransferOptions.DEFAULT.merge(Collections.singletonMap("verification", "size"));
+    TransferJournal journal = TransferJournal.create(new File(jobDirectory, "job-1.journal"), "job-1", false,
+        options.toArguments(), items);
+
+    // A first run that copies in four ranges, cancelled right after its first checkpoint
+    TransferJob job = new TransferJob("job-1", false, options, items, journal, null);
+    ResumeHandle resume = job.resumeHandle(0);
+    resume.onStarted(dest.getPath());
+    CopyEngine.CopyListener listener = job.listenerFor(0, resume, (bytesCopied, totalBytes) -> {
+      if (bytesCopied >= TransferJob.CHECKPOINT_INTERVAL) {
+        job.cancel();
+      }
+    });
+    try {
+      new FileCopier(new TransferMetrics()).copy(source, TemporaryFiles.temporaryFileFor(dest), 0,
+          new PipelinedCopyEngine(CopyEngines.CHANNEL, true, 4), null, listener);
+      fail("Copy was not cancelled");
+    } catch (TransferCancelledException expected) {
+      // The partial copy stays for the resume
+    }
+    job.finish();
+    assertTrue(TransferJournal.load(journal.getFile()).resumeOffset(0) >= TransferJob.CHECKPOINT_INTERVAL);
+
+    assertEquals("job-1", call("resumeTransfer", Collections.singletonMap("jobId", "job-1")));
+    Map<?, ?> status = awaitJob("job-1");
+    assertEquals("completed", status.get("state"));
+    assertEquals(true, ((Map<?, ?>) ((List<?>) status.get("results")).get(0)).get("success"));
+    assertEquals(FileVerifier.hashFile(source), FileVerifier.hashFile(dest));
+    assertFalse(TemporaryFiles.temporaryFileFor(dest).exists());
+  }
+
+  @Test
+  public void startTransfer_perBatchPutsOnlySyncedCopiesInPlace() throws Exception {
+    File sorted = folder.newFolder("sorted");
+    List<Map<String, Object>> items = new ArrayList<>();
+    for (int i = 1; i <= 3; i++) {
+      File source = write("IMG_" + i + ".jpg", 1000 + i);
+      Map<String, Object> item = new HashMap<>();
+      item.put("sourcePath", source.getPath());
+      item.put("destinationPath", new File(sorted, source.getName()).getPath());
+      items.add(item);
+    }
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("items", items);
+    arguments.put("move", true);
+    arguments.put("durability", "perBatch");
+
+    Map<?, ?> status = awaitJob((String) call("startTransfer", arguments));
+    assertEquals(3, status.get("filesCompleted"));
+    List<String> calls = new ArrayList<>(storage.calls);
+    for (int i = 1; i <= 3; i++) {
+      String name = "IMG_" + i + ".jpg";
+      String temporaryName = TemporaryFiles.temporaryFileFor(new File(sorted, name)).getName();
+      assertTrue(new File(sorted, name).exists());
+      // Synced before it is renamed into place, and the source only goes once the rename is durable
+      int synced = calls.indexOf("syncFile " + temporaryName);
+      int renamed = calls.indexOf("renameNoReplace " + temporaryName + " " + name);
+      int folderSynced = calls.lastIndexOf("syncDirectory sorted");
+      int deleted = calls.indexOf("delete " + name);
+      assertTrue(calls.toString(), synced >= 0 && synced < renamed && renamed < folderSynced && folderSynced < deleted);
+    }
+  }
+
+  @Test
+  public void resumeTransfer_rejectsASecondResumeOfTheSameJob() throws Exception {
+    File source = write("IMG_1.jpg", 1000);
+    File dest = new File(folder.newFolder("sorted"), "IMG_1.jpg");
+    TransferJournal.create(new File(jobDirectory, "job-1.journal"), "job-1", false,
+        TransferOptions.DEFAULT.toArguments(),
+        Collections.singletonList(new TransferItem(source.getPath(), dest.getPath()))).close();
+
+    // Both calls reach the plugin before the first one has registered its job
+    ResultCapture first = new ResultCapture();
+    ResultCapture second = new ResultCapture();
+    Map<String, Object> arguments = Collections.singletonMap("jobId", "job-1");
+    mainThread.execute(() -> {
+      plugin.onMethodCall(new MethodCall("resumeTransfer", arguments), first);
+      plugin.onMethodCall(new MethodCall("resumeTransfer", arguments), second);
+    });
+    assertEquals("job-1", first.await());
+    assertEquals("JOB_RUNNING", second.await());
+
+    assertEquals("completed", awaitJob("job-1").get("state"));
+    assertTrue(dest.exists());
+    // A finished job is dropped once its final status has been read
+    assertNull(call("getTransferStatus", arguments));
+  }
+
+  @Test
+  public void resumeTransfer_neverReplacesAFileCreatedSinceTheCrash() throws Exception {
+    File source = write("IMG_1.jpg", 1000);
+    File sorted = folder.newFolder("sorted");
+    File claimed = new File(sorted, "IMG_1 (1).jpg");
+    List<TransferItem> items = Collections.singletonList(
+        new TransferItem(source.getPath(), new File(sorted, "IMG_1.jpg").getPath()));
+    TransferOptions options = TransferOptions.DEFAULT.merge(Collections.singletonMap("conflictPolicy", "rename"));
+    TransferJournal journal = TransferJournal.create(new File(jobDirectory, "job-1.journal"), "job-1", true,
+        options.toArguments(), items);
+
+    // A first run that picked a new name, then the process died; the claim only lived in its memory
+    TransferJob job = new TransferJob("job-1", true, options, items, journal, null);
+    job.resumeHandle(0).onStarted(claimed.getPath());
+    job.cancel();
+    job.finish();
+    File other = write("other.jpg", 2000);
+    assertTrue(other.renameTo(claimed));
+
+    assertEquals("job-1", call("resumeTransfer", Collections.singletonMap("jobId", "job-1")));
+    Map<?, ?> result = (Map<?, ?>) ((List<?>) awaitJob("job-1").get("results")).get(0);
+    assertEquals("DEST_EXISTS", result.get("errorCode"));
+    assertEquals(2000, claimed.length());
+    assertEquals(1000, source.length());
+    assertFalse(TemporaryFiles.temporaryFileFor(claimed).exists());
+  }
+
+  /** Polls the status of {@code jobId} until it is no longer running. */
+  private Map<?, ?> awaitJob(String jobId) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 30000;
+    while (System.currentTimeMillis() < deadline) {
+      Map<?, ?> status = (Map<?, ?>) call("getTransferStatus", Collections.singletonMap("jobId", jobId));
+      if (status != null && !"running".equals(status.get("state"))) {
+        return status;
+      }
+      Thread.sleep(20);
+    }
+    throw new AssertionError("Job " + jobId + " did not finish");
+  }
+
+  /** Calls {@code method} on the plugin and returns its reply, or the error code if it failed. */
+  private Object call(String method, Map<String, Object> arguments) throws InterruptedException {
+    return ResultCapture.call(plugin, mainThread, method, arguments);
+  }
+
+  private File write(String name, long size) throws IOException {
+    return TestFiles.writeRandom(folder.getRoot(), name, size);
+  }
+}
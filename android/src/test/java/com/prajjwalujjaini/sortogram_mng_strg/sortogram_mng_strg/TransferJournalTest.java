@@ -0,0 +1,72 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TransferJournalTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void load_restoresHeaderAndRecords() throws IOException {
+    File file = folder.newFile("job.journal");
+    List<TransferItem> items = Arrays.asList(
+        new TransferItem("/a/1.jpg", "/b/1.jpg"),
+        new TransferItem("/a/2.jpg", "/b/2.jpg"),
+        new TransferItem("/a/3.jpg", "/b/3.jpg"));
+    TransferJournal journal = TransferJournal.create(file, "job-1", true,
+        Collections.singletonMap("copyEngine", "stream"), items);
+    journal.started(0);
+    journal.done(0, null);
+    journal.started(1);
+    journal.checkpoint(1, 16L * 1024 * 1024);
+    journal.started(2);
+    journal.done(2, "DEST_EXISTS");
+    journal.close();
+
+    TransferJournal.State state = TransferJournal.load(file);
+    assertEquals("job-1", state.jobId);
+    assertTrue(state.move);
+    assertEquals("stream", state.options.get("copyEngine"));
+    assertEquals(3, state.items.size());
+    assertEquals("/b/2.jpg", state.items.get(1).destinationPath);
+    assertTrue(state.completed.containsKey(0));
+    assertNull(state.completed.get(0));
+    assertEquals("DEST_EXISTS", state.completed.get(2));
+    assertFalse(state.completed.containsKey(1));
+    assertEquals(16L * 1024 * 1024, state.resumeOffset(1));
+  }
+
+  @Test
+  public void resumeOffset_distinguishesUnstartedFromStarted() throws IOException {
+    File file = folder.newFile("job.journal");
+    List<TransferItem> items = Arrays.asList(
+        new TransferItem("/a/1.jpg", "/b/1.jpg"),
+        new TransferItem("/a/2.jpg", "/b/2.jpg"));
+    TransferJournal journal = TransferJournal.create(file, "job-2", false,
+        Collections.<String, String>emptyMap(), items);
+    journal.started(1);
+    journal.close();
+
+    // Records appended after a reopen are read back too
+    journal = TransferJournal.reopen(file);
+    journal.checkpoint(1, 42);
+    journal.close();
+
+    TransferJournal.State state = TransferJournal.load(file);
+    assertEquals(-1, state.resumeOffset(0));
+    assertEquals(42, state.resumeOffset(1));
+    assertTrue(state.started.contains(1));
+  }
+}
@@ -0,0 +1,73 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import org.junit.Test;
+
+public class TransferMetricsTest {
+  @Test
+  public void histogram_bucketsCoverTheirValues() {
+    long[] values = { 0, 1, 15, 16, 17, 31, 32, 1000, 123456789L, Long.MAX_VALUE };
+    for (long value : values) {
+      int bucket = TransferMetrics.Histogram.bucketOf(value);
+      assertTrue(value + " below its bucket", TransferMetrics.Histogram.lowestValueIn(bucket) <= value);
+      assertTrue(value + " above its bucket", TransferMetrics.Histogram.highestValueIn(bucket) >= value);
+    }
+    // Neighbouring buckets meet without gaps
+    for (int bucket = 0; bucket < 500; bucket++) {
+      assertEquals(TransferMetrics.Histogram.highestValueIn(bucket) + 1,
+          TransferMetrics.Histogram.lowestValueIn(bucket + 1));
+    }
+  }
+
+  @Test
+  public void histogram_percentilesWithinBucketPrecision() {
+    TransferMetrics.Histogram histogram = new TransferMetrics.Histogram();
+    for (long micros = 1; micros <= 1000; micros++) {
+      histogram.record(micros * 1000);
+    }
+    assertEquals(1000, histogram.count());
+    assertWithin(500_000, histogram.valueAt(0.5));
+    assertWithin(990_000, histogram.valueAt(0.99));
+    assertEquals(1_000_000, histogram.valueAt(1.0));
+  }
+
+  @Test
+  public void toMap_reportsThroughputAndErrors() {
+    TransferMetrics metrics = new TransferMetrics();
+    metrics.recordCopy(10_000_000, 1_000_000_000L);
+    metrics.recordTransfer(true, new TransferOutcome("/a.jpg", 10_000_000, false), 2_000_000_000L);
+    metrics.recordTransfer(false, new TransferOutcome("/b.jpg", 5, true), 1000);
+    metrics.recordError("DEST_EXISTS");
+    metrics.recordError("DEST_EXISTS");
+
+    Map<String, Object> map = metrics.toMap();
+    assertEquals(10_000_000L, map.get("copyBytesPerSecond"));
+    assertEquals(1L, map.get("filesMoved"));
+    assertEquals(1L, map.get("filesSkipped"));
+    assertEquals(2L, ((Map<?, ?>) map.get("errors")).get("DEST_EXISTS"));
+    Map<?, ?> transfer = (Map<?, ?>) ((Map<?, ?>) map.get("phases")).get("transfer");
+    assertEquals(2L, transfer.get("count"));
+  }
+
+  @Test
+  public void reset_clearsEverything() {
+    TransferMetrics metrics = new TransferMetrics();
+    metrics.record(TransferMetrics.Phase.VERIFY, 5000);
+    metrics.recordError("COPY_FAILED");
+    metrics.reset();
+
+    Map<String, Object> map = metrics.toMap();
+    assertTrue(((Map<?, ?>) map.get("errors")).isEmpty());
+    Map<?, ?> verify = (Map<?, ?>) ((Map<?, ?>) map.get("phases")).get("verify");
+    assertEquals(0L, verify.get("count"));
+    assertEquals(0L, verify.get("maxUs"));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue("expected about " + expected + " but was " + actual,
+        Math.abs(actual - expected) <= expected / TransferMetrics.Histogram.SUB_BUCKETS);
+  }
+}
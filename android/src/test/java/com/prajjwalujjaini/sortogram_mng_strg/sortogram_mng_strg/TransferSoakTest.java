@@ -0,0 +1,241 @@
+package com.prajjwalujjaini.sortogram_mng_strg.sortogram_mng_strg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import androidx.annotation.NonNull;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Drives {@code moveImage} and {@code copyImage} through {@link SortogramMngStrgPlugin#onMethodCall}
+ * on a {@link RecordingStorageBackend} and an {@link InMemoryMediaIndex}, and prints files per
+ * second, reply latency, provider and storage calls and the allocation rate.
+ *
+ * The small workload always runs as a regression test of the pipeline. The 10k-file workloads only
+ * run with {@code ./gradlew testDebugUnitTest -Psoak}; {@code -PsoakFiles}, {@code -PsoakFileBytes}
+ * and {@code -PsoakProviderCallMs} change their size and the simulated binder round trip.
+ */
+public class TransferSoakTest {
+  private static final boolean SOAK = Boolean.getBoolean("sortogram.soak");
+  private static final int SOAK_FILES = Integer.getInteger("sortogram.soak.files", 10000);
+  private static final int FILE_BYTES = Integer.getInteger("sortogram.soak.fileBytes", 16 * 1024);
+  private static final long PROVIDER_CALL_NANOS =
+      TimeUnit.MILLISECONDS.toNanos(Long.getLong("sortogram.soak.providerCallMs", 2));
+  /** Calls awaited at once, like a Dart caller keeping a window of futures; below the queue capacity. */
+  private static final int IN_FLIGHT = 32;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private ExecutorService mainThread;
+
+  @Before
+  public void setUp() {
+    mainThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "main"));
+  }
+
+  @After
+  public void tearDown() {
+    mainThread.shutdownNow();
+  }
+
+  @Test
+  public void moveImage_smallWorkloadKeepsFilesAndIndexInStep() throws Exception {
+    Workload workload = new Workload("moveImage", 200, true, 0);
+    workload.run();
+
+    for (int i = 0; i < workload.files; i++) {
+      assertFalse(workload.source(i).exists());
+      assertTrue(workload.dest(i).exists());
+      assertFalse(workload.index.contains(workload.source(i)));
+      assertTrue(workload.index.contains(workload.dest(i)));
+    }
+    assertEquals(workload.files, workload.storage.renames.get());
+    assertEquals(workload.files, workload.index.updates.get());
+    // Batched: a provider call per flush, not per file
+    assertTrue(workload.index.batchCalls.get() < workload.files / 10);
+  }
+
+  @Test
+  public void copyImage_smallWorkloadKeepsSources() throws Exception {
+    Workload workload = new Workload("copyImage", 200, true, 0);
+    workload.run();
+
+    for (int i = 0; i < workload.files; i++) {
+      assertTrue(workload.source(i).exists());
+      assertEquals(FILE_BYTES, workload.dest(i).length());
+      assertTrue(workload.index.contains(workload.dest(i)));
+    }
+    assertEquals(2 * workload.files, workload.index.size());
+    // The default per-file durability syncs each copy through the storage backend before its rename
+    assertEquals(workload.files, workload.storage.fileSyncs.get());
+  }
+
+  @Test
+  public void soak_moveImageOnOneVolume() throws Exception {
+    assumeTrue(SOAK);
+    new Workload("moveImage", SOAK_FILES, true, PROVIDER_CALL_NANOS).run();
+  }
+
+  @Test
+  public void soak_moveImageAcrossVolumes() throws Exception {
+    assumeTrue(SOAK);
+    new Workload("moveImage", SOAK_FILES, false, PROVIDER_CALL_NANOS).run();
+  }
+
+  @Test
+  public void soak_copyImage() throws Exception {
+    assumeTrue(SOAK);
+    new Workload("copyImage", SOAK_FILES, true, PROVIDER_CALL_NANOS).run();
+  }
+
+  /** {@code files} images sent one call each to a fresh plugin, with a report printed at the end. */
+  private final class Workload {
+    final String method;
+    final int files;
+    final boolean sameVolume;
+    final RecordingStorageBackend storage;
+    final InMemoryMediaIndex index;
+    final File sourceDir;
+    final File destDir;
+
+    Workload(String method, int files, boolean sameVolume, long providerCallNanos) throws IOException {
+      this.method = method;
+      this.files = files;
+      this.sameVolume = sameVolume;
+      this.storage = new RecordingStorageBackend(sameVolume);
+      this.index = new InMemoryMediaIndex(providerCallNanos);
+      this.sourceDir = folder.newFolder("source");
+      this.destDir = new File(folder.getRoot(), "dest");
+      byte[] data = new byte[FILE_BYTES];
+      for (int i = 0; i < files; i++) {
+        // Distinct contents, so nothing can pass verification by accident
+        Arrays.fill(data, (byte) i);
+        data[0] = (byte) (i >> 8);
+        try (FileOutputStream out = new FileOutputStream(source(i))) {
+          out.write(data);
+        }
+        index.add(source(i), "image/jpeg");
+      }
+    }
+
+    File source(int i) {
+      return new File(sourceDir, String.format(Locale.ROOT, "IMG_%05d.jpg", i));
+    }
+
+    File dest(int i) {
+      return new File(destDir, String.format(Locale.ROOT, "IMG_%05d.jpg", i));
+    }
+
+    void run() throws Exception {
+      SortogramMngStrgPlugin plugin = new SortogramMngStrgPlugin(storage, index, mainThread);
+      TransferMetrics.Histogram latency = new TransferMetrics.Histogram();
+      Semaphore window = new Semaphore(IN_FLIGHT);
+      CountDownLatch replies = new CountDownLatch(files);
+      AtomicInteger failures = new AtomicInteger();
+      AtomicReference<String> firstFailure = new AtomicReference<>();
+
+      long allocatedBefore = allocatedBytes();
+      long startTime = System.nanoTime();
+      for (int i = 0; i < files; i++) {
+        window.acquire();
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("sourcePath", source(i).getPath());
+        arguments.put("destinationPath", dest(i).getPath());
+        long callTime = System.nanoTime();
+        MethodChannel.Result result = new MethodChannel.Result() {
+          @Override
+          public void success(Object value) {
+            done();
+          }
+
+          @Override
+          public void error(@NonNull String errorCode, String errorMessage, Object errorDetails) {
+            failures.incrementAndGet();
+            firstFailure.compareAndSet(null, errorCode + ": " + errorMessage);
+            done();
+          }
+
+          @Override
+          public void notImplemented() {
+            error("NOT_IMPLEMENTED", method, null);
+          }
+
+          private void done() {
+            latency.record(System.nanoTime() - callTime);
+            window.release();
+            replies.countDown();
+          }
+        };
+        // Method calls arrive on the platform thread, as from a Flutter engine
+        mainThread.execute(() -> plugin.onMethodCall(new MethodCall(method, arguments), result));
+      }
+      assertTrue("Timed out waiting for replies", replies.await(10, TimeUnit.MINUTES));
+      // What the flush interval would send shortly after the last reply
+      index.flush();
+      long elapsed = System.nanoTime() - startTime;
+      long allocated = allocatedBytes() - allocatedBefore;
+      plugin.onDetachedFromEngine(null);
+
+      double seconds = elapsed / 1e9;
+      System.out.println(String.format(Locale.ROOT,
+          "%s of %d files (%d KB, %s): %.0f files/s, latency p50 %d us, p99 %d us, max %d us",
+          method, files, FILE_BYTES / 1024, sameVolume ? "one volume" : "two volumes",
+          files / seconds, latency.valueAt(0.5) / 1000, latency.valueAt(0.99) / 1000,
+          latency.valueAt(1) / 1000));
+      System.out.println("  provider calls: " + (index.batchCalls.get() + index.scanCalls.get()) + " "
+          + index.toMap());
+      System.out.println("  storage calls: " + storage.toMap());
+      System.out.println(allocated >= 0
+          ? String.format(Locale.ROOT, "  allocated: %.1f MB/s, %d bytes per file", allocated / 1e6 / seconds,
+              allocated / files)
+          : "  allocated: not measurable on this JVM");
+      assertEquals("First failure: " + firstFailure.get(), 0, failures.get());
+    }
+  }
+
+  /**
+   * Bytes allocated so far by the threads alive now, or -1 if the JVM cannot tell. Threads that
+   * ended meanwhile are missing, but the I/O threads outlive a workload.
+   */
+  private static long allocatedBytes() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+    if (!allocations.isThreadAllocatedMemorySupported() || !allocations.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+    long total = 0;
+    for (long bytes : allocations.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+      // -1 for threads that ended while being asked
+      total += Math.max(0, bytes);
+    }
+    return total;
+  }
+}
@@ -1,5 +1,8 @@
 import 'package:flutter/foundation.dart';
 import 'sortogram_mng_strg_platform_interface.dart';
+import 'sortogram_mng_strg_types.dart';
+
+export 'sortogram_mng_strg_types.dart';
 
 /// Exception thrown when image moving operations fail
 class ImageMoveException implements Exception {
@@ -28,18 +31,21 @@ class SortogramMngStrg {
   ///
   /// [sourcePath] is the absolute path to the source image file
   /// [destinationPath] is the absolute path where the image should be moved to
+  /// [options] overrides the configured [TransferOptions] for this call
   ///
   /// Returns `true` if the move was successful
   ///
   /// Throws [ImageMoveException] if:
   /// - The source file doesn't exist
-  /// - The destination already exists
+  /// - The destination already exists and [TransferOptions.conflictPolicy]
+  ///   does not allow writing it
   /// - The file type is not supported (supported: jpg, jpeg, png, webp)
   /// - Required permissions are not granted
   /// - Any other error occurs during the move operation
   Future<bool> moveImage({
     required String sourcePath,
     required String destinationPath,
+    TransferOptions? options,
   }) async {
     debugPrint(
       '\n\n\n ***************************Moving image...***************************',
@@ -51,6 +57,7 @@ class SortogramMngStrg {
       final result = await SortogramMngStrgPlatform.instance.moveImage(
         sourcePath: sourcePath,
         destinationPath: destinationPath,
+        options: options,
       );
       debugPrint('Move operation ${result ? 'successful' : 'failed'}');
       debugPrint(
@@ -71,18 +78,21 @@ class SortogramMngStrg {
   ///
   /// [sourcePath] is the absolute path to the source image file
   /// [destinationPath] is the absolute path where the image should be copied to
+  /// [options] overrides the configured [TransferOptions] for this call
   ///
   /// Returns `true` if the copy was successful
   ///
   /// Throws [ImageMoveException] if:
   /// - The source file doesn't exist
-  /// - The destination already exists
+  /// - The destination already exists and [TransferOptions.conflictPolicy]
+  ///   does not allow writing it
   /// - The file type is not supported (supported: jpg, jpeg, png, webp)
   /// - Required permissions are not granted
   /// - Any other error occurs during the copy operation
   Future<bool> copyImage({
     required String sourcePath,
     required String destinationPath,
+    TransferOptions? options,
   }) async {
     debugPrint(
       '\n\n\n ***************************Copying image...***************************',
@@ -94,6 +104,7 @@ class SortogramMngStrg {
       final result = await SortogramMngStrgPlatform.instance.copyImage(
         sourcePath: sourcePath,
         destinationPath: destinationPath,
+        options: options,
       );
       debugPrint('Copy operation ${result ? 'successful' : 'failed'}');
       debugPrint(
@@ -109,4 +120,340 @@ class SortogramMngStrg {
       rethrow;
     }
   }
+
+  /// Moves many image files in a single platform call
+  ///
+  /// Permissions are checked once for the whole batch, and the files are
+  /// moved in parallel on background threads.
+  ///
+  /// [onProgress] receives throttled progress updates of this batch.
+  ///
+  /// Returns one [TransferResult] per entry of [requests], in the same order.
+  /// Failures of individual files (for example `DEST_EXISTS`) are reported in
+  /// their result instead of throwing.
+  ///
+  /// Throws [ImageMoveException] only if the whole batch could not run, for
+  /// example when permissions are denied.
+  Future<List<TransferResult>> moveImages(
+    List<TransferRequest> requests, {
+    TransferOptions? options,
+    void Function(TransferProgress progress)? onProgress,
+  }) async {
+    debugPrint('Moving ${requests.length} images in one batch...');
+    final results = await SortogramMngStrgPlatform.instance.moveImages(
+      requests,
+      options: options,
+      onProgress: onProgress,
+    );
+    debugPrint(
+      'Batch move done: ${results.where((r) => r.success).length}/${results.length} succeeded',
+    );
+    return results;
+  }
+
+  /// Copies many image files in a single platform call
+  ///
+  /// [onProgress] receives throttled progress updates of this batch.
+  ///
+  /// Returns one [TransferResult] per entry of [requests], in the same order.
+  ///
+  /// Throws [ImageMoveException] only if the whole batch could not run.
+  Future<List<TransferResult>> copyImages(
+    List<TransferRequest> requests, {
+    TransferOptions? options,
+    void Function(TransferProgress progress)? onProgress,
+  }) async {
+    debugPrint('Copying ${requests.length} images in one batch...');
+    final results = await SortogramMngStrgPlatform.instance.copyImages(
+      requests,
+      options: options,
+      onProgress: onProgress,
+    );
+    debugPrint(
+      'Batch copy done: ${results.where((r) => r.success).length}/${results.length} succeeded',
+    );
+    return results;
+  }
+
+  /// Moves a whole folder of images in a single platform call
+  ///
+  /// Every image below [sourcePath] is moved to the same relative path below
+  /// [destinationPath], keeping the subfolders. Only the supported image types
+  /// are moved; other files stay where they are, and so do the folders still
+  /// holding them. A folder of nothing but images moved to a new folder on the
+  /// same volume is renamed as a whole.
+  ///
+  /// [options] apply to every image, and [onProgress] receives throttled
+  /// progress updates. Failures of individual images are counted and listed in
+  /// the result instead of throwing.
+  ///
+  /// Throws [ImageMoveException] if the folder could not be moved at all, for
+  /// example `SOURCE_NOT_FOUND`, or `INVALID_ARGUMENTS` when [destinationPath]
+  /// lies inside [sourcePath].
+  Future<DirectoryTransferResult> moveDirectory({
+    required String sourcePath,
+    required String destinationPath,
+    TransferOptions? options,
+    void Function(TransferProgress progress)? onProgress,
+  }) async {
+    debugPrint('Moving folder $sourcePath to $destinationPath...');
+    final result = await SortogramMngStrgPlatform.instance.moveDirectory(
+      sourcePath: sourcePath,
+      destinationPath: destinationPath,
+      options: options,
+      onProgress: onProgress,
+    );
+    debugPrint('Folder move done: $result');
+    return result;
+  }
+
+  /// Copies a whole folder of images in a single platform call
+  ///
+  /// Works like [moveDirectory], except that the source folder is left as it
+  /// is.
+  Future<DirectoryTransferResult> copyDirectory({
+    required String sourcePath,
+    required String destinationPath,
+    TransferOptions? options,
+    void Function(TransferProgress progress)? onProgress,
+  }) async {
+    debugPrint('Copying folder $sourcePath to $destinationPath...');
+    final result = await SortogramMngStrgPlatform.instance.copyDirectory(
+      sourcePath: sourcePath,
+      destinationPath: destinationPath,
+      options: options,
+      onProgress: onProgress,
+    );
+    debugPrint('Folder copy done: $result');
+    return result;
+  }
+
+  /// Resolves [path] to the absolute path of an existing image
+  ///
+  /// [path] may be a file path, a `content://media/...` URI, a MediaStore
+  /// image id or a display name. Lookups are served from an in-memory index
+  /// of the gallery, built on first use and kept up to date as images change.
+  ///
+  /// Throws [ImageMoveException] with `PATH_NOT_FOUND` if nothing matches.
+  Future<String> getRealPath(String path) async {
+    debugPrint('Resolving real path for: $path');
+    return SortogramMngStrgPlatform.instance.getRealPath(path);
+  }
+
+  /// Resolves many entries in one platform call, see [getRealPath]
+  ///
+  /// Returns one path per entry of [paths], in the same order, or `null` for
+  /// entries that match no existing image.
+  Future<List<String?>> getRealPaths(List<String> paths) async {
+    debugPrint('Resolving ${paths.length} real paths...');
+    return SortogramMngStrgPlatform.instance.getRealPaths(paths);
+  }
+
+  /// Reads one page of the image gallery straight from the MediaStore
+  ///
+  /// Only [columns] are read and sent over the channel, stored by column
+  /// rather than as one map per image. Pass the previous page as [after] to
+  /// read the page following it; pages are located by their sort key, so deep
+  /// pages are as fast as the first one.
+  ///
+  /// Asks for read permission if needed. Throws [ImageMoveException] with
+  /// `UNSUPPORTED_COLUMN` if a column does not exist on this Android version.
+  Future<ImagePage> listImages({
+    required List<ImageColumn> columns,
+    int pageSize = 500,
+    ImageOrder orderBy = ImageOrder.dateModified,
+    bool descending = true,
+    ImagePage? after,
+  }) => SortogramMngStrgPlatform.instance.listImages(
+    columns: columns,
+    pageSize: pageSize,
+    orderBy: orderBy,
+    descending: descending,
+    after: after,
+  );
+
+  /// Streams the whole image gallery page by page, see [listImages]
+  ///
+  /// The native side reads ahead while earlier pages are being delivered.
+  /// Only one listing streams at a time; listening again, or cancelling the
+  /// subscription, stops the previous one.
+  Stream<ImagePage> listAllImages({
+    required List<ImageColumn> columns,
+    int pageSize = 500,
+    ImageOrder orderBy = ImageOrder.dateModified,
+    bool descending = true,
+  }) => SortogramMngStrgPlatform.instance.listAllImages(
+    columns: columns,
+    pageSize: pageSize,
+    orderBy: orderBy,
+    descending: descending,
+  );
+
+  /// Finds images (jpg, jpeg, png, webp) with identical contents in [folders]
+  ///
+  /// Only files that share their size are compared, first by a hash of their
+  /// first and last 16 KB and then, if that matches too, by a hash of the
+  /// whole file. Hashes are kept in an on-device index, so files unchanged
+  /// since an earlier scan are not read again.
+  ///
+  /// Set [recursive] to `false` to skip subfolders. Hidden files and folders
+  /// are always skipped.
+  Future<DuplicateScan> findDuplicates(
+    List<String> folders, {
+    bool recursive = true,
+  }) async {
+    debugPrint('Finding duplicates in $folders...');
+    final scan = await SortogramMngStrgPlatform.instance.findDuplicates(
+      folders,
+      recursive: recursive,
+    );
+    debugPrint(
+      'Duplicate scan done: ${scan.groups.length} groups, ${scan.cacheHits} cached, ${scan.filesHashed} hashed',
+    );
+    return scan;
+  }
+
+  /// Starts a long-running transfer job in the background and returns its id
+  ///
+  /// Unlike [moveImages] and [copyImages], the returned future completes as
+  /// soon as the job is running. The job can be stopped with [cancelTransfer]
+  /// and checked with [getTransferStatus]; its progress updates on
+  /// [transferProgress] carry the job id as their operation id.
+  ///
+  /// Progress is journaled on the device, so a job that was cancelled or
+  /// whose app was killed can be continued with [resumeTransfer]. Files of
+  /// 64 MB and more continue from their last checkpoint instead of from the
+  /// start.
+  Future<String> startTransfer(
+    List<TransferRequest> requests, {
+    required bool move,
+    TransferOptions? options,
+  }) async {
+    debugPrint('Starting transfer job for ${requests.length} images...');
+    return SortogramMngStrgPlatform.instance.startTransfer(
+      requests,
+      move: move,
+      options: options,
+    );
+  }
+
+  /// Sorts images into folders by their metadata as a background job and
+  /// returns its id
+  ///
+  /// The images in [folders] (and their subfolders, unless [recursive] is
+  /// `false`) and the image files in [paths] are matched against [rules] on
+  /// the native side, reading only the EXIF header of each image. Images are
+  /// moved to the destination of the first rule they match; the others stay
+  /// where they are.
+  ///
+  /// The moves run as a job like [startTransfer]: progress arrives on
+  /// [transferProgress] under the returned id, and the job can be cancelled
+  /// and resumed.
+  ///
+  /// Throws [ImageMoveException] with `INVALID_ARGUMENTS` if a rule is
+  /// malformed.
+  Future<String> startSort({
+    List<String>? folders,
+    List<String>? paths,
+    required List<SortRule> rules,
+    bool recursive = true,
+    TransferOptions? options,
+  }) async {
+    debugPrint('Starting sort of ${folders ?? paths} with ${rules.length} rules...');
+    return SortogramMngStrgPlatform.instance.startSort(
+      folders: folders,
+      paths: paths,
+      rules: rules,
+      recursive: recursive,
+      options: options,
+    );
+  }
+
+  /// Stops a running job; files being copied stop at their next chunk
+  ///
+  /// Returns `false` if no job with [jobId] runs in this session.
+  Future<bool> cancelTransfer(String jobId) async {
+    debugPrint('Cancelling transfer job $jobId...');
+    return SortogramMngStrgPlatform.instance.cancelTransfer(jobId);
+  }
+
+  /// Continues a cancelled or interrupted job, skipping the files it already
+  /// finished, and returns its id
+  ///
+  /// Throws [ImageMoveException] with `JOB_NOT_FOUND` if there is nothing to
+  /// resume, or `JOB_RUNNING` if the job is still running.
+  Future<String> resumeTransfer(String jobId) async {
+    debugPrint('Resuming transfer job $jobId...');
+    return SortogramMngStrgPlatform.instance.resumeTransfer(jobId);
+  }
+
+  /// Returns the status of a job started or resumed in this session, or
+  /// `null` if there is none
+  ///
+  /// The final status of a finished job is returned once; later calls
+  /// return `null`.
+  Future<TransferJobStatus?> getTransferStatus(String jobId) =>
+      SortogramMngStrgPlatform.instance.getTransferStatus(jobId);
+
+  /// Returns the ids of jobs that stopped before finishing, for example
+  /// because the app was killed, and can be passed to [resumeTransfer]
+  Future<List<String>> getResumableTransfers() =>
+      SortogramMngStrgPlatform.instance.getResumableTransfers();
+
+  /// Returns where transfers spent their time since the plugin started or
+  /// [resetMetrics] was called: latency percentiles per step (permission
+  /// check, copy, fsync, verify, MediaStore batches, media scan, ...), copy
+  /// throughput, file counts and errors by code
+  ///
+  /// Recording is cheap and always on, so this can be read in production.
+  Future<TransferMetrics> getMetrics() =>
+      SortogramMngStrgPlatform.instance.getMetrics();
+
+  /// Clears the metrics returned by [getMetrics]
+  Future<void> resetMetrics() => SortogramMngStrgPlatform.instance.resetMetrics();
+
+  /// Throttled progress updates (bytes, files and throughput) of every running
+  /// move and copy call, including single-file calls
+  Stream<TransferProgress> get transferProgress =>
+      SortogramMngStrgPlatform.instance.transferProgress;
+
+  /// Configures how many file operations the native side runs in parallel
+  ///
+  /// [ioPoolSize] is the number of background worker threads (default 2-4,
+  /// depending on the device)
+  /// [ioQueueCapacity] is how many operations may wait for a free worker
+  /// (default 64); further calls fail with the `BUSY` error code
+  /// [defaultOptions] sets the [TransferOptions] used by calls that do not
+  /// pass their own, e.g. the [CopyEngine] (default [CopyEngine.pipelined])
+  /// [mediaStoreFlushSize] is how many MediaStore operations are sent to the
+  /// media provider in one batch (default 200)
+  /// [mediaStoreFlushInterval] is how long single moves/copies may wait for
+  /// more work before their MediaStore update is sent (default 500 ms); batch
+  /// calls always flush before they complete
+  /// [progressInterval] is the minimum time between two progress updates of
+  /// one call (default 100 ms)
+  /// [pathIndexMaxBytes] caps the memory of the index used by [getRealPath]
+  /// (default 16 MB); the least recently used entries are dropped first
+  ///
+  /// Throws [ImageMoveException] if a value is not positive or not recognised.
+  Future<void> configure({
+    int? ioPoolSize,
+    int? ioQueueCapacity,
+    TransferOptions? defaultOptions,
+    int? mediaStoreFlushSize,
+    Duration? mediaStoreFlushInterval,
+    Duration? progressInterval,
+    int? pathIndexMaxBytes,
+  }) async {
+    debugPrint('Configuring native executor...');
+    await SortogramMngStrgPlatform.instance.configure(
+      ioPoolSize: ioPoolSize,
+      ioQueueCapacity: ioQueueCapacity,
+      defaultOptions: defaultOptions,
+      mediaStoreFlushSize: mediaStoreFlushSize,
+      mediaStoreFlushInterval: mediaStoreFlushInterval,
+      progressInterval: progressInterval,
+      pathIndexMaxBytes: pathIndexMaxBytes,
+    );
+  }
 }
@@ -0,0 +1,176 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'sortogram_mng_strg.dart';
+import 'sortogram_mng_strg_types.dart';
+
+/// The binary messages of the `sortogram_mng_strg/bulk` channel
+///
+/// The calls with an entry per file (`moveImages`, `copyImages`,
+/// `getRealPaths`) send their paths as one flat table instead of a map per
+/// file, and results come back as one status byte per item plus the
+/// exceptions by index. The layout is described in `BulkProtocol.java`, which
+/// this must match.
+class BulkProtocol {
+  BulkProtocol._();
+
+  static const channelName = 'sortogram_mng_strg/bulk';
+
+  static const version = 1;
+
+  static const moveImages = 1;
+  static const copyImages = 2;
+  static const getRealPaths = 3;
+
+  static const _replyError = 1;
+  static const _itemSkipped = 1;
+  static const _itemFailed = 2;
+  static const _nullLength = -1;
+
+  /// Encodes a request; [paths] alternate source and destination for transfers
+  static ByteData encodeRequest(
+    int operation,
+    Map<String, String> arguments,
+    List<String> paths,
+  ) {
+    final strings = <Uint8List>[
+      for (final argument in arguments.entries) ...[
+        utf8.encode(argument.key),
+        utf8.encode(argument.value),
+      ],
+      for (final path in paths) utf8.encode(path),
+    ];
+    var size = 2 + 4 + 4;
+    for (final bytes in strings) {
+      size += 4 + bytes.length;
+    }
+
+    final buffer = Uint8List(size);
+    final data = ByteData.sublistView(buffer);
+    data.setUint8(0, version);
+    data.setUint8(1, operation);
+    data.setUint32(2, arguments.length);
+    var offset = 6;
+    for (var i = 0; i < strings.length; i++) {
+      if (i == arguments.length * 2) {
+        data.setUint32(offset, paths.length);
+        offset += 4;
+      }
+      data.setInt32(offset, strings[i].length);
+      buffer.setAll(offset + 4, strings[i]);
+      offset += 4 + strings[i].length;
+    }
+    if (paths.isEmpty) {
+      data.setUint32(offset, 0);
+    }
+    return data;
+  }
+
+  /// Decodes the reply to a transfer of [requests]
+  ///
+  /// Throws [ImageMoveException] if the native side failed the whole call.
+  static List<TransferResult> decodeTransferResults(
+    ByteData? reply,
+    List<TransferRequest> requests,
+  ) {
+    final reader = _openReply(reply);
+    final count = reader.uint32();
+    if (count != requests.length) {
+      throw ImageMoveException(
+        'INVALID_REPLY',
+        'Expected ${requests.length} results but got $count',
+      );
+    }
+    final statuses = reader.bytes(count);
+    final renamed = <int, String>{};
+    for (var i = reader.uint32(); i > 0; i--) {
+      renamed[reader.uint32()] = reader.string()!;
+    }
+    final codes = [for (var i = reader.uint16(); i > 0; i--) reader.string()!];
+    final errors = <int, (String, String?)>{};
+    for (var i = reader.uint32(); i > 0; i--) {
+      final index = reader.uint32();
+      errors[index] = (codes[reader.uint16()], reader.string());
+    }
+
+    return [
+      for (var i = 0; i < count; i++)
+        TransferResult(
+          sourcePath: requests[i].sourcePath,
+          destinationPath: requests[i].destinationPath,
+          success: statuses[i] != _itemFailed,
+          skipped: statuses[i] == _itemSkipped,
+          finalDestinationPath: statuses[i] == _itemFailed
+              ? null
+              : renamed[i] ?? requests[i].destinationPath,
+          errorCode: errors[i]?.$1,
+          errorMessage: errors[i]?.$2,
+        ),
+    ];
+  }
+
+  /// Decodes resolved paths, `null` for those that did not resolve
+  static List<String?> decodePaths(ByteData? reply) {
+    final reader = _openReply(reply);
+    return [for (var i = reader.uint32(); i > 0; i--) reader.string()];
+  }
+
+  static _Reader _openReply(ByteData? reply) {
+    if (reply == null) {
+      throw ImageMoveException(
+        'NO_REPLY',
+        'The native side did not answer the bulk message',
+      );
+    }
+    final reader = _Reader(reply);
+    final replyVersion = reader.uint8();
+    if (replyVersion != version) {
+      throw ImageMoveException(
+        'INVALID_REPLY',
+        'Unsupported bulk protocol version $replyVersion',
+      );
+    }
+    if (reader.uint8() == _replyError) {
+      final code = reader.string()!;
+      throw ImageMoveException(code, reader.string() ?? 'Unknown error');
+    }
+    return reader;
+  }
+}
+
+/// Reads big-endian numbers and length-prefixed UTF-8 strings in order
+class _Reader {
+  final ByteData _data;
+  int _offset = 0;
+
+  _Reader(this._data);
+
+  int uint8() => _data.getUint8(_offset++);
+
+  int uint16() {
+    final value = _data.getUint16(_offset);
+    _offset += 2;
+    return value;
+  }
+
+  int uint32() {
+    final value = _data.getUint32(_offset);
+    _offset += 4;
+    return value;
+  }
+
+  Uint8List bytes(int length) {
+    final bytes = Uint8List.sublistView(_data, _offset, _offset + length);
+    _offset += length;
+    return bytes;
+  }
+
+  String? string() {
+    final length = _data.getInt32(_offset);
+    _offset += 4;
+    if (length == BulkProtocol._nullLength) {
+      return null;
+    }
+    return utf8.decode(bytes(length));
+  }
+}
@@ -3,6 +3,8 @@ import 'package:flutter/services.dart';
 
 import 'sortogram_mng_strg_platform_interface.dart';
 import 'sortogram_mng_strg.dart';
+import 'sortogram_mng_strg_bulk_protocol.dart';
+import 'sortogram_mng_strg_types.dart';
 
 /// An implementation of [SortogramMngStrgPlatform] that uses method channels.
 class MethodChannelSortogramMngStrg extends SortogramMngStrgPlatform {
@@ -10,6 +12,34 @@ class MethodChannelSortogramMngStrg extends SortogramMngStrgPlatform {
   @visibleForTesting
   final methodChannel = const MethodChannel('sortogram_mng_strg');
 
+  /// The event channel that streams transfer progress from the native platform.
+  @visibleForTesting
+  final progressChannel = const EventChannel('sortogram_mng_strg/progress');
+
+  /// The event channel that streams gallery pages from the native platform.
+  @visibleForTesting
+  final imagesChannel = const EventChannel('sortogram_mng_strg/images');
+
+  /// The binary channel that carries the calls with an entry per file, see [BulkProtocol].
+  @visibleForTesting
+  final bulkChannel = const BasicMessageChannel<ByteData>(
+    BulkProtocol.channelName,
+    BinaryCodec(),
+  );
+
+  Stream<TransferProgress>? _transferProgress;
+  int _nextOperationId = 0;
+
+  /// Returns a new id that tags the progress events of one call.
+  String _newOperationId() => 'op-${_nextOperationId++}';
+
+  @override
+  Stream<TransferProgress> get transferProgress =>
+      _transferProgress ??= progressChannel
+          .receiveBroadcastStream()
+          .map((event) => TransferProgress.fromMap(event as Map))
+          .asBroadcastStream();
+
   @override
   Future<String?> getPlatformVersion() async {
     debugPrint('[Method Channel] Getting platform version...');
@@ -30,6 +60,7 @@ class MethodChannelSortogramMngStrg extends SortogramMngStrgPlatform {
   Future<bool> moveImage({
     required String sourcePath,
     required String destinationPath,
+    TransferOptions? options,
   }) async {
     debugPrint('[Method Channel] Moving image...');
     debugPrint('[Method Channel] Source: $sourcePath');
@@ -40,6 +71,8 @@ class MethodChannelSortogramMngStrg extends SortogramMngStrgPlatform {
       final result = await methodChannel.invokeMethod<bool>('moveImage', {
         'sourcePath': sourcePath,
         'destinationPath': destinationPath,
+        'operationId': _newOperationId(),
+        ...?options?.toMap(),
       });
       debugPrint('[Method Channel] Move result: ${result ?? false}');
       return result ?? false;
@@ -67,6 +100,7 @@ class MethodChannelSortogramMngStrg extends SortogramMngStrgPlatform {
   Future<bool> copyImage({
     required String sourcePath,
     required String destinationPath,
+    TransferOptions? options,
   }) async {
     debugPrint('[Method Channel] Copying image...');
     debugPrint('[Method Channel] Source: $sourcePath');
@@ -77,6 +111,8 @@ class MethodChannelSortogramMngStrg extends SortogramMngStrgPlatform {
       final result = await methodChannel.invokeMethod<bool>('copyImage', {
         'sourcePath': sourcePath,
         'destinationPath': destinationPath,
+        'operationId': _newOperationId(),
+        ...?options?.toMap(),
       });
       debugPrint('[Method Channel] Copy result: ${result ?? false}');
       return result ?? false;
@@ -99,4 +135,319 @@ class MethodChannelSortogramMngStrg extends SortogramMngStrgPlatform {
       rethrow;
     }
   }
+
+  @override
+  Future<List<TransferResult>> moveImages(
+    List<TransferRequest> requests, {
+    TransferOptions? options,
+    void Function(TransferProgress progress)? onProgress,
+  }) => _invokeBatch('moveImages', BulkProtocol.moveImages, requests, options, onProgress);
+
+  @override
+  Future<List<TransferResult>> copyImages(
+    List<TransferRequest> requests, {
+    TransferOptions? options,
+    void Function(TransferProgress progress)? onProgress,
+  }) => _invokeBatch('copyImages', BulkProtocol.copyImages, requests, options, onProgress);
+
+  Future<List<TransferResult>> _invokeBatch(
+    String method,
+    int operation,
+    List<TransferRequest> requests,
+    TransferOptions? options,
+    void Function(TransferProgress progress)? onProgress,
+  ) async {
+    debugPrint('[Method Channel] Invoking native $method for ${requests.length} items');
+
+    final operationId = _newOperationId();
+    final subscription = onProgress == null
+        ? null
+        : transferProgress
+              .where((progress) => progress.operationId == operationId)
+              .listen(onProgress);
+    try {
+      final reply = await bulkChannel.send(
+        BulkProtocol.encodeRequest(
+          operation,
+          {
+            'operationId': operationId,
+            ...?options?.toMap(),
+          },
+          [
+            for (final request in requests) ...[
+              request.sourcePath,
+              request.destinationPath,
+            ],
+          ],
+        ),
+      );
+      final results = BulkProtocol.decodeTransferResults(reply, requests);
+      debugPrint(
+        '[Method Channel] $method done: ${results.where((r) => r.success).length}/${results.length} succeeded',
+      );
+      return results;
+    } catch (e, stack) {
+      debugPrint('[Method Channel] Error during $method: $e');
+      debugPrint('[Method Channel] Stack trace: $stack');
+
+      if (e is PlatformException) {
+        throw ImageMoveException(
+          e.code,
+          e.message ?? 'Unknown error',
+          e.details,
+        );
+      }
+      rethrow;
+    } finally {
+      await subscription?.cancel();
+    }
+  }
+
+  @override
+  Future<DirectoryTransferResult> moveDirectory({
+    required String sourcePath,
+    required String destinationPath,
+    TransferOptions? options,
+    void Function(TransferProgress progress)? onProgress,
+  }) => _invokeDirectory('moveDirectory', sourcePath, destinationPath, options, onProgress);
+
+  @override
+  Future<DirectoryTransferResult> copyDirectory({
+    required String sourcePath,
+    required String destinationPath,
+    TransferOptions? options,
+    void Function(TransferProgress progress)? onProgress,
+  }) => _invokeDirectory('copyDirectory', sourcePath, destinationPath, options, onProgress);
+
+  Future<DirectoryTransferResult> _invokeDirectory(
+    String method,
+    String sourcePath,
+    String destinationPath,
+    TransferOptions? options,
+    void Function(TransferProgress progress)? onProgress,
+  ) async {
+    debugPrint('[Method Channel] Invoking native $method: $sourcePath -> $destinationPath');
+
+    final operationId = _newOperationId();
+    final subscription = onProgress == null
+        ? null
+        : transferProgress
+              .where((progress) => progress.operationId == operationId)
+              .listen(onProgress);
+    try {
+      final result = await _invokeMethod<Map<dynamic, dynamic>>(method, {
+        'sourcePath': sourcePath,
+        'destinationPath': destinationPath,
+        'operationId': operationId,
+        ...?options?.toMap(),
+      });
+      final transfer = DirectoryTransferResult.fromMap(result!);
+      debugPrint('[Method Channel] $method done: $transfer');
+      return transfer;
+    } finally {
+      await subscription?.cancel();
+    }
+  }
+
+  @override
+  Future<String> getRealPath(String path) async {
+    debugPrint('[Method Channel] Resolving real path for: $path');
+    final realPath = await _invokeMethod<String>('getRealPath', {'path': path});
+    return realPath!;
+  }
+
+  @override
+  Future<List<String?>> getRealPaths(List<String> paths) async {
+    debugPrint('[Method Channel] Resolving ${paths.length} real paths');
+    final reply = await bulkChannel.send(
+      BulkProtocol.encodeRequest(BulkProtocol.getRealPaths, const {}, paths),
+    );
+    return BulkProtocol.decodePaths(reply);
+  }
+
+  @override
+  Future<ImagePage> listImages({
+    required List<ImageColumn> columns,
+    int pageSize = 500,
+    ImageOrder orderBy = ImageOrder.dateModified,
+    bool descending = true,
+    ImagePage? after,
+  }) async {
+    final page = await _invokeMethod<Map<dynamic, dynamic>>('listImages', {
+      'columns': columns.map((c) => c.name).toList(),
+      'pageSize': pageSize,
+      'orderBy': orderBy.name,
+      'descending': descending,
+      'afterId': after?.nextAfterId,
+      'afterDateModified': after?.nextAfterDateModified,
+    });
+    return ImagePage.fromMap(page!);
+  }
+
+  @override
+  Stream<ImagePage> listAllImages({
+    required List<ImageColumn> columns,
+    int pageSize = 500,
+    ImageOrder orderBy = ImageOrder.dateModified,
+    bool descending = true,
+  }) {
+    debugPrint('[Method Channel] Streaming gallery in pages of $pageSize');
+    return imagesChannel
+        .receiveBroadcastStream({
+          'columns': columns.map((c) => c.name).toList(),
+          'pageSize': pageSize,
+          'orderBy': orderBy.name,
+          'descending': descending,
+        })
+        .map((page) => ImagePage.fromMap(page as Map))
+        .handleError((Object e) {
+          if (e is PlatformException) {
+            throw ImageMoveException(e.code, e.message ?? 'Unknown error', e.details);
+          }
+          throw e;
+        });
+  }
+
+  @override
+  Future<DuplicateScan> findDuplicates(
+    List<String> folders, {
+    bool recursive = true,
+  }) async {
+    debugPrint('[Method Channel] Finding duplicates in ${folders.length} folders');
+    final scan = await _invokeMethod<Map<dynamic, dynamic>>('findDuplicates', {
+      'folders': folders,
+      'recursive': recursive,
+    });
+    return DuplicateScan.fromMap(scan!);
+  }
+
+  @override
+  Future<String> startTransfer(
+    List<TransferRequest> requests, {
+    required bool move,
+    TransferOptions? options,
+  }) async {
+    debugPrint('[Method Channel] Starting ${move ? 'move' : 'copy'} job for ${requests.length} items');
+    final jobId = await _invokeMethod<String>('startTransfer', {
+      'items': requests.map((r) => r.toMap()).toList(),
+      'move': move,
+      ...?options?.toMap(),
+    });
+    debugPrint('[Method Channel] Job started: $jobId');
+    return jobId!;
+  }
+
+  @override
+  Future<String> startSort({
+    List<String>? folders,
+    List<String>? paths,
+    required List<SortRule> rules,
+    bool recursive = true,
+    TransferOptions? options,
+  }) async {
+    debugPrint('[Method Channel] Starting sort with ${rules.length} rules');
+    final jobId = await _invokeMethod<String>('startSort', {
+      if (folders != null) 'folders': folders,
+      if (paths != null) 'paths': paths,
+      'rules': rules.map((r) => r.toMap()).toList(),
+      'recursive': recursive,
+      ...?options?.toMap(),
+    });
+    debugPrint('[Method Channel] Sort job started: $jobId');
+    return jobId!;
+  }
+
+  @override
+  Future<bool> cancelTransfer(String jobId) async =>
+      await _invokeMethod<bool>('cancelTransfer', {'jobId': jobId}) ?? false;
+
+  @override
+  Future<String> resumeTransfer(String jobId) async {
+    debugPrint('[Method Channel] Resuming job $jobId');
+    return (await _invokeMethod<String>('resumeTransfer', {'jobId': jobId}))!;
+  }
+
+  @override
+  Future<TransferJobStatus?> getTransferStatus(String jobId) async {
+    final status = await _invokeMethod<Map<dynamic, dynamic>>(
+      'getTransferStatus',
+      {'jobId': jobId},
+    );
+    return status == null ? null : TransferJobStatus.fromMap(status);
+  }
+
+  @override
+  Future<List<String>> getResumableTransfers() async {
+    final jobIds = await _invokeMethod<List<dynamic>>('getResumableTransfers', null);
+    return (jobIds ?? const []).cast<String>();
+  }
+
+  @override
+  Future<TransferMetrics> getMetrics() async {
+    final metrics = await _invokeMethod<Map<dynamic, dynamic>>('getMetrics', null);
+    return TransferMetrics.fromMap(metrics!);
+  }
+
+  @override
+  Future<void> resetMetrics() async {
+    debugPrint('[Method Channel] Resetting metrics');
+    await _invokeMethod<void>('resetMetrics', null);
+  }
+
+  Future<T?> _invokeMethod<T>(String method, Map<String, dynamic>? arguments) async {
+    try {
+      return await methodChannel.invokeMethod<T>(method, arguments);
+    } catch (e, stack) {
+      debugPrint('[Method Channel] Error during $method: $e');
+      debugPrint('[Method Channel] Stack trace: $stack');
+
+      if (e is PlatformException) {
+        throw ImageMoveException(
+          e.code,
+          e.message ?? 'Unknown error',
+          e.details,
+        );
+      }
+      rethrow;
+    }
+  }
+
+  @override
+  Future<void> configure({
+    int? ioPoolSize,
+    int? ioQueueCapacity,
+    TransferOptions? defaultOptions,
+    int? mediaStoreFlushSize,
+    Duration? mediaStoreFlushInterval,
+    Duration? progressInterval,
+    int? pathIndexMaxBytes,
+  }) async {
+    debugPrint('[Method Channel] Configuring native executor...');
+    debugPrint('[Method Channel] Pool size: $ioPoolSize, queue capacity: $ioQueueCapacity');
+
+    try {
+      await methodChannel.invokeMethod<void>('configure', {
+        'ioPoolSize': ioPoolSize,
+        'ioQueueCapacity': ioQueueCapacity,
+        'mediaStoreFlushSize': mediaStoreFlushSize,
+        'mediaStoreFlushIntervalMs': mediaStoreFlushInterval?.inMilliseconds,
+        'progressIntervalMs': progressInterval?.inMilliseconds,
+        'pathIndexMaxBytes': pathIndexMaxBytes,
+        ...?defaultOptions?.toMap(),
+      });
+      debugPrint('[Method Channel] Configuration applied');
+    } catch (e, stack) {
+      debugPrint('[Method Channel] Error during configure: $e');
+      debugPrint('[Method Channel] Stack trace: $stack');
+
+      if (e is PlatformException) {
+        throw ImageMoveException(
+          e.code,
+          e.message ?? 'Unknown error',
+          e.details,
+        );
+      }
+      rethrow;
+    }
+  }
 }
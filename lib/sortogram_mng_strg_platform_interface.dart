@@ -2,6 +2,7 @@ import 'package:flutter/foundation.dart';
 import 'package:plugin_platform_interface/plugin_platform_interface.dart';
 
 import 'sortogram_mng_strg_method_channel.dart';
+import 'sortogram_mng_strg_types.dart';
 
 abstract class SortogramMngStrgPlatform extends PlatformInterface {
   /// Constructs a SortogramMngStrgPlatform.
@@ -45,6 +46,7 @@ abstract class SortogramMngStrgPlatform extends PlatformInterface {
   Future<bool> moveImage({
     required String sourcePath,
     required String destinationPath,
+    TransferOptions? options,
   }) {
     debugPrint('[Platform Interface] moveImage() called but not implemented');
     debugPrint('[Platform Interface] Source: $sourcePath');
@@ -68,10 +70,214 @@ abstract class SortogramMngStrgPlatform extends PlatformInterface {
   Future<bool> copyImage({
     required String sourcePath,
     required String destinationPath,
+    TransferOptions? options,
   }) {
     debugPrint('[Platform Interface] copyImage() called but not implemented');
     debugPrint('[Platform Interface] Source: $sourcePath');
     debugPrint('[Platform Interface] Destination: $destinationPath');
     throw UnimplementedError('copyImage() has not been implemented.');
   }
+
+  /// Moves many image files in one platform call
+  ///
+  /// Permissions are checked once for the whole batch and the files are
+  /// processed in parallel on the native side.
+  ///
+  /// Returns one [TransferResult] per request, in the same order; a failing
+  /// item does not fail the call. [onProgress] receives the progress updates
+  /// of this call.
+  Future<List<TransferResult>> moveImages(
+    List<TransferRequest> requests, {
+    TransferOptions? options,
+    void Function(TransferProgress progress)? onProgress,
+  }) {
+    debugPrint('[Platform Interface] moveImages() called but not implemented');
+    throw UnimplementedError('moveImages() has not been implemented.');
+  }
+
+  /// Copies many image files in one platform call
+  ///
+  /// Returns one [TransferResult] per request, in the same order; a failing
+  /// item does not fail the call.
+  Future<List<TransferResult>> copyImages(
+    List<TransferRequest> requests, {
+    TransferOptions? options,
+    void Function(TransferProgress progress)? onProgress,
+  }) {
+    debugPrint('[Platform Interface] copyImages() called but not implemented');
+    throw UnimplementedError('copyImages() has not been implemented.');
+  }
+
+  /// Moves the images below a directory into the same relative paths below
+  /// another one, in one platform call
+  ///
+  /// The tree is listed on the native side; only files of the supported image
+  /// types are moved.
+  Future<DirectoryTransferResult> moveDirectory({
+    required String sourcePath,
+    required String destinationPath,
+    TransferOptions? options,
+    void Function(TransferProgress progress)? onProgress,
+  }) {
+    debugPrint('[Platform Interface] moveDirectory() called but not implemented');
+    throw UnimplementedError('moveDirectory() has not been implemented.');
+  }
+
+  /// Copies the images below a directory into the same relative paths below
+  /// another one, in one platform call
+  Future<DirectoryTransferResult> copyDirectory({
+    required String sourcePath,
+    required String destinationPath,
+    TransferOptions? options,
+    void Function(TransferProgress progress)? onProgress,
+  }) {
+    debugPrint('[Platform Interface] copyDirectory() called but not implemented');
+    throw UnimplementedError('copyDirectory() has not been implemented.');
+  }
+
+  /// Starts a cancellable, resumable transfer job and returns its id
+  ///
+  /// The files are processed in the background; the returned future completes
+  /// as soon as the job is running. Progress updates of the job carry the job
+  /// id as their operation id.
+  Future<String> startTransfer(
+    List<TransferRequest> requests, {
+    required bool move,
+    TransferOptions? options,
+  }) {
+    debugPrint('[Platform Interface] startTransfer() called but not implemented');
+    throw UnimplementedError('startTransfer() has not been implemented.');
+  }
+
+  /// Starts a job that moves the images in [folders] and [paths] to the
+  /// folders [rules] pick from their metadata, and returns its id
+  Future<String> startSort({
+    List<String>? folders,
+    List<String>? paths,
+    required List<SortRule> rules,
+    bool recursive = true,
+    TransferOptions? options,
+  }) {
+    debugPrint('[Platform Interface] startSort() called but not implemented');
+    throw UnimplementedError('startSort() has not been implemented.');
+  }
+
+  /// Asks a running job to stop; returns `false` if no such job is running
+  Future<bool> cancelTransfer(String jobId) {
+    debugPrint('[Platform Interface] cancelTransfer() called but not implemented');
+    throw UnimplementedError('cancelTransfer() has not been implemented.');
+  }
+
+  /// Continues a cancelled or interrupted job where it stopped
+  Future<String> resumeTransfer(String jobId) {
+    debugPrint('[Platform Interface] resumeTransfer() called but not implemented');
+    throw UnimplementedError('resumeTransfer() has not been implemented.');
+  }
+
+  /// Returns the status of a job started in this session, or `null`; a
+  /// finished job's final status is returned once
+  Future<TransferJobStatus?> getTransferStatus(String jobId) {
+    debugPrint('[Platform Interface] getTransferStatus() called but not implemented');
+    throw UnimplementedError('getTransferStatus() has not been implemented.');
+  }
+
+  /// Returns the ids of jobs that stopped before finishing and can be resumed
+  Future<List<String>> getResumableTransfers() {
+    debugPrint('[Platform Interface] getResumableTransfers() called but not implemented');
+    throw UnimplementedError('getResumableTransfers() has not been implemented.');
+  }
+
+  /// Returns the counters and latencies recorded for all transfers
+  Future<TransferMetrics> getMetrics() {
+    debugPrint('[Platform Interface] getMetrics() called but not implemented');
+    throw UnimplementedError('getMetrics() has not been implemented.');
+  }
+
+  /// Clears the recorded metrics
+  Future<void> resetMetrics() {
+    debugPrint('[Platform Interface] resetMetrics() called but not implemented');
+    throw UnimplementedError('resetMetrics() has not been implemented.');
+  }
+
+  /// Resolves a file path, content URI, MediaStore image id or display name
+  /// to the absolute path of an existing image
+  ///
+  /// Throws PlatformException with `PATH_NOT_FOUND` if nothing matches
+  Future<String> getRealPath(String path) {
+    debugPrint('[Platform Interface] getRealPath() called but not implemented');
+    throw UnimplementedError('getRealPath() has not been implemented.');
+  }
+
+  /// Resolves many entries in one call; entries that match no existing image
+  /// resolve to `null`
+  Future<List<String?>> getRealPaths(List<String> paths) {
+    debugPrint('[Platform Interface] getRealPaths() called but not implemented');
+    throw UnimplementedError('getRealPaths() has not been implemented.');
+  }
+
+  /// Reads one page of the image gallery
+  ///
+  /// Only [columns] are returned. Pass the previous page as [after] to read
+  /// the page following it.
+  Future<ImagePage> listImages({
+    required List<ImageColumn> columns,
+    int pageSize = 500,
+    ImageOrder orderBy = ImageOrder.dateModified,
+    bool descending = true,
+    ImagePage? after,
+  }) {
+    debugPrint('[Platform Interface] listImages() called but not implemented');
+    throw UnimplementedError('listImages() has not been implemented.');
+  }
+
+  /// Streams every page of the image gallery, see [listImages]
+  Stream<ImagePage> listAllImages({
+    required List<ImageColumn> columns,
+    int pageSize = 500,
+    ImageOrder orderBy = ImageOrder.dateModified,
+    bool descending = true,
+  }) {
+    throw UnimplementedError('listAllImages() has not been implemented.');
+  }
+
+  /// Finds images with identical contents in [folders]
+  Future<DuplicateScan> findDuplicates(
+    List<String> folders, {
+    bool recursive = true,
+  }) {
+    debugPrint('[Platform Interface] findDuplicates() called but not implemented');
+    throw UnimplementedError('findDuplicates() has not been implemented.');
+  }
+
+  /// Throttled progress updates of every running move and copy call
+  Stream<TransferProgress> get transferProgress {
+    throw UnimplementedError('transferProgress has not been implemented.');
+  }
+
+  /// Configures the native background I/O executor
+  ///
+  /// [ioPoolSize] is the number of worker threads used for file operations
+  /// [ioQueueCapacity] is the maximum number of operations waiting for a worker;
+  /// calls beyond that fail with the `BUSY` error code
+  ///
+  /// [defaultOptions] replaces the defaults used by calls that pass no options
+  /// [mediaStoreFlushSize] and [mediaStoreFlushInterval] control how MediaStore
+  /// updates are batched
+  /// [progressInterval] is the minimum time between two progress updates of
+  /// one call
+  /// [pathIndexMaxBytes] caps the memory used by the path lookup index
+  ///
+  /// Parameters left `null` keep their current value.
+  Future<void> configure({
+    int? ioPoolSize,
+    int? ioQueueCapacity,
+    TransferOptions? defaultOptions,
+    int? mediaStoreFlushSize,
+    Duration? mediaStoreFlushInterval,
+    Duration? progressInterval,
+    int? pathIndexMaxBytes,
+  }) {
+    debugPrint('[Platform Interface] configure() called but not implemented');
+    throw UnimplementedError('configure() has not been implemented.');
+  }
 }
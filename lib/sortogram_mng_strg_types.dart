@@ -0,0 +1,729 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+/// How the native side moves bytes from the source to the destination file
+enum CopyEngine {
+  /// Reads into a heap buffer and writes it back out (the original behaviour)
+  stream,
+
+  /// Uses in-kernel `FileChannel.transferTo`, falling back to large direct
+  /// buffers when the kernel cannot transfer directly
+  channel,
+
+  /// Like [channel] for small files. Hashed copies of files from 4 MB on are
+  /// read and hashed on one thread while another writes. Unhashed files from
+  /// 64 MB on are copied as several ranges in parallel (default).
+  pipelined,
+}
+
+/// How thoroughly a copied file is checked before it is trusted
+///
+/// For moves, the source is only deleted after the check passed. Hashing uses
+/// xxHash64.
+enum Verification {
+  /// No check beyond the copy itself
+  none,
+
+  /// Source and destination must have the same size
+  size,
+
+  /// The data is hashed while it is copied and only the destination is read
+  /// back (default). Disables in-kernel transfers for [CopyEngine.channel].
+  streamingHash,
+
+  /// Both files are read back and hashed after the copy
+  full,
+}
+
+/// How the MediaStore entry of a moved image is brought up to date
+enum MediaStoreMoveMode {
+  /// The existing entry is updated in place, keeping its media ID, thumbnails
+  /// and cached metadata (default). Falls back to [replace] when no entry
+  /// matches the source path.
+  update,
+
+  /// The old entry is deleted and a new one inserted, so the media provider
+  /// re-indexes and re-thumbnails the file
+  replace,
+}
+
+/// What a move or copy does when its destination already exists
+enum ConflictPolicy {
+  /// The file fails with `DEST_EXISTS` (default)
+  fail,
+
+  /// The destination is kept if it already holds the same content, which is
+  /// checked by size and a cached hash; a move then only removes its source.
+  /// A destination with different content still fails with `DEST_EXISTS`.
+  skipIfIdentical,
+
+  /// The new content is written next to the destination and renamed over it
+  /// once verified, so the destination is never left half written
+  overwrite,
+
+  /// The file is written to the first free name like `IMG_1 (1).jpg` instead
+  rename,
+}
+
+/// When copied files are synced to storage
+///
+/// A sync per file is safe but often the largest cost of copying many small
+/// photos. Same-volume moves are renames and are not affected.
+enum Durability {
+  /// Every file is synced before it appears at its destination (default)
+  perFile,
+
+  /// The files of a batch call or job are synced together with their folders
+  /// at its end, and at the latest every 256 files. Moves delete their sources
+  /// only after that, so a crash can leave a file at both places but never at
+  /// neither.
+  perBatch,
+
+  /// Copies are never synced and may be lost if the device loses power soon
+  /// after. Moves use [perBatch] instead.
+  none,
+}
+
+/// Per-call settings for moves and copies
+///
+/// Settings left `null` use the defaults set with `SortogramMngStrg.configure`.
+class TransferOptions {
+  /// The copy engine used when a file has to be copied
+  final CopyEngine? copyEngine;
+
+  /// How the copy is verified; same-volume moves are renames and need none
+  final Verification? verification;
+
+  /// How the MediaStore entry of a moved image is updated
+  final MediaStoreMoveMode? mediaStoreMoveMode;
+
+  /// What happens when the destination already exists
+  final ConflictPolicy? conflictPolicy;
+
+  /// When copied files are synced to storage
+  final Durability? durability;
+
+  const TransferOptions({
+    this.copyEngine,
+    this.verification,
+    this.mediaStoreMoveMode,
+    this.conflictPolicy,
+    this.durability,
+  });
+
+  Map<String, String> toMap() => {
+    if (copyEngine != null) 'copyEngine': copyEngine!.name,
+    if (verification != null) 'verification': verification!.name,
+    if (mediaStoreMoveMode != null)
+      'mediaStoreMoveMode': mediaStoreMoveMode!.name,
+    if (conflictPolicy != null) 'conflictPolicy': conflictPolicy!.name,
+    if (durability != null) 'durability': durability!.name,
+  };
+}
+
+/// A single source/destination pair for the batch APIs
+class TransferRequest {
+  /// Absolute path to the source image file
+  final String sourcePath;
+
+  /// Absolute path where the image should end up
+  final String destinationPath;
+
+  const TransferRequest({
+    required this.sourcePath,
+    required this.destinationPath,
+  });
+
+  Map<String, String> toMap() => {
+    'sourcePath': sourcePath,
+    'destinationPath': destinationPath,
+  };
+}
+
+/// One rule of a sort started with `startSort`
+///
+/// An image goes to the [destination] of the first rule whose conditions all
+/// hold for it. Conditions left `null` always hold.
+class SortRule {
+  /// Absolute folder path the matching images are moved into
+  ///
+  /// May contain `{year}`, `{month}`, `{day}`, `{make}`, `{model}` and
+  /// `{extension}`. The date is the EXIF capture date, or the modification
+  /// date for images without one; a missing camera maker or model becomes
+  /// `Unknown`.
+  final String destination;
+
+  /// Whether the image must (or must not) have an EXIF capture date
+  final bool? hasCaptureDate;
+
+  /// Whether the image must (or must not) have GPS coordinates
+  final bool? hasGps;
+
+  /// Camera maker the image must come from, ignoring case
+  final String? make;
+
+  /// Camera model the image must come from, ignoring case
+  final String? model;
+
+  /// File extensions (without the dot) the image must have, ignoring case
+  final List<String>? extensions;
+
+  const SortRule({
+    required this.destination,
+    this.hasCaptureDate,
+    this.hasGps,
+    this.make,
+    this.model,
+    this.extensions,
+  });
+
+  Map<String, dynamic> toMap() => {
+    'destination': destination,
+    if (hasCaptureDate != null) 'hasCaptureDate': hasCaptureDate,
+    if (hasGps != null) 'hasGps': hasGps,
+    if (make != null) 'make': make,
+    if (model != null) 'model': model,
+    if (extensions != null) 'extensions': extensions,
+  };
+}
+
+/// The outcome of one item of a batch move or copy
+class TransferResult {
+  final String sourcePath;
+  final String destinationPath;
+
+  /// Whether this item was transferred successfully
+  final bool success;
+
+  /// Whether the destination already held the same content, so nothing was
+  /// written (see [ConflictPolicy.skipIfIdentical])
+  final bool skipped;
+
+  /// Where the file ended up, which differs from [destinationPath] when
+  /// [ConflictPolicy.rename] picked another name. `null` if the item failed or
+  /// was completed by an earlier run of a resumed job.
+  final String? finalDestinationPath;
+
+  /// The error code (for example `DEST_EXISTS`) if [success] is `false`
+  final String? errorCode;
+
+  /// A human readable description of the error, if any
+  final String? errorMessage;
+
+  const TransferResult({
+    required this.sourcePath,
+    required this.destinationPath,
+    required this.success,
+    this.skipped = false,
+    this.finalDestinationPath,
+    this.errorCode,
+    this.errorMessage,
+  });
+
+  factory TransferResult.fromMap(Map<dynamic, dynamic> map) => TransferResult(
+    sourcePath: map['sourcePath'] as String,
+    destinationPath: map['destinationPath'] as String,
+    success: map['success'] as bool? ?? false,
+    skipped: map['skipped'] as bool? ?? false,
+    finalDestinationPath: map['finalDestinationPath'] as String?,
+    errorCode: map['errorCode'] as String?,
+    errorMessage: map['errorMessage'] as String?,
+  );
+
+  @override
+  String toString() => success
+      ? 'TransferResult($sourcePath -> ${finalDestinationPath ?? destinationPath}: '
+            '${skipped ? 'skipped' : 'ok'})'
+      : 'TransferResult($sourcePath -> $destinationPath: $errorCode $errorMessage)';
+}
+
+/// The outcome of a `moveDirectory` or `copyDirectory` call
+class DirectoryTransferResult {
+  final String sourcePath;
+  final String destinationPath;
+
+  /// Whether the source directory was renamed as a whole rather than file by
+  /// file
+  final bool renamedDirectory;
+
+  /// Number of images found below the source directory
+  final int fileCount;
+
+  /// Number of images moved or copied
+  final int transferred;
+
+  /// Number of images whose destination already held the same content
+  final int skipped;
+
+  /// Number of images that could not be moved or copied
+  final int failed;
+
+  /// The images that failed or ended up on another name; images that
+  /// arrived where asked are only counted
+  final List<TransferResult> items;
+
+  const DirectoryTransferResult({
+    required this.sourcePath,
+    required this.destinationPath,
+    required this.renamedDirectory,
+    required this.fileCount,
+    required this.transferred,
+    required this.skipped,
+    required this.failed,
+    required this.items,
+  });
+
+  factory DirectoryTransferResult.fromMap(Map<dynamic, dynamic> map) =>
+      DirectoryTransferResult(
+        sourcePath: map['sourcePath'] as String,
+        destinationPath: map['destinationPath'] as String,
+        renamedDirectory: map['renamedDirectory'] as bool? ?? false,
+        fileCount: map['fileCount'] as int? ?? 0,
+        transferred: map['transferred'] as int? ?? 0,
+        skipped: map['skipped'] as int? ?? 0,
+        failed: map['failed'] as int? ?? 0,
+        items: (map['items'] as List? ?? const [])
+            .map((item) => TransferResult.fromMap(item as Map))
+            .toList(),
+      );
+
+  @override
+  String toString() =>
+      'DirectoryTransferResult($sourcePath -> $destinationPath: '
+      '$transferred/$fileCount transferred, $skipped skipped, $failed failed'
+      '${renamedDirectory ? ', renamed' : ''})';
+}
+
+/// A progress update for a running move or copy call
+///
+/// Updates are throttled on the native side (see
+/// `SortogramMngStrg.configure(progressInterval: ...)`); the last update of
+/// each call has [done] set.
+class TransferProgress {
+  /// Identifies the call this update belongs to
+  final String? operationId;
+
+  /// The file currently being transferred, `null` in the final update
+  final String? path;
+
+  /// Bytes of [path] transferred so far
+  final int fileBytes;
+
+  /// Size of [path]
+  final int fileTotalBytes;
+
+  /// Bytes transferred by the whole call so far
+  final int bytesDone;
+
+  /// Size of all files of the call together, or -1 if unknown
+  final int totalBytes;
+
+  /// Number of files that finished (successfully or not)
+  final int filesCompleted;
+
+  /// Number of files in the call
+  final int fileCount;
+
+  /// Average throughput of the call so far
+  final double megabytesPerSecond;
+
+  /// Whether this is the final update of the call
+  final bool done;
+
+  const TransferProgress({
+    required this.operationId,
+    required this.path,
+    required this.fileBytes,
+    required this.fileTotalBytes,
+    required this.bytesDone,
+    required this.totalBytes,
+    required this.filesCompleted,
+    required this.fileCount,
+    required this.megabytesPerSecond,
+    required this.done,
+  });
+
+  factory TransferProgress.fromMap(Map<dynamic, dynamic> map) =>
+      TransferProgress(
+        operationId: map['operationId'] as String?,
+        path: map['path'] as String?,
+        fileBytes: map['fileBytes'] as int? ?? 0,
+        fileTotalBytes: map['fileTotalBytes'] as int? ?? 0,
+        bytesDone: map['bytesDone'] as int? ?? 0,
+        totalBytes: map['totalBytes'] as int? ?? -1,
+        filesCompleted: map['filesCompleted'] as int? ?? 0,
+        fileCount: map['fileCount'] as int? ?? 0,
+        megabytesPerSecond:
+            (map['megabytesPerSecond'] as num?)?.toDouble() ?? 0.0,
+        done: map['done'] as bool? ?? false,
+      );
+
+  /// Fraction of the call's bytes done, or `null` if the total is unknown
+  double? get fraction =>
+      totalBytes > 0 ? (bytesDone / totalBytes).clamp(0.0, 1.0) : null;
+
+  @override
+  String toString() =>
+      'TransferProgress($operationId: $filesCompleted/$fileCount files, '
+      '$bytesDone/$totalBytes bytes, ${megabytesPerSecond.toStringAsFixed(1)} MB/s'
+      '${done ? ', done' : ''})';
+}
+
+/// The state of a transfer job started with `startTransfer`
+enum TransferJobState { running, completed, cancelled }
+
+/// A snapshot of a transfer job
+class TransferJobStatus {
+  final String jobId;
+  final TransferJobState state;
+
+  /// Whether the job moves (rather than copies) its files
+  final bool move;
+
+  /// Number of files in the job
+  final int fileCount;
+
+  /// Number of files that finished (successfully or not), including those
+  /// finished by earlier runs of a resumed job
+  final int filesCompleted;
+
+  /// One result per file, in request order; files not yet transferred are
+  /// reported with `success == false` and no error code
+  final List<TransferResult> results;
+
+  const TransferJobStatus({
+    required this.jobId,
+    required this.state,
+    required this.move,
+    required this.fileCount,
+    required this.filesCompleted,
+    required this.results,
+  });
+
+  factory TransferJobStatus.fromMap(Map<dynamic, dynamic> map) =>
+      TransferJobStatus(
+        jobId: map['jobId'] as String,
+        state: TransferJobState.values.byName(map['state'] as String),
+        move: map['move'] as bool? ?? false,
+        fileCount: map['fileCount'] as int? ?? 0,
+        filesCompleted: map['filesCompleted'] as int? ?? 0,
+        results: ((map['results'] as List?) ?? const [])
+            .map((r) => TransferResult.fromMap(r as Map))
+            .toList(),
+      );
+
+  @override
+  String toString() =>
+      'TransferJobStatus($jobId: ${state.name}, $filesCompleted/$fileCount files)';
+}
+
+/// A MediaStore image column that `listImages` can return
+///
+/// Numeric columns are read with [ImagePage.numbers], text columns with
+/// [ImagePage.text] or [ImagePage.texts].
+enum ImageColumn {
+  id(numeric: true),
+  path(numeric: false),
+  displayName(numeric: false),
+  mimeType(numeric: false),
+
+  /// Size in bytes
+  size(numeric: true),
+
+  /// Seconds since the epoch
+  dateAdded(numeric: true),
+
+  /// Seconds since the epoch
+  dateModified(numeric: true),
+
+  /// Milliseconds since the epoch, 0 if unknown
+  dateTaken(numeric: true),
+  width(numeric: true),
+  height(numeric: true),
+  bucketId(numeric: true),
+  bucketDisplayName(numeric: false),
+
+  /// Android 10+ only
+  relativePath(numeric: false);
+
+  final bool numeric;
+
+  const ImageColumn({required this.numeric});
+}
+
+/// The sort order of `listImages`
+enum ImageOrder {
+  /// By modification date, then by id (default)
+  dateModified,
+
+  /// By MediaStore id, which follows the order images were added in
+  id,
+}
+
+/// One page of `listImages`, stored by column
+///
+/// Only the columns that were asked for are present. Missing text values read
+/// as an empty string and missing numbers as 0.
+class ImagePage {
+  /// Number of images in this page
+  final int count;
+
+  /// The keyset cursor of the next page, `null` if this is the last page
+  final int? nextAfterId;
+  final int? nextAfterDateModified;
+
+  final Map<String, Int64List> _numbers;
+  final Map<String, _TextColumn> _texts;
+
+  ImagePage._(
+    this.count,
+    this.nextAfterId,
+    this.nextAfterDateModified,
+    this._numbers,
+    this._texts,
+  );
+
+  factory ImagePage.fromMap(Map<dynamic, dynamic> map) {
+    final numbers = <String, Int64List>{};
+    final texts = <String, _TextColumn>{};
+    (map['columns'] as Map).forEach((name, data) {
+      if (data is Int64List) {
+        numbers[name as String] = data;
+      } else {
+        final parts = data as List;
+        texts[name as String] = _TextColumn(
+          parts[0] as Uint8List,
+          parts[1] as Int32List,
+        );
+      }
+    });
+    return ImagePage._(
+      map['count'] as int,
+      map['nextAfterId'] as int?,
+      map['nextAfterDateModified'] as int?,
+      numbers,
+      texts,
+    );
+  }
+
+  /// Whether this is the last page of the listing
+  bool get isLast => nextAfterId == null;
+
+  /// The values of a numeric [column], one per image
+  Int64List numbers(ImageColumn column) {
+    final values = _numbers[column.name];
+    if (values == null) {
+      throw ArgumentError('${column.name} is not a numeric column of this page');
+    }
+    return values;
+  }
+
+  /// The value of a text [column] for the image at [index]
+  String text(ImageColumn column, int index) => _textColumn(column).get(index);
+
+  /// All values of a text [column]; decodes every row, prefer [text] for
+  /// lazy access
+  List<String> texts(ImageColumn column) {
+    final values = _textColumn(column);
+    return List.generate(count, values.get);
+  }
+
+  _TextColumn _textColumn(ImageColumn column) {
+    final values = _texts[column.name];
+    if (values == null) {
+      throw ArgumentError('${column.name} is not a text column of this page');
+    }
+    return values;
+  }
+
+  @override
+  String toString() =>
+      'ImagePage($count images${isLast ? ', last' : ''})';
+}
+
+/// UTF-8 bytes of all rows plus the offset where each row starts
+class _TextColumn {
+  final Uint8List bytes;
+  final Int32List offsets;
+
+  const _TextColumn(this.bytes, this.offsets);
+
+  String get(int index) => utf8.decode(
+    Uint8List.sublistView(bytes, offsets[index], offsets[index + 1]),
+  );
+}
+
+/// Images with identical contents
+class DuplicateGroup {
+  /// Size of each file in bytes
+  final int size;
+
+  /// The xxHash64 of the contents, in hex
+  final String hash;
+
+  /// The identical files, sorted by path
+  final List<String> paths;
+
+  const DuplicateGroup({
+    required this.size,
+    required this.hash,
+    required this.paths,
+  });
+
+  factory DuplicateGroup.fromMap(Map<dynamic, dynamic> map) => DuplicateGroup(
+    size: map['size'] as int,
+    hash: map['hash'] as String,
+    paths: (map['paths'] as List).cast<String>(),
+  );
+
+  /// Bytes freed by keeping only one of the files
+  int get wastedBytes => size * (paths.length - 1);
+
+  @override
+  String toString() => 'DuplicateGroup($hash, ${paths.length} x $size bytes)';
+}
+
+/// The outcome of `findDuplicates`
+class DuplicateScan {
+  /// Groups of identical files, the ones wasting the most space first
+  final List<DuplicateGroup> groups;
+
+  /// Number of images found in the scanned folders
+  final int filesScanned;
+
+  /// Number of hash passes this scan had to read from disk
+  final int filesHashed;
+
+  /// Bytes read to compute those hashes
+  final int bytesHashed;
+
+  /// Number of files whose hashes were reused from an earlier scan
+  final int cacheHits;
+
+  const DuplicateScan({
+    required this.groups,
+    required this.filesScanned,
+    required this.filesHashed,
+    required this.bytesHashed,
+    required this.cacheHits,
+  });
+
+  factory DuplicateScan.fromMap(Map<dynamic, dynamic> map) => DuplicateScan(
+    groups: (map['groups'] as List)
+        .map((g) => DuplicateGroup.fromMap(g as Map))
+        .toList(),
+    filesScanned: map['filesScanned'] as int? ?? 0,
+    filesHashed: map['filesHashed'] as int? ?? 0,
+    bytesHashed: map['bytesHashed'] as int? ?? 0,
+    cacheHits: map['cacheHits'] as int? ?? 0,
+  );
+}
+
+/// Latencies of one step of a transfer, as recorded since the last reset
+///
+/// Percentiles come from a histogram and are accurate to within 1/16 of the
+/// real value.
+class PhaseMetrics {
+  /// How many times the step ran
+  final int count;
+  final Duration total;
+  final Duration mean;
+  final Duration p50;
+  final Duration p90;
+  final Duration p99;
+  final Duration max;
+
+  const PhaseMetrics({
+    required this.count,
+    required this.total,
+    required this.mean,
+    required this.p50,
+    required this.p90,
+    required this.p99,
+    required this.max,
+  });
+
+  factory PhaseMetrics.fromMap(Map<dynamic, dynamic> map) => PhaseMetrics(
+    count: map['count'] as int? ?? 0,
+    total: Duration(microseconds: map['totalUs'] as int? ?? 0),
+    mean: Duration(microseconds: map['meanUs'] as int? ?? 0),
+    p50: Duration(microseconds: map['p50Us'] as int? ?? 0),
+    p90: Duration(microseconds: map['p90Us'] as int? ?? 0),
+    p99: Duration(microseconds: map['p99Us'] as int? ?? 0),
+    max: Duration(microseconds: map['maxUs'] as int? ?? 0),
+  );
+
+  @override
+  String toString() =>
+      'PhaseMetrics($count x, p50 ${p50.inMicroseconds}us, p99 ${p99.inMicroseconds}us, max ${max.inMicroseconds}us)';
+}
+
+/// The metrics of all transfers since the plugin started or `resetMetrics`
+/// was last called
+class TransferMetrics {
+  /// When recording started
+  final DateTime since;
+
+  /// Latencies by step: `permissionCheck`, `transfer` (one whole file),
+  /// `rename`, `copy`, `fsync`, `batchSync`, `verify`, `commit`,
+  /// `mediaStoreBatch`, `scan` and `metadata`
+  final Map<String, PhaseMetrics> phases;
+
+  /// Bytes written by the copy engines
+  final int bytesCopied;
+
+  /// Copy throughput of a single worker; parallel workers add up to more
+  final int copyBytesPerSecond;
+
+  final int filesMoved;
+  final int filesCopied;
+
+  /// Files left alone because the destination already held them
+  final int filesSkipped;
+
+  /// MediaStore operations sent to the media provider, by kind; the latency
+  /// of the batches they were sent in is in the `mediaStoreBatch` phase
+  final int mediaStoreInserts;
+  final int mediaStoreDeletes;
+  final int mediaStoreUpdates;
+
+  /// Failed transfers by error code, e.g. `DEST_EXISTS`
+  final Map<String, int> errors;
+
+  const TransferMetrics({
+    required this.since,
+    required this.phases,
+    required this.bytesCopied,
+    required this.copyBytesPerSecond,
+    required this.filesMoved,
+    required this.filesCopied,
+    required this.filesSkipped,
+    required this.mediaStoreInserts,
+    required this.mediaStoreDeletes,
+    required this.mediaStoreUpdates,
+    required this.errors,
+  });
+
+  factory TransferMetrics.fromMap(Map<dynamic, dynamic> map) => TransferMetrics(
+    since: DateTime.fromMillisecondsSinceEpoch(map['since'] as int? ?? 0),
+    phases: ((map['phases'] as Map?) ?? const {}).map(
+      (name, phase) => MapEntry(name as String, PhaseMetrics.fromMap(phase as Map)),
+    ),
+    bytesCopied: map['bytesCopied'] as int? ?? 0,
+    copyBytesPerSecond: map['copyBytesPerSecond'] as int? ?? 0,
+    filesMoved: map['filesMoved'] as int? ?? 0,
+    filesCopied: map['filesCopied'] as int? ?? 0,
+    filesSkipped: map['filesSkipped'] as int? ?? 0,
+    mediaStoreInserts: map['mediaStoreInserts'] as int? ?? 0,
+    mediaStoreDeletes: map['mediaStoreDeletes'] as int? ?? 0,
+    mediaStoreUpdates: map['mediaStoreUpdates'] as int? ?? 0,
+    errors: ((map['errors'] as Map?) ?? const {}).map(
+      (code, count) => MapEntry(code as String, count as int),
+    ),
+  );
+
+  @override
+  String toString() =>
+      'TransferMetrics(${filesMoved + filesCopied} files, $bytesCopied bytes copied, '
+      '${errors.values.fold<int>(0, (sum, count) => sum + count)} errors)';
+}